@@ -0,0 +1,223 @@
+package com.inventario.benchmark;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.inventario.util.DatabaseConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+/**
+ * Base de datos MariaDB embebida para los benchmarks (compatible con MySQL, sin Docker).
+ *
+ * Cada JVM de JMH (un fork por benchmark y combinación de parámetros) arranca su propio
+ * servidor en un puerto libre, crea el esquema con scripts/01-init.sql (y opcionalmente los
+ * índices de scripts/06-optimizaciones-compatible.sql) y lo rellena con datos deterministas.
+ * DatabaseConfig se dirige al servidor con propiedades del sistema antes de su primera conexión.
+ *
+ * Los scripts se ejecutan por JDBC y no con el cliente mariadb incluido, que necesita
+ * bibliotecas del sistema (libncurses) que no siempre están instaladas.
+ */
+public final class BaseDatosEmbebida {
+    public static final String BASE_DATOS = "inventario_db";
+
+    static final String[] CATEGORIAS = {"Electrónica", "Ropa", "Informática", "Hogar", "Deportes",
+                                        "Juguetes", "Alimentación", "Libros"};
+    static final String[] NOMBRES = {"Auriculares", "Gorra", "Portátil", "Zapatos", "Lámpara", "Balón",
+                                     "Teclado", "Camiseta", "Monitor", "Sartén", "Puzzle", "Novela"};
+
+    private static DB db;
+    private static String configuracion;
+
+    private BaseDatosEmbebida() {}
+
+    /**
+     * Arranca el servidor (una vez por JVM) y prepara el esquema con los datos indicados.
+     * Llamarlo de nuevo con la misma configuración no hace nada
+     */
+    public static synchronized void iniciar(boolean conIndices, int numProductos, int numMovimientos)
+            throws ManagedProcessException, IOException, SQLException {
+        String pedida = conIndices + "/" + numProductos + "/" + numMovimientos;
+        if (pedida.equals(configuracion)) {
+            return;
+        }
+        if (db == null) {
+            arrancar();
+        }
+
+        String url = "jdbc:mysql://localhost:" + db.getConfiguration().getPort() +
+                     "/?useSSL=false&allowPublicKeyRetrieval=true&characterEncoding=UTF-8";
+        try {
+            try (Connection conn = DriverManager.getConnection(url, "root", "");
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP DATABASE IF EXISTS " + BASE_DATOS);
+                ejecutarScript(stmt, "sql/01-init.sql");
+                if (conIndices) {
+                    ejecutarScript(stmt, "sql/06-optimizaciones-compatible.sql");
+                }
+            }
+            poblar(numProductos, numMovimientos);
+        } catch (IOException | SQLException | RuntimeException e) {
+            // Si la preparación falla JMH no llama a @TearDown: sin esto el fork no terminaría
+            detener();
+            throw e;
+        }
+        configuracion = pedida;
+    }
+
+    /**
+     * Detiene el servidor. Se llama al terminar cada benchmark: el proceso de MariaDB
+     * mantiene vivo un hilo que impediría que el fork de JMH terminase
+     */
+    public static synchronized void detener() {
+        if (db == null) {
+            return;
+        }
+        try {
+            db.stop();
+        } catch (ManagedProcessException e) {
+            System.err.println("No se pudo detener la base de datos embebida: " + e.getMessage());
+        }
+        db = null;
+        configuracion = null;
+    }
+
+    /**
+     * Copia a un fichero temporal un recurso del classpath (p. ej. inventario.xsd),
+     * para las APIs que reciben una ruta
+     */
+    public static Path extraerRecurso(String nombre) throws IOException {
+        Path destino = Files.createTempFile("inventario-", "-" + nombre);
+        destino.toFile().deleteOnExit();
+        try (InputStream entrada = recurso(nombre)) {
+            Files.copy(entrada, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return destino;
+    }
+
+    private static void arrancar() throws ManagedProcessException {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0); // puerto libre: varios forks pueden convivir
+        config.addArg("--user=root");
+        config.addArg("--character-set-server=utf8mb4");
+        config.addArg("--innodb-buffer-pool-size=256M");
+        db = DB.newEmbeddedDB(config.build());
+        db.start();
+
+        // Las variables de entorno tienen prioridad: no deben estar definidas al ejecutar los benchmarks
+        System.setProperty("DB_HOST", "localhost");
+        System.setProperty("DB_PORT", String.valueOf(db.getConfiguration().getPort()));
+        System.setProperty("DB_NAME", BASE_DATOS);
+        System.setProperty("DB_USER", "root");
+        System.setProperty("DB_PASSWORD", "");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(BaseDatosEmbebida::detener, "parada-mariadb-embebida"));
+    }
+
+    /**
+     * Ejecuta un script SQL sentencia a sentencia (los scripts del proyecto no usan DELIMITER
+     * ni comentarios al final de una línea con SQL)
+     */
+    private static void ejecutarScript(Statement stmt, String nombre) throws IOException, SQLException {
+        StringBuilder sentencia = new StringBuilder();
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(recurso(nombre), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                String recortada = linea.trim();
+                if (recortada.isEmpty() || recortada.startsWith("--")) {
+                    continue;
+                }
+                sentencia.append(linea).append('\n');
+                if (recortada.endsWith(";")) {
+                    stmt.execute(sentencia.substring(0, sentencia.lastIndexOf(";")));
+                    sentencia.setLength(0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Categorías, productos con nombres como los de data/productos.csv y movimientos repartidos
+     * entre los productos. La semilla es fija para que todas las ejecuciones midan los mismos datos
+     */
+    private static void poblar(int numProductos, int numMovimientos) throws SQLException {
+        SplittableRandom aleatorio = new SplittableRandom(42);
+
+        try (Connection conn = DatabaseConfig.getInstance().getConnectionForTransaction()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT IGNORE INTO categorias (nombre, descripcion) VALUES (?, ?)")) {
+                for (String categoria : CATEGORIAS) {
+                    stmt.setString(1, categoria);
+                    stmt.setString(2, "Categoría " + categoria);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO productos (nombre, categoria, precio, stock) VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= numProductos; i++) {
+                    stmt.setString(1, NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " " + i);
+                    stmt.setString(2, CATEGORIAS[aleatorio.nextInt(CATEGORIAS.length)]);
+                    stmt.setBigDecimal(3, BigDecimal.valueOf(aleatorio.nextDouble(1, 2000))
+                            .setScale(2, RoundingMode.HALF_UP));
+                    stmt.setInt(4, 1000 + aleatorio.nextInt(1000));
+                    stmt.addBatch();
+                    if (i % 1000 == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+
+            // Entradas antiguas: no alteran el stock sembrado, solo dan volumen al historial
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO movimientos_stock (id_producto, tipo_movimiento, cantidad, stock_anterior, " +
+                    "stock_nuevo, motivo, fecha_movimiento) " +
+                    "VALUES (?, 'ENTRADA', ?, 0, ?, 'Carga inicial', NOW() - INTERVAL ? MINUTE)")) {
+                for (int i = 1; i <= numMovimientos; i++) {
+                    int cantidad = 1 + aleatorio.nextInt(50);
+                    stmt.setInt(1, 1 + aleatorio.nextInt(numProductos));
+                    stmt.setInt(2, cantidad);
+                    stmt.setInt(3, cantidad);
+                    stmt.setInt(4, numMovimientos - i);
+                    stmt.addBatch();
+                    if (i % 1000 == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+
+            conn.commit();
+        }
+
+        try (Connection conn = DatabaseConfig.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE TABLE productos, movimientos_stock");
+        }
+    }
+
+    private static InputStream recurso(String nombre) throws IOException {
+        InputStream entrada = BaseDatosEmbebida.class.getClassLoader().getResourceAsStream(nombre);
+        if (entrada == null) {
+            throw new IOException("Recurso no encontrado en el classpath: " + nombre);
+        }
+        return entrada;
+    }
+}
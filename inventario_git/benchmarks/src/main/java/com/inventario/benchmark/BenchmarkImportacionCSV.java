@@ -0,0 +1,78 @@
+package com.inventario.benchmark;
+
+import com.inventario.dao.impl.MovimientoStockDAOImpl;
+import com.inventario.service.ImportadorMovimientosCSV;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importación de un CSV de movimientos con el mismo formato que data/movimientos_ejemplo.csv
+ * (ImportadorMovimientosCSV.importarDesdeCSV: lectura, validación y lotes transaccionales)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmarks.xml")
+public class BenchmarkImportacionCSV {
+
+    @Param({"1000"})
+    public int lineas;
+
+    @Param({"20000"})
+    public int productos;
+
+    private Path archivo;
+
+    @Setup
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(true, productos, productos * 5);
+
+        // Entradas y salidas emparejadas: el stock no se agota por muchas veces que se importe
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        archivo = Files.createTempFile("movimientos-benchmark-", ".csv");
+        archivo.toFile().deleteOnExit();
+        try (BufferedWriter writer = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            writer.write("id_producto,tipo_movimiento,cantidad,motivo,usuario\n");
+            for (int i = 0; i < lineas; i += 2) {
+                int idProducto = 1 + aleatorio.nextInt(productos);
+                int cantidad = 1 + aleatorio.nextInt(10);
+                writer.write(idProducto + ",ENTRADA," + cantidad + ",Reposicion,benchmark\n");
+                writer.write(idProducto + ",SALIDA," + cantidad + ",Venta,benchmark\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void detener() {
+        BaseDatosEmbebida.detener();
+    }
+
+    @Benchmark
+    public ImportadorMovimientosCSV.ResultadoImportacion importarDesdeCSV() {
+        ImportadorMovimientosCSV.ResultadoImportacion resultado =
+                new ImportadorMovimientosCSV(new MovimientoStockDAOImpl()).importarDesdeCSV(archivo.toString());
+        if (!resultado.isExito()) {
+            throw new IllegalStateException("La importación falló: " + resultado.getErrores());
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,70 @@
+package com.inventario.benchmark;
+
+import com.inventario.dao.impl.ProductoDAOImpl;
+import com.inventario.model.Producto;
+import com.inventario.util.JsonUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Exportación de productos a JSON (JsonUtil): en streaming desde la base de datos,
+ * como hace la aplicación, y desde una lista ya cargada para aislar el coste de la serialización
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmarks.xml")
+public class BenchmarkJson {
+
+    @Param({"20000"})
+    public int productos;
+
+    private ProductoDAOImpl productoDAO;
+    private List<Producto> cargados;
+    private Path destino;
+
+    @Setup
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(true, productos, productos * 5);
+        productoDAO = new ProductoDAOImpl();
+        cargados = productoDAO.obtenerTodos();
+        destino = Files.createTempFile("productos-benchmark-", ".json");
+        destino.toFile().deleteOnExit();
+    }
+
+    @TearDown
+    public void detener() {
+        BaseDatosEmbebida.detener();
+    }
+
+    @Benchmark
+    public int exportarEnStreaming() throws Exception {
+        try (Stream<Producto> stream = productoDAO.streamTodos()) {
+            return JsonUtil.exportarProductos(stream, destino.toString());
+        }
+    }
+
+    @Benchmark
+    public int exportarLista() throws Exception {
+        JsonUtil.exportarProductos(cargados, destino.toString());
+        return cargados.size();
+    }
+}
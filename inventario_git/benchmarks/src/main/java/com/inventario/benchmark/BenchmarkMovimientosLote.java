@@ -0,0 +1,74 @@
+package com.inventario.benchmark;
+
+import com.inventario.dao.impl.MovimientoStockDAOImpl;
+import com.inventario.model.MovimientoStock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un lote de movimientos en una transacción (MovimientoStockDAO.registrarMovimientosLote).
+ * Cada ENTRADA va seguida de una SALIDA de la misma cantidad, así que el stock no varía
+ * entre invocaciones y ninguna salida puede fallar por falta de stock
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmarks.xml")
+public class BenchmarkMovimientosLote {
+
+    @Param({"10", "100"})
+    public int tamanoLote;
+
+    @Param({"20000"})
+    public int productos;
+
+    private MovimientoStockDAOImpl movimientoDAO;
+    private List<MovimientoStock> lote;
+
+    @Setup
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(true, productos, productos * 5);
+        movimientoDAO = new MovimientoStockDAOImpl();
+    }
+
+    @TearDown
+    public void detener() {
+        BaseDatosEmbebida.detener();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepararLote() {
+        // El DAO rellena ID y stocks en cada movimiento: se crean nuevos en cada invocación
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        lote = new ArrayList<>(tamanoLote);
+        for (int i = 0; i < tamanoLote; i += 2) {
+            int idProducto = 1 + aleatorio.nextInt(productos);
+            int cantidad = 1 + aleatorio.nextInt(10);
+            lote.add(new MovimientoStock(idProducto, "ENTRADA", cantidad, "Benchmark", "benchmark"));
+            lote.add(new MovimientoStock(idProducto, "SALIDA", cantidad, "Benchmark", "benchmark"));
+        }
+    }
+
+    @Benchmark
+    public int registrarMovimientosLote() throws Exception {
+        return movimientoDAO.registrarMovimientosLote(lote);
+    }
+}
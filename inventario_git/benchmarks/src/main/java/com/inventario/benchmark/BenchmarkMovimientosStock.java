@@ -0,0 +1,102 @@
+package com.inventario.benchmark;
+
+import com.inventario.dao.impl.CategoriaDAOImpl;
+import com.inventario.dao.impl.LibroStockDAOImpl;
+import com.inventario.dao.impl.MovimientoStockDAOImpl;
+import com.inventario.dao.impl.ProductoDAOImpl;
+import com.inventario.dao.impl.ReservaStockDAOImpl;
+import com.inventario.dao.impl.StockFragmentadoDAOImpl;
+import com.inventario.service.InventarioService;
+import com.inventario.service.impl.InventarioServiceImpl;
+import com.inventario.util.DatabaseConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Una ENTRADA de stock por la ruta anterior (buscarPorId + actualizarStock + registrarMovimiento
+ * en otra conexión) frente a la ruta unificada del servicio (una transacción con
+ * SELECT ... FOR UPDATE + INSERT + UPDATE)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmarks.xml")
+public class BenchmarkMovimientosStock {
+
+    @Param({"20000"})
+    public int productos;
+
+    private DatabaseConfig dbConfig;
+    private ProductoDAOImpl productoDAO;
+    private InventarioService servicio;
+
+    @Setup
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(true, productos, productos * 5);
+        dbConfig = DatabaseConfig.getInstance();
+        productoDAO = new ProductoDAOImpl();
+        servicio = new InventarioServiceImpl(new CategoriaDAOImpl(), productoDAO, new MovimientoStockDAOImpl(),
+                new StockFragmentadoDAOImpl(), new ReservaStockDAOImpl(), new LibroStockDAOImpl());
+    }
+
+    @TearDown
+    public void detener() {
+        BaseDatosEmbebida.detener();
+    }
+
+    @Benchmark
+    public boolean rutaUnificada() throws Exception {
+        return servicio.registrarEntradaStock(1 + ThreadLocalRandom.current().nextInt(productos), 1, "Benchmark");
+    }
+
+    /**
+     * Reproduce la secuencia que hacía el servicio antes de unificar la ruta
+     */
+    @Benchmark
+    public int rutaAnterior() throws Exception {
+        int idProducto = 1 + ThreadLocalRandom.current().nextInt(productos);
+        int stockAnterior = productoDAO.buscarPorId(idProducto).orElseThrow().getStock();
+        productoDAO.actualizarStock(idProducto, stockAnterior + 1);
+
+        // registrarMovimiento: otra conexión, otra lectura del producto, INSERT y UPDATE
+        try (Connection conn = dbConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            int stockLeido = productoDAO.buscarPorId(idProducto).orElseThrow().getStock();
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO movimientos_stock (id_producto, tipo_movimiento, cantidad, stock_anterior, stock_nuevo, motivo, usuario) " +
+                    "VALUES (?, 'ENTRADA', 1, ?, ?, 'Benchmark', 'benchmark')", Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, idProducto);
+                stmt.setInt(2, stockLeido);
+                stmt.setInt(3, stockLeido + 1);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE productos SET stock = ? WHERE id_producto = ?")) {
+                stmt.setInt(1, stockLeido + 1);
+                stmt.setInt(2, idProducto);
+                stmt.executeUpdate();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            return stockLeido + 1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.inventario.benchmark;
+
+import com.inventario.dao.impl.ProductoDAOImpl;
+import com.inventario.model.Producto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecturas de productos sin caché (ProductoDAOImpl directamente), con y sin los índices
+ * de scripts/06-optimizaciones-compatible.sql: el parámetro indices permite comprobar
+ * la mejora que se atribuye a la búsqueda FULLTEXT frente a LIKE '%texto%'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmarks.xml")
+public class BenchmarkProductoDAO {
+
+    @Param({"true", "false"})
+    public boolean indices;
+
+    @Param({"20000"})
+    public int productos;
+
+    private ProductoDAOImpl productoDAO;
+
+    @Setup
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(indices, productos, productos * 5);
+        productoDAO = new ProductoDAOImpl();
+    }
+
+    @TearDown
+    public void detener() {
+        BaseDatosEmbebida.detener();
+    }
+
+    @Benchmark
+    public Optional<Producto> buscarPorId() throws Exception {
+        return productoDAO.buscarPorId(1 + ThreadLocalRandom.current().nextInt(productos));
+    }
+
+    @Benchmark
+    public List<Producto> buscarPorNombre() throws Exception {
+        String[] nombres = BaseDatosEmbebida.NOMBRES;
+        return productoDAO.buscarPorNombre(nombres[ThreadLocalRandom.current().nextInt(nombres.length)]);
+    }
+}
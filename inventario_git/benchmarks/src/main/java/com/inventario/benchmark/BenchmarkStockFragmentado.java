@@ -0,0 +1,87 @@
+package com.inventario.benchmark;
+
+import com.inventario.dao.impl.CategoriaDAOImpl;
+import com.inventario.dao.impl.LibroStockDAOImpl;
+import com.inventario.dao.impl.MovimientoStockDAOImpl;
+import com.inventario.dao.impl.ProductoDAOImpl;
+import com.inventario.dao.impl.ReservaStockDAOImpl;
+import com.inventario.dao.impl.StockFragmentadoDAOImpl;
+import com.inventario.service.InventarioService;
+import com.inventario.service.impl.InventarioServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ventas de una unidad de un único producto muy vendido con muchos vendedores concurrentes,
+ * con el stock en una sola fila de productos (fragmentos = 0) o repartido en stock_fragmentos.
+ * Al terminar comprueba que el stock total coincide con las ventas confirmadas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmarks.xml")
+public class BenchmarkStockFragmentado {
+
+    private static final int ID_PRODUCTO = 1;
+    // Stock de sobra: la ruta lenta solo se mide si se agota un fragmento
+    private static final int STOCK_INICIAL = 1_000_000_000;
+
+    @Param({"0", "16"})
+    public int fragmentos;
+
+    @Param({"1000"})
+    public int productos;
+
+    private ProductoDAOImpl productoDAO;
+    private InventarioService servicio;
+    private final AtomicLong ventas = new AtomicLong();
+
+    @Setup
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(true, productos, productos * 5);
+        productoDAO = new ProductoDAOImpl();
+        servicio = new InventarioServiceImpl(new CategoriaDAOImpl(), productoDAO, new MovimientoStockDAOImpl(),
+                new StockFragmentadoDAOImpl(), new ReservaStockDAOImpl(), new LibroStockDAOImpl());
+        servicio.actualizarStock(ID_PRODUCTO, STOCK_INICIAL);
+        if (fragmentos > 0) {
+            servicio.activarStockFragmentado(ID_PRODUCTO, fragmentos);
+        }
+    }
+
+    @TearDown
+    public void detener() throws Exception {
+        try {
+            int stockFinal = productoDAO.obtenerStockTotal(ID_PRODUCTO);
+            if (STOCK_INICIAL - ventas.get() != stockFinal) {
+                throw new IllegalStateException(String.format(
+                    "Stock final %d con %d ventas confirmadas sobre %d", stockFinal, ventas.get(), STOCK_INICIAL));
+            }
+        } finally {
+            BaseDatosEmbebida.detener();
+        }
+    }
+
+    @Benchmark
+    public boolean registrarSalidaStock() throws Exception {
+        boolean vendida = servicio.registrarSalidaStock(ID_PRODUCTO, 1, "Benchmark");
+        ventas.incrementAndGet();
+        return vendida;
+    }
+}
@@ -0,0 +1,82 @@
+package com.inventario.benchmark;
+
+import com.inventario.util.DatabaseConfig;
+import com.inventario.xml.XMLManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportación e importación del inventario completo en XML (XMLManager), con validación XSD.
+ * La importación no limpia las tablas: repite el UPSERT de las mismas filas exportadas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmarks.xml")
+public class BenchmarkXML {
+
+    @Param({"5000"})
+    public int productos;
+
+    private Connection connection;
+    private XMLManager xmlManager;
+    private Path exportado;
+    private Path importado;
+    private Path xsd;
+
+    @Setup
+    public void preparar() throws Exception {
+        BaseDatosEmbebida.iniciar(true, productos, productos * 5);
+        connection = DatabaseConfig.getInstance().getConnection();
+        xmlManager = new XMLManager(connection);
+        xsd = BaseDatosEmbebida.extraerRecurso("inventario.xsd");
+
+        exportado = Files.createTempFile("inventario-benchmark-", ".xml");
+        exportado.toFile().deleteOnExit();
+        importado = Files.createTempFile("inventario-benchmark-importar-", ".xml");
+        importado.toFile().deleteOnExit();
+        if (!xmlManager.exportarInventarioXML(importado.toString())) {
+            throw new IllegalStateException("No se pudo generar el XML a importar");
+        }
+    }
+
+    @TearDown
+    public void cerrar() {
+        DatabaseConfig.getInstance().closeConnection(connection);
+        BaseDatosEmbebida.detener();
+    }
+
+    @Benchmark
+    public boolean exportarInventarioXML() {
+        return comprobar(xmlManager.exportarInventarioXML(exportado.toString()), "exportación");
+    }
+
+    @Benchmark
+    public boolean importarInventarioXML() {
+        return comprobar(xmlManager.importarInventarioXML(importado.toString(), xsd.toString(), false), "importación");
+    }
+
+    private static boolean comprobar(boolean correcto, String operacion) {
+        if (!correcto) {
+            throw new IllegalStateException("La " + operacion + " XML falló");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+package com.inventario.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Punto de entrada del jar de benchmarks.
+ *
+ * Acepta las mismas opciones que JMH (por ejemplo "BenchmarkProductoDAO" para ejecutar solo esa
+ * clase, o "-p indices=true") y, salvo que se indique otro, guarda el resultado en JSON en
+ * resultados/jmh-&lt;fecha&gt;.json para poder compararlo entre ejecuciones.
+ */
+public class EjecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions lineaComandos = new CommandLineOptions(args);
+
+        String resultado = lineaComandos.getResult().orElseGet(() -> {
+            new File("resultados").mkdirs();
+            return "resultados/jmh-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".json";
+        });
+
+        Options opciones = new OptionsBuilder()
+                .parent(lineaComandos)
+                .resultFormat(lineaComandos.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(resultado)
+                .build();
+
+        new Runner(opciones).run();
+        System.out.println("Resultados guardados en: " + resultado);
+    }
+}
@@ -0,0 +1,149 @@
+package com.inventario.benchmark.carga;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parámetros de la prueba de carga, leídos de la línea de comandos con la forma --opcion valor
+ */
+public class ConfiguracionCarga {
+
+    public static final String USO = String.join("\n",
+        "Uso: GeneradorCarga [opciones]",
+        "  --usuarios N        usuarios virtuales concurrentes (por defecto 16)",
+        "  --duracion S        segundos de medición (por defecto 60)",
+        "  --calentamiento S   segundos previos que no se miden (por defecto 10)",
+        "  --pensar MS         tiempo de reflexión medio entre operaciones, exponencial (por defecto 0)",
+        "  --zipf S            sesgo de popularidad de los productos; 0 = uniforme (por defecto 1.0)",
+        "  --mezcla LISTA      pesos por operación (por defecto entrada=20,salida=30,consulta=45,analitica=5)",
+        "  --cantidad N        unidades máximas por movimiento (por defecto 5)",
+        "  --embebida          usa una MariaDB embebida en lugar de la base de DB_HOST/DB_PORT/...",
+        "  --productos N       productos de la base embebida (por defecto 20000)",
+        "  --resultados DIR    directorio del resumen JSON y del log de histogramas (por defecto resultados)");
+
+    private int usuarios = 16;
+    private int duracionSegundos = 60;
+    private int calentamientoSegundos = 10;
+    private double pensarMilisegundos;
+    private double exponenteZipf = 1.0;
+    private final Map<OperacionCarga, Integer> mezcla = new EnumMap<>(OperacionCarga.class);
+    private int cantidadMaxima = 5;
+    private boolean embebida;
+    private int productosEmbebida = 20_000;
+    private Path directorioResultados = Paths.get("resultados");
+
+    private ConfiguracionCarga() {
+        mezcla.put(OperacionCarga.ENTRADA, 20);
+        mezcla.put(OperacionCarga.SALIDA, 30);
+        mezcla.put(OperacionCarga.CONSULTA, 45);
+        mezcla.put(OperacionCarga.ANALITICA, 5);
+    }
+
+    /**
+     * Lee la configuración de los argumentos del programa.
+     * Lanza IllegalArgumentException si alguna opción no es válida
+     */
+    public static ConfiguracionCarga desdeArgumentos(String[] args) {
+        ConfiguracionCarga config = new ConfiguracionCarga();
+        for (int i = 0; i < args.length; i++) {
+            String opcion = args[i];
+            if ("--embebida".equals(opcion)) {
+                config.embebida = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Falta el valor de la opción " + opcion);
+            }
+            String valor = args[++i].trim();
+            try {
+                switch (opcion) {
+                    case "--usuarios" -> config.usuarios = Integer.parseInt(valor);
+                    case "--duracion" -> config.duracionSegundos = Integer.parseInt(valor);
+                    case "--calentamiento" -> config.calentamientoSegundos = Integer.parseInt(valor);
+                    case "--pensar" -> config.pensarMilisegundos = Double.parseDouble(valor);
+                    case "--zipf" -> config.exponenteZipf = Double.parseDouble(valor);
+                    case "--mezcla" -> config.parsearMezcla(valor);
+                    case "--cantidad" -> config.cantidadMaxima = Integer.parseInt(valor);
+                    case "--productos" -> config.productosEmbebida = Integer.parseInt(valor);
+                    case "--resultados" -> config.directorioResultados = Paths.get(valor);
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + opcion);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor inválido para " + opcion + ": '" + valor + "'", e);
+            }
+        }
+        config.validar();
+        return config;
+    }
+
+    private void parsearMezcla(String valor) {
+        mezcla.replaceAll((operacion, peso) -> 0);
+        for (String par : valor.split(",")) {
+            String[] partes = par.split("=");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Peso inválido en la mezcla: '" + par + "'");
+            }
+            OperacionCarga operacion = OperacionCarga.valueOf(partes[0].trim().toUpperCase(Locale.ROOT));
+            mezcla.put(operacion, Integer.parseInt(partes[1].trim()));
+        }
+    }
+
+    private void validar() {
+        if (usuarios <= 0 || duracionSegundos <= 0 || calentamientoSegundos < 0 || pensarMilisegundos < 0) {
+            throw new IllegalArgumentException("Parámetros de carga inválidos: usuarios=" + usuarios +
+                ", duración=" + duracionSegundos + ", calentamiento=" + calentamientoSegundos +
+                ", pensar=" + pensarMilisegundos);
+        }
+        if (exponenteZipf < 0 || cantidadMaxima <= 0 || productosEmbebida <= 0) {
+            throw new IllegalArgumentException("Parámetros de datos inválidos: zipf=" + exponenteZipf +
+                ", cantidad=" + cantidadMaxima + ", productos=" + productosEmbebida);
+        }
+        if (mezcla.values().stream().anyMatch(peso -> peso < 0) ||
+            mezcla.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("La mezcla necesita pesos no negativos y al menos uno positivo: " + mezcla);
+        }
+    }
+
+    public int getUsuarios() {
+        return usuarios;
+    }
+
+    public int getDuracionSegundos() {
+        return duracionSegundos;
+    }
+
+    public int getCalentamientoSegundos() {
+        return calentamientoSegundos;
+    }
+
+    public double getPensarMilisegundos() {
+        return pensarMilisegundos;
+    }
+
+    public double getExponenteZipf() {
+        return exponenteZipf;
+    }
+
+    public Map<OperacionCarga, Integer> getMezcla() {
+        return mezcla;
+    }
+
+    public int getCantidadMaxima() {
+        return cantidadMaxima;
+    }
+
+    public boolean isEmbebida() {
+        return embebida;
+    }
+
+    public int getProductosEmbebida() {
+        return productosEmbebida;
+    }
+
+    public Path getDirectorioResultados() {
+        return directorioResultados;
+    }
+}
@@ -0,0 +1,80 @@
+package com.inventario.benchmark.carga;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latencias y resultados de las operaciones de un usuario virtual (sin sincronización:
+ * cada usuario tiene las suyas) o de todos una vez combinadas al terminar
+ */
+public class EstadisticasCarga {
+    private static final int DIGITOS_SIGNIFICATIVOS = 3;
+
+    private final Map<OperacionCarga, Histogram> latencias = new EnumMap<>(OperacionCarga.class);
+    private final long[][] resultados = new long[OperacionCarga.values().length][ResultadoOperacion.values().length];
+    private final Map<ResultadoOperacion, String> primerError = new EnumMap<>(ResultadoOperacion.class);
+    private long movimientosConfirmados;
+
+    public EstadisticasCarga() {
+        for (OperacionCarga operacion : OperacionCarga.values()) {
+            // Nanosegundos, con rango automático: no hay que fijar de antemano la latencia máxima
+            latencias.put(operacion, new Histogram(DIGITOS_SIGNIFICATIVOS));
+        }
+    }
+
+    /**
+     * Anota una operación de la fase de medición
+     */
+    public void registrar(OperacionCarga operacion, ResultadoOperacion resultado, long latenciaNanos, Exception error) {
+        latencias.get(operacion).recordValue(latenciaNanos);
+        resultados[operacion.ordinal()][resultado.ordinal()]++;
+        if (error != null) {
+            primerError.putIfAbsent(resultado, operacion + ": " + error.getMessage());
+        }
+    }
+
+    /**
+     * Cuenta un movimiento aceptado por el servicio, también durante el calentamiento:
+     * el total se compara con las filas insertadas en movimientos_stock
+     */
+    public void registrarMovimientoConfirmado() {
+        movimientosConfirmados++;
+    }
+
+    public void combinar(EstadisticasCarga otras) {
+        for (OperacionCarga operacion : OperacionCarga.values()) {
+            latencias.get(operacion).add(otras.latencias.get(operacion));
+            for (ResultadoOperacion resultado : ResultadoOperacion.values()) {
+                resultados[operacion.ordinal()][resultado.ordinal()] += otras.resultados[operacion.ordinal()][resultado.ordinal()];
+            }
+        }
+        otras.primerError.forEach(primerError::putIfAbsent);
+        movimientosConfirmados += otras.movimientosConfirmados;
+    }
+
+    public Histogram getLatencias(OperacionCarga operacion) {
+        return latencias.get(operacion);
+    }
+
+    public long getResultados(OperacionCarga operacion, ResultadoOperacion resultado) {
+        return resultados[operacion.ordinal()][resultado.ordinal()];
+    }
+
+    public long getResultados(ResultadoOperacion resultado) {
+        long total = 0;
+        for (OperacionCarga operacion : OperacionCarga.values()) {
+            total += getResultados(operacion, resultado);
+        }
+        return total;
+    }
+
+    public Map<ResultadoOperacion, String> getPrimerError() {
+        return primerError;
+    }
+
+    public long getMovimientosConfirmados() {
+        return movimientosConfirmados;
+    }
+}
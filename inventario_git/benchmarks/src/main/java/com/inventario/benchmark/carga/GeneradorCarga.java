@@ -0,0 +1,354 @@
+package com.inventario.benchmark.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.inventario.benchmark.BaseDatosEmbebida;
+import com.inventario.dao.ConsultasAvanzadasDAO;
+import com.inventario.dao.impl.CategoriaDAOImpl;
+import com.inventario.dao.impl.CategoriaDAORegistrado;
+import com.inventario.dao.impl.ConsultasAvanzadasDAOImpl;
+import com.inventario.dao.impl.LibroStockDAOImpl;
+import com.inventario.dao.impl.MovimientoStockDAOImpl;
+import com.inventario.dao.impl.ProductoDAOCacheado;
+import com.inventario.dao.impl.ProductoDAOImpl;
+import com.inventario.dao.impl.ReservaStockDAOImpl;
+import com.inventario.dao.impl.SnapshotsStockPeriodicos;
+import com.inventario.dao.impl.StockFragmentadoDAOImpl;
+import com.inventario.generador.DistribucionZipf;
+import com.inventario.service.InventarioService;
+import com.inventario.service.impl.InventarioServiceImpl;
+import com.inventario.util.CapacidadesEsquema;
+import com.inventario.util.DatabaseConfig;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga de InventarioService con N usuarios virtuales concurrentes
+ * (entradas, salidas, consultas por ID y consultas analíticas).
+ *
+ * Mide el rendimiento y las latencias p50/p99/p999 con histogramas HDR, cuenta rechazos por
+ * stock, interbloqueos y esperas de bloqueo agotadas, y mide la apertura de conexiones. Al
+ * terminar comprueba en movimientos_stock que no hubo sobreventas (stock negativo) ni
+ * actualizaciones perdidas (un movimiento que no parte del stock que dejó el anterior).
+ *
+ * Uso: java -cp target/benchmarks.jar com.inventario.benchmark.carga.GeneradorCarga --embebida --usuarios 32
+ */
+public class GeneradorCarga {
+    private static final long SEMILLA = 42;
+    private static final long AVISO_PROGRESO_SEGUNDOS = 5;
+    private static final double NANOS_POR_MILISEGUNDO = 1_000_000.0;
+
+    private final ConfiguracionCarga config;
+
+    public GeneradorCarga(ConfiguracionCarga config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) {
+        // Antes de que se inicialice logback (ninguna clase cargada hasta aquí tiene un Logger)
+        if (System.getProperty("logback.configurationFile") == null) {
+            System.setProperty("logback.configurationFile", "logback-carga.xml");
+        }
+
+        ConfiguracionCarga config;
+        try {
+            config = ConfiguracionCarga.desdeArgumentos(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ " + e.getMessage());
+            System.err.println(ConfiguracionCarga.USO);
+            System.exit(1);
+            return;
+        }
+
+        int codigo = 0;
+        try {
+            new GeneradorCarga(config).ejecutar();
+        } catch (Exception e) {
+            // Sin campo estático: el Logger de la clase inicializaría logback antes de fijar su configuración
+            LoggerFactory.getLogger(GeneradorCarga.class).error("Error en la prueba de carga", e);
+            codigo = 1;
+        } finally {
+            if (config.isEmbebida()) {
+                BaseDatosEmbebida.detener();
+            }
+        }
+        System.exit(codigo);
+    }
+
+    public void ejecutar() throws Exception {
+        if (config.isEmbebida()) {
+            System.out.println("→ Arrancando MariaDB embebida con " + config.getProductosEmbebida() + " productos...");
+            BaseDatosEmbebida.iniciar(true, config.getProductosEmbebida(), config.getProductosEmbebida() * 5);
+        }
+
+        DatabaseConfig dbConfig = DatabaseConfig.getInstance();
+        if (!dbConfig.testConnection()) {
+            throw new SQLException("No se pudo conectar con " + dbConfig.getConnectionUrl());
+        }
+        // Mismo arranque que Main: estrategias de consulta y, en modo libro mayor, snapshots periódicos
+        CapacidadesEsquema.getInstance().detectar();
+        if (LibroStockDAOImpl.estaHabilitado()) {
+            SnapshotsStockPeriodicos.getInstance();
+        }
+
+        InventarioService servicio = new InventarioServiceImpl(
+            new CategoriaDAORegistrado(new CategoriaDAOImpl()), new ProductoDAOCacheado(new ProductoDAOImpl()),
+            new MovimientoStockDAOImpl(), new StockFragmentadoDAOImpl(), new ReservaStockDAOImpl(),
+            new LibroStockDAOImpl());
+        ConsultasAvanzadasDAO consultas = new ConsultasAvanzadasDAOImpl();
+
+        int[] idsProducto = leerIdsProducto(dbConfig);
+        if (idsProducto.length == 0) {
+            throw new IllegalStateException("No hay productos en la base de datos");
+        }
+        DistribucionZipf popularidad = new DistribucionZipf(idsProducto.length, config.getExponenteZipf());
+        long ultimoMovimientoPrevio = consultarNumero(dbConfig, "SELECT COALESCE(MAX(id_movimiento), 0) FROM movimientos_stock");
+
+        System.out.println("\n=== PRUEBA DE CARGA ===");
+        System.out.printf("Usuarios: %d | Calentamiento: %d s | Medición: %d s | Pensar: %.1f ms | Zipf: %.2f%n",
+            config.getUsuarios(), config.getCalentamientoSegundos(), config.getDuracionSegundos(),
+            config.getPensarMilisegundos(), config.getExponenteZipf());
+        System.out.println("Productos: " + idsProducto.length + " | Mezcla: " + config.getMezcla());
+        System.out.println();
+
+        long inicio = System.nanoTime();
+        long inicioMedicion = inicio + TimeUnit.SECONDS.toNanos(config.getCalentamientoSegundos());
+        long fin = inicioMedicion + TimeUnit.SECONDS.toNanos(config.getDuracionSegundos());
+
+        LongAdder progreso = new LongAdder();
+        SplittableRandom semillas = new SplittableRandom(SEMILLA);
+        List<UsuarioVirtual> usuarios = new ArrayList<>();
+        List<Thread> hilos = new ArrayList<>();
+        for (int i = 0; i < config.getUsuarios(); i++) {
+            UsuarioVirtual usuario = new UsuarioVirtual(servicio, consultas, idsProducto, popularidad, config,
+                inicioMedicion, fin, semillas.split(), progreso);
+            Thread hilo = new Thread(usuario, "usuario-" + (i + 1));
+            usuarios.add(usuario);
+            hilos.add(hilo);
+            hilo.start();
+        }
+
+        // Las conexiones del calentamiento no cuentan
+        esperarHasta(inicioMedicion);
+        long conexionesInicio = dbConfig.getConexionesAbiertas();
+        long tiempoConexionInicio = dbConfig.getTiempoTotalConexionNanos();
+        System.out.println("→ Calentamiento terminado, midiendo...");
+
+        while (System.nanoTime() < fin) {
+            esperarHasta(Math.min(fin, System.nanoTime() + TimeUnit.SECONDS.toNanos(AVISO_PROGRESO_SEGUNDOS)));
+            double transcurridos = (System.nanoTime() - inicioMedicion) / 1e9;
+            System.out.printf("→ %.0f s | %,d operaciones | %,.0f ops/s%n",
+                transcurridos, progreso.sum(), progreso.sum() / transcurridos);
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        // Las últimas operaciones pueden terminar algo después del final previsto
+        double segundosMedidos = (Math.max(fin, System.nanoTime()) - inicioMedicion) / 1e9;
+
+        EstadisticasCarga total = new EstadisticasCarga();
+        usuarios.forEach(usuario -> total.combinar(usuario.getEstadisticas()));
+        long conexiones = dbConfig.getConexionesAbiertas() - conexionesInicio;
+        long tiempoConexion = dbConfig.getTiempoTotalConexionNanos() - tiempoConexionInicio;
+        Map<String, Long> consistencia = verificarConsistencia(dbConfig, ultimoMovimientoPrevio, total);
+
+        Map<String, Object> resumen = crearResumen(total, segundosMedidos, conexiones, tiempoConexion,
+            dbConfig.getTiempoMaximoConexionNanos(), consistencia);
+        imprimirResumen(total, resumen, System.out);
+        guardarResultados(total, resumen, inicio);
+    }
+
+    /**
+     * Comprueba con las filas insertadas durante la prueba que el stock nunca quedó negativo y que cada
+     * movimiento parte del stock que dejó el anterior del mismo producto. Los productos con stock
+     * fragmentado se excluyen de la segunda comprobación: sus movimientos registran el stock de un fragmento
+     */
+    private Map<String, Long> verificarConsistencia(DatabaseConfig dbConfig, long ultimoMovimientoPrevio,
+                                                    EstadisticasCarga total) throws SQLException {
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        resultado.put("movimientos_confirmados", total.getMovimientosConfirmados());
+        resultado.put("movimientos_insertados", consultarNumero(dbConfig,
+            "SELECT COUNT(*) FROM movimientos_stock WHERE id_movimiento > ?", ultimoMovimientoPrevio));
+        resultado.put("sobreventas", consultarNumero(dbConfig,
+            "SELECT COUNT(*) FROM movimientos_stock WHERE id_movimiento > ? AND stock_nuevo < 0", ultimoMovimientoPrevio));
+        resultado.put("actualizaciones_perdidas", consultarNumero(dbConfig,
+            "SELECT COUNT(*) FROM (" +
+            "  SELECT m.stock_anterior, " +
+            "         LAG(m.stock_nuevo) OVER (PARTITION BY m.id_producto ORDER BY m.id_movimiento) AS stock_previo " +
+            "  FROM movimientos_stock m " +
+            "  WHERE m.id_movimiento > ? " +
+            "    AND NOT EXISTS (SELECT 1 FROM stock_fragmentos f WHERE f.id_producto = m.id_producto)" +
+            ") t WHERE t.stock_previo IS NOT NULL AND t.stock_previo <> t.stock_anterior", ultimoMovimientoPrevio));
+        return resultado;
+    }
+
+    private Map<String, Object> crearResumen(EstadisticasCarga total, double segundosMedidos, long conexiones,
+                                             long tiempoConexion, long tiempoMaximoConexion,
+                                             Map<String, Long> consistencia) {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("fecha", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        resumen.put("usuarios", config.getUsuarios());
+        resumen.put("segundos_medidos", segundosMedidos);
+        resumen.put("pensar_ms", config.getPensarMilisegundos());
+        resumen.put("zipf", config.getExponenteZipf());
+        resumen.put("mezcla", config.getMezcla());
+
+        Map<String, Object> operaciones = new LinkedHashMap<>();
+        Histogram todas = new Histogram(3);
+        for (OperacionCarga operacion : OperacionCarga.values()) {
+            Histogram latencias = total.getLatencias(operacion);
+            todas.add(latencias);
+            operaciones.put(operacion.name(), resumirOperacion(latencias, segundosMedidos, total, operacion));
+        }
+        operaciones.put("TOTAL", resumirOperacion(todas, segundosMedidos, total, null));
+        resumen.put("operaciones", operaciones);
+
+        Map<String, Object> conexionesResumen = new LinkedHashMap<>();
+        conexionesResumen.put("abiertas", conexiones);
+        conexionesResumen.put("espera_media_ms", conexiones == 0 ? 0 : tiempoConexion / NANOS_POR_MILISEGUNDO / conexiones);
+        conexionesResumen.put("espera_maxima_ms", tiempoMaximoConexion / NANOS_POR_MILISEGUNDO);
+        // Parte del tiempo de respuesta total que se fue en abrir conexiones
+        double tiempoOperaciones = todas.getMean() * todas.getTotalCount();
+        conexionesResumen.put("porcentaje_tiempo_operaciones", tiempoOperaciones == 0 ? 0 : 100.0 * tiempoConexion / tiempoOperaciones);
+        resumen.put("conexiones", conexionesResumen);
+
+        resumen.put("consistencia", consistencia);
+        resumen.put("primer_error", total.getPrimerError());
+        return resumen;
+    }
+
+    private static Map<String, Object> resumirOperacion(Histogram latencias, double segundos,
+                                                        EstadisticasCarga total, OperacionCarga operacion) {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("total", latencias.getTotalCount());
+        for (ResultadoOperacion resultado : ResultadoOperacion.values()) {
+            resumen.put(resultado.name().toLowerCase(), operacion == null
+                ? total.getResultados(resultado)
+                : total.getResultados(operacion, resultado));
+        }
+        resumen.put("ops_por_segundo", latencias.getTotalCount() / segundos);
+        resumen.put("p50_ms", latencias.getValueAtPercentile(50) / NANOS_POR_MILISEGUNDO);
+        resumen.put("p99_ms", latencias.getValueAtPercentile(99) / NANOS_POR_MILISEGUNDO);
+        resumen.put("p999_ms", latencias.getValueAtPercentile(99.9) / NANOS_POR_MILISEGUNDO);
+        resumen.put("max_ms", latencias.getMaxValue() / NANOS_POR_MILISEGUNDO);
+        return resumen;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void imprimirResumen(EstadisticasCarga total, Map<String, Object> resumen, PrintStream salida) {
+        salida.println("\n=== RESULTADOS DE LA PRUEBA DE CARGA ===");
+        salida.printf("%-10s %10s %10s %9s %8s %8s %7s %10s %9s %9s %9s %9s%n", "Operación", "Total", "OK",
+            "Sin stock", "Deadlock", "Timeout", "Error", "ops/s", "p50 ms", "p99 ms", "p999 ms", "máx ms");
+        Map<String, Map<String, Object>> operaciones = (Map<String, Map<String, Object>>) resumen.get("operaciones");
+        operaciones.forEach((nombre, datos) -> salida.printf(
+            "%-10s %,10d %,10d %,9d %,8d %,8d %,7d %,10.1f %9.2f %9.2f %9.2f %9.2f%n", nombre,
+            datos.get("total"), datos.get("ok"), datos.get("sin_stock"), datos.get("deadlock"),
+            datos.get("timeout_bloqueo"), datos.get("error"), datos.get("ops_por_segundo"), datos.get("p50_ms"),
+            datos.get("p99_ms"), datos.get("p999_ms"), datos.get("max_ms")));
+
+        Map<String, Object> conexiones = (Map<String, Object>) resumen.get("conexiones");
+        salida.printf("%nConexiones: %,d abiertas | espera media %.2f ms | máxima %.2f ms | %.1f%% del tiempo de respuesta%n",
+            conexiones.get("abiertas"), conexiones.get("espera_media_ms"), conexiones.get("espera_maxima_ms"),
+            conexiones.get("porcentaje_tiempo_operaciones"));
+
+        Map<String, Long> consistencia = (Map<String, Long>) resumen.get("consistencia");
+        boolean consistente = consistencia.get("sobreventas") == 0 && consistencia.get("actualizaciones_perdidas") == 0 &&
+            consistencia.get("movimientos_confirmados").equals(consistencia.get("movimientos_insertados"));
+        salida.printf("Consistencia: %s %,d movimientos confirmados / %,d insertados | sobreventas: %d | " +
+                      "actualizaciones perdidas: %d%n", consistente ? "✓" : "✗",
+            consistencia.get("movimientos_confirmados"), consistencia.get("movimientos_insertados"),
+            consistencia.get("sobreventas"), consistencia.get("actualizaciones_perdidas"));
+
+        total.getPrimerError().forEach((resultado, mensaje) ->
+            salida.println("Primer " + resultado + ": " + mensaje));
+    }
+
+    /**
+     * Guarda el resumen en JSON y los histogramas completos en formato de log de HdrHistogram
+     * (uno por operación, etiquetado con su nombre) para compararlos o dibujarlos después
+     */
+    private void guardarResultados(EstadisticasCarga total, Map<String, Object> resumen, long inicio) throws IOException {
+        Path directorio = config.getDirectorioResultados();
+        Files.createDirectories(directorio);
+        String base = "carga-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+
+        File json = directorio.resolve(base + ".json").toFile();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json, resumen);
+
+        File log = directorio.resolve(base + ".hlog").toFile();
+        try (PrintStream salida = new PrintStream(log, "UTF-8")) {
+            HistogramLogWriter escritor = new HistogramLogWriter(salida);
+            escritor.outputLogFormatVersion();
+            escritor.outputStartTime(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            escritor.outputLegend();
+            for (OperacionCarga operacion : OperacionCarga.values()) {
+                Histogram latencias = total.getLatencias(operacion);
+                latencias.setTag(operacion.name());
+                escritor.outputIntervalHistogram(latencias);
+            }
+        }
+        System.out.println("\nResultados guardados en: " + json + " y " + log);
+    }
+
+    private static int[] leerIdsProducto(DatabaseConfig dbConfig) throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            int total = (int) consultarNumero(conn, "SELECT COUNT(*) FROM productos");
+            int[] ids = new int[total];
+            int leidos = 0;
+            try (ResultSet rs = stmt.executeQuery("SELECT id_producto FROM productos ORDER BY id_producto")) {
+                while (rs.next() && leidos < total) {
+                    ids[leidos++] = rs.getInt(1);
+                }
+            }
+            return leidos == total ? ids : Arrays.copyOf(ids, leidos);
+        }
+    }
+
+    private static long consultarNumero(DatabaseConfig dbConfig, String sql, Object... parametros) throws SQLException {
+        try (Connection conn = dbConfig.getConnection()) {
+            return consultarNumero(conn, sql, parametros);
+        }
+    }
+
+    private static long consultarNumero(Connection conn, String sql, Object... parametros) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                stmt.setObject(i + 1, parametros[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static void esperarHasta(long instanteNanos) throws InterruptedException {
+        long restante = instanteNanos - System.nanoTime();
+        if (restante > 0) {
+            TimeUnit.NANOSECONDS.sleep(restante);
+        }
+    }
+}
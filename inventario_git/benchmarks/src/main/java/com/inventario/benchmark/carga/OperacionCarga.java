@@ -0,0 +1,15 @@
+package com.inventario.benchmark.carga;
+
+/**
+ * Operaciones que ejecutan los usuarios virtuales
+ */
+public enum OperacionCarga {
+    /** InventarioService.registrarEntradaStock */
+    ENTRADA,
+    /** InventarioService.registrarSalidaStock */
+    SALIDA,
+    /** InventarioService.buscarProductoPorId */
+    CONSULTA,
+    /** Una de las consultas analíticas de ConsultasAvanzadasDAO */
+    ANALITICA
+}
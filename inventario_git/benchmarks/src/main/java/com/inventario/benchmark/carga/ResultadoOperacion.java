@@ -0,0 +1,40 @@
+package com.inventario.benchmark.carga;
+
+import java.sql.SQLException;
+
+/**
+ * Cómo terminó una operación de la prueba de carga
+ */
+public enum ResultadoOperacion {
+    OK,
+    /** Salida rechazada por stock insuficiente: resultado esperado con mucha demanda */
+    SIN_STOCK,
+    /** Interbloqueo detectado por InnoDB (error 1213 / SQLSTATE 40001) */
+    DEADLOCK,
+    /** Tiempo de espera de bloqueo agotado (error 1205) */
+    TIMEOUT_BLOQUEO,
+    ERROR;
+
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    /**
+     * Clasifica la excepción de una operación recorriendo su cadena de causas
+     */
+    public static ResultadoOperacion clasificar(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException sql) {
+                if (sql.getErrorCode() == ER_LOCK_DEADLOCK || "40001".equals(sql.getSQLState())) {
+                    return DEADLOCK;
+                }
+                if (sql.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                    return TIMEOUT_BLOQUEO;
+                }
+            }
+            if (causa.getMessage() != null && causa.getMessage().startsWith("Stock insuficiente")) {
+                return SIN_STOCK;
+            }
+        }
+        return ERROR;
+    }
+}
@@ -0,0 +1,140 @@
+package com.inventario.benchmark.carga;
+
+import com.inventario.dao.ConsultasAvanzadasDAO;
+import com.inventario.generador.DistribucionZipf;
+import com.inventario.service.InventarioService;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cliente de bucle cerrado: elige una operación según la mezcla y un producto según su
+ * popularidad, espera la respuesta, piensa un tiempo exponencial y repite hasta el final.
+ *
+ * Al ser de bucle cerrado, un servidor lento reduce también el ritmo de peticiones:
+ * las latencias son tiempos de servicio y no incluyen la cola que sufriría un sistema abierto.
+ */
+class UsuarioVirtual implements Runnable {
+    private static final String MOTIVO = "Prueba de carga";
+
+    private final InventarioService servicio;
+    private final ConsultasAvanzadasDAO consultas;
+    private final int[] idsProducto;
+    private final DistribucionZipf popularidad;
+    private final OperacionCarga[] operaciones;
+    private final int[] pesosAcumulados;
+    private final int cantidadMaxima;
+    private final double pensarNanos;
+    private final long inicioMedicion;
+    private final long fin;
+    private final SplittableRandom aleatorio;
+    private final LongAdder progreso;
+    private final EstadisticasCarga estadisticas = new EstadisticasCarga();
+
+    UsuarioVirtual(InventarioService servicio, ConsultasAvanzadasDAO consultas, int[] idsProducto,
+                   DistribucionZipf popularidad, ConfiguracionCarga config, long inicioMedicion, long fin,
+                   SplittableRandom aleatorio, LongAdder progreso) {
+        this.servicio = servicio;
+        this.consultas = consultas;
+        this.idsProducto = idsProducto;
+        this.popularidad = popularidad;
+        this.cantidadMaxima = config.getCantidadMaxima();
+        this.pensarNanos = config.getPensarMilisegundos() * 1_000_000;
+        this.inicioMedicion = inicioMedicion;
+        this.fin = fin;
+        this.aleatorio = aleatorio;
+        this.progreso = progreso;
+
+        this.operaciones = OperacionCarga.values();
+        this.pesosAcumulados = new int[operaciones.length];
+        int acumulado = 0;
+        for (int i = 0; i < operaciones.length; i++) {
+            acumulado += config.getMezcla().get(operaciones[i]);
+            pesosAcumulados[i] = acumulado;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            long ahora;
+            while ((ahora = System.nanoTime()) < fin) {
+                OperacionCarga operacion = elegirOperacion();
+                int idProducto = idsProducto[popularidad.muestrearProducto(aleatorio) - 1];
+
+                ResultadoOperacion resultado = ResultadoOperacion.OK;
+                Exception error = null;
+                try {
+                    if (ejecutar(operacion, idProducto) && esMovimiento(operacion)) {
+                        estadisticas.registrarMovimientoConfirmado();
+                    }
+                } catch (Exception e) {
+                    resultado = ResultadoOperacion.clasificar(e);
+                    error = e;
+                }
+                long latencia = System.nanoTime() - ahora;
+
+                if (ahora >= inicioMedicion) {
+                    estadisticas.registrar(operacion, resultado, latencia, error);
+                    progreso.increment();
+                }
+                pensar();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    EstadisticasCarga getEstadisticas() {
+        return estadisticas;
+    }
+
+    private OperacionCarga elegirOperacion() {
+        int valor = aleatorio.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (valor < pesosAcumulados[i]) {
+                return operaciones[i];
+            }
+        }
+        throw new IllegalStateException("Mezcla de operaciones vacía");
+    }
+
+    private boolean ejecutar(OperacionCarga operacion, int idProducto) throws Exception {
+        int cantidad = 1 + aleatorio.nextInt(cantidadMaxima);
+        switch (operacion) {
+            case ENTRADA:
+                return servicio.registrarEntradaStock(idProducto, cantidad, MOTIVO);
+            case SALIDA:
+                return servicio.registrarSalidaStock(idProducto, cantidad, MOTIVO);
+            case CONSULTA:
+                return servicio.buscarProductoPorId(idProducto) != null;
+            default:
+                ejecutarAnalitica();
+                return true;
+        }
+    }
+
+    /**
+     * Una de las consultas de informes del menú de consultas avanzadas
+     */
+    private void ejecutarAnalitica() throws Exception {
+        switch (aleatorio.nextInt(4)) {
+            case 0 -> consultas.obtenerTopProductosMasVendidos(10);
+            case 1 -> consultas.obtenerValorStockPorCategoria();
+            case 2 -> consultas.obtenerAnalisisRotacionPorCategoria();
+            default -> consultas.obtenerProductosBajoStockConHistorico(10, 30);
+        }
+    }
+
+    private static boolean esMovimiento(OperacionCarga operacion) {
+        return operacion == OperacionCarga.ENTRADA || operacion == OperacionCarga.SALIDA;
+    }
+
+    private void pensar() throws InterruptedException {
+        if (pensarNanos > 0) {
+            long espera = (long) (-pensarNanos * Math.log(1.0 - aleatorio.nextDouble()));
+            TimeUnit.NANOSECONDS.sleep(espera);
+        }
+    }
+}
@@ -23,6 +23,8 @@ CREATE TABLE IF NOT EXISTS productos (
     stock INT NOT NULL DEFAULT 0 CHECK (stock >= 0),
     fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     fecha_modificacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    -- Se incrementa en cada escritura: permite actualizaciones optimistas (compare-and-set)
+    version INT NOT NULL DEFAULT 0,
     FOREIGN KEY (categoria) REFERENCES categorias(nombre) ON UPDATE CASCADE
 );
 
@@ -37,6 +39,46 @@ CREATE TABLE IF NOT EXISTS movimientos_stock (
     motivo VARCHAR(255),
     fecha_movimiento TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     usuario VARCHAR(100) DEFAULT 'sistema',
+    -- Clave opcional del cliente: un reintento con la misma clave no vuelve a aplicar el movimiento
+    clave_idempotencia VARCHAR(64) NULL,
+    FOREIGN KEY (id_producto) REFERENCES productos(id_producto) ON DELETE CASCADE,
+    UNIQUE KEY uk_movimientos_clave_idempotencia (clave_idempotencia)
+);
+
+-- Stock fragmentado (contadores repartidos) para productos muy vendidos.
+-- Mientras un producto tiene filas aquí, su stock real es la suma de los fragmentos
+-- y productos.stock se mantiene a 0
+CREATE TABLE IF NOT EXISTS stock_fragmentos (
+    id_producto INT NOT NULL,
+    fragmento TINYINT UNSIGNED NOT NULL,
+    stock INT NOT NULL DEFAULT 0 CHECK (stock >= 0),
+    PRIMARY KEY (id_producto, fragmento),
+    FOREIGN KEY (id_producto) REFERENCES productos(id_producto) ON DELETE CASCADE
+);
+
+-- Reservas temporales de stock: retienen unidades sin bloquear el producto
+-- mientras el cliente decide; al confirmarse generan un movimiento de SALIDA
+CREATE TABLE IF NOT EXISTS reservas_stock (
+    id_reserva INT AUTO_INCREMENT PRIMARY KEY,
+    id_producto INT NOT NULL,
+    cantidad INT NOT NULL CHECK (cantidad > 0),
+    estado ENUM('ACTIVA', 'CONFIRMADA', 'LIBERADA', 'CADUCADA') NOT NULL DEFAULT 'ACTIVA',
+    usuario VARCHAR(100) DEFAULT 'sistema',
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    fecha_expiracion TIMESTAMP NOT NULL,
+    id_movimiento INT NULL,
+    FOREIGN KEY (id_producto) REFERENCES productos(id_producto) ON DELETE CASCADE,
+    FOREIGN KEY (id_movimiento) REFERENCES movimientos_stock(id_movimiento) ON DELETE SET NULL
+);
+
+-- Snapshots del libro mayor de stock: stock del producto tras el movimiento id_movimiento_hasta.
+-- El stock actual es el del último snapshot más los movimientos posteriores
+CREATE TABLE IF NOT EXISTS snapshots_stock (
+    id_producto INT NOT NULL,
+    id_movimiento_hasta INT NOT NULL,
+    stock INT NOT NULL,
+    fecha_snapshot TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id_producto, id_movimiento_hasta),
     FOREIGN KEY (id_producto) REFERENCES productos(id_producto) ON DELETE CASCADE
 );
 
@@ -58,6 +100,7 @@ CREATE INDEX idx_movimientos_producto ON movimientos_stock(id_producto);
 CREATE INDEX idx_movimientos_fecha ON movimientos_stock(fecha_movimiento);
 CREATE INDEX idx_logs_fecha ON logs_aplicacion(fecha_log);
 CREATE INDEX idx_logs_nivel ON logs_aplicacion(nivel);
+CREATE INDEX idx_reservas_producto_estado ON reservas_stock(id_producto, estado, fecha_expiracion);
 
 -- Insertar categorías por defecto
 INSERT IGNORE INTO categorias (nombre, descripcion) VALUES
@@ -146,6 +189,13 @@ ON movimientos_stock(fecha_movimiento, tipo_movimiento);
 CREATE INDEX IF NOT EXISTS idx_movimientos_usuario
 ON movimientos_stock(usuario);
 
+-- Índices para paginación por clave (keyset) del historial
+CREATE INDEX IF NOT EXISTS idx_movimientos_producto_fecha
+ON movimientos_stock(id_producto, fecha_movimiento, id_movimiento);
+
+CREATE INDEX IF NOT EXISTS idx_movimientos_tipo_fecha
+ON movimientos_stock(tipo_movimiento, fecha_movimiento, id_movimiento);
+
 SELECT 'Índices de MOVIMIENTOS_STOCK creados correctamente ✓' as 'Estado';
 
 -- ============================================
@@ -244,19 +294,21 @@ SELECT '  - idx_productos_categoria_nombre' as '';
 SELECT '  - idx_productos_categoria_stock' as '';
 SELECT '' as '';
 
-SELECT 'MOVIMIENTOS_STOCK: 3 índices adicionales' as 'Resumen';
+SELECT 'MOVIMIENTOS_STOCK: 5 índices adicionales' as 'Resumen';
 SELECT '  - idx_movimientos_tipo_producto' as '';
 SELECT '  - idx_movimientos_fecha_tipo' as '';
 SELECT '  - idx_movimientos_usuario' as '';
+SELECT '  - idx_movimientos_producto_fecha (KEYSET)' as '';
+SELECT '  - idx_movimientos_tipo_fecha (KEYSET)' as '';
 SELECT '' as '';
 
 SELECT 'CATEGORIAS: 1 índice adicional' as 'Resumen';
 SELECT '  - idx_categorias_nombre' as '';
 SELECT '' as '';
 
-SELECT 'TOTAL: 11 índices nuevos creados' as 'Resumen';
+SELECT 'TOTAL: 13 índices nuevos creados' as 'Resumen';
 SELECT 'Índices anteriores: 6 (de 01-init.sql)' as '';
-SELECT 'TOTAL GENERAL: 17+ índices en la base de datos' as '';
+SELECT 'TOTAL GENERAL: 19+ índices en la base de datos' as '';
 
 SELECT '========================================' as '';
 SELECT 'OPTIMIZACIONES APLICADAS CORRECTAMENTE ✓' as '';
@@ -45,6 +45,10 @@ CREATE INDEX idx_movimientos_tipo_producto ON movimientos_stock(tipo_movimiento,
 CREATE INDEX idx_movimientos_fecha_tipo ON movimientos_stock(fecha_movimiento, tipo_movimiento);
 CREATE INDEX idx_movimientos_usuario ON movimientos_stock(usuario);
 
+-- Paginación por clave (keyset) del historial: ORDER BY fecha_movimiento DESC, id_movimiento DESC
+CREATE INDEX idx_movimientos_producto_fecha ON movimientos_stock(id_producto, fecha_movimiento, id_movimiento);
+CREATE INDEX idx_movimientos_tipo_fecha ON movimientos_stock(tipo_movimiento, fecha_movimiento, id_movimiento);
+
 SELECT 'Índices de MOVIMIENTOS_STOCK creados ✓' as Estado;
 
 -- ============================================
@@ -0,0 +1,16 @@
+-- ============================================
+-- MIGRACIÓN: CLAVES DE IDEMPOTENCIA EN MOVIMIENTOS
+-- Para bases de datos creadas antes de añadir la columna a 01-init.sql
+-- Compatible con MySQL 8.0
+-- ============================================
+
+USE inventario_db;
+
+SELECT 'Añadiendo clave_idempotencia a MOVIMIENTOS_STOCK...' as Estado;
+
+-- Los movimientos existentes quedan con NULL: el índice único admite varios NULL
+ALTER TABLE movimientos_stock
+    ADD COLUMN clave_idempotencia VARCHAR(64) NULL AFTER usuario,
+    ADD UNIQUE KEY uk_movimientos_clave_idempotencia (clave_idempotencia);
+
+SELECT 'Migración completada' as Estado;
@@ -0,0 +1,15 @@
+-- ============================================
+-- MIGRACIÓN: VERSIÓN DE PRODUCTOS (CONTROL OPTIMISTA)
+-- Para bases de datos creadas antes de añadir la columna a 01-init.sql
+-- Compatible con MySQL 8.0
+-- ============================================
+
+USE inventario_db;
+
+SELECT 'Añadiendo version a PRODUCTOS...' as Estado;
+
+-- Los productos existentes empiezan en la versión 0
+ALTER TABLE productos
+    ADD COLUMN version INT NOT NULL DEFAULT 0 AFTER fecha_modificacion;
+
+SELECT 'Migración completada' as Estado;
@@ -0,0 +1,20 @@
+-- ============================================
+-- MIGRACIÓN: SNAPSHOTS DEL LIBRO MAYOR DE STOCK
+-- Para bases de datos creadas antes de añadir la tabla a 01-init.sql
+-- Compatible con MySQL 8.0
+-- ============================================
+
+USE inventario_db;
+
+SELECT 'Creando tabla SNAPSHOTS_STOCK...' as Estado;
+
+CREATE TABLE IF NOT EXISTS snapshots_stock (
+    id_producto INT NOT NULL,
+    id_movimiento_hasta INT NOT NULL,
+    stock INT NOT NULL,
+    fecha_snapshot TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id_producto, id_movimiento_hasta),
+    FOREIGN KEY (id_producto) REFERENCES productos(id_producto) ON DELETE CASCADE
+);
+
+SELECT 'Migración completada' as Estado;
@@ -0,0 +1,21 @@
+-- ============================================
+-- MIGRACIÓN: STOCK FRAGMENTADO
+-- Para bases de datos creadas antes de añadir la tabla a 01-init.sql
+-- Compatible con MySQL 8.0
+-- ============================================
+
+USE inventario_db;
+
+SELECT 'Creando tabla STOCK_FRAGMENTOS...' as Estado;
+
+-- Mientras un producto tiene filas aquí, su stock real es la suma de los fragmentos
+-- y productos.stock se mantiene a 0. La tabla nace vacía: ningún producto queda fragmentado
+CREATE TABLE IF NOT EXISTS stock_fragmentos (
+    id_producto INT NOT NULL,
+    fragmento TINYINT UNSIGNED NOT NULL,
+    stock INT NOT NULL DEFAULT 0 CHECK (stock >= 0),
+    PRIMARY KEY (id_producto, fragmento),
+    FOREIGN KEY (id_producto) REFERENCES productos(id_producto) ON DELETE CASCADE
+);
+
+SELECT 'Migración completada' as Estado;
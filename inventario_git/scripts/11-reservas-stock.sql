@@ -0,0 +1,28 @@
+-- ============================================
+-- MIGRACIÓN: RESERVAS TEMPORALES DE STOCK
+-- Para bases de datos creadas antes de añadir la tabla a 01-init.sql
+-- Compatible con MySQL 8.0
+-- ============================================
+
+USE inventario_db;
+
+SELECT 'Creando tabla RESERVAS_STOCK...' as Estado;
+
+-- Al confirmarse, una reserva genera un movimiento de SALIDA (id_movimiento)
+CREATE TABLE IF NOT EXISTS reservas_stock (
+    id_reserva INT AUTO_INCREMENT PRIMARY KEY,
+    id_producto INT NOT NULL,
+    cantidad INT NOT NULL CHECK (cantidad > 0),
+    estado ENUM('ACTIVA', 'CONFIRMADA', 'LIBERADA', 'CADUCADA') NOT NULL DEFAULT 'ACTIVA',
+    usuario VARCHAR(100) DEFAULT 'sistema',
+    fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    fecha_expiracion TIMESTAMP NOT NULL,
+    id_movimiento INT NULL,
+    FOREIGN KEY (id_producto) REFERENCES productos(id_producto) ON DELETE CASCADE,
+    FOREIGN KEY (id_movimiento) REFERENCES movimientos_stock(id_movimiento) ON DELETE SET NULL
+);
+
+-- Suma de lo reservado y vigente de un producto al registrar una salida o una reserva
+CREATE INDEX idx_reservas_producto_estado ON reservas_stock(id_producto, estado, fecha_expiracion);
+
+SELECT 'Migración completada' as Estado;
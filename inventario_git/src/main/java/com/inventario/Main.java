@@ -1,32 +1,70 @@
 package com.inventario;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.inventario.cache.CacheProductos;
+import com.inventario.cli.ModoComandos;
+import com.inventario.cache.IndiceNombresProductos;
 import com.inventario.dao.CategoriaDAO;
 import com.inventario.dao.ProductoDAO;
 import com.inventario.dao.MovimientoStockDAO;
 import com.inventario.dao.ConsultasAvanzadasDAO;
+import com.inventario.dao.LibroStockDAO;
+import com.inventario.dao.ReservaStockDAO;
+import com.inventario.dao.StockFragmentadoDAO;
 import com.inventario.dao.impl.CategoriaDAOImpl;
+import com.inventario.dao.impl.CategoriaDAORegistrado;
+import com.inventario.dao.impl.CommitAgrupadoMovimientos;
+import com.inventario.dao.impl.LibroStockDAOImpl;
+import com.inventario.dao.impl.ProductoDAOCacheado;
 import com.inventario.dao.impl.ProductoDAOImpl;
 import com.inventario.dao.impl.MovimientoStockDAOImpl;
 import com.inventario.dao.impl.ConsultasAvanzadasDAOImpl;
+import com.inventario.dao.impl.ReservaStockDAOImpl;
+import com.inventario.dao.impl.SnapshotsStockPeriodicos;
+import com.inventario.dao.impl.StockFragmentadoDAOImpl;
+import com.inventario.http.ApiInventario;
+import com.inventario.http.ServidorHTTP;
+import com.inventario.metricas.DAOInstrumentado;
+import com.inventario.metricas.ExportadorMetricas;
+import com.inventario.metricas.MetricaMetodo;
+import com.inventario.metricas.RegistroMetricas;
 import com.inventario.model.Categoria;
+import com.inventario.model.CursorMovimiento;
+import com.inventario.model.CursorProducto;
 import com.inventario.model.Producto;
 import com.inventario.model.MovimientoStock;
+import com.inventario.model.ReservaStock;
 import com.inventario.service.InventarioService;
+import com.inventario.service.impl.InventarioServiceAsyncImpl;
 import com.inventario.service.impl.InventarioServiceImpl;
 import com.inventario.service.ImportadorMovimientosCSV;
+import com.inventario.util.CapacidadesEsquema;
+import com.inventario.util.CapacidadesEsquema.ColumnaRequerida;
+import com.inventario.util.ConsultasLentas;
+import com.inventario.util.CsvUtil;
 import com.inventario.util.DatabaseConfig;
 import com.inventario.util.JsonUtil;
 import com.inventario.util.LogUtil;
+import com.inventario.util.MetricasConcurrencia;
 import com.inventario.xml.XMLManager;
+import org.HdrHistogram.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.sql.Connection;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 /**
  * Clase principal del sistema de inventario - Versión 2.0
@@ -35,11 +73,22 @@ import java.util.Scanner;
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
     private static final Scanner scanner = new Scanner(System.in);
+    private static final int TAMANO_PAGINA = 50;
     private static InventarioService inventarioService;
+    private static ConsultasAvanzadasDAO consultasDAO;
+    private static MovimientoStockDAO movimientoStockDAO;
     private static XMLManager xmlManager;
     private static Connection connection;
     
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("serve")) {
+            ejecutarServidorHTTP();
+            return;
+        }
+        if (args.length > 0) {
+            System.exit(ejecutarModoComandos(args));
+        }
+
         logger.info("Iniciando Sistema de Inventario");
         
         try {
@@ -48,7 +97,7 @@ public class Main {
             
             // Verificar conexión a la base de datos
             if (!verificarConexionBD()) {
-                logger.error("No se pudo conectar a la base de datos. Saliendo...");
+                logger.error("No se pudo conectar a la base de datos o el esquema no está al día. Saliendo...");
                 return;
             }
             
@@ -70,16 +119,91 @@ public class Main {
         }
     }
     
+    /**
+     * Modo no interactivo: ejecuta los comandos indicados sin menú ni carga inicial de CSV.
+     * La salida estándar queda reservada para los resultados JSON; todo lo demás va a la de error
+     */
+    private static int ejecutarModoComandos(String[] args) {
+        if (args[0].equals("--ayuda") || args[0].equals("-h")) {
+            System.out.print(ModoComandos.uso());
+            return ModoComandos.SALIDA_OK;
+        }
+
+        ModoComandos.Plan plan;
+        try {
+            plan = ModoComandos.analizar(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ " + e.getMessage());
+            System.err.print(ModoComandos.uso());
+            return ModoComandos.SALIDA_USO_INCORRECTO;
+        }
+
+        PrintStream salidaResultados = System.out;
+        System.setOut(System.err);
+        logger.info("Iniciando Sistema de Inventario en modo comandos");
+
+        inicializarServicios();
+        if (!verificarConexionBD()) {
+            logger.error("No se pudo conectar a la base de datos o el esquema no está al día. Saliendo...");
+            return ModoComandos.SALIDA_SIN_CONEXION;
+        }
+        inicializarXMLManager();
+
+        return new ModoComandos(inventarioService, consultasDAO, movimientoStockDAO, xmlManager, salidaResultados).ejecutar(plan);
+    }
+
+    /**
+     * Modo servidor: expone la API HTTP y espera hasta que el proceso recibe la señal de parada.
+     * No llama a System.exit al terminar porque el cierre lo inician los shutdown hooks
+     */
+    private static void ejecutarServidorHTTP() {
+        logger.info("Iniciando Sistema de Inventario en modo servidor");
+
+        inicializarServicios();
+        if (!verificarConexionBD()) {
+            logger.error("No se pudo conectar a la base de datos o el esquema no está al día. Saliendo...");
+            System.exit(ModoComandos.SALIDA_SIN_CONEXION);
+        }
+
+        try {
+            ServidorHTTP servidor = ServidorHTTP.desdeEntorno();
+            new ApiInventario(inventarioService, new InventarioServiceAsyncImpl(inventarioService, consultasDAO),
+                consultasDAO).registrarEn(servidor);
+            servidor.iniciar();
+            System.out.println("✓ API HTTP escuchando en el puerto " + servidor.getPuerto());
+            servidor.esperar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Error fatal en el servidor HTTP", e);
+            LogUtil.registrarError("MAIN", "Error fatal en el servidor HTTP", e);
+        }
+        logger.info("Sistema de Inventario finalizado");
+    }
+
     private static void inicializarServicios() {
         logger.info("Inicializando servicios...");
 
         // Crear instancias de DAOs
-        CategoriaDAO categoriaDAO = new CategoriaDAOImpl();
-        ProductoDAO productoDAO = new ProductoDAOImpl();
-        MovimientoStockDAO movimientoStockDAO = new MovimientoStockDAOImpl();
+        // Los DAOs principales se instrumentan para medir la latencia de cada método
+        CategoriaDAO categoriaDAO = DAOInstrumentado.instrumentar(CategoriaDAO.class,
+            new CategoriaDAORegistrado(new CategoriaDAOImpl()));
+        ProductoDAO productoDAO = DAOInstrumentado.instrumentar(ProductoDAO.class,
+            new ProductoDAOCacheado(new ProductoDAOImpl()));
+        movimientoStockDAO = DAOInstrumentado.instrumentar(MovimientoStockDAO.class,
+            new MovimientoStockDAOImpl());
+        StockFragmentadoDAO stockFragmentadoDAO = new StockFragmentadoDAOImpl();
+        ReservaStockDAO reservaStockDAO = new ReservaStockDAOImpl(movimientoStockDAO);
+        LibroStockDAO libroStockDAO = new LibroStockDAOImpl();
 
         // Crear servicio principal
-        inventarioService = new InventarioServiceImpl(categoriaDAO, productoDAO, movimientoStockDAO);
+        inventarioService = new InventarioServiceImpl(categoriaDAO, productoDAO, movimientoStockDAO,
+            stockFragmentadoDAO, reservaStockDAO, libroStockDAO);
+        consultasDAO = DAOInstrumentado.instrumentar(ConsultasAvanzadasDAO.class, new ConsultasAvanzadasDAOImpl());
+
+        if (ExportadorMetricas.estaHabilitado()) {
+            ExportadorMetricas.getInstance();
+        }
 
         logger.info("Servicios inicializados correctamente");
     }
@@ -103,6 +227,23 @@ public class Main {
         
         if (conexionOk) {
             logger.info("Conexión a la base de datos establecida correctamente");
+            // Un esquema sin migrar haría fallar todas las consultas de productos: se avisa ya con el script
+            List<ColumnaRequerida> pendientes = CapacidadesEsquema.getInstance().columnasPendientes();
+            if (!pendientes.isEmpty()) {
+                for (ColumnaRequerida columna : pendientes) {
+                    System.out.println("✗ Falta la columna " + columna.getTabla() + "." + columna.getColumna()
+                        + ": ejecute " + columna.getScriptMigracion());
+                    logger.error("Esquema sin migrar: falta {}.{} ({})", columna.getTabla(), columna.getColumna(),
+                        columna.getScriptMigracion());
+                }
+                return false;
+            }
+            // Detectar una sola vez qué índices opcionales hay para elegir las estrategias de consulta
+            CapacidadesEsquema.getInstance().detectar();
+            if (LibroStockDAOImpl.estaHabilitado()) {
+                // Consolida los movimientos pendientes y programa los snapshots periódicos
+                SnapshotsStockPeriodicos.getInstance();
+            }
         } else {
             logger.error("Error al conectar con la base de datos");
         }
@@ -248,6 +389,9 @@ public class Main {
         System.out.println("1. Consultas Avanzadas (SQL Optimizadas)");
         System.out.println("2. Generar Reportes (JSON)");
         System.out.println("3. Ver Estadísticas Generales");
+        System.out.println("4. Verificar índice de búsqueda de productos");
+        System.out.println("5. Ver rutas optimizadas activas");
+        System.out.println("6. Ver métricas de los DAOs (latencia por método)");
         System.out.println("0. Volver al menú principal");
         System.out.print("Seleccione una opción: ");
 
@@ -258,6 +402,9 @@ public class Main {
                 case 1 -> gestionarConsultasAvanzadas();
                 case 2 -> generarReportes();
                 case 3 -> mostrarEstadisticas();
+                case 4 -> verificarIndiceBusqueda();
+                case 5 -> mostrarRutasOptimizadas();
+                case 6 -> mostrarMetricasDAO();
                 case 0 -> System.out.println("Volviendo al menú principal...");
                 default -> System.out.println("Opción no válida.");
             }
@@ -435,6 +582,7 @@ public class Main {
         System.out.println("4. Crear nuevo producto");
         System.out.println("5. Actualizar producto");
         System.out.println("6. Eliminar producto");
+        System.out.println("7. Buscar productos por nombre");
         System.out.print("Seleccione una opción: ");
         
         try {
@@ -447,6 +595,7 @@ public class Main {
                 case 4 -> crearProducto();
                 case 5 -> actualizarProducto();
                 case 6 -> eliminarProducto();
+                case 7 -> buscarProductosPorNombre();
                 default -> System.out.println("Opción no válida.");
             }
             
@@ -458,7 +607,8 @@ public class Main {
     
     private static void listarProductos() {
         try {
-            List<Producto> productos = inventarioService.obtenerTodosLosProductos();
+            // Paginación por clave sobre (categoria, nombre): no carga el catálogo completo
+            List<Producto> productos = inventarioService.obtenerPaginaProductos(null, TAMANO_PAGINA);
             
             if (productos.isEmpty()) {
                 System.out.println("No hay productos registrados.");
@@ -469,15 +619,31 @@ public class Main {
             System.out.printf("%-5s %-30s %-15s %-10s %-8s%n", "ID", "Nombre", "Categoría", "Precio", "Stock");
             System.out.println("-".repeat(75));
             
-            for (Producto producto : productos) {
-                System.out.printf("%-5d %-30s %-15s $%-9.2f %-8d%n",
-                    producto.getIdProducto(),
-                    producto.getNombre(),
-                    producto.getCategoria(),
-                    producto.getPrecio(),
-                    producto.getStock());
+            int totalMostrados = 0;
+            while (true) {
+                for (Producto producto : productos) {
+                    System.out.printf("%-5d %-30s %-15s $%-9.2f %-8d%n",
+                        producto.getIdProducto(),
+                        producto.getNombre(),
+                        producto.getCategoria(),
+                        producto.getPrecio(),
+                        producto.getStock());
+                }
+                totalMostrados += productos.size();
+                
+                if (productos.size() < TAMANO_PAGINA || !preguntarSiguientePagina()) {
+                    break;
+                }
+                
+                CursorProducto cursor = CursorProducto.desde(productos.get(productos.size() - 1));
+                productos = inventarioService.obtenerPaginaProductos(cursor, TAMANO_PAGINA);
+                if (productos.isEmpty()) {
+                    break;
+                }
             }
             
+            System.out.println("\nTotal de productos mostrados: " + totalMostrados);
+            
         } catch (Exception e) {
             System.out.println("Error al listar productos: " + e.getMessage());
         }
@@ -525,6 +691,38 @@ public class Main {
         }
     }
     
+    private static void buscarProductosPorNombre() {
+        System.out.print("Ingrese el texto a buscar: ");
+        String texto = scanner.nextLine();
+        
+        try {
+            long inicio = System.nanoTime();
+            List<Producto> productos = inventarioService.buscarProductosPorNombre(texto);
+            long microsegundos = (System.nanoTime() - inicio) / 1_000;
+            
+            if (productos.isEmpty()) {
+                System.out.println("No se encontraron productos que contengan: " + texto);
+                return;
+            }
+            
+            System.out.println("\n--- RESULTADOS PARA: " + texto + " (" + productos.size() + " en " + microsegundos + " µs) ---");
+            System.out.printf("%-5s %-30s %-15s %-10s %-8s%n", "ID", "Nombre", "Categoría", "Precio", "Stock");
+            System.out.println("-".repeat(75));
+            
+            for (Producto producto : productos) {
+                System.out.printf("%-5d %-30s %-15s $%-9.2f %-8d%n",
+                    producto.getIdProducto(),
+                    producto.getNombre(),
+                    producto.getCategoria(),
+                    producto.getPrecio(),
+                    producto.getStock());
+            }
+            
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
     private static void crearProducto() {
         try {
             System.out.println("\n--- CREAR NUEVO PRODUCTO ---");
@@ -583,11 +781,13 @@ public class Main {
                 producto.setStock(Integer.parseInt(stockStr));
             }
             
-            boolean actualizado = inventarioService.actualizarProducto(producto);
+            // Optimista: solo se guarda si nadie modificó el producto mientras se editaba
+            boolean actualizado = inventarioService.actualizarProductoSiVersion(producto);
             if (actualizado) {
                 System.out.println("Producto actualizado exitosamente.");
             } else {
-                System.out.println("No se pudo actualizar el producto.");
+                System.out.println("No se guardaron los cambios: el producto fue modificado o eliminado "
+                    + "mientras se editaba. Vuelva a cargarlo e inténtelo de nuevo.");
             }
             
         } catch (Exception e) {
@@ -772,6 +972,9 @@ public class Main {
         System.out.println("2. Entrada de stock");
         System.out.println("3. Salida de stock");
         System.out.println("4. Ver historial de movimientos");
+        System.out.println("5. Stock fragmentado (productos muy vendidos)");
+        System.out.println("6. Reservas de stock");
+        System.out.println("7. Libro mayor de stock (snapshots y stock en una fecha)");
         System.out.println("0. Volver al menú anterior");
         System.out.print("Seleccione una opción: ");
 
@@ -783,6 +986,9 @@ public class Main {
                 case 2 -> entradaStock();
                 case 3 -> salidaStock();
                 case 4 -> verHistorialMovimientos();
+                case 5 -> gestionarStockFragmentado();
+                case 6 -> gestionarReservasStock();
+                case 7 -> gestionarLibroStock();
                 case 0 -> System.out.println("Volviendo al menú anterior...");
                 default -> System.out.println("Opción no válida.");
             }
@@ -795,6 +1001,181 @@ public class Main {
         }
     }
     
+    private static void gestionarStockFragmentado() {
+        System.out.println("\n--- STOCK FRAGMENTADO ---");
+        System.out.println("1. Ver productos fragmentados");
+        System.out.println("2. Fragmentar stock de un producto");
+        System.out.println("3. Volver a stock en una sola fila");
+        System.out.println("4. Rebalancear fragmentos");
+        System.out.print("Seleccione una opción: ");
+        
+        try {
+            int opcion = Integer.parseInt(scanner.nextLine());
+            
+            switch (opcion) {
+                case 1 -> {
+                    Map<Integer, Integer> fragmentados = inventarioService.obtenerProductosConStockFragmentado();
+                    if (fragmentados.isEmpty()) {
+                        System.out.println("No hay productos con stock fragmentado.");
+                        return;
+                    }
+                    System.out.printf("%-8s %-12s %-10s %s%n", "ID", "Fragmentos", "Stock", "Reparto");
+                    System.out.println("-".repeat(65));
+                    for (Integer idProducto : fragmentados.keySet()) {
+                        List<Integer> fragmentos = inventarioService.obtenerFragmentosStock(idProducto);
+                        int total = fragmentos.stream().mapToInt(Integer::intValue).sum();
+                        System.out.printf("%-8d %-12d %-10d %s%n", idProducto, fragmentos.size(), total, fragmentos);
+                    }
+                }
+                case 2 -> {
+                    System.out.print("ID del producto: ");
+                    int idProducto = Integer.parseInt(scanner.nextLine());
+                    System.out.print("Número de fragmentos (2-" + StockFragmentadoDAO.MAX_FRAGMENTOS + ", default: 8): ");
+                    String fragmentosStr = scanner.nextLine().trim();
+                    int numFragmentos = fragmentosStr.isEmpty() ? 8 : Integer.parseInt(fragmentosStr);
+                    inventarioService.activarStockFragmentado(idProducto, numFragmentos);
+                    System.out.println("✓ Stock del producto " + idProducto + " repartido en " + numFragmentos + " fragmentos.");
+                }
+                case 3 -> {
+                    System.out.print("ID del producto: ");
+                    int idProducto = Integer.parseInt(scanner.nextLine());
+                    inventarioService.desactivarStockFragmentado(idProducto);
+                    System.out.println("✓ Stock del producto " + idProducto + " devuelto a una sola fila.");
+                }
+                case 4 -> {
+                    System.out.print("ID del producto: ");
+                    int idProducto = Integer.parseInt(scanner.nextLine());
+                    int modificados = inventarioService.rebalancearStockFragmentado(idProducto);
+                    System.out.println("✓ Fragmentos rebalanceados (" + modificados + " filas modificadas).");
+                }
+                default -> System.out.println("Opción no válida.");
+            }
+            
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Debe ingresar un número válido.");
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
+    private static void gestionarLibroStock() {
+        System.out.println("\n--- LIBRO MAYOR DE STOCK ---");
+        System.out.println("Modo libro mayor: " + (LibroStockDAOImpl.estaHabilitado()
+            ? "activo (los movimientos solo se anexan)" : "inactivo (STOCK_LIBRO_MAYOR=true para activarlo)"));
+        System.out.println("1. Ver snapshots guardados");
+        System.out.println("2. Tomar snapshots ahora");
+        System.out.println("3. Stock de un producto en una fecha");
+        System.out.print("Seleccione una opción: ");
+        
+        try {
+            int opcion = Integer.parseInt(scanner.nextLine());
+            
+            switch (opcion) {
+                case 1 -> {
+                    System.out.println("Snapshots guardados: " + inventarioService.contarSnapshotsStock());
+                    if (LibroStockDAOImpl.estaHabilitado()) {
+                        SnapshotsStockPeriodicos snapshots = SnapshotsStockPeriodicos.getInstance();
+                        System.out.println("Ejecuciones de la tarea periódica: " + snapshots.getEjecuciones() +
+                            " (" + snapshots.getSnapshotsTomados() + " snapshots tomados)");
+                    }
+                }
+                case 2 -> {
+                    int tomados = inventarioService.tomarSnapshotsStock();
+                    System.out.println("✓ Snapshots tomados: " + tomados);
+                }
+                case 3 -> {
+                    System.out.print("ID del producto: ");
+                    int idProducto = Integer.parseInt(scanner.nextLine());
+                    System.out.print("Fecha (dd/MM/yyyy HH:mm): ");
+                    LocalDateTime fecha = LocalDateTime.parse(scanner.nextLine().trim(),
+                        DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+                    int stock = inventarioService.obtenerStockEnFecha(idProducto, fecha);
+                    System.out.println("Stock del producto " + idProducto + " el " +
+                        fecha.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) + ": " + stock + " unidades");
+                }
+                default -> System.out.println("Opción no válida.");
+            }
+            
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Debe ingresar un número válido.");
+        } catch (DateTimeParseException e) {
+            System.out.println("Error: Formato de fecha no válido (dd/MM/yyyy HH:mm).");
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
+    private static void gestionarReservasStock() {
+        System.out.println("\n--- RESERVAS DE STOCK ---");
+        System.out.println("1. Ver reservas activas de un producto");
+        System.out.println("2. Reservar stock");
+        System.out.println("3. Confirmar reserva (registra la salida)");
+        System.out.println("4. Liberar reserva");
+        System.out.print("Seleccione una opción: ");
+        
+        try {
+            int opcion = Integer.parseInt(scanner.nextLine());
+            
+            switch (opcion) {
+                case 1 -> {
+                    System.out.print("ID del producto: ");
+                    int idProducto = Integer.parseInt(scanner.nextLine());
+                    List<ReservaStock> reservas = inventarioService.obtenerReservasActivas(idProducto);
+                    System.out.println("Stock disponible para la venta: " + inventarioService.obtenerStockDisponible(idProducto));
+                    if (reservas.isEmpty()) {
+                        System.out.println("El producto no tiene reservas activas.");
+                        return;
+                    }
+                    System.out.printf("%-8s %-10s %-20s %-20s%n", "ID", "Cantidad", "Usuario", "Expira");
+                    System.out.println("-".repeat(60));
+                    for (ReservaStock reserva : reservas) {
+                        System.out.printf("%-8d %-10d %-20s %-20s%n",
+                            reserva.getIdReserva(),
+                            reserva.getCantidad(),
+                            reserva.getUsuario(),
+                            reserva.getFechaExpiracion().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
+                    }
+                }
+                case 2 -> {
+                    System.out.print("ID del producto: ");
+                    int idProducto = Integer.parseInt(scanner.nextLine());
+                    System.out.print("Cantidad a reservar: ");
+                    int cantidad = Integer.parseInt(scanner.nextLine());
+                    System.out.print("Duración en minutos (default: 15): ");
+                    String minutosStr = scanner.nextLine().trim();
+                    int minutos = minutosStr.isEmpty() ? 15 : Integer.parseInt(minutosStr);
+                    ReservaStock reserva = inventarioService.reservarStock(idProducto, cantidad,
+                        Duration.ofMinutes(minutos), "usuario_manual");
+                    System.out.println("✓ Reserva " + reserva.getIdReserva() + " creada. Expira: " +
+                        reserva.getFechaExpiracion().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
+                }
+                case 3 -> {
+                    System.out.print("ID de la reserva: ");
+                    int idReserva = Integer.parseInt(scanner.nextLine());
+                    System.out.print("Motivo: ");
+                    String motivo = scanner.nextLine();
+                    int idMovimiento = inventarioService.confirmarReserva(idReserva, motivo);
+                    System.out.println("✓ Reserva confirmada. Movimiento de salida: " + idMovimiento);
+                }
+                case 4 -> {
+                    System.out.print("ID de la reserva: ");
+                    int idReserva = Integer.parseInt(scanner.nextLine());
+                    if (inventarioService.liberarReserva(idReserva)) {
+                        System.out.println("✓ Reserva liberada.");
+                    } else {
+                        System.out.println("La reserva no existe o ya no estaba activa.");
+                    }
+                }
+                default -> System.out.println("Opción no válida.");
+            }
+            
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Debe ingresar un número válido.");
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
     private static void verProductosStockBajo() {
         System.out.print("Ingrese el límite de stock bajo (default: 200): ");
         String limiteStr = scanner.nextLine();
@@ -885,6 +1266,11 @@ public class Main {
             System.out.println("Nombre: " + producto.getNombre());
             System.out.println("Categoría: " + producto.getCategoria());
             System.out.println("Stock disponible: " + producto.getStock() + " unidades");
+            int disponible = inventarioService.obtenerStockDisponible(idProducto);
+            if (disponible != producto.getStock()) {
+                System.out.println("Reservado: " + (producto.getStock() - disponible) +
+                    " unidades (libres para la venta: " + disponible + ")");
+            }
             System.out.println("--------------------------------\n");
 
             System.out.print("Cantidad a sacar: ");
@@ -910,20 +1296,32 @@ public class Main {
     }
     
     private static void verHistorialMovimientos() {
-        System.out.print("Ingrese el ID del producto (o Enter para ver todos): ");
-        String idStr = scanner.nextLine();
+        System.out.print("Ingrese el ID del producto, ENTRADA/SALIDA, F para un rango de fechas (o Enter para ver todos): ");
+        String filtro = scanner.nextLine().trim().toUpperCase();
 
         try {
-            MovimientoStockDAO movimientoDAO = new MovimientoStockDAOImpl();
-            List<MovimientoStock> movimientos;
-
-            if (idStr.trim().isEmpty()) {
-                // Mostrar todos los movimientos (últimos 50)
-                movimientos = movimientoDAO.obtenerUltimos(50);
-                System.out.println("\n--- ÚLTIMOS 50 MOVIMIENTOS DE STOCK ---");
+            PaginaMovimientos pagina;
+
+            if (filtro.isEmpty()) {
+                System.out.println("\n--- MOVIMIENTOS DE STOCK (más recientes primero) ---");
+                pagina = cursor -> movimientoStockDAO.obtenerPagina(cursor, TAMANO_PAGINA);
+            } else if (filtro.equals("ENTRADA") || filtro.equals("SALIDA")) {
+                System.out.println("\n--- MOVIMIENTOS DE TIPO " + filtro + " ---");
+                pagina = cursor -> movimientoStockDAO.obtenerPaginaPorTipo(filtro, cursor, TAMANO_PAGINA);
+            } else if (filtro.equals("F")) {
+                LocalDateTime[] rango = leerRangoFechas();
+                if (rango == null) {
+                    System.out.println("\n--- MOVIMIENTOS DE STOCK (más recientes primero) ---");
+                    pagina = cursor -> movimientoStockDAO.obtenerPagina(cursor, TAMANO_PAGINA);
+                } else {
+                    DateTimeFormatter formatoRango = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+                    System.out.println("\n--- MOVIMIENTOS ENTRE " + rango[0].format(formatoRango)
+                            + " Y " + rango[1].format(formatoRango) + " ---");
+                    pagina = cursor -> movimientoStockDAO.obtenerPaginaPorRangoFechas(rango[0], rango[1], cursor, TAMANO_PAGINA);
+                }
             } else {
-                int idProducto = Integer.parseInt(idStr);
-                movimientos = movimientoDAO.obtenerPorProducto(idProducto);
+                int idProducto = Integer.parseInt(filtro);
+                pagina = cursor -> movimientoStockDAO.obtenerPaginaPorProducto(idProducto, cursor, TAMANO_PAGINA);
 
                 Producto producto = inventarioService.buscarProductoPorId(idProducto);
                 if (producto != null) {
@@ -933,40 +1331,59 @@ public class Main {
                 }
             }
 
-            if (movimientos.isEmpty()) {
-                System.out.println("No se encontraron movimientos.");
-                return;
-            }
+            // Paginación por clave: cada página cuesta lo mismo aunque haya millones de movimientos
+            CursorMovimiento cursor = null;
+            int totalMostrados = 0;
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
-            // Mostrar tabla de movimientos
-            System.out.printf("%-5s %-12s %-10s %-10s %-10s %-10s %-25s %-20s %-15s%n",
-                    "ID", "Fecha", "Tipo", "Cantidad", "Stock Ant.", "Stock Nuevo", "Motivo", "Usuario", "ID Producto");
-            System.out.println("-".repeat(140));
+            while (true) {
+                List<MovimientoStock> movimientos = pagina.obtener(cursor);
 
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+                if (movimientos.isEmpty()) {
+                    if (totalMostrados == 0) {
+                        System.out.println("No se encontraron movimientos.");
+                        return;
+                    }
+                    break;
+                }
+
+                // Mostrar tabla de movimientos
+                System.out.printf("%-5s %-12s %-10s %-10s %-10s %-10s %-25s %-20s %-15s%n",
+                        "ID", "Fecha", "Tipo", "Cantidad", "Stock Ant.", "Stock Nuevo", "Motivo", "Usuario", "ID Producto");
+                System.out.println("-".repeat(140));
+
+                for (MovimientoStock mov : movimientos) {
+                    String fecha = mov.getFechaMovimiento() != null ?
+                            mov.getFechaMovimiento().format(formatter) : "N/A";
+                    String motivo = mov.getMotivo() != null ?
+                            (mov.getMotivo().length() > 25 ? mov.getMotivo().substring(0, 22) + "..." : mov.getMotivo()) : "";
+
+                    System.out.printf("%-5d %-12s %-10s %-10d %-10d %-10d %-25s %-20s %-15d%n",
+                            mov.getIdMovimiento(),
+                            fecha,
+                            mov.getTipoMovimiento(),
+                            mov.getCantidad(),
+                            mov.getStockAnterior(),
+                            mov.getStockNuevo(),
+                            motivo,
+                            mov.getUsuario(),
+                            mov.getIdProducto());
+                }
 
-            for (MovimientoStock mov : movimientos) {
-                String fecha = mov.getFechaMovimiento() != null ?
-                        mov.getFechaMovimiento().format(formatter) : "N/A";
-                String motivo = mov.getMotivo() != null ?
-                        (mov.getMotivo().length() > 25 ? mov.getMotivo().substring(0, 22) + "..." : mov.getMotivo()) : "";
+                totalMostrados += movimientos.size();
 
-                System.out.printf("%-5d %-12s %-10s %-10d %-10d %-10d %-25s %-20s %-15d%n",
-                        mov.getIdMovimiento(),
-                        fecha,
-                        mov.getTipoMovimiento(),
-                        mov.getCantidad(),
-                        mov.getStockAnterior(),
-                        mov.getStockNuevo(),
-                        motivo,
-                        mov.getUsuario(),
-                        mov.getIdProducto());
+                if (movimientos.size() < TAMANO_PAGINA || !preguntarSiguientePagina()) {
+                    break;
+                }
+                cursor = CursorMovimiento.desde(movimientos.get(movimientos.size() - 1));
             }
 
-            System.out.println("\nTotal de movimientos: " + movimientos.size());
+            System.out.println("\nTotal de movimientos mostrados: " + totalMostrados);
 
         } catch (NumberFormatException e) {
             System.out.println("ID inválido.");
+        } catch (DateTimeParseException e) {
+            System.out.println("Fecha inválida. Use el formato dd/MM/yyyy HH:mm");
         } catch (Exception e) {
             System.out.println("Error: " + e.getMessage());
             logger.error("Error al obtener historial de movimientos", e);
@@ -1027,10 +1444,11 @@ public class Main {
     
     private static void generarReporteTodosProductos() {
         try {
-            List<Producto> productos = inventarioService.obtenerTodosLosProductos();
             String nombreArchivo = JsonUtil.generarNombreArchivoConTimestamp("todos_productos", "json");
             
-            JsonUtil.exportarProductos(productos, "logs/" + nombreArchivo);
+            try (Stream<Producto> productos = inventarioService.streamTodosLosProductos()) {
+                JsonUtil.exportarProductos(productos, "logs/" + nombreArchivo);
+            }
             System.out.println("Reporte generado: logs/" + nombreArchivo);
             
         } catch (Exception e) {
@@ -1044,6 +1462,7 @@ public class Main {
         System.out.println("\n--- EXPORTAR DATOS ---");
         System.out.println("1. Exportar todos los productos a JSON");
         System.out.println("2. Exportar productos por categoría");
+        System.out.println("3. Exportar movimientos de stock a CSV");
         System.out.print("Seleccione una opción: ");
         
         try {
@@ -1052,6 +1471,7 @@ public class Main {
             switch (opcion) {
                 case 1 -> exportarTodosProductos();
                 case 2 -> exportarProductosPorCategoria();
+                case 3 -> exportarMovimientos();
                 default -> System.out.println("Opción no válida.");
             }
             
@@ -1062,11 +1482,13 @@ public class Main {
     
     private static void exportarTodosProductos() {
         try {
-            List<Producto> productos = inventarioService.obtenerTodosLosProductos();
             String nombreArchivo = JsonUtil.generarNombreArchivoConTimestamp("exportacion_productos", "json");
             
-            JsonUtil.exportarProductos(productos, "data/" + nombreArchivo);
-            System.out.println("Datos exportados a: data/" + nombreArchivo);
+            int total;
+            try (Stream<Producto> productos = inventarioService.streamTodosLosProductos()) {
+                total = JsonUtil.exportarProductos(productos, "data/" + nombreArchivo);
+            }
+            System.out.println(total + " productos exportados a: data/" + nombreArchivo);
             
         } catch (Exception e) {
             System.out.println("Error al exportar: " + e.getMessage());
@@ -1094,6 +1516,43 @@ public class Main {
         }
     }
     
+    private static void exportarMovimientos() {
+        try {
+            LocalDateTime[] rango = leerRangoFechas();
+            String nombreArchivo = JsonUtil.generarNombreArchivoConTimestamp("exportacion_movimientos", "csv");
+            
+            // En streaming: el histórico completo puede tener millones de filas
+            int total;
+            try (Stream<MovimientoStock> movimientos = rango == null
+                    ? movimientoStockDAO.streamTodos()
+                    : movimientoStockDAO.streamPorRangoFechas(rango[0], rango[1])) {
+                total = CsvUtil.exportarMovimientos(movimientos, "data/" + nombreArchivo);
+            }
+            System.out.println(total + " movimientos exportados a: data/" + nombreArchivo);
+            
+        } catch (DateTimeParseException e) {
+            System.out.println("Fecha inválida. Use el formato dd/MM/yyyy HH:mm");
+        } catch (Exception e) {
+            System.out.println("Error al exportar: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Pide un rango de fechas opcional; devuelve null si se deja vacío el inicio (sin filtro)
+     */
+    private static LocalDateTime[] leerRangoFechas() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+        System.out.print("Fecha inicio (dd/MM/yyyy HH:mm) o Enter para todos: ");
+        String fechaInicioStr = scanner.nextLine().trim();
+        if (fechaInicioStr.isEmpty()) {
+            return null;
+        }
+        System.out.print("Fecha fin (dd/MM/yyyy HH:mm) o Enter para ahora: ");
+        String fechaFinStr = scanner.nextLine().trim();
+        LocalDateTime fechaFin = fechaFinStr.isEmpty() ? LocalDateTime.now() : LocalDateTime.parse(fechaFinStr, formatter);
+        return new LocalDateTime[]{LocalDateTime.parse(fechaInicioStr, formatter), fechaFin};
+    }
+    
     // ========== ESTADÍSTICAS ==========
     
     private static void mostrarEstadisticas() {
@@ -1110,6 +1569,39 @@ public class Main {
             List<Producto> stockBajo = inventarioService.obtenerProductosConStockBajo(200);
             System.out.println("Productos con stock bajo (<200): " + stockBajo.size());
             
+            CacheProductos cacheProductos = CacheProductos.getInstance();
+            CacheStats stats = cacheProductos.obtenerEstadisticas();
+            System.out.println("\nCaché de productos: " + cacheProductos.tamano() + " en memoria");
+            System.out.printf("  Aciertos: %d | Fallos: %d | Desalojos: %d | Tasa de acierto: %.1f%%%n",
+                stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate() * 100);
+            
+            if (CommitAgrupadoMovimientos.estaHabilitado()) {
+                CommitAgrupadoMovimientos commitAgrupado = CommitAgrupadoMovimientos.getInstance();
+                System.out.printf("Commit agrupado: %d movimientos en %d commits (%.1f por grupo), %d rechazados%n",
+                    commitAgrupado.getMovimientosConfirmados(), commitAgrupado.getCommits(),
+                    commitAgrupado.getTamanoMedioGrupo(), commitAgrupado.getMovimientosRechazados());
+            }
+            
+            MetricasConcurrencia metricas = MetricasConcurrencia.getInstance();
+            System.out.printf("Actualizaciones optimistas: %d aplicadas, %d conflictos de versión, %d reintentos, %d agotadas%n",
+                metricas.getActualizacionesOptimistas(), metricas.getConflictosVersion(),
+                metricas.getReintentos(), metricas.getReintentosAgotados());
+
+            if (ConsultasLentas.estaHabilitado()) {
+                ConsultasLentas consultasLentas = ConsultasLentas.getInstance();
+                System.out.printf("Consultas lentas (>= %d ms): %d registradas, %d planes EXPLAIN, %d descartadas"
+                    + " → logs/consultas_lentas.log%n", consultasLentas.getUmbralMs(), consultasLentas.getRegistradas(),
+                    consultasLentas.getPlanesCapturados(), consultasLentas.getDescartadas());
+            }
+
+            IndiceNombresProductos indice = IndiceNombresProductos.getInstance();
+            if (indice.estaCargado()) {
+                System.out.println("Índice de búsqueda: " + indice.tamano() + " productos, "
+                    + indice.totalTrigramas() + " trigramas");
+            } else {
+                System.out.println("Índice de búsqueda: se construirá en la primera búsqueda por nombre");
+            }
+            
             System.out.println("\nEstadísticas detalladas disponibles en reportes JSON.");
             
         } catch (Exception e) {
@@ -1117,6 +1609,102 @@ public class Main {
         }
     }
     
+    private static void verificarIndiceBusqueda() {
+        try {
+            System.out.println("Comparando el índice de búsqueda con la base de datos...");
+            int diferencias = new ProductoDAOCacheado(new ProductoDAOImpl()).verificarIndiceNombres();
+            IndiceNombresProductos indice = IndiceNombresProductos.getInstance();
+            
+            System.out.println("Productos indexados: " + indice.tamano() + " (" + indice.totalTrigramas() + " trigramas)");
+            if (diferencias == 0) {
+                System.out.println("✓ El índice estaba sincronizado con la base de datos.");
+            } else {
+                System.out.println("⚠ Se corrigieron " + diferencias + " productos desincronizados.");
+            }
+            
+        } catch (Exception e) {
+            System.out.println("Error al verificar el índice: " + e.getMessage());
+            logger.error("Error al verificar índice de búsqueda", e);
+        }
+    }
+    
+    private static void mostrarRutasOptimizadas() {
+        System.out.print("¿Volver a detectar los índices del esquema? (S/N): ");
+        String respuesta = scanner.nextLine().trim().toUpperCase();
+        
+        CapacidadesEsquema capacidades = CapacidadesEsquema.getInstance();
+        if (respuesta.equals("S") || respuesta.equals("SI") || respuesta.equals("SÍ")) {
+            capacidades.detectar();
+        }
+        
+        System.out.println("\n--- RUTAS OPTIMIZADAS ---");
+        System.out.printf("%-8s %-32s %-45s%n", "Estado", "Índice", "Ruta");
+        System.out.println("-".repeat(90));
+        
+        capacidades.informe().forEach((indice, activo) ->
+            System.out.printf("%-8s %-32s %-45s%n",
+                activo ? "✓" : "✗",
+                indice.getNombreIndice(),
+                indice.getRutaOptimizada()));
+        
+        System.out.println("\nBúsqueda por nombre en base de datos: " + capacidades.estrategiaBusquedaNombre());
+        System.out.println("Los índices ausentes se crean con scripts/06-optimizaciones-compatible.sql");
+    }
+    
+    private static void mostrarMetricasDAO() {
+        List<MetricaMetodo> usadas = RegistroMetricas.getInstance().obtenerTodas().stream()
+            .filter(metrica -> metrica.getLlamadas() > 0)
+            .toList();
+        
+        System.out.println("\n--- MÉTRICAS DE LOS DAOs ---");
+        if (!DAOInstrumentado.estaHabilitado()) {
+            System.out.println("Instrumentación desactivada (METRICAS_DAO=false).");
+            return;
+        }
+        if (usadas.isEmpty()) {
+            System.out.println("Todavía no se ha llamado a ningún método de DAO.");
+        } else {
+            System.out.printf("%-55s %8s %6s %9s %9s %9s %9s %9s%n",
+                "Método", "Llamadas", "Error", "Filas", "Media ms", "p50 ms", "p99 ms", "Máx ms");
+            System.out.println("-".repeat(120));
+            for (MetricaMetodo metrica : usadas) {
+                Histogram latencias = metrica.copiarLatencias();
+                System.out.printf("%-55s %8d %6d %9d %9.2f %9.2f %9.2f %9.2f%n",
+                    metrica.getDao() + "." + metrica.getMetodo(), metrica.getLlamadas(), metrica.getErrores(),
+                    metrica.getFilas(), latencias.getMean() / 1_000_000.0,
+                    latencias.getValueAtPercentile(50) / 1_000_000.0,
+                    latencias.getValueAtPercentile(99) / 1_000_000.0,
+                    latencias.getMaxValue() / 1_000_000.0);
+            }
+        }
+        if (ExportadorMetricas.estaHabilitado()) {
+            System.out.println("\nExportación periódica activa en: " + ExportadorMetricas.getInstance().getArchivo());
+        }
+        
+        System.out.print("\n¿Exportar (J)SON, (P)rometheus, (R)einiciar o Enter para volver?: ");
+        String respuesta = scanner.nextLine().trim().toUpperCase();
+        try {
+            switch (respuesta) {
+                case "J" -> exportarMetricasDAO("json");
+                case "P" -> exportarMetricasDAO("prom");
+                case "R" -> {
+                    RegistroMetricas.getInstance().reiniciar();
+                    System.out.println("✓ Métricas puestas a cero.");
+                }
+                default -> { }
+            }
+        } catch (Exception e) {
+            System.out.println("Error al exportar métricas: " + e.getMessage());
+            logger.error("Error al exportar métricas de DAOs", e);
+        }
+    }
+    
+    private static void exportarMetricasDAO(String extension) throws Exception {
+        String ruta = "data/" + JsonUtil.generarNombreArchivoConTimestamp("metricas_dao", extension);
+        ExportadorMetricas.escribir(Paths.get(ruta));
+        System.out.println("✓ Métricas exportadas a: " + ruta);
+    }
+    
     // ========== IMPORTACIÓN DE MOVIMIENTOS DESDE CSV ==========
 
     private static void importarMovimientosCSV() {
@@ -1148,7 +1736,7 @@ public class Main {
 
         try {
             // Crear importador y ejecutar
-            ImportadorMovimientosCSV importador = new ImportadorMovimientosCSV();
+            ImportadorMovimientosCSV importador = new ImportadorMovimientosCSV(movimientoStockDAO);
             ImportadorMovimientosCSV.ResultadoImportacion resultado = importador.importarDesdeCSV(rutaArchivo);
 
             // El importador ya muestra el resumen, aquí solo agregamos mensaje final
@@ -1188,6 +1776,7 @@ public class Main {
         System.out.println("4. Productos con bajo stock y su histórico");
         System.out.println("5. Productos sin movimientos");
         System.out.println("6. Análisis de rotación de inventario");
+        System.out.println("7. Stock y valor en una fecha (cierre de mes)");
         System.out.println("0. Volver al menú anterior");
         System.out.print("Seleccione una opción: ");
 
@@ -1201,6 +1790,7 @@ public class Main {
                 case 4 -> consultaProductosBajoStockConHistorico();
                 case 5 -> consultaProductosSinMovimientos();
                 case 6 -> consultaRotacionInventario();
+                case 7 -> consultaStockEnFecha();
                 case 0 -> System.out.println("Volviendo al menú anterior...");
                 default -> System.out.println("Opción no válida.");
             }
@@ -1213,12 +1803,81 @@ public class Main {
         }
     }
 
+    private static void consultaStockEnFecha() {
+        try {
+            System.out.println("\n--- STOCK Y VALOR EN UNA FECHA ---");
+            System.out.print("Fecha (dd/MM/yyyy HH:mm) o Enter para el cierre del mes anterior: ");
+            String fechaStr = scanner.nextLine().trim();
+
+            LocalDateTime fecha;
+            if (fechaStr.isEmpty()) {
+                // Último instante del mes anterior
+                fecha = LocalDate.now().withDayOfMonth(1).atStartOfDay().minusNanos(1);
+            } else {
+                fecha = LocalDateTime.parse(fechaStr, DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+            }
+
+            // Se agrupa por categoría mientras se recorre: no se cargan todos los productos en memoria
+            Map<String, Object[]> porCategoria = new TreeMap<>();
+            long inicio = System.currentTimeMillis();
+            try (Stream<Object[]> filas = consultasDAO.streamStockEnFecha(fecha, List.of())) {
+                filas.forEach(fila -> {
+                    Object[] total = porCategoria.computeIfAbsent((String) fila[2],
+                        categoria -> new Object[]{0, 0L, BigDecimal.ZERO});
+                    total[0] = (Integer) total[0] + 1;
+                    total[1] = (Long) total[1] + (Integer) fila[4];
+                    total[2] = ((BigDecimal) total[2]).add((BigDecimal) fila[5]);
+                });
+            }
+            long duracion = System.currentTimeMillis() - inicio;
+
+            if (porCategoria.isEmpty()) {
+                System.out.println("No había productos en esa fecha.");
+                return;
+            }
+
+            System.out.println("\n╔════════════════════════════════════════════════════════════════════════╗");
+            System.out.println("║              STOCK Y VALOR EN UNA FECHA                                ║");
+            System.out.println("╚════════════════════════════════════════════════════════════════════════╝");
+            System.out.println("Fecha: " + fecha.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) +
+                    " (valor a precios actuales)");
+            System.out.printf("%-20s %-15s %-15s %-15s%n",
+                    "Categoría", "Total Productos", "Unidades Stock", "Valor Total");
+            System.out.println("-".repeat(70));
+
+            int totalProductos = 0;
+            long totalUnidades = 0;
+            double valorTotalGeneral = 0;
+            for (Map.Entry<String, Object[]> entrada : porCategoria.entrySet()) {
+                Object[] total = entrada.getValue();
+                System.out.printf("%-20s %-15s %-15s $%-14.2f%n",
+                        entrada.getKey(), total[0], total[1], total[2]);
+                totalProductos += (Integer) total[0];
+                totalUnidades += (Long) total[1];
+                valorTotalGeneral += ((BigDecimal) total[2]).doubleValue();
+            }
+
+            System.out.println("-".repeat(70));
+            System.out.printf("%-20s %-15d %-15d $%-14.2f%n",
+                    "TOTAL GENERAL", totalProductos, totalUnidades, valorTotalGeneral);
+            System.out.println("Calculado en " + duracion + " ms");
+
+            System.out.println("\nPresione Enter para continuar...");
+            scanner.nextLine();
+
+        } catch (DateTimeParseException e) {
+            System.out.println("Formato de fecha inválido. Use dd/MM/yyyy HH:mm");
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+            logger.error("Error en consulta de stock en fecha", e);
+        }
+    }
+
     private static void consultaTopProductosVendidos() {
         System.out.print("\n¿Cuántos productos desea ver? (Top N): ");
         try {
             int limite = Integer.parseInt(scanner.nextLine());
 
-            ConsultasAvanzadasDAO consultasDAO = new ConsultasAvanzadasDAOImpl();
             List<Object[]> resultados = consultasDAO.obtenerTopProductosMasVendidos(limite);
 
             if (resultados.isEmpty()) {
@@ -1256,7 +1915,6 @@ public class Main {
 
     private static void consultaValorStockPorCategoria() {
         try {
-            ConsultasAvanzadasDAO consultasDAO = new ConsultasAvanzadasDAOImpl();
             List<Object[]> resultados = consultasDAO.obtenerValorStockPorCategoria();
 
             if (resultados.isEmpty()) {
@@ -1327,8 +1985,8 @@ public class Main {
                 fechaFin = LocalDateTime.parse(fechaFinStr, formatter);
             }
 
-            ConsultasAvanzadasDAO consultasDAO = new ConsultasAvanzadasDAOImpl();
-            List<Object[]> resultados = consultasDAO.obtenerHistoricoMovimientos(fechaInicio, fechaFin);
+            List<Object[]> resultados = consultasDAO.obtenerHistoricoMovimientosPaginado(
+                    fechaInicio, fechaFin, null, TAMANO_PAGINA);
 
             if (resultados.isEmpty()) {
                 System.out.println("\nNo se encontraron movimientos en el rango especificado.");
@@ -1346,31 +2004,47 @@ public class Main {
 
             int totalEntradas = 0;
             int totalSalidas = 0;
+            int totalMovimientos = 0;
 
-            for (Object[] row : resultados) {
-                String tipo = row[5].toString(); // tipo_movimiento está en índice 5
-                int cantidad = ((Number) row[6]).intValue(); // cantidad está en índice 6
+            while (true) {
+                for (Object[] row : resultados) {
+                    String tipo = row[5].toString(); // tipo_movimiento está en índice 5
+                    int cantidad = ((Number) row[6]).intValue(); // cantidad está en índice 6
 
-                if ("ENTRADA".equals(tipo)) {
-                    totalEntradas += cantidad;
-                } else {
-                    totalSalidas += cantidad;
+                    if ("ENTRADA".equals(tipo)) {
+                        totalEntradas += cantidad;
+                    } else {
+                        totalSalidas += cantidad;
+                    }
+
+                    // Formatear fecha
+                    LocalDateTime fecha = (LocalDateTime) row[1];
+                    String fechaStr = fecha.format(DateTimeFormatter.ofPattern("dd/MM HH:mm"));
+
+                    System.out.printf("%-12s %-10s %-30s %-10s %-20s%n",
+                            fechaStr,      // fila[1] - fecha_movimiento
+                            row[5],        // fila[5] - tipo_movimiento
+                            row[3],        // fila[3] - producto nombre
+                            row[6],        // fila[6] - cantidad
+                            row[10]);      // fila[10] - usuario
                 }
 
-                // Formatear fecha
-                LocalDateTime fecha = (LocalDateTime) row[1];
-                String fechaStr = fecha.format(DateTimeFormatter.ofPattern("dd/MM HH:mm"));
+                totalMovimientos += resultados.size();
 
-                System.out.printf("%-12s %-10s %-30s %-10s %-20s%n",
-                        fechaStr,      // fila[1] - fecha_movimiento
-                        row[5],        // fila[5] - tipo_movimiento
-                        row[3],        // fila[3] - producto nombre
-                        row[6],        // fila[6] - cantidad
-                        row[10]);      // fila[10] - usuario
+                if (resultados.size() < TAMANO_PAGINA || !preguntarSiguientePagina()) {
+                    break;
+                }
+
+                Object[] ultima = resultados.get(resultados.size() - 1);
+                CursorMovimiento cursor = new CursorMovimiento((LocalDateTime) ultima[1], (Integer) ultima[0]);
+                resultados = consultasDAO.obtenerHistoricoMovimientosPaginado(fechaInicio, fechaFin, cursor, TAMANO_PAGINA);
+                if (resultados.isEmpty()) {
+                    break;
+                }
             }
 
             System.out.println("-".repeat(90));
-            System.out.println("Total movimientos: " + resultados.size());
+            System.out.println("Total movimientos: " + totalMovimientos);
             System.out.println("Total entradas: " + totalEntradas + " unidades");
             System.out.println("Total salidas: " + totalSalidas + " unidades");
             System.out.println("Balance: " + (totalEntradas - totalSalidas) + " unidades");
@@ -1394,7 +2068,6 @@ public class Main {
             String diasStr = scanner.nextLine().trim();
             int dias = diasStr.isEmpty() ? 30 : Integer.parseInt(diasStr);
 
-            ConsultasAvanzadasDAO consultasDAO = new ConsultasAvanzadasDAOImpl();
             List<Object[]> resultados = consultasDAO.obtenerProductosBajoStockConHistorico(limite, dias);
 
             if (resultados.isEmpty()) {
@@ -1433,7 +2106,6 @@ public class Main {
             String diasStr = scanner.nextLine().trim();
             int dias = diasStr.isEmpty() ? 30 : Integer.parseInt(diasStr);
 
-            ConsultasAvanzadasDAO consultasDAO = new ConsultasAvanzadasDAOImpl();
             List<Object[]> resultados = consultasDAO.obtenerProductosSinMovimientos(dias);
 
             if (resultados.isEmpty()) {
@@ -1478,7 +2150,6 @@ public class Main {
 
     private static void consultaRotacionInventario() {
         try {
-            ConsultasAvanzadasDAO consultasDAO = new ConsultasAvanzadasDAOImpl();
             List<Object[]> resultados = consultasDAO.obtenerAnalisisRotacionPorCategoria();
 
             if (resultados.isEmpty()) {
@@ -1518,6 +2189,23 @@ public class Main {
 
     // ========== UTILIDADES ==========
 
+    /**
+     * Pregunta si se desea cargar la siguiente página de resultados
+     */
+    /**
+     * Consulta de una página del historial a partir del cursor (null para la primera)
+     */
+    @FunctionalInterface
+    private interface PaginaMovimientos {
+        List<MovimientoStock> obtener(CursorMovimiento cursor) throws Exception;
+    }
+
+    private static boolean preguntarSiguientePagina() {
+        System.out.print("\n[Enter] siguiente página · [0] terminar: ");
+        String respuesta = scanner.nextLine().trim();
+        return !respuesta.equals("0");
+    }
+
     private static void mostrarDetalleProducto(Producto producto) {
         System.out.println("ID: " + producto.getIdProducto());
         System.out.println("Nombre: " + producto.getNombre());
@@ -0,0 +1,170 @@
+package com.inventario.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.inventario.model.Producto;
+import com.inventario.util.VariablesEntorno;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de productos por ID compartida por todo el proceso.
+ *
+ * Usa Caffeine (política W-TinyLFU) con límite de tamaño y expiración por tiempo.
+ * Las entradas se invalidan explícitamente en cada escritura sobre el producto;
+ * la expiración solo acota el tiempo que puede sobrevivir un cambio hecho por otro proceso.
+ *
+ * Configurable por variables de entorno:
+ *   CACHE_PRODUCTOS_MAX           número máximo de productos (por defecto 10000)
+ *   CACHE_PRODUCTOS_TTL_SEGUNDOS  segundos de vida de cada entrada (por defecto 300)
+ */
+public class CacheProductos {
+    private static final Logger logger = LoggerFactory.getLogger(CacheProductos.class);
+
+    private static final long DEFAULT_MAX_PRODUCTOS = 10_000;
+    private static final long DEFAULT_TTL_SEGUNDOS = 300;
+
+    private final Cache<Integer, Producto> cache;
+
+    // Se incrementa en cada invalidación: una carga que se solapa con una escritura no se guarda
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * Lee un producto de la base de datos cuando no está en caché
+     */
+    @FunctionalInterface
+    public interface CargadorProducto {
+        Optional<Producto> cargar(int idProducto) throws SQLException;
+    }
+
+    /**
+     * Lee de una vez varios productos que no están en caché
+     */
+    @FunctionalInterface
+    public interface CargadorVariosProductos {
+        List<Producto> cargar(Collection<Integer> idsProducto) throws SQLException;
+    }
+
+    private CacheProductos() {
+        long maxProductos = VariablesEntorno.getLong("CACHE_PRODUCTOS_MAX", DEFAULT_MAX_PRODUCTOS);
+        long ttlSegundos = VariablesEntorno.getLong("CACHE_PRODUCTOS_TTL_SEGUNDOS", DEFAULT_TTL_SEGUNDOS);
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxProductos)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+
+        logger.info("Caché de productos inicializada: máximo {} productos, TTL {} s", maxProductos, ttlSegundos);
+    }
+
+    private static class Holder {
+        private static final CacheProductos INSTANCE = new CacheProductos();
+    }
+
+    public static CacheProductos getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Devuelve el producto desde caché o lo carga con el cargador indicado.
+     * Siempre se entrega una copia, para que los cambios del llamante no alteren la caché
+     */
+    public Optional<Producto> obtener(int idProducto, CargadorProducto cargador) throws SQLException {
+        Producto enCache = cache.getIfPresent(idProducto);
+        if (enCache != null) {
+            return Optional.of(copiar(enCache));
+        }
+
+        long generacionInicial = generacion.get();
+        Optional<Producto> cargado = cargador.cargar(idProducto);
+
+        // Los productos inexistentes no se guardan en caché
+        if (cargado.isPresent() && generacion.get() == generacionInicial) {
+            cache.put(idProducto, copiar(cargado.get()));
+        }
+        return cargado;
+    }
+
+    /**
+     * Devuelve los productos pedidos, leyendo en una sola consulta los que no estén en caché.
+     * Los IDs inexistentes no aparecen en el resultado
+     */
+    public Map<Integer, Producto> obtenerVarios(Collection<Integer> idsProducto,
+                                                CargadorVariosProductos cargador) throws SQLException {
+        Map<Integer, Producto> resultado = new HashMap<>();
+        cache.getAllPresent(idsProducto).forEach((id, producto) -> resultado.put(id, copiar(producto)));
+
+        List<Integer> pendientes = new ArrayList<>();
+        for (Integer id : idsProducto) {
+            if (!resultado.containsKey(id)) {
+                pendientes.add(id);
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return resultado;
+        }
+
+        long generacionInicial = generacion.get();
+        List<Producto> cargados = cargador.cargar(pendientes);
+        boolean guardar = generacion.get() == generacionInicial;
+        for (Producto producto : cargados) {
+            resultado.put(producto.getIdProducto(), producto);
+            if (guardar) {
+                cache.put(producto.getIdProducto(), copiar(producto));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Elimina un producto de la caché tras modificarlo
+     */
+    public void invalidar(int idProducto) {
+        generacion.incrementAndGet();
+        cache.invalidate(idProducto);
+    }
+
+    /**
+     * Vacía la caché completa (importaciones masivas, restauraciones)
+     */
+    public void invalidarTodo() {
+        generacion.incrementAndGet();
+        cache.invalidateAll();
+        logger.debug("Caché de productos vaciada");
+    }
+
+    /**
+     * Estadísticas de aciertos, fallos y desalojos desde el arranque
+     */
+    public CacheStats obtenerEstadisticas() {
+        return cache.stats();
+    }
+
+    /**
+     * Número aproximado de productos en caché
+     */
+    public long tamano() {
+        return cache.estimatedSize();
+    }
+
+    private Producto copiar(Producto original) {
+        Producto copia = new Producto(original.getIdProducto(), original.getNombre(),
+                original.getCategoria(), original.getPrecio(), original.getStock());
+        copia.setFechaCreacion(original.getFechaCreacion());
+        copia.setFechaModificacion(original.getFechaModificacion());
+        copia.setVersion(original.getVersion());
+        return copia;
+    }
+}
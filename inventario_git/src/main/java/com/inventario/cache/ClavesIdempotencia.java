@@ -0,0 +1,88 @@
+package com.inventario.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inventario.model.MovimientoStock;
+import com.inventario.util.VariablesEntorno;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Claves de idempotencia de movimientos ya confirmados, con el movimiento original.
+ *
+ * Es solo la parte en memoria del índice de duplicados: un reintento reciente se resuelve
+ * sin consultar la base de datos. La referencia es la columna única
+ * movimientos_stock.clave_idempotencia; una clave que no esté aquí se busca allí.
+ * Solo se guardan claves de movimientos ya confirmados (nunca antes del commit).
+ *
+ * Configurable por variable de entorno:
+ *   IDEMPOTENCIA_MAX  número máximo de claves en memoria (por defecto 100000)
+ */
+public class ClavesIdempotencia {
+    private static final Logger logger = LoggerFactory.getLogger(ClavesIdempotencia.class);
+
+    private static final long DEFAULT_MAX_CLAVES = 100_000;
+
+    private final Cache<String, MovimientoRegistrado> claves;
+
+    /**
+     * Lo necesario de un movimiento confirmado para reconocer un reintento (mismo producto,
+     * tipo y cantidad) y devolver su resultado sin volver a leerlo
+     */
+    public record MovimientoRegistrado(int idMovimiento, int idProducto, String tipoMovimiento, int cantidad,
+                                       int stockAnterior, int stockNuevo, LocalDateTime fechaMovimiento) {}
+
+    private ClavesIdempotencia() {
+        long maxClaves = VariablesEntorno.getLong("IDEMPOTENCIA_MAX", DEFAULT_MAX_CLAVES);
+
+        this.claves = Caffeine.newBuilder()
+                .maximumSize(maxClaves)
+                .build();
+
+        logger.info("Índice de claves de idempotencia inicializado: máximo {} claves", maxClaves);
+    }
+
+    private static class Holder {
+        private static final ClavesIdempotencia INSTANCE = new ClavesIdempotencia();
+    }
+
+    public static ClavesIdempotencia getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Movimiento confirmado con esa clave, si sigue en memoria
+     */
+    public Optional<MovimientoRegistrado> buscar(String clave) {
+        return Optional.ofNullable(claves.getIfPresent(clave));
+    }
+
+    /**
+     * Recuerda la clave de un movimiento confirmado (no hace nada si no tiene clave)
+     */
+    public void recordar(MovimientoStock movimiento) {
+        if (movimiento.getClaveIdempotencia() != null && movimiento.getIdMovimiento() > 0) {
+            claves.put(movimiento.getClaveIdempotencia(), new MovimientoRegistrado(movimiento.getIdMovimiento(),
+                    movimiento.getIdProducto(), movimiento.getTipoMovimiento(), movimiento.getCantidad(),
+                    movimiento.getStockAnterior(), movimiento.getStockNuevo(), movimiento.getFechaMovimiento()));
+        }
+    }
+
+    /**
+     * Descarta todas las claves en memoria (importaciones, restauraciones)
+     */
+    public void invalidar() {
+        claves.invalidateAll();
+        logger.debug("Claves de idempotencia en memoria descartadas");
+    }
+
+    /**
+     * Número aproximado de claves en memoria
+     */
+    public long tamano() {
+        return claves.estimatedSize();
+    }
+}
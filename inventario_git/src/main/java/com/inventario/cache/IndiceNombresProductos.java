@@ -0,0 +1,417 @@
+package com.inventario.cache;
+
+import com.inventario.model.Producto;
+import com.inventario.util.VariablesEntorno;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Índice de trigramas en memoria sobre los nombres de producto, compartido por todo el proceso.
+ *
+ * Resuelve búsquedas de subcadena (equivalentes a LIKE '%texto%') sin consultar MySQL:
+ * se cruzan las listas de IDs de los trigramas del texto buscado y se confirma cada
+ * candidato contra su nombre. Los resultados se ordenan por relevancia:
+ * coincidencia exacta, prefijo del nombre, inicio de palabra y, por último, subcadena.
+ *
+ * Se construye en la primera búsqueda y se mantiene al día con cada alta, modificación
+ * y baja de producto hecha desde este proceso. Los cambios de otros procesos (otra
+ * instancia de la aplicación, scripts SQL) se recogen al reconstruirlo periódicamente;
+ * mientras se reconstruye, las búsquedas siguen usando el índice anterior.
+ *
+ * Configuración mediante variables de entorno:
+ *   INDICE_NOMBRES_REFRESCO_SEGUNDOS  antigüedad a partir de la cual se reconstruye
+ *                                     (por defecto 300; 0 lo desactiva)
+ */
+public class IndiceNombresProductos {
+    private static final Logger logger = LoggerFactory.getLogger(IndiceNombresProductos.class);
+
+    private static final int N = 3;
+
+    private static final long DEFAULT_REFRESCO_SEGUNDOS = 300;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializa la construcción del índice, que recorre la tabla de productos
+    private final ReentrantLock carga = new ReentrantLock();
+
+    // Protegidos por lock
+    private Map<Integer, String> nombres = new HashMap<>();
+    private Map<String, Set<Integer>> trigramas = new HashMap<>();
+
+    // Cambios hechos mientras se recorre la tabla: se aplican sobre el resultado antes de publicarlo.
+    // Es null si no hay ninguna carga en curso
+    private List<Cambio> cambiosDuranteCarga;
+
+    private volatile boolean cargado;
+    private volatile long cargadoEn;
+
+    private final long refrescoNanos;
+
+    // Se incrementa en cada invalidación: una carga que se solapa con ella no se publica
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * Recorre todos los productos de la base de datos (por ejemplo ProductoDAO::recorrerTodos)
+     */
+    @FunctionalInterface
+    public interface CargadorNombres {
+        int recorrer(Consumer<Producto> accion) throws SQLException;
+    }
+
+    private IndiceNombresProductos() {
+        long refrescoSegundos = VariablesEntorno.getLong("INDICE_NOMBRES_REFRESCO_SEGUNDOS", DEFAULT_REFRESCO_SEGUNDOS);
+        this.refrescoNanos = TimeUnit.SECONDS.toNanos(Math.max(0, refrescoSegundos));
+    }
+
+    private static class Holder {
+        private static final IndiceNombresProductos INSTANCE = new IndiceNombresProductos();
+    }
+
+    public static IndiceNombresProductos getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Devuelve los IDs de los productos cuyo nombre contiene el texto, ordenados por relevancia
+     */
+    public List<Integer> buscar(String texto, CargadorNombres cargador) throws SQLException {
+        cargarSiHaceFalta(cargador);
+        String consulta = NormalizadorTexto.normalizar(texto);
+
+        lock.readLock().lock();
+        try {
+            List<Integer> candidatos = consulta.length() < N
+                    ? new ArrayList<>(nombres.keySet())
+                    : candidatosPorTrigramas(consulta);
+
+            List<Coincidencia> coincidencias = new ArrayList<>();
+            for (Integer id : candidatos) {
+                String nombre = nombres.get(id);
+                int posicion = nombre.indexOf(consulta);
+                if (posicion >= 0) {
+                    coincidencias.add(new Coincidencia(id, nombre, puntuar(nombre, consulta, posicion)));
+                }
+            }
+
+            coincidencias.sort(Comparator.comparingInt(Coincidencia::puntuacion)
+                    .thenComparingInt(c -> c.nombre().length())
+                    .thenComparing(Coincidencia::nombre)
+                    .thenComparingInt(Coincidencia::idProducto));
+
+            List<Integer> ids = new ArrayList<>(coincidencias.size());
+            for (Coincidencia coincidencia : coincidencias) {
+                ids.add(coincidencia.idProducto());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Añade o actualiza un producto en el índice
+     */
+    public void indexar(int idProducto, String nombre) {
+        if (nombre == null) {
+            return;
+        }
+        registrarCambio(new Cambio(idProducto, nombre));
+    }
+
+    /**
+     * Elimina un producto del índice
+     */
+    public void quitar(int idProducto) {
+        registrarCambio(new Cambio(idProducto, null));
+    }
+
+    /**
+     * Descarta el índice; se reconstruirá en la próxima búsqueda
+     */
+    public void invalidar() {
+        generacion.incrementAndGet();
+        lock.writeLock().lock();
+        try {
+            cargado = false;
+            nombres = new HashMap<>();
+            trigramas = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Índice de nombres de productos invalidado");
+    }
+
+    /**
+     * Compara el índice con la base de datos y lo reconstruye.
+     * Devuelve el número de productos que faltaban, sobraban o tenían otro nombre
+     */
+    public int verificar(CargadorNombres cargador) throws SQLException {
+        carga.lock();
+        try {
+            int diferencias = reconstruir(cargador);
+            logger.info("Verificación del índice de nombres: {} productos, {} diferencias", tamano(), diferencias);
+            return diferencias;
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Número de productos indexados
+     */
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return nombres.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de trigramas distintos en el índice
+     */
+    public int totalTrigramas() {
+        lock.readLock().lock();
+        try {
+            return trigramas.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void cargarSiHaceFalta(CargadorNombres cargador) throws SQLException {
+        if (cargado) {
+            // Refresco periódico en segundo plano respecto a las demás búsquedas, que no esperan
+            if (caducado() && carga.tryLock()) {
+                try {
+                    if (caducado()) {
+                        refrescar(cargador);
+                    }
+                } finally {
+                    carga.unlock();
+                }
+            }
+            return;
+        }
+        // Solo un hilo construye el índice; el resto espera a que termine
+        carga.lock();
+        try {
+            if (!cargado) {
+                reconstruir(cargador);
+            }
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    private void refrescar(CargadorNombres cargador) {
+        try {
+            int diferencias = reconstruir(cargador);
+            if (diferencias > 0) {
+                logger.info("Índice de nombres refrescado: {} productos cambiados fuera de este proceso", diferencias);
+            }
+        } catch (SQLException e) {
+            // Se sigue con el índice actual y se vuelve a intentar pasado otro periodo
+            cargadoEn = System.nanoTime();
+            logger.warn("No se pudo refrescar el índice de nombres: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recorre la tabla de productos y publica el índice resultante. Devuelve el número de productos
+     * que faltaban, sobraban o tenían otro nombre en el índice anterior. Se llama con carga bloqueado
+     */
+    private int reconstruir(CargadorNombres cargador) throws SQLException {
+        long generacionInicial = generacion.get();
+        long inicio = System.nanoTime();
+
+        lock.writeLock().lock();
+        try {
+            cambiosDuranteCarga = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Integer, String> nuevosNombres = new HashMap<>();
+        Map<String, Set<Integer>> nuevosTrigramas = new HashMap<>();
+        try {
+            cargador.recorrer(p -> agregar(nuevosNombres, nuevosTrigramas, p.getIdProducto(), p.getNombre()));
+        } catch (SQLException | RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                cambiosDuranteCarga = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int diferencias;
+        lock.writeLock().lock();
+        try {
+            // El recorrido puede no ver las escrituras confirmadas mientras avanzaba
+            for (Cambio cambio : cambiosDuranteCarga) {
+                aplicar(nuevosNombres, nuevosTrigramas, cambio);
+            }
+            cambiosDuranteCarga = null;
+
+            diferencias = cargado ? contarDiferencias(nuevosNombres) : 0;
+            if (generacion.get() == generacionInicial) {
+                publicar(nuevosNombres, nuevosTrigramas);
+            } else {
+                // Hubo una invalidación durante la carga: se usa esta vez y se repetirá en la próxima
+                nombres = nuevosNombres;
+                trigramas = nuevosTrigramas;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Índice de nombres construido: {} productos, {} trigramas en {} ms",
+                nuevosNombres.size(), nuevosTrigramas.size(), (System.nanoTime() - inicio) / 1_000_000);
+        return diferencias;
+    }
+
+    private void registrarCambio(Cambio cambio) {
+        lock.writeLock().lock();
+        try {
+            if (cambiosDuranteCarga != null) {
+                cambiosDuranteCarga.add(cambio);
+            }
+            if (cargado) {
+                aplicar(nombres, trigramas, cambio);
+            }
+            // Sin índice ni carga en curso no hay nada que mantener: se incluirá en la carga completa
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int contarDiferencias(Map<Integer, String> nombresBD) {
+        int diferencias = 0;
+        for (Map.Entry<Integer, String> entrada : nombresBD.entrySet()) {
+            if (!entrada.getValue().equals(nombres.get(entrada.getKey()))) {
+                diferencias++;
+            }
+        }
+        for (Integer id : nombres.keySet()) {
+            if (!nombresBD.containsKey(id)) {
+                diferencias++;
+            }
+        }
+        return diferencias;
+    }
+
+    private boolean caducado() {
+        return refrescoNanos > 0 && System.nanoTime() - cargadoEn >= refrescoNanos;
+    }
+
+    private void publicar(Map<Integer, String> nuevosNombres, Map<String, Set<Integer>> nuevosTrigramas) {
+        nombres = nuevosNombres;
+        trigramas = nuevosTrigramas;
+        cargadoEn = System.nanoTime();
+        cargado = true;
+    }
+
+    private List<Integer> candidatosPorTrigramas(String consulta) {
+        List<Set<Integer>> listas = new ArrayList<>();
+        for (String trigrama : extraerTrigramas(consulta)) {
+            Set<Integer> ids = trigramas.get(trigrama);
+            if (ids == null) {
+                return List.of();
+            }
+            listas.add(ids);
+        }
+
+        // Se parte de la lista más corta y se descartan los IDs ausentes en el resto
+        listas.sort(Comparator.comparingInt(Set::size));
+        List<Integer> candidatos = new ArrayList<>();
+        for (Integer id : listas.get(0)) {
+            boolean enTodas = true;
+            for (int i = 1; i < listas.size() && enTodas; i++) {
+                enTodas = listas.get(i).contains(id);
+            }
+            if (enTodas) {
+                candidatos.add(id);
+            }
+        }
+        return candidatos;
+    }
+
+    private static void aplicar(Map<Integer, String> nombres, Map<String, Set<Integer>> trigramas, Cambio cambio) {
+        quitar(nombres, trigramas, cambio.idProducto());
+        if (cambio.nombre() != null) {
+            agregar(nombres, trigramas, cambio.idProducto(), cambio.nombre());
+        }
+    }
+
+    private static void quitar(Map<Integer, String> nombres, Map<String, Set<Integer>> trigramas, int idProducto) {
+        String anterior = nombres.remove(idProducto);
+        if (anterior == null) {
+            return;
+        }
+        for (String trigrama : extraerTrigramas(anterior)) {
+            Set<Integer> ids = trigramas.get(trigrama);
+            if (ids != null) {
+                ids.remove(idProducto);
+                if (ids.isEmpty()) {
+                    trigramas.remove(trigrama);
+                }
+            }
+        }
+    }
+
+    private static void agregar(Map<Integer, String> nombres, Map<String, Set<Integer>> trigramas,
+                                int idProducto, String nombre) {
+        String normalizado = NormalizadorTexto.normalizar(nombre);
+        nombres.put(idProducto, normalizado);
+        for (String trigrama : extraerTrigramas(normalizado)) {
+            trigramas.computeIfAbsent(trigrama, t -> new HashSet<>()).add(idProducto);
+        }
+    }
+
+    private static Set<String> extraerTrigramas(String texto) {
+        Set<String> resultado = new HashSet<>();
+        for (int i = 0; i + N <= texto.length(); i++) {
+            resultado.add(texto.substring(i, i + N));
+        }
+        return resultado;
+    }
+
+    private static int puntuar(String nombre, String consulta, int posicion) {
+        if (nombre.equals(consulta)) {
+            return 0;
+        }
+        if (posicion == 0) {
+            return 1;
+        }
+        if (!Character.isLetterOrDigit(nombre.charAt(posicion - 1))) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private record Coincidencia(int idProducto, String nombre, int puntuacion) {}
+
+    /**
+     * Alta o cambio de nombre de un producto; con nombre null, su baja
+     */
+    private record Cambio(int idProducto, String nombre) {}
+}
@@ -0,0 +1,22 @@
+package com.inventario.cache;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normaliza textos para compararlos en memoria como lo hace la colación
+ * por defecto de MySQL: sin distinguir mayúsculas ni acentos e ignorando espacios finales.
+ */
+final class NormalizadorTexto {
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}");
+
+    private NormalizadorTexto() {}
+
+    static String normalizar(String texto) {
+        String sinAcentos = MARCAS_DIACRITICAS
+                .matcher(Normalizer.normalize(texto.stripTrailing(), Normalizer.Form.NFD))
+                .replaceAll("");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,175 @@
+package com.inventario.cache;
+
+import com.inventario.model.Categoria;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registro en memoria de las categorías, compartido por todo el proceso.
+ *
+ * Las categorías son pocas y cambian muy rara vez, así que se cargan una sola vez
+ * y se guardan en una instantánea inmutable (copy-on-write): las lecturas no usan
+ * bloqueos y cada escritura publica una instantánea nueva.
+ *
+ * Los nombres se comparan como lo hace la colación por defecto de MySQL
+ * (sin distinguir mayúsculas ni acentos, ignorando espacios finales).
+ */
+public class RegistroCategorias {
+    private static final Logger logger = LoggerFactory.getLogger(RegistroCategorias.class);
+
+    // null = sin cargar (o invalidado): la siguiente lectura recarga desde la base de datos
+    private final AtomicReference<Instantanea> instantanea = new AtomicReference<>();
+
+    // Se incrementa en cada invalidación: una carga que se solapa con ella no se publica
+    private final AtomicLong generacion = new AtomicLong();
+
+    // Serializa la recarga, que consulta la base de datos
+    private final ReentrantLock carga = new ReentrantLock();
+
+    /**
+     * Lee todas las categorías de la base de datos
+     */
+    @FunctionalInterface
+    public interface CargadorCategorias {
+        List<Categoria> cargar() throws SQLException;
+    }
+
+    private record Instantanea(Map<String, Categoria> porNombre, Map<Integer, Categoria> porId) {
+
+        static Instantanea de(Collection<Categoria> categorias) {
+            Map<String, Categoria> porNombre = new HashMap<>();
+            Map<Integer, Categoria> porId = new HashMap<>();
+            for (Categoria categoria : categorias) {
+                Categoria copia = copiar(categoria);
+                porNombre.put(NormalizadorTexto.normalizar(copia.getNombre()), copia);
+                porId.put(copia.getIdCategoria(), copia);
+            }
+            return new Instantanea(Map.copyOf(porNombre), Map.copyOf(porId));
+        }
+    }
+
+    private RegistroCategorias() {}
+
+    private static class Holder {
+        private static final RegistroCategorias INSTANCE = new RegistroCategorias();
+    }
+
+    public static RegistroCategorias getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Indica si existe una categoría con ese nombre
+     */
+    public boolean existe(String nombre, CargadorCategorias cargador) throws SQLException {
+        return nombre != null
+                && obtenerInstantanea(cargador).porNombre().containsKey(NormalizadorTexto.normalizar(nombre));
+    }
+
+    /**
+     * Busca una categoría por nombre (devuelve una copia)
+     */
+    public Optional<Categoria> buscarPorNombre(String nombre, CargadorCategorias cargador) throws SQLException {
+        if (nombre == null) {
+            return Optional.empty();
+        }
+        String clave = NormalizadorTexto.normalizar(nombre);
+        return Optional.ofNullable(obtenerInstantanea(cargador).porNombre().get(clave))
+                .map(RegistroCategorias::copiar);
+    }
+
+    /**
+     * Busca una categoría por ID (devuelve una copia)
+     */
+    public Optional<Categoria> buscarPorId(int idCategoria, CargadorCategorias cargador) throws SQLException {
+        return Optional.ofNullable(obtenerInstantanea(cargador).porId().get(idCategoria))
+                .map(RegistroCategorias::copiar);
+    }
+
+    /**
+     * Sustituye el contenido del registro por una lectura completa de la tabla
+     */
+    public void reemplazar(Collection<Categoria> categorias) {
+        instantanea.set(Instantanea.de(categorias));
+    }
+
+    /**
+     * Añade o sustituye una categoría tras crearla o actualizarla
+     */
+    public void registrar(Categoria categoria) {
+        instantanea.updateAndGet(actual -> {
+            if (actual == null) {
+                return null; // Se cargará completa en la próxima lectura
+            }
+            Map<Integer, Categoria> porId = new HashMap<>(actual.porId());
+            porId.put(categoria.getIdCategoria(), categoria);
+            return Instantanea.de(porId.values());
+        });
+    }
+
+    /**
+     * Quita una categoría tras eliminarla
+     */
+    public void quitar(int idCategoria) {
+        instantanea.updateAndGet(actual -> {
+            if (actual == null || !actual.porId().containsKey(idCategoria)) {
+                return actual;
+            }
+            Map<Integer, Categoria> porId = new HashMap<>(actual.porId());
+            porId.remove(idCategoria);
+            return Instantanea.de(porId.values());
+        });
+    }
+
+    /**
+     * Descarta el registro; se recargará en la próxima consulta
+     */
+    public void invalidar() {
+        generacion.incrementAndGet();
+        instantanea.set(null);
+        logger.debug("Registro de categorías invalidado");
+    }
+
+    private Instantanea obtenerInstantanea(CargadorCategorias cargador) throws SQLException {
+        Instantanea actual = instantanea.get();
+        if (actual != null) {
+            return actual;
+        }
+
+        // Solo un hilo recarga; el resto espera y reutiliza su resultado
+        carga.lock();
+        try {
+            actual = instantanea.get();
+            if (actual != null) {
+                return actual;
+            }
+
+            long generacionInicial = generacion.get();
+            Instantanea nueva = Instantanea.de(cargador.cargar());
+            if (generacion.get() == generacionInicial) {
+                instantanea.compareAndSet(null, nueva);
+            }
+            logger.debug("Registro de categorías cargado: {} categorías", nueva.porId().size());
+            return nueva;
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    private static Categoria copiar(Categoria original) {
+        Categoria copia = new Categoria(original.getIdCategoria(), original.getNombre(), original.getDescripcion());
+        copia.setFechaCreacion(original.getFechaCreacion());
+        copia.setFechaModificacion(original.getFechaModificacion());
+        return copia;
+    }
+}
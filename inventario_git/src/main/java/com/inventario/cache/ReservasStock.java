@@ -0,0 +1,185 @@
+package com.inventario.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.inventario.model.ReservaStock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reservas de stock activas, compartidas por todo el proceso.
+ *
+ * Cada reserva caduca sola en su fecha_expiracion (Caffeine con expiración por entrada
+ * y el planificador del sistema), así que la cantidad reservada de un producto se calcula
+ * sin consultar la base de datos. La tabla reservas_stock sigue siendo la referencia:
+ * las reservas activas se cargan de ella la primera vez que se usan y al crear una
+ * reserva nueva se vuelve a comprobar allí el stock disponible.
+ */
+public class ReservasStock {
+    private static final Logger logger = LoggerFactory.getLogger(ReservasStock.class);
+
+    private final Cache<Integer, ReservaStock> reservas;
+    private volatile boolean cargadas;
+    // La carga inicial consulta la base de datos: con un lock los hilos virtuales que esperan no fijan su portador
+    private final ReentrantLock carga = new ReentrantLock();
+
+    /**
+     * Lee de la base de datos las reservas activas no caducadas
+     */
+    @FunctionalInterface
+    public interface CargadorReservas {
+        List<ReservaStock> cargar() throws SQLException;
+    }
+
+    private ReservasStock() {
+        this.reservas = Caffeine.newBuilder()
+                .expireAfter(new Expiry<Integer, ReservaStock>() {
+                    @Override
+                    public long expireAfterCreate(Integer id, ReservaStock reserva, long tiempoActual) {
+                        return nanosHasta(reserva.getFechaExpiracion());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer id, ReservaStock reserva, long tiempoActual, long restante) {
+                        return nanosHasta(reserva.getFechaExpiracion());
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer id, ReservaStock reserva, long tiempoActual, long restante) {
+                        return restante;
+                    }
+                })
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+    }
+
+    private static class Holder {
+        private static final ReservasStock INSTANCE = new ReservasStock();
+    }
+
+    public static ReservasStock getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Unidades del producto retenidas por reservas vigentes
+     */
+    public int cantidadReservada(int idProducto, CargadorReservas cargador) throws SQLException {
+        asegurarCargadas(cargador);
+        LocalDateTime ahora = LocalDateTime.now();
+        int total = 0;
+        for (ReservaStock reserva : reservas.asMap().values()) {
+            if (reserva.getIdProducto() == idProducto && reserva.estaVigente(ahora)) {
+                total += reserva.getCantidad();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Reservas vigentes de un producto (copias)
+     */
+    public List<ReservaStock> activasDe(int idProducto, CargadorReservas cargador) throws SQLException {
+        asegurarCargadas(cargador);
+        LocalDateTime ahora = LocalDateTime.now();
+        List<ReservaStock> resultado = new ArrayList<>();
+        for (ReservaStock reserva : reservas.asMap().values()) {
+            if (reserva.getIdProducto() == idProducto && reserva.estaVigente(ahora)) {
+                resultado.add(copiar(reserva));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca una reserva vigente por ID (devuelve una copia)
+     */
+    public Optional<ReservaStock> obtener(int idReserva, CargadorReservas cargador) throws SQLException {
+        asegurarCargadas(cargador);
+        ReservaStock reserva = reservas.getIfPresent(idReserva);
+        if (reserva == null || !reserva.estaVigente(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(copiar(reserva));
+    }
+
+    /**
+     * Añade una reserva recién confirmada en la base de datos
+     */
+    public void registrar(ReservaStock reserva) {
+        if (reserva.estaVigente(LocalDateTime.now())) {
+            reservas.put(reserva.getIdReserva(), copiar(reserva));
+        }
+    }
+
+    /**
+     * Quita una reserva confirmada, liberada o caducada
+     */
+    public void quitar(int idReserva) {
+        reservas.invalidate(idReserva);
+    }
+
+    /**
+     * Descarta todas las reservas en memoria: la siguiente consulta las recarga
+     */
+    public void invalidar() {
+        carga.lock();
+        try {
+            reservas.invalidateAll();
+            cargadas = false;
+            logger.debug("Reservas de stock en memoria descartadas");
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    /**
+     * Número aproximado de reservas vigentes en memoria
+     */
+    public long tamano() {
+        reservas.cleanUp();
+        return reservas.estimatedSize();
+    }
+
+    private void asegurarCargadas(CargadorReservas cargador) throws SQLException {
+        if (cargadas) {
+            return;
+        }
+        carga.lock();
+        try {
+            if (!cargadas) {
+                for (ReservaStock reserva : cargador.cargar()) {
+                    registrar(reserva);
+                }
+                cargadas = true;
+                logger.info("Reservas de stock activas cargadas: {}", reservas.estimatedSize());
+            }
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    private static long nanosHasta(LocalDateTime fechaExpiracion) {
+        return Math.max(0, Duration.between(LocalDateTime.now(), fechaExpiracion).toNanos());
+    }
+
+    private ReservaStock copiar(ReservaStock original) {
+        ReservaStock copia = new ReservaStock(original.getIdProducto(), original.getCantidad(),
+                original.getFechaExpiracion(), original.getUsuario());
+        copia.setIdReserva(original.getIdReserva());
+        copia.setEstado(original.getEstado());
+        copia.setFechaCreacion(original.getFechaCreacion());
+        copia.setIdMovimiento(original.getIdMovimiento());
+        return copia;
+    }
+}
@@ -0,0 +1,365 @@
+package com.inventario.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventario.dao.ConsultasAvanzadasDAO;
+import com.inventario.dao.MovimientoStockDAO;
+import com.inventario.metricas.ExportadorMetricas;
+import com.inventario.model.Producto;
+import com.inventario.service.ImportadorMovimientosCSV;
+import com.inventario.service.InventarioService;
+import com.inventario.util.JsonUtil;
+import com.inventario.util.LogUtil;
+import com.inventario.xml.XMLManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Modo no interactivo: ejecuta una o varias operaciones pasadas como argumentos y termina.
+ *
+ * Cada comando escribe una línea JSON en la salida estándar con su duración y resultado, y al final se
+ * escribe una línea de resumen; los mensajes y logs habituales van a la salida de error. Los comandos se
+ * ejecutan en orden en la misma JVM y, salvo con --continuar, el primero que falla detiene los siguientes.
+ *
+ * Códigos de salida: 0 si todo fue bien, 1 si falló algún comando, 2 si los argumentos no son válidos
+ * y 3 si no hay conexión con la base de datos.
+ */
+public class ModoComandos {
+    private static final Logger logger = LoggerFactory.getLogger(ModoComandos.class);
+
+    public static final int SALIDA_OK = 0;
+    public static final int SALIDA_FALLO_COMANDO = 1;
+    public static final int SALIDA_USO_INCORRECTO = 2;
+    public static final int SALIDA_SIN_CONEXION = 3;
+
+    private static final String RUTA_XSD = "src/main/resources/inventario.xsd";
+    private static final int LIMITE_STOCK_BAJO = 200;
+    private static final int MAX_ERRORES_IMPORTACION = 20;
+
+    private static final Set<String> COMANDOS = Set.of(
+        "import-movements", "export-json", "backup-xml", "restore-xml", "report");
+    private static final Set<String> INFORMES = Set.of("resumen", "stock-bajo", "valor-categorias", "metricas");
+
+    private final InventarioService inventarioService;
+    private final MovimientoStockDAO movimientoDAO;
+    private final ConsultasAvanzadasDAO consultasDAO;
+    private final XMLManager xmlManager;
+    private final PrintStream salida;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Comando con sus argumentos, ya validado
+     */
+    public record Invocacion(String comando, List<String> argumentos) {
+        boolean tieneOpcion(String opcion) {
+            return argumentos.contains(opcion);
+        }
+
+        /**
+         * Argumentos que no son opciones (--xxx)
+         */
+        List<String> posicionales() {
+            return argumentos.stream().filter(a -> !a.startsWith("--")).toList();
+        }
+    }
+
+    /**
+     * Comandos a ejecutar y opciones globales
+     */
+    public record Plan(List<Invocacion> invocaciones, boolean continuarTrasError) {
+    }
+
+    public ModoComandos(InventarioService inventarioService, ConsultasAvanzadasDAO consultasDAO,
+                        MovimientoStockDAO movimientoDAO, XMLManager xmlManager, PrintStream salida) {
+        this.inventarioService = inventarioService;
+        this.consultasDAO = consultasDAO;
+        this.movimientoDAO = movimientoDAO;
+        this.xmlManager = xmlManager;
+        this.salida = salida;
+    }
+
+    /**
+     * Separa los argumentos en comandos. Cada comando toma los argumentos que le siguen hasta el
+     * siguiente nombre de comando. Lanza IllegalArgumentException si algo no es válido, antes de
+     * ejecutar nada
+     */
+    public static Plan analizar(String[] args) {
+        List<Invocacion> invocaciones = new ArrayList<>();
+        boolean continuar = false;
+        String comando = null;
+        List<String> argumentos = new ArrayList<>();
+
+        for (String arg : args) {
+            if (COMANDOS.contains(arg)) {
+                if (comando != null) {
+                    invocaciones.add(validar(comando, argumentos));
+                }
+                comando = arg;
+                argumentos = new ArrayList<>();
+            } else if (comando == null) {
+                if (!arg.equals("--continuar")) {
+                    throw new IllegalArgumentException("Comando desconocido: " + arg);
+                }
+                continuar = true;
+            } else {
+                argumentos.add(arg);
+            }
+        }
+        if (comando != null) {
+            invocaciones.add(validar(comando, argumentos));
+        }
+        if (invocaciones.isEmpty()) {
+            throw new IllegalArgumentException("No se indicó ningún comando");
+        }
+        return new Plan(invocaciones, continuar);
+    }
+
+    private static Invocacion validar(String comando, List<String> argumentos) {
+        Invocacion invocacion = new Invocacion(comando, List.copyOf(argumentos));
+        int posicionales = invocacion.posicionales().size();
+        Set<String> opciones = switch (comando) {
+            case "backup-xml" -> Set.of("--validar");
+            case "restore-xml" -> Set.of("--limpiar");
+            default -> Set.of();
+        };
+        for (String arg : argumentos) {
+            if (arg.startsWith("--") && !opciones.contains(arg)) {
+                throw new IllegalArgumentException("Opción no válida para " + comando + ": " + arg);
+            }
+        }
+
+        boolean valido = switch (comando) {
+            case "import-movements", "restore-xml" -> posicionales == 1;
+            case "export-json", "backup-xml" -> posicionales <= 1;
+            case "report" -> posicionales >= 1 && posicionales <= 2 && INFORMES.contains(argumentos.get(0));
+            default -> false;
+        };
+        if (!valido) {
+            throw new IllegalArgumentException("Argumentos no válidos para " + comando + ": " + argumentos);
+        }
+        return invocacion;
+    }
+
+    public static String uso() {
+        return """
+            Uso: java com.inventario.Main [--continuar] <comando> [argumentos] [<comando> [argumentos]...]
+
+            Comandos:
+              import-movements <archivo.csv>            Importa movimientos de stock por lotes
+              export-json [archivo.json]                Exporta todos los productos a JSON
+              backup-xml [archivo.xml] [--validar]      Crea un backup XML (por defecto backups/inventario_<fecha>.xml)
+              restore-xml <archivo.xml> [--limpiar]     Restaura un backup XML (--limpiar vacía antes las tablas)
+              report resumen                            Totales de productos y categorías
+              report stock-bajo [limite]                Reporte JSON de productos con stock bajo (por defecto 200)
+              report valor-categorias                   Valor del stock por categoría
+              report metricas [archivo]                 Exporta las métricas de los DAOs (.json o Prometheus)
+
+            Modo servidor (no se combina con otros comandos):
+              serve                                     Inicia la API HTTP (puerto HTTP_PUERTO, por defecto 8080)
+
+            Cada comando escribe una línea JSON en la salida estándar; los logs van a la salida de error.
+            Con --continuar se ejecutan todos los comandos aunque alguno falle.
+            """;
+    }
+
+    /**
+     * Ejecuta el plan y devuelve el código de salida
+     */
+    public int ejecutar(Plan plan) {
+        long inicio = System.nanoTime();
+        int fallidos = 0;
+        int ejecutados = 0;
+
+        for (Invocacion invocacion : plan.invocaciones()) {
+            ResultadoComando resultado = ejecutar(invocacion);
+            ejecutados++;
+            escribir(resultado.aMapa());
+            if (!resultado.exito()) {
+                fallidos++;
+                if (!plan.continuarTrasError()) {
+                    break;
+                }
+            }
+        }
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("comandos", plan.invocaciones().size());
+        resumen.put("ejecutados", ejecutados);
+        resumen.put("fallidos", fallidos);
+        resumen.put("duracion_ms", Math.round((System.nanoTime() - inicio) / 10_000.0) / 100.0);
+        escribir(Map.of("resumen", resumen));
+
+        return fallidos == 0 ? SALIDA_OK : SALIDA_FALLO_COMANDO;
+    }
+
+    ResultadoComando ejecutar(Invocacion invocacion) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        long inicio = System.nanoTime();
+        try {
+            switch (invocacion.comando()) {
+                case "import-movements" -> importarMovimientos(invocacion, datos);
+                case "export-json" -> exportarJson(invocacion, datos);
+                case "backup-xml" -> crearBackupXML(invocacion, datos);
+                case "restore-xml" -> restaurarBackupXML(invocacion, datos);
+                case "report" -> generarInforme(invocacion, datos);
+                default -> throw new IllegalArgumentException("Comando desconocido: " + invocacion.comando());
+            }
+            LogUtil.registrarOperacionExitosa("CLI_" + invocacion.comando().toUpperCase().replace('-', '_'),
+                "Comando " + invocacion.comando() + " completado: " + datos);
+            return new ResultadoComando(invocacion.comando(), invocacion.argumentos(), true,
+                System.nanoTime() - inicio, datos, null);
+        } catch (Exception e) {
+            long duracion = System.nanoTime() - inicio;
+            logger.error("Error en el comando {}", invocacion.comando(), e);
+            LogUtil.registrarError("CLI_" + invocacion.comando().toUpperCase().replace('-', '_'),
+                "Error en el comando " + invocacion.comando() + ": " + e.getMessage(), e);
+            String mensaje = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new ResultadoComando(invocacion.comando(), invocacion.argumentos(), false, duracion, datos, mensaje);
+        }
+    }
+
+    // ========== COMANDOS ==========
+
+    private void importarMovimientos(Invocacion invocacion, Map<String, Object> datos) {
+        String archivo = invocacion.posicionales().get(0);
+        datos.put("archivo", archivo);
+
+        ImportadorMovimientosCSV.ResultadoImportacion resultado = new ImportadorMovimientosCSV(movimientoDAO).importarDesdeCSV(archivo);
+        datos.put("total_lineas", resultado.getTotalLineas());
+        datos.put("movimientos_exitosos", resultado.getMovimientosExitosos());
+        datos.put("movimientos_con_error", resultado.getMovimientosConError());
+        datos.put("lotes_exitosos", resultado.getLotesExitosos());
+        datos.put("lotes_con_error", resultado.getLotesConError());
+        List<String> errores = resultado.getErrores();
+        datos.put("errores", errores.subList(0, Math.min(errores.size(), MAX_ERRORES_IMPORTACION)));
+
+        if (!resultado.isExito()) {
+            throw new IllegalStateException("La importación terminó con " + errores.size() + " errores");
+        }
+    }
+
+    private void exportarJson(Invocacion invocacion, Map<String, Object> datos) throws Exception {
+        List<String> posicionales = invocacion.posicionales();
+        String archivo = posicionales.isEmpty()
+            ? "data/" + JsonUtil.generarNombreArchivoConTimestamp("exportacion_productos", "json")
+            : posicionales.get(0);
+        datos.put("archivo", archivo);
+
+        int total;
+        try (Stream<Producto> productos = inventarioService.streamTodosLosProductos()) {
+            total = JsonUtil.exportarProductos(productos, archivo);
+        }
+        datos.put("productos", total);
+        datos.put("bytes", Files.size(Paths.get(archivo)));
+    }
+
+    private void crearBackupXML(Invocacion invocacion, Map<String, Object> datos) throws IOException {
+        List<String> posicionales = invocacion.posicionales();
+        String archivo = posicionales.isEmpty()
+            ? "backups/inventario_" + LocalDate.now() + ".xml"
+            : posicionales.get(0);
+        datos.put("archivo", archivo);
+
+        if (!xmlManager.exportarInventarioXML(archivo)) {
+            throw new IllegalStateException("No se pudo crear el backup XML");
+        }
+        datos.put("bytes", Files.size(Paths.get(archivo)));
+
+        if (invocacion.tieneOpcion("--validar")) {
+            boolean valido = xmlManager.validarXML(archivo, RUTA_XSD);
+            datos.put("valido", valido);
+            if (!valido) {
+                throw new IllegalStateException("El backup generado no es válido según " + RUTA_XSD);
+            }
+        }
+    }
+
+    private void restaurarBackupXML(Invocacion invocacion, Map<String, Object> datos) {
+        String archivo = resolverRutaBackup(invocacion.posicionales().get(0));
+        // En modo interactivo se pide confirmación; aquí la opción explícita hace de confirmación
+        boolean limpiar = invocacion.tieneOpcion("--limpiar");
+        datos.put("archivo", archivo);
+        datos.put("limpiar", limpiar);
+
+        if (!Files.isRegularFile(Paths.get(archivo))) {
+            throw new IllegalArgumentException("No existe el archivo: " + archivo);
+        }
+        if (!xmlManager.importarInventarioXML(archivo, RUTA_XSD, limpiar)) {
+            throw new IllegalStateException("No se pudo restaurar el inventario desde " + archivo);
+        }
+    }
+
+    private void generarInforme(Invocacion invocacion, Map<String, Object> datos) throws Exception {
+        List<String> posicionales = invocacion.posicionales();
+        String tipo = posicionales.get(0);
+        String parametro = posicionales.size() > 1 ? posicionales.get(1) : null;
+        datos.put("tipo", tipo);
+
+        switch (tipo) {
+            case "resumen" -> {
+                datos.put("total_productos", inventarioService.contarTotalProductos());
+                datos.put("total_categorias", inventarioService.contarTotalCategorias());
+            }
+            case "stock-bajo" -> {
+                int limite = parametro == null ? LIMITE_STOCK_BAJO : Integer.parseInt(parametro);
+                List<Producto> productos = inventarioService.obtenerProductosConStockBajo(limite);
+                String archivo = "logs/" + JsonUtil.generarNombreArchivoConTimestamp("stock_bajo", "json");
+                JsonUtil.exportarProductosStockBajo(productos, limite, archivo);
+                datos.put("limite", limite);
+                datos.put("productos", productos.size());
+                datos.put("archivo", archivo);
+            }
+            case "valor-categorias" -> {
+                List<Map<String, Object>> categorias = new ArrayList<>();
+                for (Object[] fila : consultasDAO.obtenerValorStockPorCategoria()) {
+                    Map<String, Object> categoria = new LinkedHashMap<>();
+                    categoria.put("categoria", fila[0]);
+                    categoria.put("productos", fila[1]);
+                    categoria.put("unidades", fila[2]);
+                    categoria.put("valor", fila[6]);
+                    categorias.add(categoria);
+                }
+                datos.put("categorias", categorias);
+            }
+            case "metricas" -> {
+                String archivo = parametro != null
+                    ? parametro
+                    : "data/" + JsonUtil.generarNombreArchivoConTimestamp("metricas_dao", "json");
+                ExportadorMetricas.escribir(Path.of(archivo));
+                datos.put("archivo", archivo);
+            }
+            default -> throw new IllegalArgumentException("Informe desconocido: " + tipo);
+        }
+    }
+
+    /**
+     * Igual que en el menú: un nombre sin separadores se busca en backups/
+     */
+    private static String resolverRutaBackup(String entrada) {
+        if (entrada.contains("/") || entrada.contains("\\")) {
+            return entrada;
+        }
+        return "backups/" + (entrada.endsWith(".xml") ? entrada : entrada + ".xml");
+    }
+
+    private void escribir(Map<String, Object> linea) {
+        try {
+            salida.println(objectMapper.writeValueAsString(linea));
+            salida.flush();
+        } catch (IOException e) {
+            logger.error("No se pudo serializar el resultado del comando", e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.inventario.cli;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de un comando del modo por lotes, tal y como se escribe en la salida estándar
+ *
+ * @param comando nombre del comando (p. ej. backup-xml)
+ * @param argumentos argumentos con los que se invocó
+ * @param exito si el comando terminó correctamente
+ * @param duracionNanos tiempo de ejecución del comando
+ * @param datos valores propios de cada comando (archivo generado, filas procesadas...)
+ * @param error mensaje del error, o null si no lo hubo
+ */
+public record ResultadoComando(String comando, List<String> argumentos, boolean exito, long duracionNanos,
+                               Map<String, Object> datos, String error) {
+
+    /**
+     * Representación que se serializa como una línea JSON
+     */
+    Map<String, Object> aMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        mapa.put("comando", comando);
+        mapa.put("argumentos", argumentos);
+        mapa.put("exito", exito);
+        mapa.put("duracion_ms", Math.round(duracionNanos / 10_000.0) / 100.0);
+        mapa.put("resultado", datos);
+        if (error != null) {
+            mapa.put("error", error);
+        }
+        return mapa;
+    }
+}
@@ -1,8 +1,12 @@
 package com.inventario.dao;
 
+import com.inventario.model.CursorMovimiento;
+
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface para consultas avanzadas SQL
@@ -37,6 +41,19 @@ public interface ConsultasAvanzadasDAO {
      */
     List<Object[]> obtenerHistoricoMovimientos(LocalDateTime fechaInicio, LocalDateTime fechaFin) throws SQLException;
 
+    /**
+     * Obtiene una página del histórico de movimientos en un rango de fechas (paginación por clave)
+     *
+     * @param fechaInicio Fecha de inicio del rango
+     * @param fechaFin Fecha de fin del rango
+     * @param cursor Último movimiento de la página anterior (fila[1] fecha, fila[0] id) o null para la primera
+     * @param tamanoPagina Número máximo de filas de la página
+     * @return Lista de arrays con el mismo formato que obtenerHistoricoMovimientos
+     * @throws SQLException Si hay error en la consulta
+     */
+    List<Object[]> obtenerHistoricoMovimientosPaginado(LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                                       CursorMovimiento cursor, int tamanoPagina) throws SQLException;
+
     /**
      * Obtiene productos con bajo stock y su histórico de movimientos recientes
      *
@@ -63,4 +80,18 @@ public interface ConsultasAvanzadasDAO {
      * @throws SQLException Si hay error en la consulta
      */
     List<Object[]> obtenerAnalisisRotacionPorCategoria() throws SQLException;
+
+    /**
+     * Stock que tenía cada producto en una fecha (p. ej. para la valoración de cierre de mes),
+     * sin recorrer todos los movimientos: por producto se busca solo el último movimiento
+     * hasta la fecha. Los productos creados después de la fecha no aparecen.
+     * El Stream mantiene abierta una conexión: debe cerrarse (try-with-resources)
+     *
+     * @param fecha Instante de la valoración
+     * @param idsProducto Productos a valorar, o vacío para todos
+     * @return Stream ordenado por ID de arrays con: [id_producto, nombre, categoria, precio, stock_en_fecha, valor]
+     *         (precio es el precio actual del producto)
+     * @throws SQLException Si hay error al abrir la consulta
+     */
+    Stream<Object[]> streamStockEnFecha(LocalDateTime fecha, Collection<Integer> idsProducto) throws SQLException;
 }
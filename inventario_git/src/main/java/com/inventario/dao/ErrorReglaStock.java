@@ -0,0 +1,34 @@
+package com.inventario.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Movimiento o reserva rechazado por una regla de stock, no por un fallo de la base de datos.
+ *
+ * Es una SQLException para no cambiar las firmas de los DAO ni el rollback de quien la captura
+ * (p. ej. el SAVEPOINT del commit agrupado). Se distingue por su tipo, por la regla incumplida
+ * y por el SQLSTATE 45000 (excepción definida por la aplicación, como un SIGNAL de MySQL).
+ */
+public class ErrorReglaStock extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    public static final String SQLSTATE = "45000";
+
+    public enum Regla {
+        /** La salida o la reserva supera el stock disponible (descontado lo reservado) */
+        STOCK_INSUFICIENTE,
+        /** La clave de idempotencia ya se usó para un movimiento distinto */
+        CLAVE_IDEMPOTENCIA_REUTILIZADA
+    }
+
+    private final Regla regla;
+
+    public ErrorReglaStock(Regla regla, String mensaje) {
+        super(mensaje, SQLSTATE);
+        this.regla = regla;
+    }
+
+    public Regla getRegla() {
+        return regla;
+    }
+}
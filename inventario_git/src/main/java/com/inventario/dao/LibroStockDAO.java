@@ -0,0 +1,79 @@
+package com.inventario.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Interfaz DAO del libro mayor de stock (modo de solo anexado).
+ *
+ * En este modo los movimientos solo se insertan: el stock de un producto es el de su último
+ * snapshot (snapshots_stock) más la suma de los movimientos posteriores a ese snapshot,
+ * y productos.stock pasa a ser una proyección que se refresca al tomar snapshots.
+ * Los snapshots guardan además el stock en un instante, así que el stock de cualquier
+ * fecha se reconstruye leyendo solo los movimientos desde el snapshot anterior.
+ *
+ * Un producto sin snapshots tiene siempre productos.stock exacto: el primer movimiento
+ * en modo libro crea el snapshot base a partir de él, y cualquier escritura que fija
+ * el stock de forma absoluta descarta los snapshots del producto.
+ *
+ * Los movimientos tampoco escriben productos.version. La versión que ven los lectores es la
+ * efectiva: productos.version más los movimientos pendientes (posteriores al último snapshot).
+ * Tomar un snapshot no la cambia (pasa los pendientes a productos.version) y las escrituras
+ * de la fila la consolidan antes de aplicarse (consolidarVersion).
+ */
+public interface LibroStockDAO {
+
+    /**
+     * Stock de un producto según el libro y número de movimientos posteriores a su último snapshot
+     */
+    record StockLibro(int stock, int pendientes) {
+    }
+
+    /**
+     * Bloquea el producto dentro de la transacción de conn (sin escribir su fila)
+     * y devuelve su stock actual: último snapshot más los movimientos posteriores.
+     * Si el producto no tiene snapshots, crea el snapshot base con productos.stock
+     */
+    int stockActual(Connection conn, int idProducto) throws SQLException;
+
+    /**
+     * Stock actual (snapshot más movimientos posteriores) de varios productos en una sola consulta,
+     * con sus movimientos pendientes. Los productos sin snapshots no aparecen en el resultado:
+     * su stock es productos.stock y su versión, productos.version
+     */
+    Map<Integer, StockLibro> calcularStock(Collection<Integer> idsProducto) throws SQLException;
+
+    /**
+     * Bloquea el producto dentro de la transacción de conn y suma a productos.version sus
+     * movimientos pendientes, de modo que la columna pase a ser la versión efectiva. Se llama
+     * antes de escribir la fila y descartar los snapshots (la versión no debe retroceder);
+     * si la escritura no se aplica, la transacción debe deshacerse
+     */
+    void consolidarVersion(Connection conn, int idProducto) throws SQLException;
+
+    /**
+     * Reconstruye el stock que tenía el producto en la fecha indicada
+     */
+    int obtenerStockEnFecha(int idProducto, LocalDateTime fecha) throws SQLException;
+
+    /**
+     * Toma un snapshot de cada producto con al menos minMovimientos movimientos desde el último
+     * y refresca su productos.stock (y productos.version, con la versión efectiva).
+     * Devuelve el número de snapshots tomados
+     */
+    int tomarSnapshots(int minMovimientos) throws SQLException;
+
+    /**
+     * Elimina los snapshots de los productos dentro de la transacción de conn.
+     * Se usa tras fijar su stock de forma absoluta en productos.stock
+     */
+    void descartarSnapshots(Connection conn, Collection<Integer> idsProducto) throws SQLException;
+
+    /**
+     * Número total de snapshots guardados
+     */
+    int contarSnapshots() throws SQLException;
+}
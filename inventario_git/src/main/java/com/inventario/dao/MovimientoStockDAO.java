@@ -1,11 +1,14 @@
 package com.inventario.dao;
 
+import com.inventario.model.CursorMovimiento;
 import com.inventario.model.MovimientoStock;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Interfaz DAO para operaciones CRUD de MovimientoStock
@@ -14,15 +17,30 @@ public interface MovimientoStockDAO {
 
     /**
      * Registra un nuevo movimiento de stock
-     * Actualiza automáticamente el stock del producto
+     * Actualiza automáticamente el stock del producto.
+     * Si el movimiento lleva clave de idempotencia y esa clave ya está registrada,
+     * devuelve el ID del movimiento original sin volver a aplicarlo (igual en las demás variantes)
      */
     int registrarMovimiento(MovimientoStock movimiento) throws SQLException;
 
+    /**
+     * Registra un movimiento en modo de commit agrupado (si está activado).
+     * El futuro se completa cuando el movimiento es durable, o falla si las reglas de stock lo rechazan.
+     * Con el modo desactivado equivale a registrarMovimiento
+     */
+    CompletableFuture<MovimientoStock> registrarMovimientoAgrupado(MovimientoStock movimiento);
+
     /**
      * Registra un movimiento usando una conexión existente (para transacciones)
      */
     int registrarMovimiento(Connection conn, MovimientoStock movimiento) throws SQLException;
 
+    /**
+     * Registra un movimiento usando una conexión existente, permitiendo que una SALIDA consuma
+     * hasta reservadoPropio unidades reservadas (las de la reserva que se está confirmando)
+     */
+    int registrarMovimiento(Connection conn, MovimientoStock movimiento, int reservadoPropio) throws SQLException;
+
     /**
      * Busca un movimiento por ID
      */
@@ -30,22 +48,30 @@ public interface MovimientoStockDAO {
 
     /**
      * Obtiene todos los movimientos de un producto
+     * @deprecated carga el historial completo en memoria; usar obtenerPaginaPorProducto
      */
+    @Deprecated
     List<MovimientoStock> obtenerPorProducto(int idProducto) throws SQLException;
 
     /**
      * Obtiene movimientos por tipo (ENTRADA o SALIDA)
+     * @deprecated carga todos los movimientos del tipo en memoria; usar obtenerPaginaPorTipo
      */
+    @Deprecated
     List<MovimientoStock> obtenerPorTipo(String tipo) throws SQLException;
 
     /**
      * Obtiene movimientos en un rango de fechas
+     * @deprecated carga todo el rango en memoria; usar obtenerPaginaPorRangoFechas o streamPorRangoFechas
      */
+    @Deprecated
     List<MovimientoStock> obtenerPorRangoFechas(LocalDateTime inicio, LocalDateTime fin) throws SQLException;
 
     /**
      * Obtiene todos los movimientos
+     * @deprecated carga la tabla completa en memoria; usar obtenerPagina o streamTodos
      */
+    @Deprecated
     List<MovimientoStock> obtenerTodos() throws SQLException;
 
     /**
@@ -65,7 +91,49 @@ public interface MovimientoStockDAO {
 
     /**
      * Registra múltiples movimientos en una transacción atómica
-     * Si uno falla, se hace rollback de todos
+     * Si uno falla, se hace rollback de todos.
+     * Los movimientos con una clave de idempotencia ya registrada se cuentan sin volver a aplicarse,
+     * así que un lote reenviado tras un timeout no duplica stock
      */
     int registrarMovimientosLote(List<MovimientoStock> movimientos) throws SQLException;
+
+    // Las listas anteriores se ordenan igual que la paginación por clave (fecha e id descendentes)
+
+    // === PAGINACIÓN POR CLAVE (KEYSET) ===
+    // Orden: fecha_movimiento DESC, id_movimiento DESC
+    // cursor == null devuelve la primera página; para la siguiente usar CursorMovimiento.desde(último)
+
+    /**
+     * Obtiene una página de movimientos
+     */
+    List<MovimientoStock> obtenerPagina(CursorMovimiento cursor, int tamanoPagina) throws SQLException;
+
+    /**
+     * Obtiene una página de movimientos de un producto
+     */
+    List<MovimientoStock> obtenerPaginaPorProducto(int idProducto, CursorMovimiento cursor, int tamanoPagina) throws SQLException;
+
+    /**
+     * Obtiene una página de movimientos por tipo (ENTRADA o SALIDA)
+     */
+    List<MovimientoStock> obtenerPaginaPorTipo(String tipo, CursorMovimiento cursor, int tamanoPagina) throws SQLException;
+
+    /**
+     * Obtiene una página de movimientos en un rango de fechas
+     */
+    List<MovimientoStock> obtenerPaginaPorRangoFechas(LocalDateTime inicio, LocalDateTime fin,
+                                                      CursorMovimiento cursor, int tamanoPagina) throws SQLException;
+
+    // === STREAMING (memoria acotada) ===
+    // El Stream mantiene abierta una conexión: usar siempre con try-with-resources
+
+    /**
+     * Recorre todos los movimientos en streaming
+     */
+    Stream<MovimientoStock> streamTodos() throws SQLException;
+
+    /**
+     * Recorre en streaming los movimientos de un rango de fechas
+     */
+    Stream<MovimientoStock> streamPorRangoFechas(LocalDateTime inicio, LocalDateTime fin) throws SQLException;
 }
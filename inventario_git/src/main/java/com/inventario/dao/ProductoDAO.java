@@ -1,10 +1,14 @@
 package com.inventario.dao;
 
+import com.inventario.model.CursorProducto;
 import com.inventario.model.Producto;
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Interfaz DAO para operaciones CRUD de Producto
@@ -26,6 +30,11 @@ public interface ProductoDAO {
      */
     List<Producto> buscarPorNombre(String nombre) throws SQLException;
     
+    /**
+     * Busca varios productos por ID en una sola consulta (sin orden garantizado)
+     */
+    List<Producto> buscarPorIds(Collection<Integer> ids) throws SQLException;
+    
     /**
      * Busca productos por categoría
      */
@@ -51,6 +60,31 @@ public interface ProductoDAO {
      */
     boolean actualizarStock(int idProducto, int nuevoStock) throws SQLException;
     
+    // === ACTUALIZACIÓN OPTIMISTA (columna version) ===
+    // Toda escritura sobre productos incrementa version. Las variantes "SiVersion" solo se aplican
+    // si la versión sigue siendo la leída y devuelven false si otra escritura se adelantó
+    // (o si el producto ya no existe): el llamante vuelve a leer y decide si reintenta.
+    // En productos con stock fragmentado las ventas por la ruta rápida no tocan la fila
+    // de productos y, por tanto, no cambian la versión. En modo libro mayor los movimientos
+    // tampoco la escriben, pero cuentan en la versión efectiva que se lee (ver LibroStockDAO)
+    
+    /**
+     * Actualiza el producto si su versión sigue siendo producto.getVersion().
+     * Si se aplica, deja en el producto la nueva versión
+     */
+    boolean actualizarSiVersion(Producto producto) throws SQLException;
+    
+    /**
+     * Actualiza solo el stock si la versión del producto sigue siendo versionEsperada
+     */
+    boolean actualizarStockSiVersion(int idProducto, int nuevoStock, int versionEsperada) throws SQLException;
+    
+    /**
+     * Obtiene el stock real del producto: productos.stock más la suma de sus
+     * fragmentos si tiene el stock fragmentado (ver StockFragmentadoDAO)
+     */
+    int obtenerStockTotal(int idProducto) throws SQLException;
+    
     /**
      * Elimina un producto por ID
      */
@@ -85,4 +119,31 @@ public interface ProductoDAO {
      * Obtiene estadísticas por categoría
      */
     List<Object[]> obtenerEstadisticasPorCategoria() throws SQLException;
-}
\ No newline at end of file
+    
+    // === PAGINACIÓN POR CLAVE (KEYSET) ===
+    
+    /**
+     * Obtiene la página de productos con id_producto mayor que ultimoId (0 para la primera página)
+     */
+    List<Producto> obtenerPaginaPorId(int ultimoId, int tamanoPagina) throws SQLException;
+    
+    /**
+     * Obtiene una página de productos ordenada por categoría y nombre.
+     * cursor == null devuelve la primera página; para la siguiente usar CursorProducto.desde(último)
+     */
+    List<Producto> obtenerPaginaPorCategoriaNombre(CursorProducto cursor, int tamanoPagina) throws SQLException;
+    
+    // === STREAMING (memoria acotada) ===
+    // El Stream mantiene abierta una conexión: usar siempre con try-with-resources
+    
+    /**
+     * Recorre todos los productos en streaming, ordenados por id_producto
+     */
+    Stream<Producto> streamTodos() throws SQLException;
+    
+    /**
+     * Aplica la acción a cada producto sin cargar el catálogo en memoria.
+     * Devuelve el número de productos recorridos
+     */
+    int recorrerTodos(Consumer<Producto> accion) throws SQLException;
+}
@@ -0,0 +1,54 @@
+package com.inventario.dao;
+
+import com.inventario.model.ReservaStock;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Interfaz DAO para las reservas temporales de stock.
+ *
+ * Una reserva retiene unidades de un producto durante un tiempo limitado sin mantener
+ * bloqueos en la base de datos: el producto solo se bloquea durante la propia reserva
+ * y durante la confirmación, no mientras el cliente decide.
+ */
+public interface ReservaStockDAO {
+
+    /**
+     * Reserva la cantidad indicada si el stock disponible (stock menos reservas vigentes) alcanza
+     */
+    ReservaStock reservar(int idProducto, int cantidad, Duration duracion, String usuario) throws SQLException;
+
+    /**
+     * Convierte una reserva vigente en un movimiento de SALIDA.
+     * Devuelve el ID del movimiento registrado
+     */
+    int confirmar(int idReserva, String motivo) throws SQLException;
+
+    /**
+     * Libera una reserva activa antes de que caduque
+     */
+    boolean liberar(int idReserva) throws SQLException;
+
+    /**
+     * Busca una reserva por ID en la base de datos (en cualquier estado)
+     */
+    Optional<ReservaStock> buscarPorId(int idReserva) throws SQLException;
+
+    /**
+     * Obtiene las reservas vigentes de un producto
+     */
+    List<ReservaStock> obtenerActivasPorProducto(int idProducto) throws SQLException;
+
+    /**
+     * Unidades del producto retenidas por reservas vigentes
+     */
+    int obtenerCantidadReservada(int idProducto) throws SQLException;
+
+    /**
+     * Marca como CADUCADA en la base de datos toda reserva activa vencida.
+     * Devuelve el número de reservas caducadas
+     */
+    int caducarVencidas() throws SQLException;
+}
@@ -0,0 +1,82 @@
+package com.inventario.dao;
+
+import com.inventario.model.MovimientoStock;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interfaz DAO para el stock fragmentado de productos muy vendidos.
+ *
+ * Un producto marcado reparte su stock entre K filas de stock_fragmentos: cada salida
+ * descuenta de un único fragmento, así que las ventas concurrentes ya no esperan todas
+ * por la misma fila de productos. Mientras está activo, productos.stock vale 0 y el stock
+ * real es la suma de los fragmentos (ver ProductoDAO.obtenerStockTotal).
+ */
+public interface StockFragmentadoDAO {
+
+    /**
+     * Número máximo de fragmentos por producto
+     */
+    int MAX_FRAGMENTOS = 64;
+
+    /**
+     * Reparte el stock actual del producto entre numFragmentos fragmentos
+     */
+    void activar(int idProducto, int numFragmentos) throws SQLException;
+
+    /**
+     * Devuelve la suma de los fragmentos a productos.stock y elimina los fragmentos
+     */
+    void desactivar(int idProducto) throws SQLException;
+
+    /**
+     * Indica si el producto tiene el stock fragmentado
+     */
+    boolean estaFragmentado(int idProducto) throws SQLException;
+
+    /**
+     * Obtiene los productos fragmentados con su número de fragmentos
+     */
+    Map<Integer, Integer> obtenerProductosFragmentados() throws SQLException;
+
+    /**
+     * Vuelve a leer de la base de datos qué productos están fragmentados
+     * (tras una restauración o cambios hechos por otro proceso)
+     */
+    void recargar();
+
+    /**
+     * Obtiene el stock de cada fragmento, ordenado por número de fragmento
+     */
+    List<Integer> obtenerFragmentos(int idProducto) throws SQLException;
+
+    /**
+     * Suma los fragmentos de varios productos en una sola consulta.
+     * Los productos sin fragmentos no aparecen en el resultado
+     */
+    Map<Integer, Integer> sumarFragmentos(Collection<Integer> idsProducto) throws SQLException;
+
+    /**
+     * Aplica un movimiento sobre los fragmentos dentro de la transacción de conn
+     * y rellena stockAnterior/stockNuevo del movimiento (no inserta el movimiento).
+     * Una SALIDA no puede dejar menos stock que el reservado por otras reservas vigentes;
+     * reservadoPropio son las unidades de la reserva que se está confirmando.
+     * Devuelve el stock total resultante
+     */
+    int aplicarMovimiento(Connection conn, MovimientoStock movimiento, int reservadoPropio) throws SQLException;
+
+    /**
+     * Fija el stock total del producto repartiéndolo entre sus fragmentos
+     * dentro de la transacción de conn
+     */
+    void establecerStock(Connection conn, int idProducto, int nuevoStock) throws SQLException;
+
+    /**
+     * Reparte de nuevo el stock a partes iguales entre los fragmentos del producto.
+     * Devuelve el número de fragmentos modificados
+     */
+    int rebalancear(int idProducto) throws SQLException;
+}
@@ -0,0 +1,98 @@
+package com.inventario.dao.impl;
+
+import com.inventario.cache.RegistroCategorias;
+import com.inventario.dao.CategoriaDAO;
+import com.inventario.model.Categoria;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Decorador de CategoriaDAO que responde las búsquedas puntuales desde RegistroCategorias.
+ * Las escrituras se delegan y después actualizan el registro; si una creación falla por
+ * nombre duplicado, el registro estaba desfasado y se recarga.
+ */
+public class CategoriaDAORegistrado implements CategoriaDAO {
+    private final CategoriaDAO delegado;
+    private final RegistroCategorias registro;
+
+    public CategoriaDAORegistrado(CategoriaDAO delegado) {
+        this.delegado = delegado;
+        this.registro = RegistroCategorias.getInstance();
+    }
+
+    @Override
+    public int crear(Categoria categoria) throws SQLException {
+        try {
+            int id = delegado.crear(categoria);
+            registro.registrar(categoria);
+            return id;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            registro.invalidar();
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Categoria> buscarPorId(int id) throws SQLException {
+        return registro.buscarPorId(id, delegado::obtenerTodas);
+    }
+
+    @Override
+    public Optional<Categoria> buscarPorNombre(String nombre) throws SQLException {
+        return registro.buscarPorNombre(nombre, delegado::obtenerTodas);
+    }
+
+    @Override
+    public List<Categoria> obtenerTodas() throws SQLException {
+        // Se mantiene el orden de la base de datos y se aprovecha la lectura para refrescar el registro
+        List<Categoria> categorias = delegado.obtenerTodas();
+        registro.reemplazar(categorias);
+        return categorias;
+    }
+
+    @Override
+    public boolean actualizar(Categoria categoria) throws SQLException {
+        try {
+            boolean actualizada = delegado.actualizar(categoria);
+            if (actualizada) {
+                registro.registrar(categoria);
+            }
+            return actualizada;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            registro.invalidar();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean eliminar(int id) throws SQLException {
+        boolean eliminada = delegado.eliminar(id);
+        if (eliminada) {
+            registro.quitar(id);
+        }
+        return eliminada;
+    }
+
+    @Override
+    public boolean existePorNombre(String nombre) throws SQLException {
+        return registro.existe(nombre, delegado::obtenerTodas);
+    }
+
+    @Override
+    public int contarTotal() throws SQLException {
+        return delegado.contarTotal();
+    }
+
+    @Override
+    public int crearMultiples(List<Categoria> categorias) throws SQLException {
+        try {
+            return delegado.crearMultiples(categorias);
+        } finally {
+            // El lote no devuelve los IDs generados: se recarga completo en la próxima consulta
+            registro.invalidar();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.inventario.dao.impl;
+
+import com.inventario.cache.CacheProductos;
+import com.inventario.cache.ClavesIdempotencia;
+import com.inventario.dao.MovimientoStockDAO;
+import com.inventario.metricas.DAOInstrumentado;
+import com.inventario.model.MovimientoStock;
+import com.inventario.util.DatabaseConfig;
+import com.inventario.util.LogUtil;
+import com.inventario.util.VariablesEntorno;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Commit agrupado (group commit) de movimientos de stock.
+ *
+ * Los movimientos se encolan y un único hilo los agrupa (hasta N movimientos o T milisegundos)
+ * en una sola transacción, de modo que el coste del commit (fsync del redo log) se reparte
+ * entre todo el grupo. Cada movimiento se aplica tras un SAVEPOINT: si las reglas de stock
+ * lo rechazan, solo se deshace ese movimiento y su futuro falla, sin afectar al resto.
+ *
+ * Los futuros se completan únicamente después del commit, así que quien espera el resultado
+ * tiene la misma garantía de durabilidad que con registrarMovimiento.
+ *
+ * Se activa con MOVIMIENTOS_COMMIT_AGRUPADO=true y se ajusta con
+ * MOVIMIENTOS_GRUPO_MAX (por defecto 64) y MOVIMIENTOS_GRUPO_ESPERA_MS (por defecto 5).
+ */
+public class CommitAgrupadoMovimientos {
+    private static final Logger logger = LoggerFactory.getLogger(CommitAgrupadoMovimientos.class);
+
+    private static final int DEFAULT_MAX_GRUPO = 64;
+    private static final long DEFAULT_ESPERA_MS = 5;
+
+    private final BlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+    private final MovimientoStockDAO movimientoDAO;
+    private final DatabaseConfig dbConfig;
+    private final CacheProductos cacheProductos;
+    private final ClavesIdempotencia clavesIdempotencia;
+    private final int maxGrupo;
+    private final long esperaNanos;
+    private final Thread hiloCommit;
+    private volatile boolean activo = true;
+    // Comprobar activo y encolar es atómico respecto al cierre: tras cerrar no entra nada en la cola
+    private final ReentrantLock admision = new ReentrantLock();
+
+    private final AtomicLong movimientosConfirmados = new AtomicLong();
+    private final AtomicLong movimientosRechazados = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+
+    private record Pendiente(MovimientoStock movimiento, CompletableFuture<MovimientoStock> futuro) {}
+
+    CommitAgrupadoMovimientos(MovimientoStockDAO movimientoDAO, int maxGrupo, long esperaMs) {
+        if (maxGrupo <= 0 || esperaMs < 0) {
+            throw new IllegalArgumentException("Configuración de grupo inválida: max=" + maxGrupo + ", espera=" + esperaMs);
+        }
+        this.movimientoDAO = movimientoDAO;
+        this.dbConfig = DatabaseConfig.getInstance();
+        this.cacheProductos = CacheProductos.getInstance();
+        this.clavesIdempotencia = ClavesIdempotencia.getInstance();
+        this.maxGrupo = maxGrupo;
+        this.esperaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+
+        this.hiloCommit = new Thread(this::bucleCommit, "commit-agrupado-movimientos");
+        this.hiloCommit.setDaemon(true);
+        this.hiloCommit.start();
+
+        // Al salir se confirman los movimientos que sigan en la cola
+        Runtime.getRuntime().addShutdownHook(new Thread(this::cerrar, "cierre-commit-agrupado"));
+
+        logger.info("Commit agrupado de movimientos activo: hasta {} movimientos o {} ms por transacción",
+                maxGrupo, esperaMs);
+    }
+
+    private static class Holder {
+        // Instrumentado como el DAO de la aplicación: los movimientos de cada grupo suman a sus mismas métricas
+        private static final CommitAgrupadoMovimientos INSTANCE = new CommitAgrupadoMovimientos(
+                DAOInstrumentado.instrumentar(MovimientoStockDAO.class, new MovimientoStockDAOImpl()),
+                (int) VariablesEntorno.getLong("MOVIMIENTOS_GRUPO_MAX", DEFAULT_MAX_GRUPO),
+                VariablesEntorno.getLong("MOVIMIENTOS_GRUPO_ESPERA_MS", DEFAULT_ESPERA_MS));
+    }
+
+    public static CommitAgrupadoMovimientos getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Indica si el modo de commit agrupado está activado por configuración
+     */
+    public static boolean estaHabilitado() {
+        return Boolean.parseBoolean(System.getenv("MOVIMIENTOS_COMMIT_AGRUPADO"));
+    }
+
+    /**
+     * Encola un movimiento; el futuro se completa tras el commit del grupo que lo contiene
+     */
+    public CompletableFuture<MovimientoStock> encolar(MovimientoStock movimiento) {
+        CompletableFuture<MovimientoStock> futuro = new CompletableFuture<>();
+        admision.lock();
+        try {
+            if (activo) {
+                cola.add(new Pendiente(movimiento, futuro));
+                return futuro;
+            }
+        } finally {
+            admision.unlock();
+        }
+        futuro.completeExceptionally(new SQLException("El commit agrupado de movimientos está detenido"));
+        return futuro;
+    }
+
+    /**
+     * Deja de aceptar movimientos y espera a que se confirmen los pendientes
+     */
+    public void cerrar() {
+        detener();
+        try {
+            hiloCommit.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getMovimientosConfirmados() {
+        return movimientosConfirmados.get();
+    }
+
+    public long getMovimientosRechazados() {
+        return movimientosRechazados.get();
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * Tamaño medio de los grupos confirmados
+     */
+    public double getTamanoMedioGrupo() {
+        long totalCommits = commits.get();
+        return totalCommits == 0 ? 0 : (double) movimientosConfirmados.get() / totalCommits;
+    }
+
+    private void bucleCommit() {
+        List<Pendiente> grupo = new ArrayList<>(maxGrupo);
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                grupo.add(primero);
+
+                // Se completa el grupo hasta el máximo o hasta agotar la espera desde el primer movimiento
+                long limite = System.nanoTime() + esperaNanos;
+                while (grupo.size() < maxGrupo) {
+                    long restante = limite - System.nanoTime();
+                    Pendiente siguiente = restante > 0 ? cola.poll(restante, TimeUnit.NANOSECONDS) : cola.poll();
+                    if (siguiente == null) {
+                        break;
+                    }
+                    grupo.add(siguiente);
+                }
+
+                confirmarGrupo(grupo);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // Nunca debe detenerse el hilo: se fallan los futuros del grupo en curso
+                LogUtil.registrarError("COMMIT_AGRUPADO", "Error inesperado en el commit agrupado", e);
+                grupo.forEach(p -> p.futuro().completeExceptionally(e));
+            } finally {
+                grupo.clear();
+            }
+        }
+        // Si el hilo sale por una interrupción, lo que quede en la cola no se confirmará nunca
+        detener();
+        List<Pendiente> restantes = new ArrayList<>();
+        cola.drainTo(restantes);
+        for (Pendiente pendiente : restantes) {
+            pendiente.futuro().completeExceptionally(
+                new SQLException("El commit agrupado de movimientos se detuvo antes de confirmar el movimiento"));
+        }
+        logger.info("Commit agrupado de movimientos detenido");
+    }
+
+    private void detener() {
+        admision.lock();
+        try {
+            activo = false;
+        } finally {
+            admision.unlock();
+        }
+    }
+
+    private void confirmarGrupo(List<Pendiente> grupo) {
+        List<Pendiente> aplicados = new ArrayList<>(grupo.size());
+        Connection conn = null;
+
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+
+            for (Pendiente pendiente : grupo) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    movimientoDAO.registrarMovimiento(conn, pendiente.movimiento());
+                    aplicados.add(pendiente);
+                } catch (SQLException e) {
+                    // Solo se deshace este movimiento; el resto del grupo sigue adelante
+                    conn.rollback(savepoint);
+                    movimientosRechazados.incrementAndGet();
+                    pendiente.futuro().completeExceptionally(e);
+                }
+            }
+
+            conn.commit();
+            commits.incrementAndGet();
+            movimientosConfirmados.addAndGet(aplicados.size());
+
+            for (Pendiente pendiente : aplicados) {
+                cacheProductos.invalidar(pendiente.movimiento().getIdProducto());
+                clavesIdempotencia.recordar(pendiente.movimiento());
+                pendiente.futuro().complete(pendiente.movimiento());
+            }
+
+        } catch (SQLException e) {
+            // Fallo de conexión o de commit: nada del grupo es durable
+            dbConfig.rollback(conn);
+            LogUtil.registrarError("COMMIT_AGRUPADO",
+                "Error al confirmar un grupo de " + grupo.size() + " movimientos", e);
+            for (Pendiente pendiente : grupo) {
+                pendiente.futuro().completeExceptionally(e);
+            }
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+}
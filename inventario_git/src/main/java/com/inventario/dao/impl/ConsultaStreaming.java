@@ -0,0 +1,113 @@
+package com.inventario.dao.impl;
+
+import com.inventario.util.DatabaseConfig;
+import com.inventario.util.LogUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Utilidad interna de los DAO para recorrer resultados grandes en streaming.
+ *
+ * Usa un ResultSet TYPE_FORWARD_ONLY / CONCUR_READ_ONLY con fetchSize = Integer.MIN_VALUE,
+ * que en MySQL Connector/J hace que las filas se lean de una en una desde el servidor
+ * en lugar de cargar el resultado completo en memoria.
+ *
+ * IMPORTANTE: el Stream devuelto mantiene abierta su propia conexión hasta que se cierra,
+ * por lo que debe usarse siempre dentro de un try-with-resources.
+ */
+final class ConsultaStreaming {
+
+    /**
+     * Convierte la fila actual de un ResultSet en un objeto
+     */
+    @FunctionalInterface
+    interface MapeadorFila<T> {
+        T mapear(ResultSet rs) throws SQLException;
+    }
+
+    private ConsultaStreaming() {}
+
+    /**
+     * Ejecuta la consulta y devuelve un Stream perezoso de filas mapeadas
+     */
+    static <T> Stream<T> abrir(DatabaseConfig dbConfig, String sql, MapeadorFila<T> mapeador,
+                               Object... parametros) throws SQLException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = dbConfig.getConnection();
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            asignarParametros(stmt, parametros);
+            rs = stmt.executeQuery();
+
+        } catch (SQLException e) {
+            cerrar(dbConfig, rs, stmt, conn);
+            LogUtil.registrarError("CONSULTA_STREAMING", "Error al abrir consulta en streaming", e);
+            throw e;
+        }
+
+        final Connection connFinal = conn;
+        final PreparedStatement stmtFinal = stmt;
+        final ResultSet rsFinal = rs;
+
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> accion) {
+                try {
+                    if (!rsFinal.next()) {
+                        return false;
+                    }
+                    accion.accept(mapeador.mapear(rsFinal));
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Error al leer fila en streaming: " + e.getMessage(), e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> cerrar(dbConfig, rsFinal, stmtFinal, connFinal));
+    }
+
+    /**
+     * Asigna los parámetros de la consulta (LocalDateTime se envía como Timestamp)
+     */
+    static void asignarParametros(PreparedStatement stmt, Object... parametros) throws SQLException {
+        for (int i = 0; i < parametros.length; i++) {
+            Object parametro = parametros[i];
+            if (parametro instanceof LocalDateTime fecha) {
+                stmt.setTimestamp(i + 1, Timestamp.valueOf(fecha));
+            } else {
+                stmt.setObject(i + 1, parametro);
+            }
+        }
+    }
+
+    private static void cerrar(DatabaseConfig dbConfig, ResultSet rs, PreparedStatement stmt, Connection conn) {
+        try {
+            if (rs != null) rs.close();
+        } catch (SQLException e) {
+            LogUtil.registrarError("CONSULTA_STREAMING", "Error al cerrar ResultSet", e);
+        }
+        try {
+            if (stmt != null) stmt.close();
+        } catch (SQLException e) {
+            LogUtil.registrarError("CONSULTA_STREAMING", "Error al cerrar sentencia", e);
+        }
+        dbConfig.closeConnection(conn);
+    }
+}
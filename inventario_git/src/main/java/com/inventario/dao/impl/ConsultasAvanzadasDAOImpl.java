@@ -1,15 +1,25 @@
 package com.inventario.dao.impl;
 
 import com.inventario.dao.ConsultasAvanzadasDAO;
+import com.inventario.dao.StockFragmentadoDAO;
+import com.inventario.jfr.EventoConsultaAvanzada;
+import com.inventario.model.CursorMovimiento;
+import com.inventario.util.CapacidadesEsquema;
+import com.inventario.util.CapacidadesEsquema.IndiceOptimizado;
 import com.inventario.util.DatabaseConfig;
 import com.inventario.util.LogUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Implementación de consultas avanzadas SQL
@@ -20,13 +30,19 @@ import java.util.List;
  * - Valor total de stock por categoría
  * - Histórico de movimientos por rango de fechas
  * - Análisis de rotación de inventario
+ * - Stock y valor de cada producto en una fecha
  */
 public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
     private static final Logger logger = LoggerFactory.getLogger(ConsultasAvanzadasDAOImpl.class);
+    private static final int MAX_IDS_POR_CONSULTA = 1000;
     private final DatabaseConfig dbConfig;
+    private final StockFragmentadoDAO stockFragmentado;
+    private final CapacidadesEsquema capacidades;
 
     public ConsultasAvanzadasDAOImpl() {
         this.dbConfig = DatabaseConfig.getInstance();
+        this.stockFragmentado = new StockFragmentadoDAOImpl();
+        this.capacidades = CapacidadesEsquema.getInstance();
     }
 
     /**
@@ -45,14 +61,16 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
                 SUM(m.cantidad) as total_vendido,
                 COUNT(m.id_movimiento) as num_transacciones,
                 SUM(m.cantidad * p.precio) as ingresos_generados
-            FROM productos p
-            INNER JOIN movimientos_stock m ON p.id_producto = m.id_producto
+            FROM %s
+            INNER JOIN movimientos_stock m%s ON p.id_producto = m.id_producto
             WHERE m.tipo_movimiento = 'SALIDA'
             GROUP BY p.id_producto, p.nombre, p.categoria, p.precio, p.stock
             ORDER BY total_vendido DESC
             LIMIT ?
-            """;
+            """.formatted(StockReal.origenProductos(stockFragmentado, "p", ""),
+                capacidades.forzarIndice(IndiceOptimizado.MOVIMIENTOS_TIPO_PRODUCTO));
 
+        EventoConsultaAvanzada evento = EventoConsultaAvanzada.iniciar();
         List<Object[]> resultados = new ArrayList<>();
 
         try (Connection conn = dbConfig.getConnection();
@@ -76,11 +94,13 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
             }
 
             logger.info("Obtenidos top {} productos más vendidos", limite);
+            evento.terminar("TOP_PRODUCTOS_VENDIDOS", resultados.size(), true, limite);
             return resultados;
 
         } catch (SQLException e) {
             LogUtil.registrarError("TOP_PRODUCTOS_VENDIDOS",
                     "Error al obtener top productos más vendidos", e);
+            evento.terminar("TOP_PRODUCTOS_VENDIDOS", 0, false, limite);
             throw e;
         }
     }
@@ -100,11 +120,13 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
                 MAX(precio) as precio_maximo,
                 AVG(precio) as precio_promedio,
                 SUM(precio * stock) as valor_total_stock
-            FROM productos
+            FROM %s
             GROUP BY categoria
             ORDER BY valor_total_stock DESC
-            """;
+            """.formatted(StockReal.origenProductos(stockFragmentado, "",
+                capacidades.forzarIndice(IndiceOptimizado.PRODUCTOS_CAT_PRECIO_STOCK)));
 
+        EventoConsultaAvanzada evento = EventoConsultaAvanzada.iniciar();
         List<Object[]> resultados = new ArrayList<>();
 
         try (Connection conn = dbConfig.getConnection();
@@ -124,11 +146,13 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
             }
 
             logger.info("Obtenido valor de stock para {} categorías", resultados.size());
+            evento.terminar("VALOR_STOCK_CATEGORIA", resultados.size(), true);
             return resultados;
 
         } catch (SQLException e) {
             LogUtil.registrarError("VALOR_STOCK_CATEGORIA",
                     "Error al obtener valor de stock por categoría", e);
+            evento.terminar("VALOR_STOCK_CATEGORIA", 0, false);
             throw e;
         }
     }
@@ -160,6 +184,7 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
             ORDER BY m.fecha_movimiento DESC
             """;
 
+        EventoConsultaAvanzada evento = EventoConsultaAvanzada.iniciar();
         List<Object[]> resultados = new ArrayList<>();
 
         try (Connection conn = dbConfig.getConnection();
@@ -170,31 +195,94 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Object[] fila = new Object[13];
-                    fila[0] = rs.getInt("id_movimiento");
-                    fila[1] = rs.getTimestamp("fecha_movimiento").toLocalDateTime();
-                    fila[2] = rs.getInt("id_producto");
-                    fila[3] = rs.getString("producto");
-                    fila[4] = rs.getString("categoria");
-                    fila[5] = rs.getString("tipo_movimiento");
-                    fila[6] = rs.getInt("cantidad");
-                    fila[7] = rs.getInt("stock_anterior");
-                    fila[8] = rs.getInt("stock_nuevo");
-                    fila[9] = rs.getString("motivo");
-                    fila[10] = rs.getString("usuario");
-                    fila[11] = rs.getBigDecimal("precio");
-                    fila[12] = rs.getBigDecimal("valor_movimiento");
-                    resultados.add(fila);
+                    resultados.add(mapearFilaHistorico(rs));
                 }
             }
 
             logger.info("Obtenidos {} movimientos entre {} y {}",
                     resultados.size(), fechaInicio, fechaFin);
+            evento.terminar("HISTORICO_MOVIMIENTOS", resultados.size(), true, fechaInicio, fechaFin);
             return resultados;
 
         } catch (SQLException e) {
             LogUtil.registrarError("HISTORICO_MOVIMIENTOS",
                     "Error al obtener histórico de movimientos", e);
+            evento.terminar("HISTORICO_MOVIMIENTOS", 0, false, fechaInicio, fechaFin);
+            throw e;
+        }
+    }
+
+    /**
+     * Histórico de movimientos paginado por clave (fecha_movimiento, id_movimiento)
+     * Evita cargar rangos completos en memoria: cada página cuesta lo mismo
+     * independientemente de lo avanzado que esté el recorrido
+     */
+    @Override
+    public List<Object[]> obtenerHistoricoMovimientosPaginado(LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                                              CursorMovimiento cursor, int tamanoPagina) throws SQLException {
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a cero: " + tamanoPagina);
+        }
+
+        String condicionCursor = cursor == null ? "" : """
+                AND (m.fecha_movimiento < ?
+                     OR (m.fecha_movimiento = ? AND m.id_movimiento < ?))
+            """;
+
+        String sql = """
+            SELECT
+                m.id_movimiento,
+                m.fecha_movimiento,
+                p.id_producto,
+                p.nombre as producto,
+                p.categoria,
+                m.tipo_movimiento,
+                m.cantidad,
+                m.stock_anterior,
+                m.stock_nuevo,
+                m.motivo,
+                m.usuario,
+                p.precio,
+                (m.cantidad * p.precio) as valor_movimiento
+            FROM movimientos_stock m
+            INNER JOIN productos p ON m.id_producto = p.id_producto
+            WHERE m.fecha_movimiento BETWEEN ? AND ?
+            """ + condicionCursor + """
+            ORDER BY m.fecha_movimiento DESC, m.id_movimiento DESC
+            LIMIT ?
+            """;
+
+        EventoConsultaAvanzada evento = EventoConsultaAvanzada.iniciar();
+        List<Object[]> resultados = new ArrayList<>();
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            stmt.setTimestamp(indice++, Timestamp.valueOf(fechaInicio));
+            stmt.setTimestamp(indice++, Timestamp.valueOf(fechaFin));
+            if (cursor != null) {
+                Timestamp fechaCursor = Timestamp.valueOf(cursor.getFechaMovimiento());
+                stmt.setTimestamp(indice++, fechaCursor);
+                stmt.setTimestamp(indice++, fechaCursor);
+                stmt.setInt(indice++, cursor.getIdMovimiento());
+            }
+            stmt.setInt(indice, tamanoPagina);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    resultados.add(mapearFilaHistorico(rs));
+                }
+            }
+
+            logger.debug("Página de histórico: {} movimientos (cursor: {})", resultados.size(), cursor);
+            evento.terminar("HISTORICO_MOVIMIENTOS_PAGINADO", resultados.size(), true, fechaInicio, fechaFin, cursor, tamanoPagina);
+            return resultados;
+
+        } catch (SQLException e) {
+            LogUtil.registrarError("HISTORICO_MOVIMIENTOS_PAGINADO",
+                    "Error al obtener página del histórico de movimientos", e);
+            evento.terminar("HISTORICO_MOVIMIENTOS_PAGINADO", 0, false, fechaInicio, fechaFin, cursor, tamanoPagina);
             throw e;
         }
     }
@@ -216,14 +304,15 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
                 COALESCE(SUM(CASE WHEN m.tipo_movimiento = 'ENTRADA' THEN m.cantidad ELSE 0 END), 0) as entradas_recientes,
                 COALESCE(SUM(CASE WHEN m.tipo_movimiento = 'SALIDA' THEN m.cantidad ELSE 0 END), 0) as salidas_recientes,
                 MAX(m.fecha_movimiento) as ultimo_movimiento
-            FROM productos p
+            FROM %s
             LEFT JOIN movimientos_stock m ON p.id_producto = m.id_producto
                 AND m.fecha_movimiento >= DATE_SUB(NOW(), INTERVAL ? DAY)
             WHERE p.stock < ?
             GROUP BY p.id_producto, p.nombre, p.categoria, p.stock, p.precio
             ORDER BY p.stock ASC, salidas_recientes DESC
-            """;
+            """.formatted(StockReal.origenProductos(stockFragmentado, "p", ""));
 
+        EventoConsultaAvanzada evento = EventoConsultaAvanzada.iniciar();
         List<Object[]> resultados = new ArrayList<>();
 
         try (Connection conn = dbConfig.getConnection();
@@ -252,11 +341,13 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
             }
 
             logger.info("Obtenidos {} productos con stock bajo y su histórico", resultados.size());
+            evento.terminar("BAJO_STOCK_HISTORICO", resultados.size(), true, limiteStock, diasHistorico);
             return resultados;
 
         } catch (SQLException e) {
             LogUtil.registrarError("BAJO_STOCK_HISTORICO",
                     "Error al obtener productos bajo stock con histórico", e);
+            evento.terminar("BAJO_STOCK_HISTORICO", 0, false, limiteStock, diasHistorico);
             throw e;
         }
     }
@@ -281,13 +372,14 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
                     WHEN MAX(m.fecha_movimiento) IS NULL THEN DATEDIFF(NOW(), p.fecha_creacion)
                     ELSE DATEDIFF(NOW(), MAX(m.fecha_movimiento))
                 END as dias_sin_actividad
-            FROM productos p
+            FROM %s
             LEFT JOIN movimientos_stock m ON p.id_producto = m.id_producto
             GROUP BY p.id_producto, p.nombre, p.categoria, p.stock, p.precio, p.fecha_creacion
             HAVING dias_sin_actividad >= ?
             ORDER BY dias_sin_actividad DESC
-            """;
+            """.formatted(StockReal.origenProductos(stockFragmentado, "p", ""));
 
+        EventoConsultaAvanzada evento = EventoConsultaAvanzada.iniciar();
         List<Object[]> resultados = new ArrayList<>();
 
         try (Connection conn = dbConfig.getConnection();
@@ -316,11 +408,13 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
 
             logger.info("Obtenidos {} productos sin movimientos en {} días",
                     resultados.size(), diasSinMovimiento);
+            evento.terminar("PRODUCTOS_SIN_MOVIMIENTOS", resultados.size(), true, diasSinMovimiento);
             return resultados;
 
         } catch (SQLException e) {
             LogUtil.registrarError("PRODUCTOS_SIN_MOVIMIENTOS",
                     "Error al obtener productos sin movimientos", e);
+            evento.terminar("PRODUCTOS_SIN_MOVIMIENTOS", 0, false, diasSinMovimiento);
             throw e;
         }
     }
@@ -344,13 +438,14 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
                     COALESCE(SUM(CASE WHEN m.tipo_movimiento = 'SALIDA' THEN m.cantidad ELSE 0 END), 0) /
                     NULLIF(AVG(p.stock), 0),
                 2) as indice_rotacion
-            FROM productos p
+            FROM %s
             LEFT JOIN movimientos_stock m ON p.id_producto = m.id_producto
                 AND m.fecha_movimiento >= DATE_SUB(NOW(), INTERVAL 30 DAY)
             GROUP BY p.categoria
             ORDER BY indice_rotacion DESC
-            """;
+            """.formatted(StockReal.origenProductos(stockFragmentado, "p", ""));
 
+        EventoConsultaAvanzada evento = EventoConsultaAvanzada.iniciar();
         List<Object[]> resultados = new ArrayList<>();
 
         try (Connection conn = dbConfig.getConnection();
@@ -371,12 +466,116 @@ public class ConsultasAvanzadasDAOImpl implements ConsultasAvanzadasDAO {
             }
 
             logger.info("Análisis de rotación obtenido para {} categorías", resultados.size());
+            evento.terminar("ANALISIS_ROTACION", resultados.size(), true);
             return resultados;
 
         } catch (SQLException e) {
             LogUtil.registrarError("ANALISIS_ROTACION",
                     "Error al obtener análisis de rotación", e);
+            evento.terminar("ANALISIS_ROTACION", 0, false);
             throw e;
         }
     }
+
+    /**
+     * Stock de cada producto en una fecha
+     * Una búsqueda por producto (LIMIT 1 sobre id_producto, fecha_movimiento) y mezcla en memoria
+     *
+     * El stock en la fecha es el stock_nuevo del último movimiento hasta la fecha; si no hay ninguno,
+     * el stock_anterior del primer movimiento posterior, y si el producto nunca ha tenido movimientos,
+     * su stock actual (con los fragmentos, que se suman en memoria). Con idx_movimientos_producto_fecha
+     * cada búsqueda lee una sola entrada del índice, así que el coste crece con el número de productos
+     * y no con el de movimientos.
+     */
+    @Override
+    public Stream<Object[]> streamStockEnFecha(LocalDateTime fecha, Collection<Integer> idsProducto) throws SQLException {
+        EventoConsultaAvanzada evento = EventoConsultaAvanzada.iniciar();
+        // Stock actual de los productos fragmentados: pocos, se cargan una vez antes de recorrer
+        Map<Integer, Integer> fragmentos = stockFragmentado.sumarFragmentos(
+                stockFragmentado.obtenerProductosFragmentados().keySet());
+
+        if (idsProducto.isEmpty()) {
+            return evento.medir(abrirStockEnFecha(fecha, fragmentos, List.of()), "STOCK_EN_FECHA", fecha, 0);
+        }
+
+        // Con muchos IDs se abre una consulta por bloque, solo cuando se llega a él
+        List<Integer> ids = new ArrayList<>(idsProducto);
+        Collections.sort(ids);
+        List<List<Integer>> bloques = new ArrayList<>();
+        for (int desde = 0; desde < ids.size(); desde += MAX_IDS_POR_CONSULTA) {
+            bloques.add(ids.subList(desde, Math.min(desde + MAX_IDS_POR_CONSULTA, ids.size())));
+        }
+        return evento.medir(bloques.stream().flatMap(bloque -> {
+            try {
+                return abrirStockEnFecha(fecha, fragmentos, bloque);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error al consultar stock en fecha: " + e.getMessage(), e);
+            }
+        }), "STOCK_EN_FECHA", fecha, ids.size());
+    }
+
+    private Stream<Object[]> abrirStockEnFecha(LocalDateTime fecha, Map<Integer, Integer> fragmentos,
+                                               List<Integer> bloque) throws SQLException {
+        // Se fuerza el índice compuesto si existe: con el de la clave foránea MySQL tendría que
+        // ordenar todos los movimientos del producto para quedarse con uno
+        String indice = capacidades.forzarIndice(IndiceOptimizado.MOVIMIENTOS_PRODUCTO_FECHA);
+        String filtro = bloque.isEmpty()
+                ? ""
+                : " AND p.id_producto IN (" + String.join(", ", Collections.nCopies(bloque.size(), "?")) + ")";
+
+        String sql = "SELECT p.id_producto, p.nombre, p.categoria, p.precio, p.stock, " +
+                "(SELECT m.stock_nuevo FROM movimientos_stock m" + indice +
+                " WHERE m.id_producto = p.id_producto AND m.fecha_movimiento <= ?" +
+                " ORDER BY m.fecha_movimiento DESC, m.id_movimiento DESC LIMIT 1) AS stock_hasta, " +
+                "(SELECT m.stock_anterior FROM movimientos_stock m" + indice +
+                " WHERE m.id_producto = p.id_producto AND m.fecha_movimiento > ?" +
+                " ORDER BY m.fecha_movimiento, m.id_movimiento LIMIT 1) AS stock_desde " +
+                "FROM productos p WHERE p.fecha_creacion <= ?" + filtro +
+                " ORDER BY p.id_producto";
+
+        List<Object> parametros = new ArrayList<>(List.of(fecha, fecha, fecha));
+        parametros.addAll(bloque);
+
+        return ConsultaStreaming.abrir(dbConfig, sql, rs -> {
+            int idProducto = rs.getInt("id_producto");
+            int stock = rs.getInt("stock_hasta");
+            if (rs.wasNull()) {
+                stock = rs.getInt("stock_desde");
+                if (rs.wasNull()) {
+                    stock = rs.getInt("stock") + fragmentos.getOrDefault(idProducto, 0);
+                }
+            }
+            BigDecimal precio = rs.getBigDecimal("precio");
+
+            Object[] fila = new Object[6];
+            fila[0] = idProducto;
+            fila[1] = rs.getString("nombre");
+            fila[2] = rs.getString("categoria");
+            fila[3] = precio;
+            fila[4] = stock;
+            fila[5] = precio.multiply(BigDecimal.valueOf(stock));
+            return fila;
+        }, parametros.toArray());
+    }
+
+    /**
+     * Mapea una fila del histórico de movimientos (13 columnas)
+     */
+    private Object[] mapearFilaHistorico(ResultSet rs) throws SQLException {
+        Object[] fila = new Object[13];
+        fila[0] = rs.getInt("id_movimiento");
+        fila[1] = rs.getTimestamp("fecha_movimiento").toLocalDateTime();
+        fila[2] = rs.getInt("id_producto");
+        fila[3] = rs.getString("producto");
+        fila[4] = rs.getString("categoria");
+        fila[5] = rs.getString("tipo_movimiento");
+        fila[6] = rs.getInt("cantidad");
+        fila[7] = rs.getInt("stock_anterior");
+        fila[8] = rs.getInt("stock_nuevo");
+        fila[9] = rs.getString("motivo");
+        fila[10] = rs.getString("usuario");
+        fila[11] = rs.getBigDecimal("precio");
+        fila[12] = rs.getBigDecimal("valor_movimiento");
+        return fila;
+    }
 }
@@ -0,0 +1,379 @@
+package com.inventario.dao.impl;
+
+import com.inventario.dao.LibroStockDAO;
+import com.inventario.util.DatabaseConfig;
+import com.inventario.util.LogUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementación del DAO del libro mayor de stock.
+ *
+ * Los escritores de un mismo producto se serializan con SELECT ... FOR UPDATE sobre su fila
+ * de productos, pero la fila no se escribe: cada movimiento es solo un INSERT. Las lecturas
+ * que calculan el stock dentro de esa transacción son bloqueantes (LOCK IN SHARE MODE) para
+ * ver siempre los últimos movimientos confirmados, aunque la transacción agrupe varios.
+ * Frente al modo normal, el movimiento cambia el UPDATE de la fila por la suma de la cola
+ * desde el último snapshot, que los snapshots periódicos mantienen corta; el bloqueo de la
+ * fila sigue siendo necesario para comprobar el stock antes de anexar.
+ *
+ * Las escrituras optimistas detectan los movimientos anexados por la versión efectiva
+ * (productos.version más los pendientes, ver LibroStockDAO), no porque el movimiento
+ * incremente la columna.
+ *
+ * Los movimientos posteriores a un snapshot se localizan con el índice de la clave foránea
+ * id_producto, que en InnoDB incluye id_movimiento: la cola se recorre por rango.
+ * Los productos con stock fragmentado no usan el libro (sus movimientos van a los fragmentos).
+ *
+ * Se activa con STOCK_LIBRO_MAYOR=true; los snapshots periódicos los toma SnapshotsStockPeriodicos.
+ * Para volver al modo normal hay que salir limpiamente de la aplicación (el cierre refresca
+ * productos.stock de todos los productos con movimientos pendientes de snapshot).
+ */
+public class LibroStockDAOImpl implements LibroStockDAO {
+    private static final int MAX_IDS_POR_CONSULTA = 1000;
+
+    private static final String DELTA_MOVIMIENTO =
+            "CASE m.tipo_movimiento WHEN 'ENTRADA' THEN m.cantidad ELSE -m.cantidad END";
+
+    // Último snapshot de cada producto (s) con la suma de sus movimientos posteriores
+    private static final String SQL_STOCK_DERIVADO =
+            "SELECT s.id_producto, s.id_movimiento_hasta, s.stock + COALESCE(SUM(" + DELTA_MOVIMIENTO + "), 0) AS stock, " +
+            "COUNT(m.id_movimiento) AS pendientes, COALESCE(MAX(m.id_movimiento), s.id_movimiento_hasta) AS ultimo " +
+            "FROM snapshots_stock s " +
+            "LEFT JOIN movimientos_stock m ON m.id_producto = s.id_producto AND m.id_movimiento > s.id_movimiento_hasta " +
+            "WHERE s.id_movimiento_hasta = (SELECT MAX(u.id_movimiento_hasta) FROM snapshots_stock u " +
+            "WHERE u.id_producto = s.id_producto) ";
+
+    private static final String GROUP_BY_DERIVADO = " GROUP BY s.id_producto, s.id_movimiento_hasta, s.stock";
+
+    // null hasta la primera comprobación
+    private static volatile Boolean tablaDisponible;
+    // Lock y no synchronized: la comprobación hace JDBC y no debe fijar el hilo virtual a su portador
+    private static final ReentrantLock CARGA_TABLA = new ReentrantLock();
+
+    private final DatabaseConfig dbConfig;
+
+    // Resultado del cálculo para un producto dentro de una transacción
+    private record StockDerivado(int stock, int ultimoMovimiento, int pendientes) {}
+
+    public LibroStockDAOImpl() {
+        this.dbConfig = DatabaseConfig.getInstance();
+    }
+
+    /**
+     * Indica si el modo libro mayor está activado por configuración
+     */
+    public static boolean estaHabilitado() {
+        return Boolean.parseBoolean(System.getenv("STOCK_LIBRO_MAYOR"));
+    }
+
+    /**
+     * Consulta con el stock derivado y los movimientos pendientes de cada producto con snapshots,
+     * para usarla como tabla derivada en SQL (ver StockReal). null si snapshots_stock no existe
+     */
+    static String consultaStockDerivado() {
+        return tablaDisponible() ? SQL_STOCK_DERIVADO + GROUP_BY_DERIVADO : null;
+    }
+
+    @Override
+    public int stockActual(Connection conn, int idProducto) throws SQLException {
+        return calcularBloqueado(conn, idProducto).stock();
+    }
+
+    @Override
+    public Map<Integer, StockLibro> calcularStock(Collection<Integer> idsProducto) throws SQLException {
+        Map<Integer, StockLibro> resultado = new HashMap<>();
+        if (idsProducto.isEmpty() || !tablaDisponible()) {
+            return resultado;
+        }
+
+        List<Integer> pendientes = new ArrayList<>(idsProducto);
+        for (int desde = 0; desde < pendientes.size(); desde += MAX_IDS_POR_CONSULTA) {
+            List<Integer> bloque = pendientes.subList(desde, Math.min(desde + MAX_IDS_POR_CONSULTA, pendientes.size()));
+            String marcadores = String.join(", ", Collections.nCopies(bloque.size(), "?"));
+            String sql = SQL_STOCK_DERIVADO + "AND s.id_producto IN (" + marcadores + ")" + GROUP_BY_DERIVADO;
+
+            try (Connection conn = dbConfig.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                ConsultaStreaming.asignarParametros(stmt, bloque.toArray());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        resultado.put(rs.getInt("id_producto"),
+                            new StockLibro(rs.getInt("stock"), rs.getInt("pendientes")));
+                    }
+                }
+
+            } catch (SQLException e) {
+                LogUtil.registrarError("CALCULAR_STOCK_LIBRO",
+                    "Error al calcular el stock de " + bloque.size() + " productos desde el libro", e);
+                throw e;
+            }
+        }
+        return resultado;
+    }
+
+    @Override
+    public void consolidarVersion(Connection conn, int idProducto) throws SQLException {
+        if (!tablaDisponible()) {
+            return;
+        }
+        if (consultarEntero(conn, "SELECT 1 FROM productos WHERE id_producto = ? FOR UPDATE", idProducto) == null) {
+            return;  // La escritura no encontrará la fila
+        }
+
+        // Sin snapshots el MAX es NULL y no hay pendientes
+        Integer pendientes = consultarEntero(conn,
+            "SELECT COUNT(*) FROM movimientos_stock WHERE id_producto = ? AND id_movimiento > " +
+            "(SELECT MAX(id_movimiento_hasta) FROM snapshots_stock WHERE id_producto = ?) LOCK IN SHARE MODE",
+            idProducto, idProducto);
+        if (pendientes != null && pendientes > 0) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE productos SET version = version + ? WHERE id_producto = ?")) {
+                stmt.setInt(1, pendientes);
+                stmt.setInt(2, idProducto);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    public int obtenerStockEnFecha(int idProducto, LocalDateTime fecha) throws SQLException {
+        try (Connection conn = dbConfig.getConnection()) {
+            // 1. Último snapshot tomado antes de la fecha más los movimientos hasta la fecha
+            if (tablaDisponible()) {
+                String sql = "SELECT s.stock + COALESCE((SELECT SUM(" + DELTA_MOVIMIENTO + ") FROM movimientos_stock m " +
+                            "WHERE m.id_producto = s.id_producto AND m.id_movimiento > s.id_movimiento_hasta " +
+                            "AND m.fecha_movimiento <= ?), 0) AS stock " +
+                            "FROM snapshots_stock s WHERE s.id_producto = ? AND s.fecha_snapshot <= ? " +
+                            "ORDER BY s.id_movimiento_hasta DESC LIMIT 1";
+                Integer stock = consultarEntero(conn, sql, fecha, idProducto, fecha);
+                if (stock != null) {
+                    return stock;
+                }
+            }
+
+            // 2. Sin snapshot previo: el stock que dejó el último movimiento hasta la fecha
+            Integer stock = consultarEntero(conn,
+                "SELECT stock_nuevo FROM movimientos_stock WHERE id_producto = ? AND fecha_movimiento <= ? " +
+                "ORDER BY fecha_movimiento DESC, id_movimiento DESC LIMIT 1", idProducto, fecha);
+            if (stock != null) {
+                return stock;
+            }
+
+            // 3. Sin movimientos hasta la fecha: el stock anterior al primer movimiento posterior
+            stock = consultarEntero(conn,
+                "SELECT stock_anterior FROM movimientos_stock WHERE id_producto = ? AND fecha_movimiento > ? " +
+                "ORDER BY fecha_movimiento, id_movimiento LIMIT 1", idProducto, fecha);
+            if (stock != null) {
+                return stock;
+            }
+
+            // 4. Ningún movimiento: el stock no ha cambiado por movimientos desde entonces
+            stock = consultarEntero(conn, StockFragmentadoDAOImpl.SQL_STOCK_TOTAL, idProducto);
+            if (stock == null) {
+                throw new SQLException("Producto no existe con ID: " + idProducto);
+            }
+            return stock;
+
+        } catch (SQLException e) {
+            LogUtil.registrarError("STOCK_EN_FECHA",
+                "Error al reconstruir el stock del producto " + idProducto + " en " + fecha, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int tomarSnapshots(int minMovimientos) throws SQLException {
+        if (!tablaDisponible()) {
+            return 0;
+        }
+
+        // Candidatos sin bloqueo; cada snapshot se toma después con el producto bloqueado
+        String sql = SQL_STOCK_DERIVADO +
+                    "AND NOT EXISTS (SELECT 1 FROM stock_fragmentos f WHERE f.id_producto = s.id_producto)" +
+                    GROUP_BY_DERIVADO + " HAVING pendientes >= ?";
+        List<Integer> candidatos = new ArrayList<>();
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, Math.max(1, minMovimientos));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    candidatos.add(rs.getInt("id_producto"));
+                }
+            }
+
+        } catch (SQLException e) {
+            LogUtil.registrarError("TOMAR_SNAPSHOTS", "Error al buscar productos para snapshot", e);
+            throw e;
+        }
+
+        int tomados = 0;
+        for (int idProducto : candidatos) {
+            if (tomarSnapshot(idProducto)) {
+                tomados++;
+            }
+        }
+
+        if (tomados > 0) {
+            LogUtil.registrarOperacionExitosa("TOMAR_SNAPSHOTS",
+                String.format("Snapshots de stock tomados: %d (mínimo %d movimientos pendientes)", tomados, minMovimientos));
+        }
+        return tomados;
+    }
+
+    @Override
+    public void descartarSnapshots(Connection conn, Collection<Integer> idsProducto) throws SQLException {
+        if (idsProducto.isEmpty() || !tablaDisponible()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM snapshots_stock WHERE id_producto = ?")) {
+            for (int idProducto : idsProducto) {
+                stmt.setInt(1, idProducto);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    @Override
+    public int contarSnapshots() throws SQLException {
+        if (!tablaDisponible()) {
+            return 0;
+        }
+        try (Connection conn = dbConfig.getConnection()) {
+            Integer total = consultarEntero(conn, "SELECT COUNT(*) FROM snapshots_stock");
+            return total != null ? total : 0;
+        } catch (SQLException e) {
+            LogUtil.registrarError("CONTAR_SNAPSHOTS", "Error al contar snapshots de stock", e);
+            throw e;
+        }
+    }
+
+    // Métodos auxiliares privados
+
+    /**
+     * Snapshot de un producto en su propia transacción: fija el stock derivado en el último
+     * movimiento y refresca productos.stock. Los movimientos pendientes pasan a productos.version,
+     * así que la versión efectiva no cambia (el stock lógico es el mismo)
+     */
+    private boolean tomarSnapshot(int idProducto) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+
+            StockDerivado actual = calcularBloqueado(conn, idProducto);
+            insertarSnapshot(conn, idProducto, actual.ultimoMovimiento(), actual.stock());
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE productos SET stock = ?, version = version + ? WHERE id_producto = ?")) {
+                stmt.setInt(1, actual.stock());
+                stmt.setInt(2, actual.pendientes());
+                stmt.setInt(3, idProducto);
+                stmt.executeUpdate();
+            }
+
+            conn.commit();
+            return true;
+
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            // Un producto que falla (p. ej. borrado entre medias) no detiene el resto
+            LogUtil.registrarError("TOMAR_SNAPSHOTS", "Error al tomar el snapshot del producto " + idProducto, e);
+            return false;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+
+    /**
+     * Bloquea el producto y calcula su stock con lecturas bloqueantes.
+     * Si no tiene snapshots, productos.stock es exacto y se guarda como snapshot base
+     */
+    private StockDerivado calcularBloqueado(Connection conn, int idProducto) throws SQLException {
+        Integer stockProducto = consultarEntero(conn,
+            "SELECT stock FROM productos WHERE id_producto = ? FOR UPDATE", idProducto);
+        if (stockProducto == null) {
+            throw new SQLException("Producto no existe con ID: " + idProducto);
+        }
+
+        String sql = SQL_STOCK_DERIVADO + "AND s.id_producto = ?" + GROUP_BY_DERIVADO + " LOCK IN SHARE MODE";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, idProducto);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new StockDerivado(rs.getInt("stock"), rs.getInt("ultimo"), rs.getInt("pendientes"));
+                }
+            }
+        }
+
+        Integer ultimo = consultarEntero(conn,
+            "SELECT COALESCE(MAX(id_movimiento), 0) FROM movimientos_stock WHERE id_producto = ? LOCK IN SHARE MODE",
+            idProducto);
+        insertarSnapshot(conn, idProducto, ultimo, stockProducto);
+        return new StockDerivado(stockProducto, ultimo, 0);
+    }
+
+    private void insertarSnapshot(Connection conn, int idProducto, int idMovimientoHasta, int stock) throws SQLException {
+        String sql = "INSERT INTO snapshots_stock (id_producto, id_movimiento_hasta, stock) VALUES (?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE stock = VALUES(stock), fecha_snapshot = CURRENT_TIMESTAMP";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, idProducto);
+            stmt.setInt(2, idMovimientoHasta);
+            stmt.setInt(3, stock);
+            stmt.executeUpdate();
+        }
+    }
+
+    private Integer consultarEntero(Connection conn, String sql, Object... parametros) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ConsultaStreaming.asignarParametros(stmt, parametros);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private static boolean tablaDisponible() {
+        Boolean disponible = tablaDisponible;
+        if (disponible == null) {
+            CARGA_TABLA.lock();
+            try {
+                disponible = tablaDisponible;
+                if (disponible == null) {
+                    disponible = comprobarTabla();
+                    tablaDisponible = disponible;
+                }
+            } finally {
+                CARGA_TABLA.unlock();
+            }
+        }
+        return disponible;
+    }
+
+    private static boolean comprobarTabla() {
+        try (Connection conn = DatabaseConfig.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM snapshots_stock LIMIT 1")) {
+            stmt.executeQuery().close();
+            return true;
+        } catch (SQLException e) {
+            // Esquema sin snapshots_stock: no hay snapshots que mantener
+            LogUtil.registrarAdvertencia("LIBRO_STOCK",
+                "No se pudo leer snapshots_stock, el libro mayor de stock no está disponible: " + e.getMessage());
+            return false;
+        }
+    }
+}
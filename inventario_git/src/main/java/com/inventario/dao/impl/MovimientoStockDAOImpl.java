@@ -1,9 +1,15 @@
 package com.inventario.dao.impl;
 
+import com.inventario.cache.CacheProductos;
+import com.inventario.cache.ClavesIdempotencia;
+import com.inventario.cache.ClavesIdempotencia.MovimientoRegistrado;
+import com.inventario.dao.ErrorReglaStock;
 import com.inventario.dao.MovimientoStockDAO;
-import com.inventario.dao.ProductoDAO;
+import com.inventario.dao.LibroStockDAO;
+import com.inventario.dao.StockFragmentadoDAO;
+import com.inventario.jfr.EventoMovimientoStock;
+import com.inventario.model.CursorMovimiento;
 import com.inventario.model.MovimientoStock;
-import com.inventario.model.Producto;
 import com.inventario.util.DatabaseConfig;
 import com.inventario.util.LogUtil;
 import java.sql.*;
@@ -11,29 +17,54 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Implementación del DAO para MovimientoStock
  */
 public class MovimientoStockDAOImpl implements MovimientoStockDAO {
+    private static final String SELECT_MOVIMIENTOS =
+            "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, " +
+            "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario, clave_idempotencia " +
+            "FROM movimientos_stock";
+
+    // Condición de continuación del keyset: filas estrictamente "anteriores" al cursor
+    private static final String CONDICION_CURSOR =
+            "(fecha_movimiento < ? OR (fecha_movimiento = ? AND id_movimiento < ?))";
+
+    private static final String ORDEN_KEYSET = " ORDER BY fecha_movimiento DESC, id_movimiento DESC";
+
+    // Código de MySQL para una clave única duplicada (ER_DUP_ENTRY)
+    private static final int ERROR_CLAVE_DUPLICADA = 1062;
+
     private final DatabaseConfig dbConfig;
-    private final ProductoDAO productoDAO;
+    private final CacheProductos cacheProductos;
+    private final StockFragmentadoDAO stockFragmentado;
+    private final ClavesIdempotencia clavesIdempotencia;
+    private final LibroStockDAO libroStock;
 
     public MovimientoStockDAOImpl() {
         this.dbConfig = DatabaseConfig.getInstance();
-        this.productoDAO = new ProductoDAOImpl();
+        this.cacheProductos = CacheProductos.getInstance();
+        this.clavesIdempotencia = ClavesIdempotencia.getInstance();
+        this.stockFragmentado = new StockFragmentadoDAOImpl();
+        this.libroStock = new LibroStockDAOImpl();
     }
 
     @Override
     public int registrarMovimiento(MovimientoStock movimiento) throws SQLException {
+        // Una sola unidad de trabajo: SELECT ... FOR UPDATE + INSERT + UPDATE + COMMIT en la misma conexión
         Connection conn = null;
         try {
-            conn = dbConfig.getConnection();
-            conn.setAutoCommit(false); // Iniciar transacción
+            conn = dbConfig.getConnectionForTransaction();
 
             int id = registrarMovimiento(conn, movimiento);
 
             conn.commit(); // Confirmar transacción
+            // Se invalida también tras el commit por si otra lectura recargó el stock anterior
+            cacheProductos.invalidar(movimiento.getIdProducto());
+            clavesIdempotencia.recordar(movimiento);
             return id;
 
         } catch (SQLException e) {
@@ -46,45 +77,115 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
             }
             throw e;
         } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException e) {
-                    LogUtil.registrarError("CLOSE_CONNECTION", "Error al cerrar conexión", e);
-                }
-            }
+            // La conexión se descarta: no hace falta restaurar autocommit antes de cerrarla
+            dbConfig.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public CompletableFuture<MovimientoStock> registrarMovimientoAgrupado(MovimientoStock movimiento) {
+        if (CommitAgrupadoMovimientos.estaHabilitado()) {
+            return CommitAgrupadoMovimientos.getInstance().encolar(movimiento);
+        }
+
+        // Modo desactivado: commit individual, con el mismo contrato de futuro
+        CompletableFuture<MovimientoStock> futuro = new CompletableFuture<>();
+        try {
+            registrarMovimiento(movimiento);
+            futuro.complete(movimiento);
+        } catch (SQLException e) {
+            futuro.completeExceptionally(e);
         }
+        return futuro;
     }
 
     @Override
     public int registrarMovimiento(Connection conn, MovimientoStock movimiento) throws SQLException {
+        return registrarMovimiento(conn, movimiento, 0);
+    }
+
+    @Override
+    public int registrarMovimiento(Connection conn, MovimientoStock movimiento, int reservadoPropio) throws SQLException {
+        EventoMovimientoStock evento = EventoMovimientoStock.iniciar();
+        int id = 0;
+        boolean exito = false;
+        try {
+            id = validarYAplicar(conn, movimiento, reservadoPropio);
+            exito = true;
+            return id;
+        } finally {
+            evento.terminar(movimiento.getIdProducto(), movimiento.getTipoMovimiento(), movimiento.getCantidad(),
+                movimiento.getStockAnterior(), movimiento.getStockNuevo(), id, exito);
+        }
+    }
+
+    private int validarYAplicar(Connection conn, MovimientoStock movimiento, int reservadoPropio) throws SQLException {
         // 1. Validar que el movimiento sea válido
         if (!movimiento.isValid()) {
             throw new SQLException("Movimiento inválido: " + movimiento);
         }
 
-        // 2. Obtener el producto y su stock actual
-        Optional<Producto> productoOpt = productoDAO.buscarPorId(movimiento.getIdProducto());
-        if (productoOpt.isEmpty()) {
-            throw new SQLException("Producto no existe con ID: " + movimiento.getIdProducto());
+        String clave = movimiento.getClaveIdempotencia();
+        if (clave == null) {
+            return aplicarMovimiento(conn, movimiento, reservadoPropio);
         }
 
-        Producto producto = productoOpt.get();
-        int stockAnterior = producto.getStock();
-        int stockNuevo;
+        // Reintento de un movimiento ya confirmado: se devuelve el original sin volver a aplicarlo
+        Optional<Integer> original = buscarPorClave(conn, movimiento, false);
+        if (original.isPresent()) {
+            return original.get();
+        }
 
-        // 3. Calcular el nuevo stock según el tipo de movimiento
-        if (movimiento.esEntrada()) {
-            stockNuevo = stockAnterior + movimiento.getCantidad();
-        } else if (movimiento.esSalida()) {
-            if (stockAnterior < movimiento.getCantidad()) {
-                throw new SQLException("Stock insuficiente. Disponible: " + stockAnterior +
-                                     ", Solicitado: " + movimiento.getCantidad());
+        // Dos envíos simultáneos con la misma clave: el índice único deja insertar solo uno.
+        // El otro deshace lo que había aplicado y devuelve el movimiento que ganó
+        Savepoint antesDeAplicar = conn.setSavepoint();
+        try {
+            return aplicarMovimiento(conn, movimiento, reservadoPropio);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            if (e.getErrorCode() != ERROR_CLAVE_DUPLICADA) {
+                throw e;
             }
-            stockNuevo = stockAnterior - movimiento.getCantidad();
+            conn.rollback(antesDeAplicar);
+            return buscarPorClave(conn, movimiento, true).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Aplica el movimiento: comprueba y actualiza el stock e inserta la fila en movimientos_stock
+     */
+    private int aplicarMovimiento(Connection conn, MovimientoStock movimiento, int reservadoPropio) throws SQLException {
+        // Productos muy vendidos: el stock se descuenta de un fragmento y no de la fila de productos
+        boolean fragmentado = stockFragmentado.estaFragmentado(movimiento.getIdProducto());
+        // Modo libro mayor: el movimiento solo se anexa y el stock se deriva del último snapshot
+        boolean libroMayor = !fragmentado && LibroStockDAOImpl.estaHabilitado();
+        int stockAnterior;
+        int stockNuevo;
+
+        if (fragmentado) {
+            // Las reservas se comprueban allí: con alguna vigente se bloquean todos los fragmentos
+            stockFragmentado.aplicarMovimiento(conn, movimiento, reservadoPropio);
+            stockAnterior = movimiento.getStockAnterior();
+            stockNuevo = movimiento.getStockNuevo();
         } else {
-            throw new SQLException("Tipo de movimiento inválido: " + movimiento.getTipoMovimiento());
+            // 2. Leer y bloquear el stock actual en la misma transacción (SELECT ... FOR UPDATE):
+            //    ningún otro movimiento puede modificarlo hasta el commit
+            stockAnterior = libroMayor
+                    ? libroStock.stockActual(conn, movimiento.getIdProducto())
+                    : bloquearStock(conn, movimiento.getIdProducto());
+            // 3. Calcular el nuevo stock según el tipo de movimiento
+            stockNuevo = calcularStockNuevo(movimiento, stockAnterior);
+        }
+
+        // Una SALIDA no puede dejar menos stock que el reservado por otras reservas vigentes, de este
+        // proceso o de otros (el stock bloqueado arriba es exacto)
+        if (!fragmentado && movimiento.esSalida()) {
+            int reservadoAjeno = ReservaStockDAOImpl.cantidadReservadaVigente(conn, movimiento.getIdProducto())
+                    - reservadoPropio;
+            if (stockNuevo < reservadoAjeno) {
+                throw new ErrorReglaStock(ErrorReglaStock.Regla.STOCK_INSUFICIENTE,
+                    "Stock insuficiente. Disponible: " + Math.max(0, stockAnterior - reservadoAjeno) +
+                    " (reservado: " + reservadoAjeno + "), Solicitado: " + movimiento.getCantidad());
+            }
         }
 
         // 4. Establecer los valores calculados en el movimiento
@@ -93,8 +194,8 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
 
         // 5. Insertar el movimiento en la base de datos
         String sqlInsert = "INSERT INTO movimientos_stock " +
-                          "(id_producto, tipo_movimiento, cantidad, stock_anterior, stock_nuevo, motivo, usuario) " +
-                          "VALUES (?, ?, ?, ?, ?, ?, ?)";
+                          "(id_producto, tipo_movimiento, cantidad, stock_anterior, stock_nuevo, motivo, usuario, " +
+                          "clave_idempotencia) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
         int idGenerado;
         try (PreparedStatement stmt = conn.prepareStatement(sqlInsert, Statement.RETURN_GENERATED_KEYS)) {
@@ -105,6 +206,7 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
             stmt.setInt(5, movimiento.getStockNuevo());
             stmt.setString(6, movimiento.getMotivo());
             stmt.setString(7, movimiento.getUsuario());
+            stmt.setString(8, movimiento.getClaveIdempotencia());
 
             int filasAfectadas = stmt.executeUpdate();
 
@@ -122,17 +224,22 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
             }
         }
 
-        // 6. Actualizar el stock del producto
-        String sqlUpdate = "UPDATE productos SET stock = ? WHERE id_producto = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sqlUpdate)) {
-            stmt.setInt(1, stockNuevo);
-            stmt.setInt(2, movimiento.getIdProducto());
-
-            int filasActualizadas = stmt.executeUpdate();
-            if (filasActualizadas == 0) {
-                throw new SQLException("No se pudo actualizar el stock del producto");
+        // 6. Actualizar el stock del producto (en modo fragmentado ya se actualizó el fragmento
+        //    y en modo libro mayor productos.stock se refresca al tomar el siguiente snapshot;
+        //    el movimiento cuenta en la versión efectiva del producto, ver LibroStockDAO)
+        if (!fragmentado && !libroMayor) {
+            String sqlUpdate = "UPDATE productos SET stock = ?, version = version + 1 WHERE id_producto = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(sqlUpdate)) {
+                stmt.setInt(1, stockNuevo);
+                stmt.setInt(2, movimiento.getIdProducto());
+
+                int filasActualizadas = stmt.executeUpdate();
+                if (filasActualizadas == 0) {
+                    throw new SQLException("No se pudo actualizar el stock del producto");
+                }
             }
         }
+        cacheProductos.invalidar(movimiento.getIdProducto());
 
         LogUtil.registrarOperacionExitosa("REGISTRAR_MOVIMIENTO",
             String.format("Movimiento registrado: ID=%d, Producto=%d, Tipo=%s, Cantidad=%d, Stock: %d -> %d",
@@ -145,7 +252,7 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
     @Override
     public Optional<MovimientoStock> buscarPorId(int id) throws SQLException {
         String sql = "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, " +
-                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario " +
+                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario, clave_idempotencia " +
                     "FROM movimientos_stock WHERE id_movimiento = ?";
 
         try (Connection conn = dbConfig.getConnection();
@@ -167,32 +274,25 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
     }
 
     @Override
+    @Deprecated
     public List<MovimientoStock> obtenerPorProducto(int idProducto) throws SQLException {
-        String sql = "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, " +
-                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario " +
-                    "FROM movimientos_stock WHERE id_producto = ? " +
-                    "ORDER BY fecha_movimiento DESC";
+        String sql = SELECT_MOVIMIENTOS + " WHERE id_producto = ?" + ORDEN_KEYSET;
 
         return ejecutarConsultaLista(sql, idProducto);
     }
 
     @Override
+    @Deprecated
     public List<MovimientoStock> obtenerPorTipo(String tipo) throws SQLException {
-        String sql = "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, " +
-                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario " +
-                    "FROM movimientos_stock WHERE tipo_movimiento = ? " +
-                    "ORDER BY fecha_movimiento DESC";
+        String sql = SELECT_MOVIMIENTOS + " WHERE tipo_movimiento = ?" + ORDEN_KEYSET;
 
         return ejecutarConsultaLista(sql, tipo);
     }
 
     @Override
+    @Deprecated
     public List<MovimientoStock> obtenerPorRangoFechas(LocalDateTime inicio, LocalDateTime fin) throws SQLException {
-        String sql = "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, " +
-                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario " +
-                    "FROM movimientos_stock " +
-                    "WHERE fecha_movimiento BETWEEN ? AND ? " +
-                    "ORDER BY fecha_movimiento DESC";
+        String sql = SELECT_MOVIMIENTOS + " WHERE fecha_movimiento BETWEEN ? AND ?" + ORDEN_KEYSET;
 
         try (Connection conn = dbConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -215,22 +315,16 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
     }
 
     @Override
+    @Deprecated
     public List<MovimientoStock> obtenerTodos() throws SQLException {
-        String sql = "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, " +
-                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario " +
-                    "FROM movimientos_stock " +
-                    "ORDER BY fecha_movimiento DESC";
+        String sql = SELECT_MOVIMIENTOS + ORDEN_KEYSET;
 
         return ejecutarConsultaLista(sql);
     }
 
     @Override
     public List<MovimientoStock> obtenerUltimos(int limite) throws SQLException {
-        String sql = "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, " +
-                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario " +
-                    "FROM movimientos_stock " +
-                    "ORDER BY fecha_movimiento DESC " +
-                    "LIMIT ?";
+        String sql = SELECT_MOVIMIENTOS + ORDEN_KEYSET + " LIMIT ?";
 
         return ejecutarConsultaLista(sql, limite);
     }
@@ -295,6 +389,10 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
             }
 
             conn.commit(); // Confirmar todos los movimientos
+            for (MovimientoStock movimiento : movimientos) {
+                cacheProductos.invalidar(movimiento.getIdProducto());
+                clavesIdempotencia.recordar(movimiento);
+            }
             LogUtil.registrarOperacionExitosa("REGISTRAR_LOTE",
                 "Lote de " + procesados + " movimientos registrado exitosamente");
 
@@ -323,8 +421,184 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
         }
     }
 
+    @Override
+    public List<MovimientoStock> obtenerPagina(CursorMovimiento cursor, int tamanoPagina) throws SQLException {
+        return ejecutarConsultaPaginada(null, cursor, tamanoPagina);
+    }
+
+    @Override
+    public List<MovimientoStock> obtenerPaginaPorProducto(int idProducto, CursorMovimiento cursor,
+                                                          int tamanoPagina) throws SQLException {
+        // Usa índice: idx_movimientos_producto_fecha (id_producto, fecha_movimiento, id_movimiento)
+        return ejecutarConsultaPaginada("id_producto = ?", cursor, tamanoPagina, idProducto);
+    }
+
+    @Override
+    public List<MovimientoStock> obtenerPaginaPorTipo(String tipo, CursorMovimiento cursor,
+                                                      int tamanoPagina) throws SQLException {
+        // Usa índice: idx_movimientos_tipo_fecha (tipo_movimiento, fecha_movimiento, id_movimiento)
+        return ejecutarConsultaPaginada("tipo_movimiento = ?", cursor, tamanoPagina, tipo);
+    }
+
+    @Override
+    public List<MovimientoStock> obtenerPaginaPorRangoFechas(LocalDateTime inicio, LocalDateTime fin,
+                                                             CursorMovimiento cursor, int tamanoPagina) throws SQLException {
+        return ejecutarConsultaPaginada("fecha_movimiento BETWEEN ? AND ?", cursor, tamanoPagina, inicio, fin);
+    }
+
+    @Override
+    public Stream<MovimientoStock> streamTodos() throws SQLException {
+        return ConsultaStreaming.abrir(dbConfig, SELECT_MOVIMIENTOS + ORDEN_KEYSET, this::mapearMovimiento);
+    }
+
+    @Override
+    public Stream<MovimientoStock> streamPorRangoFechas(LocalDateTime inicio, LocalDateTime fin) throws SQLException {
+        String sql = SELECT_MOVIMIENTOS + " WHERE fecha_movimiento BETWEEN ? AND ?" + ORDEN_KEYSET;
+        return ConsultaStreaming.abrir(dbConfig, sql, this::mapearMovimiento, inicio, fin);
+    }
+
     // Métodos auxiliares privados
 
+    /**
+     * Calcula el nuevo stock según el tipo de movimiento
+     */
+    private int calcularStockNuevo(MovimientoStock movimiento, int stockAnterior) throws SQLException {
+        if (movimiento.esEntrada()) {
+            return stockAnterior + movimiento.getCantidad();
+        } else if (movimiento.esSalida()) {
+            if (stockAnterior < movimiento.getCantidad()) {
+                throw new ErrorReglaStock(ErrorReglaStock.Regla.STOCK_INSUFICIENTE,
+                    "Stock insuficiente. Disponible: " + stockAnterior +
+                    ", Solicitado: " + movimiento.getCantidad());
+            }
+            return stockAnterior - movimiento.getCantidad();
+        } else {
+            throw new SQLException("Tipo de movimiento inválido: " + movimiento.getTipoMovimiento());
+        }
+    }
+
+    /**
+     * Busca el movimiento ya confirmado con la clave de idempotencia del movimiento indicado,
+     * primero en memoria y después en la tabla. Si existe, copia en el movimiento su ID
+     * (y, si se leyó de la tabla, el stock anterior, el nuevo y la fecha).
+     * La lectura bloqueante ve la fila aunque se confirmara después de empezar la transacción
+     */
+    private Optional<Integer> buscarPorClave(Connection conn, MovimientoStock movimiento,
+                                             boolean bloqueante) throws SQLException {
+        String clave = movimiento.getClaveIdempotencia();
+
+        Optional<MovimientoRegistrado> enMemoria = clavesIdempotencia.buscar(clave);
+        if (enMemoria.isPresent()) {
+            MovimientoRegistrado original = enMemoria.get();
+            comprobarMismoMovimiento(movimiento, original.idMovimiento(), original.idProducto(),
+                original.tipoMovimiento(), original.cantidad());
+
+            movimiento.setIdMovimiento(original.idMovimiento());
+            movimiento.setStockAnterior(original.stockAnterior());
+            movimiento.setStockNuevo(original.stockNuevo());
+            if (original.fechaMovimiento() != null) {
+                movimiento.setFechaMovimiento(original.fechaMovimiento());
+            }
+            registrarRepeticion(movimiento);
+            return Optional.of(original.idMovimiento());
+        }
+
+        String sql = "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, stock_anterior, stock_nuevo, " +
+                    "fecha_movimiento FROM movimientos_stock WHERE clave_idempotencia = ?" +
+                    (bloqueante ? " LOCK IN SHARE MODE" : "");
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, clave);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+
+                int idOriginal = rs.getInt("id_movimiento");
+                comprobarMismoMovimiento(movimiento, idOriginal, rs.getInt("id_producto"),
+                    rs.getString("tipo_movimiento"), rs.getInt("cantidad"));
+
+                movimiento.setIdMovimiento(idOriginal);
+                movimiento.setStockAnterior(rs.getInt("stock_anterior"));
+                movimiento.setStockNuevo(rs.getInt("stock_nuevo"));
+                Timestamp fecha = rs.getTimestamp("fecha_movimiento");
+                if (fecha != null) {
+                    movimiento.setFechaMovimiento(fecha.toLocalDateTime());
+                }
+                clavesIdempotencia.recordar(movimiento);
+                registrarRepeticion(movimiento);
+                return Optional.of(idOriginal);
+            }
+        }
+    }
+
+    /**
+     * La misma clave con otro contenido es un error del cliente, no un reintento
+     */
+    private void comprobarMismoMovimiento(MovimientoStock movimiento, int idOriginal, int idProducto,
+                                          String tipoMovimiento, int cantidad) throws SQLException {
+        if (idProducto != movimiento.getIdProducto() ||
+            !movimiento.getTipoMovimiento().equals(tipoMovimiento) ||
+            cantidad != movimiento.getCantidad()) {
+            throw new ErrorReglaStock(ErrorReglaStock.Regla.CLAVE_IDEMPOTENCIA_REUTILIZADA,
+                "La clave de idempotencia '" + movimiento.getClaveIdempotencia() +
+                "' ya se usó para otro movimiento (ID " + idOriginal + ")");
+        }
+    }
+
+    private void registrarRepeticion(MovimientoStock movimiento) {
+        LogUtil.registrarAdvertencia("MOVIMIENTO_REPETIDO",
+            String.format("Clave de idempotencia '%s' ya registrada: se devuelve el movimiento ID=%d sin aplicarlo",
+                movimiento.getClaveIdempotencia(), movimiento.getIdMovimiento()));
+    }
+
+    /**
+     * Lee el stock del producto bloqueando su fila hasta el final de la transacción
+     */
+    private int bloquearStock(Connection conn, int idProducto) throws SQLException {
+        String sql = "SELECT stock FROM productos WHERE id_producto = ? FOR UPDATE";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, idProducto);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Producto no existe con ID: " + idProducto);
+                }
+                return rs.getInt("stock");
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una consulta paginada por clave (fecha_movimiento, id_movimiento).
+     * A diferencia de LIMIT/OFFSET, el coste de cada página es constante:
+     * el índice se posiciona directamente tras el cursor.
+     */
+    private List<MovimientoStock> ejecutarConsultaPaginada(String filtro, CursorMovimiento cursor,
+                                                           int tamanoPagina, Object... parametrosFiltro) throws SQLException {
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a cero: " + tamanoPagina);
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_MOVIMIENTOS);
+        List<Object> parametros = new ArrayList<>(List.of(parametrosFiltro));
+
+        if (filtro != null) {
+            sql.append(" WHERE ").append(filtro);
+        }
+
+        if (cursor != null) {
+            sql.append(filtro != null ? " AND " : " WHERE ").append(CONDICION_CURSOR);
+            parametros.add(cursor.getFechaMovimiento());
+            parametros.add(cursor.getFechaMovimiento());
+            parametros.add(cursor.getIdMovimiento());
+        }
+
+        sql.append(ORDEN_KEYSET).append(" LIMIT ?");
+        parametros.add(tamanoPagina);
+
+        return ejecutarConsultaLista(sql.toString(), parametros.toArray());
+    }
+
+
     private MovimientoStock mapearMovimiento(ResultSet rs) throws SQLException {
         MovimientoStock movimiento = new MovimientoStock();
         movimiento.setIdMovimiento(rs.getInt("id_movimiento"));
@@ -341,6 +615,7 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
         }
 
         movimiento.setUsuario(rs.getString("usuario"));
+        movimiento.setClaveIdempotencia(rs.getString("clave_idempotencia"));
         return movimiento;
     }
 
@@ -348,9 +623,7 @@ public class MovimientoStockDAOImpl implements MovimientoStockDAO {
         try (Connection conn = dbConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            for (int i = 0; i < parametros.length; i++) {
-                stmt.setObject(i + 1, parametros[i]);
-            }
+            ConsultaStreaming.asignarParametros(stmt, parametros);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 List<MovimientoStock> movimientos = new ArrayList<>();
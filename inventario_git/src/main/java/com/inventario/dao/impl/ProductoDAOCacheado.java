@@ -0,0 +1,221 @@
+package com.inventario.dao.impl;
+
+import com.inventario.cache.CacheProductos;
+import com.inventario.cache.IndiceNombresProductos;
+import com.inventario.dao.ProductoDAO;
+import com.inventario.model.CursorProducto;
+import com.inventario.model.Producto;
+import com.inventario.util.LogUtil;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Decorador de ProductoDAO que sirve buscarPorId desde CacheProductos y
+ * buscarPorNombre desde IndiceNombresProductos.
+ * Las escrituras se delegan y después invalidan la caché y actualizan el índice;
+ * el resto de consultas van siempre a la base de datos.
+ */
+public class ProductoDAOCacheado implements ProductoDAO {
+    private final ProductoDAO delegado;
+    private final CacheProductos cache;
+    private final IndiceNombresProductos indiceNombres;
+
+    public ProductoDAOCacheado(ProductoDAO delegado) {
+        this.delegado = delegado;
+        this.cache = CacheProductos.getInstance();
+        this.indiceNombres = IndiceNombresProductos.getInstance();
+    }
+
+    @Override
+    public int crear(Producto producto) throws SQLException {
+        int id = delegado.crear(producto);
+        indiceNombres.indexar(id, producto.getNombre());
+        return id;
+    }
+
+    @Override
+    public Optional<Producto> buscarPorId(int id) throws SQLException {
+        return cache.obtener(id, delegado::buscarPorId);
+    }
+
+    @Override
+    public List<Producto> buscarPorNombre(String nombre) throws SQLException {
+        if (nombre == null || nombre.isBlank()) {
+            return delegado.buscarPorNombre(nombre);
+        }
+
+        List<Integer> ids;
+        try {
+            ids = indiceNombres.buscar(nombre, delegado::recorrerTodos);
+        } catch (SQLException e) {
+            // Sin índice disponible se mantiene la búsqueda en base de datos
+            LogUtil.registrarAdvertencia("INDICE_NOMBRES_PRODUCTOS",
+                "No se pudo construir el índice de nombres, se busca en base de datos: " + e.getMessage());
+            return delegado.buscarPorNombre(nombre);
+        }
+
+        // Los productos se resuelven desde la caché, leyendo de una vez los que falten
+        Map<Integer, Producto> productos = cache.obtenerVarios(ids, delegado::buscarPorIds);
+        List<Producto> resultado = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Producto producto = productos.get(id);
+            if (producto != null) {
+                resultado.add(producto);
+            }
+        }
+        return resultado;
+    }
+
+    @Override
+    public List<Producto> buscarPorIds(Collection<Integer> ids) throws SQLException {
+        return new ArrayList<>(cache.obtenerVarios(ids, delegado::buscarPorIds).values());
+    }
+
+    @Override
+    public List<Producto> buscarPorCategoria(String categoria) throws SQLException {
+        return delegado.buscarPorCategoria(categoria);
+    }
+
+    @Override
+    public List<Producto> obtenerTodos() throws SQLException {
+        return delegado.obtenerTodos();
+    }
+
+    @Override
+    public List<Producto> obtenerConStockBajo(int limite) throws SQLException {
+        return delegado.obtenerConStockBajo(limite);
+    }
+
+    @Override
+    public boolean actualizar(Producto producto) throws SQLException {
+        try {
+            boolean actualizado = delegado.actualizar(producto);
+            if (actualizado) {
+                indiceNombres.indexar(producto.getIdProducto(), producto.getNombre());
+            }
+            return actualizado;
+        } finally {
+            cache.invalidar(producto.getIdProducto());
+        }
+    }
+
+    @Override
+    public boolean actualizarStock(int idProducto, int nuevoStock) throws SQLException {
+        try {
+            return delegado.actualizarStock(idProducto, nuevoStock);
+        } finally {
+            cache.invalidar(idProducto);
+        }
+    }
+
+    @Override
+    public boolean actualizarSiVersion(Producto producto) throws SQLException {
+        try {
+            boolean actualizado = delegado.actualizarSiVersion(producto);
+            if (actualizado) {
+                indiceNombres.indexar(producto.getIdProducto(), producto.getNombre());
+            }
+            return actualizado;
+        } finally {
+            cache.invalidar(producto.getIdProducto());
+        }
+    }
+
+    @Override
+    public boolean actualizarStockSiVersion(int idProducto, int nuevoStock, int versionEsperada) throws SQLException {
+        try {
+            return delegado.actualizarStockSiVersion(idProducto, nuevoStock, versionEsperada);
+        } finally {
+            cache.invalidar(idProducto);
+        }
+    }
+
+    @Override
+    public int obtenerStockTotal(int idProducto) throws SQLException {
+        return delegado.obtenerStockTotal(idProducto);
+    }
+
+    @Override
+    public boolean eliminar(int id) throws SQLException {
+        try {
+            boolean eliminado = delegado.eliminar(id);
+            if (eliminado) {
+                indiceNombres.quitar(id);
+            }
+            return eliminado;
+        } finally {
+            cache.invalidar(id);
+        }
+    }
+
+    @Override
+    public boolean existePorNombre(String nombre) throws SQLException {
+        return delegado.existePorNombre(nombre);
+    }
+
+    @Override
+    public int contarTotal() throws SQLException {
+        return delegado.contarTotal();
+    }
+
+    @Override
+    public int contarPorCategoria(String categoria) throws SQLException {
+        return delegado.contarPorCategoria(categoria);
+    }
+
+    @Override
+    public int crearMultiples(List<Producto> productos) throws SQLException {
+        try {
+            return delegado.crearMultiples(productos);
+        } finally {
+            // El lote no devuelve los IDs generados: el índice se reconstruye en la próxima búsqueda
+            indiceNombres.invalidar();
+        }
+    }
+
+    @Override
+    public BigDecimal obtenerValorTotalInventario() throws SQLException {
+        return delegado.obtenerValorTotalInventario();
+    }
+
+    @Override
+    public List<Object[]> obtenerEstadisticasPorCategoria() throws SQLException {
+        return delegado.obtenerEstadisticasPorCategoria();
+    }
+
+    @Override
+    public List<Producto> obtenerPaginaPorId(int ultimoId, int tamanoPagina) throws SQLException {
+        return delegado.obtenerPaginaPorId(ultimoId, tamanoPagina);
+    }
+
+    @Override
+    public List<Producto> obtenerPaginaPorCategoriaNombre(CursorProducto cursor, int tamanoPagina) throws SQLException {
+        return delegado.obtenerPaginaPorCategoriaNombre(cursor, tamanoPagina);
+    }
+
+    @Override
+    public Stream<Producto> streamTodos() throws SQLException {
+        return delegado.streamTodos();
+    }
+
+    @Override
+    public int recorrerTodos(Consumer<Producto> accion) throws SQLException {
+        return delegado.recorrerTodos(accion);
+    }
+
+    /**
+     * Compara el índice de nombres con la base de datos y lo reconstruye.
+     * Devuelve el número de productos desincronizados encontrados
+     */
+    public int verificarIndiceNombres() throws SQLException {
+        return indiceNombres.verificar(delegado::recorrerTodos);
+    }
+}
@@ -1,27 +1,50 @@
 package com.inventario.dao.impl;
 
 import com.inventario.dao.ProductoDAO;
+import com.inventario.dao.LibroStockDAO;
+import com.inventario.dao.LibroStockDAO.StockLibro;
+import com.inventario.dao.StockFragmentadoDAO;
+import com.inventario.model.CursorProducto;
 import com.inventario.model.Producto;
+import com.inventario.util.CapacidadesEsquema;
+import com.inventario.util.CapacidadesEsquema.EstrategiaBusquedaNombre;
+import com.inventario.util.CapacidadesEsquema.IndiceOptimizado;
 import com.inventario.util.DatabaseConfig;
 import com.inventario.util.LogUtil;
+import com.inventario.util.MetricasConcurrencia;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Implementación del DAO para Producto
  */
 public class ProductoDAOImpl implements ProductoDAO {
     private static final Logger logger = LoggerFactory.getLogger(ProductoDAOImpl.class);
+    private static final String COLUMNAS_PRODUCTO =
+            "id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion, version";
+    private static final String SELECT_PRODUCTOS = "SELECT " + COLUMNAS_PRODUCTO + " FROM productos";
+    private static final int MAX_IDS_POR_CONSULTA = 1000;
     private final DatabaseConfig dbConfig;
+    private final CapacidadesEsquema capacidades;
+    private final StockFragmentadoDAO stockFragmentado;
+    private final LibroStockDAO libroStock;
     
     public ProductoDAOImpl() {
         this.dbConfig = DatabaseConfig.getInstance();
+        this.capacidades = CapacidadesEsquema.getInstance();
+        this.stockFragmentado = new StockFragmentadoDAOImpl();
+        this.libroStock = new LibroStockDAOImpl();
     }
     
     @Override
@@ -60,7 +83,7 @@ public class ProductoDAOImpl implements ProductoDAO {
     
     @Override
     public Optional<Producto> buscarPorId(int id) throws SQLException {
-        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion " +
+        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion, version " +
                     "FROM productos WHERE id_producto = ?";
         
         try (Connection conn = dbConfig.getConnection();
@@ -70,7 +93,7 @@ public class ProductoDAOImpl implements ProductoDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return Optional.of(mapearProducto(rs));
+                    return Optional.of(completarStock(mapearProducto(rs)));
                 }
                 return Optional.empty();
             }
@@ -81,16 +104,44 @@ public class ProductoDAOImpl implements ProductoDAO {
         }
     }
     
+    @Override
+    public List<Producto> buscarPorIds(Collection<Integer> ids) throws SQLException {
+        List<Producto> productos = new ArrayList<>();
+        List<Integer> pendientes = new ArrayList<>(ids);
+        
+        // Se consulta en bloques para no superar el tamaño razonable de un IN (...)
+        for (int desde = 0; desde < pendientes.size(); desde += MAX_IDS_POR_CONSULTA) {
+            List<Integer> bloque = pendientes.subList(desde, Math.min(desde + MAX_IDS_POR_CONSULTA, pendientes.size()));
+            String marcadores = String.join(", ", Collections.nCopies(bloque.size(), "?"));
+            String sql = SELECT_PRODUCTOS + " WHERE id_producto IN (" + marcadores + ")";
+            
+            try {
+                productos.addAll(ejecutarConsultaLista(sql, bloque.toArray()));
+            } catch (SQLException e) {
+                LogUtil.registrarError("BUSCAR_PRODUCTOS_IDS",
+                    "Error al buscar " + bloque.size() + " productos por ID", e);
+                throw e;
+            }
+        }
+        
+        logger.debug("Encontrados {} de {} productos por ID", productos.size(), pendientes.size());
+        return productos;
+    }
+    
     @Override
     public List<Producto> buscarPorNombre(String nombre) throws SQLException {
-        // OPTIMIZADO: Intenta usar FULLTEXT primero (10-15x más rápido)
-        // Si falla (índice no disponible), usa LIKE tradicional como fallback
-        try {
-            return buscarPorNombreFulltext(nombre);
-        } catch (SQLException e) {
-            logger.debug("FULLTEXT no disponible, usando LIKE: {}", e.getMessage());
-            return buscarPorNombreLike(nombre);
+        // OPTIMIZADO: FULLTEXT (10-15x más rápido) solo si el índice existe según la detección del esquema;
+        // así no se lanza y captura una excepción en cada búsqueda cuando falta el índice
+        if (capacidades.estrategiaBusquedaNombre() == EstrategiaBusquedaNombre.FULLTEXT) {
+            try {
+                return buscarPorNombreFulltext(nombre);
+            } catch (SQLException e) {
+                // El índice desapareció tras la detección: se vuelve a detectar para las siguientes búsquedas
+                logger.warn("FULLTEXT no disponible, usando LIKE: {}", e.getMessage());
+                capacidades.detectar();
+            }
         }
+        return buscarPorNombreLike(nombre);
     }
 
     /**
@@ -99,7 +150,7 @@ public class ProductoDAOImpl implements ProductoDAO {
      * Mejora: 10-15x más rápido que LIKE '%texto%'
      */
     private List<Producto> buscarPorNombreFulltext(String nombre) throws SQLException {
-        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion " +
+        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion, version " +
                     "FROM productos WHERE MATCH(nombre) AGAINST(? IN BOOLEAN MODE) ORDER BY nombre";
 
         List<Producto> productos = new ArrayList<>();
@@ -117,7 +168,7 @@ public class ProductoDAOImpl implements ProductoDAO {
             }
 
             logger.debug("FULLTEXT: Encontrados {} productos para: {}", productos.size(), nombre);
-            return productos;
+            return completarStock(productos);
 
         } catch (SQLException e) {
             LogUtil.registrarError("BUSCAR_PRODUCTO_FULLTEXT", "Error en búsqueda FULLTEXT: " + nombre, e);
@@ -130,7 +181,7 @@ public class ProductoDAOImpl implements ProductoDAO {
      * Usa índice: idx_productos_nombre (solo eficiente para búsquedas que empiezan por el texto)
      */
     private List<Producto> buscarPorNombreLike(String nombre) throws SQLException {
-        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion " +
+        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion, version " +
                     "FROM productos WHERE nombre LIKE ? ORDER BY nombre";
 
         List<Producto> productos = new ArrayList<>();
@@ -147,7 +198,7 @@ public class ProductoDAOImpl implements ProductoDAO {
             }
 
             logger.debug("LIKE: Encontrados {} productos para: {}", productos.size(), nombre);
-            return productos;
+            return completarStock(productos);
 
         } catch (SQLException e) {
             LogUtil.registrarError("BUSCAR_PRODUCTO_NOMBRE", "Error al buscar productos por nombre: " + nombre, e);
@@ -157,8 +208,9 @@ public class ProductoDAOImpl implements ProductoDAO {
     
     @Override
     public List<Producto> buscarPorCategoria(String categoria) throws SQLException {
-        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion " +
-                    "FROM productos WHERE categoria = ? ORDER BY nombre";
+        // Con idx_productos_categoria_nombre las filas salen ya ordenadas por nombre, sin filesort
+        String sql = SELECT_PRODUCTOS + capacidades.forzarIndice(IndiceOptimizado.PRODUCTOS_CATEGORIA_NOMBRE) +
+                    " WHERE categoria = ? ORDER BY nombre";
         
         List<Producto> productos = new ArrayList<>();
         
@@ -174,7 +226,7 @@ public class ProductoDAOImpl implements ProductoDAO {
             }
             
             logger.debug("Encontrados {} productos en categoría: {}", productos.size(), categoria);
-            return productos;
+            return completarStock(productos);
             
         } catch (SQLException e) {
             LogUtil.registrarError("BUSCAR_PRODUCTOS_CATEGORIA", 
@@ -185,7 +237,7 @@ public class ProductoDAOImpl implements ProductoDAO {
     
     @Override
     public List<Producto> obtenerTodos() throws SQLException {
-        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion " +
+        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion, version " +
                     "FROM productos ORDER BY nombre";
         
         List<Producto> productos = new ArrayList<>();
@@ -199,7 +251,7 @@ public class ProductoDAOImpl implements ProductoDAO {
             }
             
             logger.debug("Obtenidos {} productos", productos.size());
-            return productos;
+            return completarStock(productos);
             
         } catch (SQLException e) {
             LogUtil.registrarError("OBTENER_TODOS_PRODUCTOS", "Error al obtener todos los productos", e);
@@ -209,8 +261,10 @@ public class ProductoDAOImpl implements ProductoDAO {
     
     @Override
     public List<Producto> obtenerConStockBajo(int limite) throws SQLException {
-        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion " +
-                    "FROM productos WHERE stock < ? ORDER BY stock ASC";
+        // Los productos fragmentados tienen productos.stock = 0 y en modo libro mayor la columna
+        // puede ir retrasada: se filtra y ordena por el stock real de StockReal
+        String sql = "SELECT " + COLUMNAS_PRODUCTO + " FROM " + StockReal.origenProductos(stockFragmentado, "", "") +
+                    " WHERE stock < ? ORDER BY stock ASC";
         
         List<Producto> productos = new ArrayList<>();
         
@@ -235,7 +289,7 @@ public class ProductoDAOImpl implements ProductoDAO {
     }
     
     public List<Producto> obtenerPorRangoPrecio(BigDecimal precioMin, BigDecimal precioMax) throws SQLException {
-        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion " +
+        String sql = "SELECT id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion, version " +
                     "FROM productos WHERE precio BETWEEN ? AND ? ORDER BY precio";
         
         List<Producto> productos = new ArrayList<>();
@@ -252,7 +306,7 @@ public class ProductoDAOImpl implements ProductoDAO {
                 }
             }
             
-            return productos;
+            return completarStock(productos);
             
         } catch (SQLException e) {
             LogUtil.registrarError("OBTENER_POR_RANGO_PRECIO", 
@@ -263,18 +317,17 @@ public class ProductoDAOImpl implements ProductoDAO {
     
     @Override
     public boolean actualizar(Producto producto) throws SQLException {
-        String sql = "UPDATE productos SET nombre = ?, categoria = ?, precio = ?, stock = ? WHERE id_producto = ?";
+        if (stockFragmentado.estaFragmentado(producto.getIdProducto())) {
+            return actualizarFragmentado(producto, null);
+        }
         
-        try (Connection conn = dbConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, producto.getNombre());
-            stmt.setString(2, producto.getCategoria());
-            stmt.setBigDecimal(3, producto.getPrecio());
-            stmt.setInt(4, producto.getStock());
-            stmt.setInt(5, producto.getIdProducto());
-            
-            int filasAfectadas = stmt.executeUpdate();
+        String sql = "UPDATE productos SET nombre = ?, categoria = ?, precio = ?, stock = ?, version = version + 1 " +
+                     "WHERE id_producto = ?";
+        
+        try {
+            int filasAfectadas = ejecutarEscrituraStock(producto.getIdProducto(), sql,
+                producto.getNombre(), producto.getCategoria(), producto.getPrecio(), producto.getStock(),
+                producto.getIdProducto());
             
             if (filasAfectadas > 0) {
                 LogUtil.registrarOperacionExitosa("ACTUALIZAR_PRODUCTO", 
@@ -293,15 +346,14 @@ public class ProductoDAOImpl implements ProductoDAO {
     
     @Override
     public boolean actualizarStock(int idProducto, int nuevoStock) throws SQLException {
-        String sql = "UPDATE productos SET stock = ? WHERE id_producto = ?";
+        if (stockFragmentado.estaFragmentado(idProducto)) {
+            return actualizarStockFragmentado(idProducto, nuevoStock, null);
+        }
         
-        try (Connection conn = dbConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, nuevoStock);
-            stmt.setInt(2, idProducto);
-            
-            int filasAfectadas = stmt.executeUpdate();
+        String sql = "UPDATE productos SET stock = ?, version = version + 1 WHERE id_producto = ?";
+        
+        try {
+            int filasAfectadas = ejecutarEscrituraStock(idProducto, sql, nuevoStock, idProducto);
             
             if (filasAfectadas > 0) {
                 LogUtil.registrarOperacionExitosa("ACTUALIZAR_STOCK", 
@@ -318,6 +370,239 @@ public class ProductoDAOImpl implements ProductoDAO {
         }
     }
     
+    @Override
+    public boolean actualizarSiVersion(Producto producto) throws SQLException {
+        if (stockFragmentado.estaFragmentado(producto.getIdProducto())) {
+            return actualizarFragmentado(producto, producto.getVersion());
+        }
+        
+        // Compare-and-set: sin bloqueos previos, la condición sobre version detecta escrituras intermedias
+        String sql = "UPDATE productos SET nombre = ?, categoria = ?, precio = ?, stock = ?, version = version + 1 " +
+                     "WHERE id_producto = ? AND version = ?";
+        
+        try {
+            int filasAfectadas = ejecutarEscrituraStock(producto.getIdProducto(), sql,
+                producto.getNombre(), producto.getCategoria(), producto.getPrecio(), producto.getStock(),
+                producto.getIdProducto(), producto.getVersion());
+            
+            if (filasAfectadas == 0) {
+                registrarConflicto(producto.getIdProducto(), producto.getVersion());
+                return false;
+            }
+            
+            producto.setVersion(producto.getVersion() + 1);
+            MetricasConcurrencia.getInstance().registrarActualizacionOptimista();
+            LogUtil.registrarOperacionExitosa("ACTUALIZAR_PRODUCTO", 
+                "Producto actualizado: " + producto.getNombre() + " (ID: " + producto.getIdProducto() +
+                ", versión " + producto.getVersion() + ")");
+            return true;
+            
+        } catch (SQLException e) {
+            LogUtil.registrarError("ACTUALIZAR_PRODUCTO", 
+                "Error al actualizar producto: " + producto.getNombre(), e);
+            throw e;
+        }
+    }
+    
+    @Override
+    public boolean actualizarStockSiVersion(int idProducto, int nuevoStock, int versionEsperada) throws SQLException {
+        if (stockFragmentado.estaFragmentado(idProducto)) {
+            return actualizarStockFragmentado(idProducto, nuevoStock, versionEsperada);
+        }
+        
+        String sql = "UPDATE productos SET stock = ?, version = version + 1 WHERE id_producto = ? AND version = ?";
+        
+        try {
+            if (ejecutarEscrituraStock(idProducto, sql, nuevoStock, idProducto, versionEsperada) == 0) {
+                registrarConflicto(idProducto, versionEsperada);
+                return false;
+            }
+            
+            MetricasConcurrencia.getInstance().registrarActualizacionOptimista();
+            LogUtil.registrarOperacionExitosa("ACTUALIZAR_STOCK", 
+                "Stock actualizado para producto ID: " + idProducto + " -> " + nuevoStock +
+                " (versión " + (versionEsperada + 1) + ")");
+            return true;
+            
+        } catch (SQLException e) {
+            LogUtil.registrarError("ACTUALIZAR_STOCK", 
+                "Error al actualizar stock del producto ID: " + idProducto, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Ejecuta una escritura que fija productos.stock de forma absoluta y devuelve las filas afectadas.
+     * Descarta los snapshots del libro mayor del producto para que su stock vuelva a ser el de
+     * productos.stock; en modo libro mayor, dentro de la misma transacción que la escritura y
+     * tras consolidar la versión efectiva, con la que se compara la condición sobre version
+     */
+    private int ejecutarEscrituraStock(int idProducto, String sql, Object... parametros) throws SQLException {
+        if (!LibroStockDAOImpl.estaHabilitado()) {
+            // Sin movimientos en modo libro basta con descartarlos después (snapshots de una sesión anterior)
+            try (Connection conn = dbConfig.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                ConsultaStreaming.asignarParametros(stmt, parametros);
+                int filasAfectadas = stmt.executeUpdate();
+                if (filasAfectadas > 0) {
+                    libroStock.descartarSnapshots(conn, List.of(idProducto));
+                }
+                return filasAfectadas;
+            }
+        }
+        
+        Connection conn = null;
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+            // Los movimientos anexados desde el último snapshot cuentan como versiones
+            libroStock.consolidarVersion(conn, idProducto);
+            int filasAfectadas;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                ConsultaStreaming.asignarParametros(stmt, parametros);
+                filasAfectadas = stmt.executeUpdate();
+            }
+            if (filasAfectadas == 0) {
+                // La consolidación solo vale si se descartan los snapshots: se deshace
+                conn.rollback();
+                return 0;
+            }
+            libroStock.descartarSnapshots(conn, List.of(idProducto));
+            conn.commit();
+            return filasAfectadas;
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            throw e;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+    
+    /**
+     * Actualiza un producto con stock fragmentado: los datos van a productos
+     * y el stock se reparte entre los fragmentos, en la misma transacción.
+     * Con versionEsperada distinta de null solo se aplica si la versión no ha cambiado
+     */
+    private boolean actualizarFragmentado(Producto producto, Integer versionEsperada) throws SQLException {
+        String sql = "UPDATE productos SET nombre = ?, categoria = ?, precio = ?, version = version + 1 WHERE id_producto = ?" +
+                     (versionEsperada != null ? " AND version = ?" : "");
+        Connection conn = null;
+        
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+            
+            int filasAfectadas;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, producto.getNombre());
+                stmt.setString(2, producto.getCategoria());
+                stmt.setBigDecimal(3, producto.getPrecio());
+                stmt.setInt(4, producto.getIdProducto());
+                if (versionEsperada != null) {
+                    stmt.setInt(5, versionEsperada);
+                }
+                filasAfectadas = stmt.executeUpdate();
+            }
+            
+            if (filasAfectadas == 0) {
+                conn.rollback();
+                if (versionEsperada != null) {
+                    registrarConflicto(producto.getIdProducto(), versionEsperada);
+                }
+                return false;
+            }
+            
+            stockFragmentado.establecerStock(conn, producto.getIdProducto(), producto.getStock());
+            if (versionEsperada != null) {
+                // El reparto puede volver a escribir la fila: se lee la versión resultante
+                producto.setVersion(leerVersion(conn, producto.getIdProducto()));
+                MetricasConcurrencia.getInstance().registrarActualizacionOptimista();
+            }
+            conn.commit();
+            
+            LogUtil.registrarOperacionExitosa("ACTUALIZAR_PRODUCTO", 
+                "Producto actualizado: " + producto.getNombre() + " (ID: " + producto.getIdProducto() + ", stock fragmentado)");
+            return true;
+            
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            LogUtil.registrarError("ACTUALIZAR_PRODUCTO", 
+                "Error al actualizar producto: " + producto.getNombre(), e);
+            throw e;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+    
+    private boolean actualizarStockFragmentado(int idProducto, int nuevoStock, Integer versionEsperada) throws SQLException {
+        Connection conn = null;
+        
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+            
+            if (versionEsperada != null) {
+                // El stock está en los fragmentos: la fila de productos solo lleva la versión
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE productos SET version = version + 1 WHERE id_producto = ? AND version = ?")) {
+                    stmt.setInt(1, idProducto);
+                    stmt.setInt(2, versionEsperada);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        registrarConflicto(idProducto, versionEsperada);
+                        return false;
+                    }
+                }
+                MetricasConcurrencia.getInstance().registrarActualizacionOptimista();
+            }
+            
+            stockFragmentado.establecerStock(conn, idProducto, nuevoStock);
+            conn.commit();
+            
+            LogUtil.registrarOperacionExitosa("ACTUALIZAR_STOCK", 
+                "Stock fragmentado actualizado para producto ID: " + idProducto + " -> " + nuevoStock);
+            return true;
+            
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            LogUtil.registrarError("ACTUALIZAR_STOCK", 
+                "Error al actualizar stock del producto ID: " + idProducto, e);
+            throw e;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+    
+    @Override
+    public int obtenerStockTotal(int idProducto) throws SQLException {
+        if (LibroStockDAOImpl.estaHabilitado() && !stockFragmentado.estaFragmentado(idProducto)) {
+            StockLibro derivado = libroStock.calcularStock(List.of(idProducto)).get(idProducto);
+            if (derivado != null) {
+                return derivado.stock();
+            }
+        }
+        
+        // Sin fragmentos basta con la fila del producto (no depende de que exista stock_fragmentos)
+        String sql = stockFragmentado.estaFragmentado(idProducto)
+            ? "SELECT p.stock + COALESCE((SELECT SUM(f.stock) FROM stock_fragmentos f " +
+              "WHERE f.id_producto = p.id_producto), 0) FROM productos p WHERE p.id_producto = ?"
+            : "SELECT stock FROM productos WHERE id_producto = ?";
+        
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, idProducto);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+                throw new SQLException("Producto no existe con ID: " + idProducto);
+            }
+            
+        } catch (SQLException e) {
+            LogUtil.registrarError("OBTENER_STOCK_TOTAL", "Error al obtener stock total del producto ID: " + idProducto, e);
+            throw e;
+        }
+    }
+    
     @Override
     public boolean eliminar(int id) throws SQLException {
         String sql = "DELETE FROM productos WHERE id_producto = ?";
@@ -454,7 +739,10 @@ public class ProductoDAOImpl implements ProductoDAO {
     
     @Override
     public BigDecimal obtenerValorTotalInventario() throws SQLException {
-        String sql = "SELECT SUM(precio * stock) as valor_total FROM productos";
+        // idx_productos_precio_stock cubre la suma: se recorre el índice en lugar de la tabla
+        // (con productos fragmentados el stock sale de la tabla derivada de StockReal)
+        String sql = "SELECT SUM(precio * stock) as valor_total FROM " + StockReal.origenProductos(stockFragmentado,
+                    "", capacidades.forzarIndice(IndiceOptimizado.PRODUCTOS_PRECIO_STOCK));
         
         try (Connection conn = dbConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
@@ -476,7 +764,9 @@ public class ProductoDAOImpl implements ProductoDAO {
     public List<Object[]> obtenerEstadisticasPorCategoria() throws SQLException {
         String sql = "SELECT categoria, COUNT(*) as total_productos, SUM(stock) as stock_total, " +
                     "AVG(precio) as precio_promedio, SUM(precio * stock) as valor_total " +
-                    "FROM productos GROUP BY categoria ORDER BY valor_total DESC";
+                    "FROM " + StockReal.origenProductos(stockFragmentado, "",
+                        capacidades.forzarIndice(IndiceOptimizado.PRODUCTOS_CAT_PRECIO_STOCK)) +
+                    " GROUP BY categoria ORDER BY valor_total DESC";
         
         List<Object[]> estadisticas = new ArrayList<>();
         
@@ -503,6 +793,176 @@ public class ProductoDAOImpl implements ProductoDAO {
         }
     }
     
+    @Override
+    public List<Producto> obtenerPaginaPorId(int ultimoId, int tamanoPagina) throws SQLException {
+        validarTamanoPagina(tamanoPagina);
+        // Recorre directamente la clave primaria: coste constante por página
+        String sql = SELECT_PRODUCTOS + " WHERE id_producto > ? ORDER BY id_producto LIMIT ?";
+        
+        try {
+            return ejecutarConsultaLista(sql, ultimoId, tamanoPagina);
+        } catch (SQLException e) {
+            LogUtil.registrarError("PAGINA_PRODUCTOS_ID",
+                "Error al obtener página de productos tras ID: " + ultimoId, e);
+            throw e;
+        }
+    }
+    
+    @Override
+    public List<Producto> obtenerPaginaPorCategoriaNombre(CursorProducto cursor, int tamanoPagina) throws SQLException {
+        validarTamanoPagina(tamanoPagina);
+        // Con idx_productos_categoria_nombre (InnoDB añade id_producto al final de la clave) cada página
+        // es un rango del índice; sin él MySQL ordena la tabla entera en cada página
+        StringBuilder sql = new StringBuilder(SELECT_PRODUCTOS)
+            .append(capacidades.forzarIndice(IndiceOptimizado.PRODUCTOS_CATEGORIA_NOMBRE));
+        List<Object> parametros = new ArrayList<>();
+        
+        if (cursor != null) {
+            sql.append(" WHERE (categoria > ? OR (categoria = ? AND (nombre > ? OR (nombre = ? AND id_producto > ?))))");
+            parametros.add(cursor.getCategoria());
+            parametros.add(cursor.getCategoria());
+            parametros.add(cursor.getNombre());
+            parametros.add(cursor.getNombre());
+            parametros.add(cursor.getIdProducto());
+        }
+        
+        sql.append(" ORDER BY categoria, nombre, id_producto LIMIT ?");
+        parametros.add(tamanoPagina);
+        
+        try {
+            return ejecutarConsultaLista(sql.toString(), parametros.toArray());
+        } catch (SQLException e) {
+            LogUtil.registrarError("PAGINA_PRODUCTOS_CATEGORIA",
+                "Error al obtener página de productos tras: " + cursor, e);
+            throw e;
+        }
+    }
+    
+    @Override
+    public Stream<Producto> streamTodos() throws SQLException {
+        // El stock real (fragmentos y libro mayor) sale de la propia consulta: nada que completar por fila
+        String sql = "SELECT " + COLUMNAS_PRODUCTO + " FROM " + StockReal.origenProductos(stockFragmentado, "", "") +
+                    " ORDER BY id_producto";
+        return ConsultaStreaming.abrir(dbConfig, sql, this::mapearProducto);
+    }
+    
+    @Override
+    public int recorrerTodos(Consumer<Producto> accion) throws SQLException {
+        int[] total = {0};
+        try (Stream<Producto> productos = streamTodos()) {
+            productos.forEach(producto -> {
+                accion.accept(producto);
+                total[0]++;
+            });
+        }
+        logger.debug("Recorridos {} productos en streaming", total[0]);
+        return total[0];
+    }
+    
+    private void validarTamanoPagina(int tamanoPagina) {
+        if (tamanoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a cero: " + tamanoPagina);
+        }
+    }
+    
+    private List<Producto> ejecutarConsultaLista(String sql, Object... parametros) throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            ConsultaStreaming.asignarParametros(stmt, parametros);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<Producto> productos = new ArrayList<>();
+                while (rs.next()) {
+                    productos.add(mapearProducto(rs));
+                }
+                return completarStock(productos);
+            }
+        }
+    }
+    
+    /**
+     * Sustituye productos.stock por el stock real: el de los fragmentos y, en modo libro mayor,
+     * el derivado del último snapshot más los movimientos posteriores (con la versión efectiva)
+     */
+    private List<Producto> completarStock(List<Producto> productos) throws SQLException {
+        completarStockFragmentado(productos);
+        if (!LibroStockDAOImpl.estaHabilitado() || productos.isEmpty()) {
+            return productos;
+        }
+        
+        List<Integer> ids = new ArrayList<>();
+        for (Producto producto : productos) {
+            if (!stockFragmentado.estaFragmentado(producto.getIdProducto())) {
+                ids.add(producto.getIdProducto());
+            }
+        }
+        Map<Integer, StockLibro> derivados = libroStock.calcularStock(ids);
+        for (Producto producto : productos) {
+            StockLibro derivado = derivados.get(producto.getIdProducto());
+            if (derivado != null) {
+                producto.setStock(derivado.stock());
+                producto.setVersion(producto.getVersion() + derivado.pendientes());
+            }
+        }
+        return productos;
+    }
+    
+    private Producto completarStock(Producto producto) throws SQLException {
+        completarStock(List.of(producto));
+        return producto;
+    }
+    
+    /**
+     * Suma al stock de los productos fragmentados el de sus fragmentos (una consulta para toda la lista)
+     */
+    private List<Producto> completarStockFragmentado(List<Producto> productos) throws SQLException {
+        List<Integer> fragmentados = new ArrayList<>();
+        for (Producto producto : productos) {
+            if (stockFragmentado.estaFragmentado(producto.getIdProducto())) {
+                fragmentados.add(producto.getIdProducto());
+            }
+        }
+        if (fragmentados.isEmpty()) {
+            return productos;
+        }
+        
+        Map<Integer, Integer> sumas = stockFragmentado.sumarFragmentos(fragmentados);
+        for (Producto producto : productos) {
+            Integer suma = sumas.get(producto.getIdProducto());
+            if (suma != null) {
+                producto.setStock(producto.getStock() + suma);
+            }
+        }
+        return productos;
+    }
+    
+    private Producto completarStockFragmentado(Producto producto) throws SQLException {
+        completarStockFragmentado(List.of(producto));
+        return producto;
+    }
+    
+    private int leerVersion(Connection conn, int idProducto) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT version FROM productos WHERE id_producto = ?")) {
+            stmt.setInt(1, idProducto);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Producto no existe con ID: " + idProducto);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+    
+    /**
+     * Una actualización condicionada no encontró la versión esperada
+     * (otra escritura la cambió o el producto ya no existe)
+     */
+    private void registrarConflicto(int idProducto, int versionEsperada) {
+        MetricasConcurrencia.getInstance().registrarConflictoVersion();
+        logger.debug("Conflicto de versión en producto {}: se esperaba la versión {}", idProducto, versionEsperada);
+    }
+    
     /**
      * Mapea un ResultSet a objeto Producto
      */
@@ -524,6 +984,7 @@ public class ProductoDAOImpl implements ProductoDAO {
             producto.setFechaModificacion(fechaModificacion.toLocalDateTime());
         }
         
+        producto.setVersion(rs.getInt("version"));
         return producto;
     }
 }
\ No newline at end of file
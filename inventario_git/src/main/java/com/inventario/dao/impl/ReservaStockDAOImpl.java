@@ -0,0 +1,433 @@
+package com.inventario.dao.impl;
+
+import com.inventario.cache.CacheProductos;
+import com.inventario.cache.ReservasStock;
+import com.inventario.dao.ErrorReglaStock;
+import com.inventario.dao.LibroStockDAO;
+import com.inventario.dao.MovimientoStockDAO;
+import com.inventario.dao.ReservaStockDAO;
+import com.inventario.dao.StockFragmentadoDAO;
+import com.inventario.model.MovimientoStock;
+import com.inventario.model.ReservaStock;
+import com.inventario.util.DatabaseConfig;
+import com.inventario.util.LogUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementación del DAO de reservas de stock.
+ *
+ * reservar bloquea la fila del producto solo mientras comprueba el disponible
+ * (stock menos reservas vigentes en reservas_stock) e inserta la reserva;
+ * confirmar bloquea la reserva y registra la SALIDA en la misma transacción.
+ * Entre ambos pasos no queda ningún bloqueo abierto.
+ *
+ * Las fechas de expiración se calculan con el reloj de la aplicación, el mismo que usa
+ * la caducidad en memoria de ReservasStock.
+ */
+public class ReservaStockDAOImpl implements ReservaStockDAO {
+    private static final String SELECT_RESERVAS =
+            "SELECT id_reserva, id_producto, cantidad, estado, usuario, " +
+            "fecha_creacion, fecha_expiracion, id_movimiento FROM reservas_stock";
+
+    // null = todavía no se ha comprobado si existe reservas_stock (scripts/11-reservas-stock.sql)
+    private static volatile Boolean tablaDisponible;
+    // Lock y no synchronized: la comprobación hace JDBC y no debe fijar el hilo virtual a su portador
+    private static final ReentrantLock CARGA_TABLA = new ReentrantLock();
+
+    private final DatabaseConfig dbConfig;
+    private final ReservasStock reservas;
+    private final CacheProductos cacheProductos;
+    private final MovimientoStockDAO movimientoDAO;
+    private final StockFragmentadoDAO stockFragmentado;
+    private final LibroStockDAO libroStock;
+
+    public ReservaStockDAOImpl() {
+        this(new MovimientoStockDAOImpl());
+    }
+
+    /**
+     * Las confirmaciones registran su SALIDA con movimientoDAO (p. ej. el DAO instrumentado de la aplicación)
+     */
+    public ReservaStockDAOImpl(MovimientoStockDAO movimientoDAO) {
+        this.dbConfig = DatabaseConfig.getInstance();
+        this.reservas = ReservasStock.getInstance();
+        this.cacheProductos = CacheProductos.getInstance();
+        this.movimientoDAO = movimientoDAO;
+        this.stockFragmentado = new StockFragmentadoDAOImpl();
+        this.libroStock = new LibroStockDAOImpl();
+    }
+
+    /**
+     * Unidades reservadas y vigentes del producto según reservas_stock, leídas dentro de la transacción
+     * del movimiento (usado por MovimientoStockDAOImpl para no vender stock reservado). A diferencia de
+     * la memoria del proceso, incluye las reservas hechas desde otras instancias de la aplicación
+     */
+    static int cantidadReservadaVigente(Connection conn, int idProducto) throws SQLException {
+        if (!tablaDisponible()) {
+            return 0;
+        }
+        return sumarReservadoVigente(conn, idProducto, LocalDateTime.now());
+    }
+
+    @Override
+    public ReservaStock reservar(int idProducto, int cantidad, Duration duracion, String usuario) throws SQLException {
+        if (cantidad <= 0) {
+            throw new SQLException("La cantidad a reservar debe ser mayor a cero: " + cantidad);
+        }
+        if (duracion == null || duracion.isNegative() || duracion.isZero()) {
+            throw new SQLException("La duración de la reserva debe ser positiva: " + duracion);
+        }
+
+        LocalDateTime ahora = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        ReservaStock reserva = new ReservaStock(idProducto, cantidad, ahora.plus(duracion), usuario);
+        Connection conn = null;
+
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+
+            // 1. Bloquear el producto solo durante la comprobación y el INSERT
+            int stock = leerStockBloqueado(conn, idProducto);
+
+            // 2. Las reservas de otros procesos también cuentan: se suman desde la tabla
+            caducarVencidas(conn, idProducto, ahora);
+            int reservado = sumarReservadoVigente(conn, idProducto, ahora);
+            int disponible = stock - reservado;
+            if (disponible < cantidad) {
+                throw new ErrorReglaStock(ErrorReglaStock.Regla.STOCK_INSUFICIENTE,
+                    "Stock insuficiente para reservar. Disponible: " + disponible +
+                    " (reservado: " + reservado + "), Solicitado: " + cantidad);
+            }
+
+            // 3. Registrar la reserva
+            String sql = "INSERT INTO reservas_stock (id_producto, cantidad, estado, usuario, fecha_creacion, fecha_expiracion) " +
+                         "VALUES (?, ?, 'ACTIVA', ?, ?, ?)";
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, idProducto);
+                stmt.setInt(2, cantidad);
+                stmt.setString(3, reserva.getUsuario());
+                stmt.setTimestamp(4, Timestamp.valueOf(ahora));
+                stmt.setTimestamp(5, Timestamp.valueOf(reserva.getFechaExpiracion()));
+                stmt.executeUpdate();
+
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("No se pudo obtener el ID generado de la reserva");
+                    }
+                    reserva.setIdReserva(generatedKeys.getInt(1));
+                }
+            }
+
+            conn.commit();
+            reserva.setFechaCreacion(ahora);
+            reservas.registrar(reserva);
+
+            LogUtil.registrarOperacionExitosa("RESERVAR_STOCK",
+                String.format("Reserva creada: ID=%d, Producto=%d, Cantidad=%d, Expira=%s",
+                    reserva.getIdReserva(), idProducto, cantidad, reserva.getFechaExpiracion()));
+            return reserva;
+
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            LogUtil.registrarError("RESERVAR_STOCK",
+                String.format("Error al reservar - Producto ID: %d, Cantidad: %d", idProducto, cantidad), e);
+            throw e;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public int confirmar(int idReserva, String motivo) throws SQLException {
+        Connection conn = null;
+        int idProducto = 0;
+
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+
+            ReservaStock reserva;
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_RESERVAS + " WHERE id_reserva = ? FOR UPDATE")) {
+                stmt.setInt(1, idReserva);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Reserva no existe con ID: " + idReserva);
+                    }
+                    reserva = mapearReserva(rs);
+                }
+            }
+            idProducto = reserva.getIdProducto();
+
+            if (!reserva.esActiva()) {
+                throw new SQLException("La reserva " + idReserva + " no está activa: " + reserva.getEstado());
+            }
+            if (!reserva.estaVigente(LocalDateTime.now())) {
+                actualizarEstado(conn, idReserva, "CADUCADA", null);
+                conn.commit();
+                reservas.quitar(idReserva);
+                throw new SQLException("La reserva " + idReserva + " caducó el " + reserva.getFechaExpiracion());
+            }
+
+            // La SALIDA puede usar las unidades de esta reserva, pero no las de otras
+            MovimientoStock movimiento = new MovimientoStock(reserva.getIdProducto(), "SALIDA",
+                reserva.getCantidad(), motivo, reserva.getUsuario());
+            int idMovimiento = movimientoDAO.registrarMovimiento(conn, movimiento, reserva.getCantidad());
+
+            actualizarEstado(conn, idReserva, "CONFIRMADA", idMovimiento);
+            conn.commit();
+            reservas.quitar(idReserva);
+            cacheProductos.invalidar(idProducto);
+
+            LogUtil.registrarOperacionExitosa("CONFIRMAR_RESERVA",
+                String.format("Reserva confirmada: ID=%d, Producto=%d, Movimiento=%d",
+                    idReserva, idProducto, idMovimiento));
+            return idMovimiento;
+
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            LogUtil.registrarError("CONFIRMAR_RESERVA", "Error al confirmar la reserva: " + idReserva, e);
+            throw e;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public boolean liberar(int idReserva) throws SQLException {
+        String sql = "UPDATE reservas_stock SET estado = 'LIBERADA' WHERE id_reserva = ? AND estado = 'ACTIVA'";
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, idReserva);
+            boolean liberada = stmt.executeUpdate() > 0;
+            reservas.quitar(idReserva);
+
+            if (liberada) {
+                LogUtil.registrarOperacionExitosa("LIBERAR_RESERVA", "Reserva liberada: ID=" + idReserva);
+            }
+            return liberada;
+
+        } catch (SQLException e) {
+            LogUtil.registrarError("LIBERAR_RESERVA", "Error al liberar la reserva: " + idReserva, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<ReservaStock> buscarPorId(int idReserva) throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_RESERVAS + " WHERE id_reserva = ?")) {
+
+            stmt.setInt(1, idReserva);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapearReserva(rs));
+                }
+                return Optional.empty();
+            }
+
+        } catch (SQLException e) {
+            LogUtil.registrarError("BUSCAR_RESERVA_ID", "Error al buscar reserva por ID: " + idReserva, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ReservaStock> obtenerActivasPorProducto(int idProducto) throws SQLException {
+        return reservas.activasDe(idProducto, ReservaStockDAOImpl::leerActivas);
+    }
+
+    @Override
+    public int obtenerCantidadReservada(int idProducto) throws SQLException {
+        return reservas.cantidadReservada(idProducto, ReservaStockDAOImpl::leerActivas);
+    }
+
+    @Override
+    public int caducarVencidas() throws SQLException {
+        String sql = "UPDATE reservas_stock SET estado = 'CADUCADA' WHERE estado = 'ACTIVA' AND fecha_expiracion <= ?";
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            int caducadas = stmt.executeUpdate();
+
+            if (caducadas > 0) {
+                LogUtil.registrarOperacionExitosa("CADUCAR_RESERVAS", "Reservas caducadas: " + caducadas);
+            }
+            return caducadas;
+
+        } catch (SQLException e) {
+            LogUtil.registrarError("CADUCAR_RESERVAS", "Error al caducar reservas vencidas", e);
+            throw e;
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Stock real del producto con su fila bloqueada (incluye los fragmentos si los tiene; en modo
+     * libro mayor se deriva del último snapshot, como en MovimientoStockDAOImpl)
+     */
+    private int leerStockBloqueado(Connection conn, int idProducto) throws SQLException {
+        boolean fragmentado = stockFragmentado.estaFragmentado(idProducto);
+        if (!fragmentado && LibroStockDAOImpl.estaHabilitado()) {
+            // productos.stock solo se refresca al tomar snapshots: puede ir por detrás de los movimientos
+            return libroStock.stockActual(conn, idProducto);
+        }
+
+        int stock;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT stock FROM productos WHERE id_producto = ? FOR UPDATE")) {
+            stmt.setInt(1, idProducto);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Producto no existe con ID: " + idProducto);
+                }
+                stock = rs.getInt("stock");
+            }
+        }
+
+        if (fragmentado) {
+            // Lectura con bloqueo: suma lo último confirmado por las ventas, no la instantánea de la transacción
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT COALESCE(SUM(stock), 0) FROM stock_fragmentos WHERE id_producto = ? FOR UPDATE")) {
+                stmt.setInt(1, idProducto);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    stock += rs.getInt(1);
+                }
+            }
+        }
+        return stock;
+    }
+
+    private void caducarVencidas(Connection conn, int idProducto, LocalDateTime ahora) throws SQLException {
+        String sql = "UPDATE reservas_stock SET estado = 'CADUCADA' " +
+                     "WHERE id_producto = ? AND estado = 'ACTIVA' AND fecha_expiracion <= ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, idProducto);
+            stmt.setTimestamp(2, Timestamp.valueOf(ahora));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Lectura con bloqueo compartido (idx_reservas_producto_estado): ve las reservas confirmadas por
+     * otras transacciones y no deja insertar nuevas del producto hasta el final de esta
+     */
+    private static int sumarReservadoVigente(Connection conn, int idProducto, LocalDateTime ahora) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(cantidad), 0) FROM reservas_stock " +
+                     "WHERE id_producto = ? AND estado = 'ACTIVA' AND fecha_expiracion > ? LOCK IN SHARE MODE";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, idProducto);
+            stmt.setTimestamp(2, Timestamp.valueOf(ahora));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private void actualizarEstado(Connection conn, int idReserva, String estado, Integer idMovimiento) throws SQLException {
+        String sql = "UPDATE reservas_stock SET estado = ?, id_movimiento = ? WHERE id_reserva = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, estado);
+            stmt.setObject(2, idMovimiento);
+            stmt.setInt(3, idReserva);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static boolean tablaDisponible() {
+        Boolean disponible = tablaDisponible;
+        if (disponible == null) {
+            CARGA_TABLA.lock();
+            try {
+                disponible = tablaDisponible;
+                if (disponible == null) {
+                    disponible = comprobarTabla();
+                    tablaDisponible = disponible;
+                }
+            } finally {
+                CARGA_TABLA.unlock();
+            }
+        }
+        return disponible;
+    }
+
+    private static boolean comprobarTabla() {
+        try (Connection conn = DatabaseConfig.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM reservas_stock LIMIT 1")) {
+            stmt.executeQuery().close();
+            return true;
+        } catch (SQLException e) {
+            // Esquema sin reservas_stock: ninguna salida tiene reservas que respetar
+            LogUtil.registrarAdvertencia("RESERVAS_STOCK",
+                "No se pudo leer reservas_stock, las salidas no comprobarán reservas: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Carga inicial de la memoria. Sin tabla reservas_stock (esquema antiguo) no hay reservas
+     */
+    private static List<ReservaStock> leerActivas() {
+        List<ReservaStock> activas = new ArrayList<>();
+        DatabaseConfig dbConfig = DatabaseConfig.getInstance();
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 SELECT_RESERVAS + " WHERE estado = 'ACTIVA' AND fecha_expiracion > ?")) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    activas.add(mapearReserva(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            LogUtil.registrarAdvertencia("RESERVAS_STOCK",
+                "No se pudieron leer las reservas activas, se continúa sin reservas: " + e.getMessage());
+        }
+        return activas;
+    }
+
+    private static ReservaStock mapearReserva(ResultSet rs) throws SQLException {
+        ReservaStock reserva = new ReservaStock();
+        reserva.setIdReserva(rs.getInt("id_reserva"));
+        reserva.setIdProducto(rs.getInt("id_producto"));
+        reserva.setCantidad(rs.getInt("cantidad"));
+        reserva.setEstado(rs.getString("estado"));
+        reserva.setUsuario(rs.getString("usuario"));
+
+        Timestamp fechaCreacion = rs.getTimestamp("fecha_creacion");
+        if (fechaCreacion != null) {
+            reserva.setFechaCreacion(fechaCreacion.toLocalDateTime());
+        }
+
+        Timestamp fechaExpiracion = rs.getTimestamp("fecha_expiracion");
+        if (fechaExpiracion != null) {
+            reserva.setFechaExpiracion(fechaExpiracion.toLocalDateTime());
+        }
+
+        int idMovimiento = rs.getInt("id_movimiento");
+        reserva.setIdMovimiento(rs.wasNull() ? null : idMovimiento);
+        return reserva;
+    }
+}
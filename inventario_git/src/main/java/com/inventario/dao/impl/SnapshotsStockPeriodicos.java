@@ -0,0 +1,121 @@
+package com.inventario.dao.impl;
+
+import com.inventario.dao.LibroStockDAO;
+import com.inventario.util.LogUtil;
+import com.inventario.util.VariablesEntorno;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tarea en segundo plano que toma snapshots del libro mayor de stock.
+ *
+ * Cada intervalo toma un snapshot de los productos con suficientes movimientos desde el último,
+ * de modo que calcular el stock actual nunca tiene que sumar una cola larga. La primera ejecución
+ * y la del cierre de la aplicación consolidan todos los productos con movimientos pendientes,
+ * dejando productos.stock al día.
+ *
+ * Solo se usa con STOCK_LIBRO_MAYOR=true y se ajusta con
+ * STOCK_SNAPSHOT_INTERVALO_SEGUNDOS (por defecto 60) y STOCK_SNAPSHOT_MIN_MOVIMIENTOS (por defecto 100).
+ */
+public class SnapshotsStockPeriodicos {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotsStockPeriodicos.class);
+
+    private static final long DEFAULT_INTERVALO_SEGUNDOS = 60;
+    private static final long DEFAULT_MIN_MOVIMIENTOS = 100;
+
+    private final LibroStockDAO libroStock;
+    private final int minMovimientos;
+    private final ScheduledExecutorService planificador;
+
+    private final AtomicLong ejecuciones = new AtomicLong();
+    private final AtomicLong snapshotsTomados = new AtomicLong();
+
+    SnapshotsStockPeriodicos(long intervaloSegundos, int minMovimientos) {
+        if (intervaloSegundos <= 0 || minMovimientos <= 0) {
+            throw new IllegalArgumentException("Configuración de snapshots inválida: intervalo=" + intervaloSegundos +
+                ", min=" + minMovimientos);
+        }
+        this.libroStock = new LibroStockDAOImpl();
+        this.minMovimientos = minMovimientos;
+
+        this.planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "snapshots-stock");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        // Primera ejecución inmediata y completa: recupera la proyección si el último cierre no fue limpio
+        planificador.execute(() -> ejecutar(1));
+        planificador.scheduleWithFixedDelay(() -> ejecutar(this.minMovimientos),
+                intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+
+        // Al salir se consolida todo para que productos.stock quede exacto
+        Runtime.getRuntime().addShutdownHook(new Thread(this::cerrar, "cierre-snapshots-stock"));
+
+        logger.info("Snapshots de stock activos: cada {} s, a partir de {} movimientos pendientes",
+                intervaloSegundos, minMovimientos);
+    }
+
+    private static class Holder {
+        private static final SnapshotsStockPeriodicos INSTANCE = new SnapshotsStockPeriodicos(
+                VariablesEntorno.getLong("STOCK_SNAPSHOT_INTERVALO_SEGUNDOS", DEFAULT_INTERVALO_SEGUNDOS),
+                (int) VariablesEntorno.getLong("STOCK_SNAPSHOT_MIN_MOVIMIENTOS", DEFAULT_MIN_MOVIMIENTOS));
+    }
+
+    public static SnapshotsStockPeriodicos getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Toma ya los snapshots de todos los productos con movimientos pendientes.
+     * Devuelve el número de snapshots tomados
+     */
+    public int consolidar() throws SQLException {
+        int tomados = libroStock.tomarSnapshots(1);
+        registrar(tomados);
+        return tomados;
+    }
+
+    /**
+     * Detiene la tarea periódica y consolida los movimientos pendientes
+     */
+    public void cerrar() {
+        planificador.shutdown();
+        try {
+            planificador.awaitTermination(10, TimeUnit.SECONDS);
+            consolidar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            LogUtil.registrarError("SNAPSHOTS_STOCK", "Error al consolidar el libro de stock al cerrar", e);
+        }
+    }
+
+    public long getEjecuciones() {
+        return ejecuciones.get();
+    }
+
+    public long getSnapshotsTomados() {
+        return snapshotsTomados.get();
+    }
+
+    private void ejecutar(int minimo) {
+        try {
+            registrar(libroStock.tomarSnapshots(minimo));
+        } catch (SQLException | RuntimeException e) {
+            // Nunca debe detenerse la tarea: se reintenta en la siguiente ejecución
+            LogUtil.registrarError("SNAPSHOTS_STOCK", "Error al tomar snapshots de stock", e);
+        }
+    }
+
+    private void registrar(int tomados) {
+        ejecuciones.incrementAndGet();
+        // El stock lógico no cambia al tomar un snapshot: no hace falta invalidar la caché de productos
+        snapshotsTomados.addAndGet(tomados);
+    }
+}
@@ -0,0 +1,525 @@
+package com.inventario.dao.impl;
+
+import com.inventario.dao.ErrorReglaStock;
+import com.inventario.dao.LibroStockDAO;
+import com.inventario.dao.StockFragmentadoDAO;
+import com.inventario.model.MovimientoStock;
+import com.inventario.util.DatabaseConfig;
+import com.inventario.util.LogUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementación del DAO de stock fragmentado.
+ *
+ * Ruta rápida: la salida lee los fragmentos sin bloquearlos, elige uno al azar con stock
+ * suficiente y lo descuenta con un UPDATE condicional (stock >= cantidad), de modo que solo
+ * bloquea esa fila. Si ningún fragmento cubre la cantidad, la ruta lenta bloquea el producto
+ * y todos sus fragmentos, comprueba el total y lo vuelve a repartir (rebalanceo).
+ * El CHECK (stock >= 0) de cada fragmento se cumple siempre porque ningún UPDATE
+ * descuenta más de lo que la fila tiene.
+ *
+ * Un UPDATE condicional que no encuentra stock conserva el bloqueo del fragmento hasta el fin
+ * de la transacción, así que dos rutas lentas simultáneas pueden acabar en interbloqueo:
+ * InnoDB aborta una de ellas y el movimiento falla como cualquier otro error de SQL.
+ *
+ * Reservas: la suma sin bloqueo de los fragmentos no basta para respetar lo reservado (dos ventas
+ * en fragmentos distintos verían el mismo total). Toda salida empieza con un bloqueo compartido de
+ * la fila del producto: las ventas no se esperan entre sí, pero ReservaStockDAOImpl.reservar, que
+ * la bloquea en exclusiva, no puede crear una reserva hasta que terminen. La ruta rápida solo se usa
+ * si no hay reservas vigentes; con alguna, la salida bloquea todos los fragmentos (en orden) y
+ * comprueba el total exacto.
+ *
+ * Como cada fragmento se modifica por separado, stockAnterior/stockNuevo de los movimientos
+ * de la ruta rápida reflejan la suma vista por la transacción, no un orden global.
+ *
+ * La lista de productos fragmentados se carga una vez por proceso, se mantiene
+ * con activar/desactivar y se vuelve a leer con recargar.
+ */
+public class StockFragmentadoDAOImpl implements StockFragmentadoDAO {
+    static final String SQL_STOCK_TOTAL =
+            "SELECT p.stock + COALESCE((SELECT SUM(f.stock) FROM stock_fragmentos f " +
+            "WHERE f.id_producto = p.id_producto), 0) FROM productos p WHERE p.id_producto = ?";
+
+    // id_producto -> número de fragmentos; null hasta la primera consulta
+    private static volatile Map<Integer, Integer> productosFragmentados;
+    // Protege la carga del registro, que consulta la base de datos (ver LibroStockDAOImpl)
+    private static final ReentrantLock CARGA_REGISTRO = new ReentrantLock();
+
+    private final DatabaseConfig dbConfig;
+    private final LibroStockDAO libroStock;
+
+    // Stock del producto (resto no fragmentado) y de cada fragmento, leídos con bloqueo
+    private record Fragmentos(int stockProducto, List<Integer> stocks) {
+        int total() {
+            int total = stockProducto;
+            for (int stock : stocks) {
+                total += stock;
+            }
+            return total;
+        }
+    }
+
+    public StockFragmentadoDAOImpl() {
+        this.dbConfig = DatabaseConfig.getInstance();
+        this.libroStock = new LibroStockDAOImpl();
+    }
+
+    @Override
+    public void activar(int idProducto, int numFragmentos) throws SQLException {
+        if (numFragmentos < 2 || numFragmentos > MAX_FRAGMENTOS) {
+            throw new IllegalArgumentException("El número de fragmentos debe estar entre 2 y " +
+                MAX_FRAGMENTOS + ": " + numFragmentos);
+        }
+        if (estaFragmentado(idProducto)) {
+            throw new SQLException("El producto ya tiene el stock fragmentado: " + idProducto);
+        }
+        if (LibroStockDAOImpl.estaHabilitado()) {
+            // El libro mayor deriva el stock de productos.stock, que aquí pasaría a los fragmentos
+            throw new SQLException("El stock fragmentado no está disponible en modo libro mayor (STOCK_LIBRO_MAYOR)");
+        }
+
+        Connection conn = null;
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+
+            int stock;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT stock FROM productos WHERE id_producto = ? FOR UPDATE")) {
+                stmt.setInt(1, idProducto);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Producto no existe con ID: " + idProducto);
+                    }
+                    stock = rs.getInt("stock");
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO stock_fragmentos (id_producto, fragmento, stock) VALUES (?, ?, ?)")) {
+                for (int fragmento = 0; fragmento < numFragmentos; fragmento++) {
+                    stmt.setInt(1, idProducto);
+                    stmt.setInt(2, fragmento);
+                    stmt.setInt(3, cuota(stock, numFragmentos, fragmento));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE productos SET stock = 0, version = version + 1 WHERE id_producto = ?")) {
+                stmt.setInt(1, idProducto);
+                stmt.executeUpdate();
+            }
+            // Los snapshots de una sesión en modo libro mayor ya no describen el stock del producto
+            libroStock.descartarSnapshots(conn, List.of(idProducto));
+
+            conn.commit();
+            registro().put(idProducto, numFragmentos);
+
+            LogUtil.registrarOperacionExitosa("ACTIVAR_STOCK_FRAGMENTADO",
+                String.format("Stock fragmentado activado: Producto=%d, Fragmentos=%d, Stock=%d",
+                    idProducto, numFragmentos, stock));
+
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            LogUtil.registrarError("ACTIVAR_STOCK_FRAGMENTADO",
+                "Error al fragmentar el stock del producto: " + idProducto, e);
+            throw e;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public void desactivar(int idProducto) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+
+            int total = bloquearFragmentos(conn, idProducto).total();
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE productos SET stock = ?, version = version + 1 WHERE id_producto = ?")) {
+                stmt.setInt(1, total);
+                stmt.setInt(2, idProducto);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM stock_fragmentos WHERE id_producto = ?")) {
+                stmt.setInt(1, idProducto);
+                stmt.executeUpdate();
+            }
+            libroStock.descartarSnapshots(conn, List.of(idProducto));
+
+            conn.commit();
+            registro().remove(idProducto);
+
+            LogUtil.registrarOperacionExitosa("DESACTIVAR_STOCK_FRAGMENTADO",
+                String.format("Stock fragmentado desactivado: Producto=%d, Stock=%d", idProducto, total));
+
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            LogUtil.registrarError("DESACTIVAR_STOCK_FRAGMENTADO",
+                "Error al desactivar el stock fragmentado del producto: " + idProducto, e);
+            throw e;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+
+    @Override
+    public boolean estaFragmentado(int idProducto) throws SQLException {
+        return registro().containsKey(idProducto);
+    }
+
+    @Override
+    public Map<Integer, Integer> obtenerProductosFragmentados() throws SQLException {
+        return Collections.unmodifiableMap(new HashMap<>(registro()));
+    }
+
+    @Override
+    public void recargar() {
+        CARGA_REGISTRO.lock();
+        try {
+            productosFragmentados = null;
+        } finally {
+            CARGA_REGISTRO.unlock();
+        }
+    }
+
+    @Override
+    public List<Integer> obtenerFragmentos(int idProducto) throws SQLException {
+        try (Connection conn = dbConfig.getConnection()) {
+            return leerFragmentos(conn, idProducto, false);
+        } catch (SQLException e) {
+            LogUtil.registrarError("OBTENER_FRAGMENTOS",
+                "Error al obtener los fragmentos del producto: " + idProducto, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> sumarFragmentos(Collection<Integer> idsProducto) throws SQLException {
+        Map<Integer, Integer> sumas = new HashMap<>();
+        if (idsProducto.isEmpty()) {
+            return sumas;
+        }
+
+        String marcadores = String.join(", ", Collections.nCopies(idsProducto.size(), "?"));
+        String sql = "SELECT id_producto, SUM(stock) AS stock FROM stock_fragmentos " +
+                     "WHERE id_producto IN (" + marcadores + ") GROUP BY id_producto";
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            ConsultaStreaming.asignarParametros(stmt, idsProducto.toArray());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sumas.put(rs.getInt("id_producto"), rs.getInt("stock"));
+                }
+            }
+            return sumas;
+
+        } catch (SQLException e) {
+            LogUtil.registrarError("SUMAR_FRAGMENTOS", "Error al sumar fragmentos de stock", e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int aplicarMovimiento(Connection conn, MovimientoStock movimiento, int reservadoPropio) throws SQLException {
+        int idProducto = movimiento.getIdProducto();
+        int cantidad = movimiento.getCantidad();
+        int stockNuevo;
+
+        if (movimiento.esEntrada()) {
+            // Cualquier fragmento sirve: se reparte la contención entre todos
+            int numFragmentos = registro().getOrDefault(idProducto, 0);
+            if (numFragmentos == 0 || !sumarAFragmento(conn, idProducto,
+                    ThreadLocalRandom.current().nextInt(numFragmentos), cantidad)) {
+                registro().remove(idProducto);
+                throw new SQLException("El producto no tiene stock fragmentado: " + idProducto);
+            }
+            stockNuevo = leerStockTotal(conn, idProducto);
+
+        } else if (movimiento.esSalida()) {
+            // Con el producto bloqueado en modo compartido no puede aparecer ninguna reserva nueva
+            int stockProducto = bloquearProductoCompartido(conn, idProducto);
+            int reservadoAjeno = ReservaStockDAOImpl.cantidadReservadaVigente(conn, idProducto) - reservadoPropio;
+
+            if (reservadoAjeno <= 0 && descontarDeUnFragmento(conn, idProducto, cantidad)) {
+                stockNuevo = leerStockTotal(conn, idProducto);
+            } else {
+                // Ruta lenta: hay reservas vigentes o ningún fragmento cubre la cantidad por sí solo
+                List<Integer> stocks = leerFragmentos(conn, idProducto, true);
+                if (stocks.isEmpty()) {
+                    registro().remove(idProducto);
+                    throw new SQLException("El producto no tiene stock fragmentado: " + idProducto);
+                }
+                Fragmentos fragmentos = new Fragmentos(stockProducto, stocks);
+                comprobarReservado(fragmentos.total(), reservadoAjeno, cantidad);
+                stockNuevo = fragmentos.total() - cantidad;
+                repartir(conn, idProducto, fragmentos, stockNuevo);
+            }
+
+        } else {
+            throw new SQLException("Tipo de movimiento inválido: " + movimiento.getTipoMovimiento());
+        }
+
+        movimiento.setStockNuevo(stockNuevo);
+        movimiento.setStockAnterior(movimiento.esEntrada() ? stockNuevo - cantidad : stockNuevo + cantidad);
+        return stockNuevo;
+    }
+
+    @Override
+    public void establecerStock(Connection conn, int idProducto, int nuevoStock) throws SQLException {
+        if (nuevoStock < 0) {
+            throw new SQLException("El stock no puede ser negativo: " + nuevoStock);
+        }
+        repartir(conn, idProducto, bloquearFragmentos(conn, idProducto), nuevoStock);
+    }
+
+    @Override
+    public int rebalancear(int idProducto) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = dbConfig.getConnectionForTransaction();
+
+            Fragmentos fragmentos = bloquearFragmentos(conn, idProducto);
+            int modificados = repartir(conn, idProducto, fragmentos, fragmentos.total());
+
+            conn.commit();
+
+            LogUtil.registrarOperacionExitosa("REBALANCEAR_STOCK_FRAGMENTADO",
+                String.format("Fragmentos rebalanceados: Producto=%d, Stock=%d, Modificados=%d",
+                    idProducto, fragmentos.total(), modificados));
+            return modificados;
+
+        } catch (SQLException e) {
+            dbConfig.rollback(conn);
+            LogUtil.registrarError("REBALANCEAR_STOCK_FRAGMENTADO",
+                "Error al rebalancear el stock del producto: " + idProducto, e);
+            throw e;
+        } finally {
+            dbConfig.closeConnection(conn);
+        }
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    /**
+     * Comprueba que la salida deja al menos lo reservado por otras reservas (mismo mensaje que
+     * MovimientoStockDAOImpl para los productos sin fragmentar)
+     */
+    private static void comprobarReservado(int stockAnterior, int reservadoAjeno, int cantidad) throws SQLException {
+        int reservado = Math.max(0, reservadoAjeno);
+        if (stockAnterior - cantidad < reservado) {
+            throw new ErrorReglaStock(ErrorReglaStock.Regla.STOCK_INSUFICIENTE,
+                "Stock insuficiente. Disponible: " + Math.max(0, stockAnterior - reservado) +
+                " (reservado: " + reservado + "), Solicitado: " + cantidad);
+        }
+    }
+
+    /**
+     * Intenta descontar la cantidad de un único fragmento elegido al azar entre los que,
+     * según una lectura sin bloqueo, tienen stock suficiente
+     */
+    private boolean descontarDeUnFragmento(Connection conn, int idProducto, int cantidad) throws SQLException {
+        List<Integer> stocks = leerFragmentos(conn, idProducto, false);
+        if (stocks.isEmpty()) {
+            return false;
+        }
+
+        int inicio = ThreadLocalRandom.current().nextInt(stocks.size());
+        for (int i = 0; i < stocks.size(); i++) {
+            int fragmento = (inicio + i) % stocks.size();
+            if (stocks.get(fragmento) >= cantidad) {
+                // Un solo intento: si otro vendedor lo ha vaciado entretanto, pasa a la ruta lenta
+                return descontarDeFragmento(conn, idProducto, fragmento, cantidad);
+            }
+        }
+        return false;
+    }
+
+    private boolean descontarDeFragmento(Connection conn, int idProducto, int fragmento, int cantidad) throws SQLException {
+        String sql = "UPDATE stock_fragmentos SET stock = stock - ? " +
+                     "WHERE id_producto = ? AND fragmento = ? AND stock >= ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, cantidad);
+            stmt.setInt(2, idProducto);
+            stmt.setInt(3, fragmento);
+            stmt.setInt(4, cantidad);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    private boolean sumarAFragmento(Connection conn, int idProducto, int fragmento, int cantidad) throws SQLException {
+        String sql = "UPDATE stock_fragmentos SET stock = stock + ? WHERE id_producto = ? AND fragmento = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, cantidad);
+            stmt.setInt(2, idProducto);
+            stmt.setInt(3, fragmento);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Bloqueo compartido de la fila del producto (compatible con otras salidas, no con
+     * reservar ni con la ruta exclusiva). Devuelve el resto no fragmentado de productos.stock
+     */
+    private int bloquearProductoCompartido(Connection conn, int idProducto) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT stock FROM productos WHERE id_producto = ? LOCK IN SHARE MODE")) {
+            stmt.setInt(1, idProducto);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Producto no existe con ID: " + idProducto);
+                }
+                return rs.getInt("stock");
+            }
+        }
+    }
+
+    /**
+     * Bloquea la fila del producto y después todos sus fragmentos, siempre en ese orden
+     */
+    private Fragmentos bloquearFragmentos(Connection conn, int idProducto) throws SQLException {
+        int stockProducto;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT stock FROM productos WHERE id_producto = ? FOR UPDATE")) {
+            stmt.setInt(1, idProducto);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Producto no existe con ID: " + idProducto);
+                }
+                stockProducto = rs.getInt("stock");
+            }
+        }
+
+        List<Integer> stocks = leerFragmentos(conn, idProducto, true);
+        if (stocks.isEmpty()) {
+            registro().remove(idProducto);
+            throw new SQLException("El producto no tiene stock fragmentado: " + idProducto);
+        }
+        return new Fragmentos(stockProducto, stocks);
+    }
+
+    /**
+     * Reparte nuevoTotal a partes iguales entre los fragmentos bloqueados y deja a 0
+     * el resto no fragmentado de productos.stock. Devuelve las filas modificadas
+     */
+    private int repartir(Connection conn, int idProducto, Fragmentos actuales, int nuevoTotal) throws SQLException {
+        int modificados = 0;
+
+        if (actuales.stockProducto() != 0) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE productos SET stock = 0, version = version + 1 WHERE id_producto = ?")) {
+                stmt.setInt(1, idProducto);
+                stmt.executeUpdate();
+            }
+            modificados++;
+        }
+
+        List<Integer> stocks = actuales.stocks();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE stock_fragmentos SET stock = ? WHERE id_producto = ? AND fragmento = ?")) {
+            for (int fragmento = 0; fragmento < stocks.size(); fragmento++) {
+                int objetivo = cuota(nuevoTotal, stocks.size(), fragmento);
+                if (stocks.get(fragmento) != objetivo) {
+                    stmt.setInt(1, objetivo);
+                    stmt.setInt(2, idProducto);
+                    stmt.setInt(3, fragmento);
+                    stmt.addBatch();
+                    modificados++;
+                }
+            }
+            stmt.executeBatch();
+        }
+        return modificados;
+    }
+
+    private List<Integer> leerFragmentos(Connection conn, int idProducto, boolean bloquear) throws SQLException {
+        String sql = "SELECT stock FROM stock_fragmentos WHERE id_producto = ? ORDER BY fragmento" +
+                     (bloquear ? " FOR UPDATE" : "");
+        List<Integer> stocks = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, idProducto);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    stocks.add(rs.getInt("stock"));
+                }
+            }
+        }
+        return stocks;
+    }
+
+    private int leerStockTotal(Connection conn, int idProducto) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_STOCK_TOTAL)) {
+            stmt.setInt(1, idProducto);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Producto no existe con ID: " + idProducto);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Parte del total que corresponde a un fragmento (el resto va a los primeros)
+     */
+    private static int cuota(int total, int numFragmentos, int fragmento) {
+        return total / numFragmentos + (fragmento < total % numFragmentos ? 1 : 0);
+    }
+
+    private Map<Integer, Integer> registro() {
+        Map<Integer, Integer> registro = productosFragmentados;
+        if (registro == null) {
+            CARGA_REGISTRO.lock();
+            try {
+                registro = productosFragmentados;
+                if (registro == null) {
+                    registro = cargarRegistro();
+                    productosFragmentados = registro;
+                }
+            } finally {
+                CARGA_REGISTRO.unlock();
+            }
+        }
+        return registro;
+    }
+
+    private Map<Integer, Integer> cargarRegistro() {
+        Map<Integer, Integer> registro = new ConcurrentHashMap<>();
+        String sql = "SELECT id_producto, COUNT(*) AS fragmentos FROM stock_fragmentos GROUP BY id_producto";
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                registro.put(rs.getInt("id_producto"), rs.getInt("fragmentos"));
+            }
+
+        } catch (SQLException e) {
+            // Esquema sin stock_fragmentos: ningún producto usa la ruta fragmentada
+            LogUtil.registrarAdvertencia("STOCK_FRAGMENTADO",
+                "No se pudo leer stock_fragmentos, se desactiva la ruta fragmentada: " + e.getMessage());
+        }
+        return registro;
+    }
+}
@@ -0,0 +1,54 @@
+package com.inventario.dao.impl;
+
+import com.inventario.dao.StockFragmentadoDAO;
+
+import java.sql.SQLException;
+
+/**
+ * Utilidad interna de los DAO para las consultas que leen el stock en SQL (valor del inventario,
+ * estadísticas por categoría, informes de stock bajo, exportación en streaming...).
+ *
+ * productos.stock no siempre es el stock real: en un producto fragmentado vale 0 (o solo el
+ * resto no repartido) y el stock está en stock_fragmentos, y en modo libro mayor es una
+ * proyección que solo se refresca al tomar snapshots. En lugar de "productos", esas consultas
+ * leen de origenProductos, que cuando hace falta es una tabla derivada con las mismas columnas,
+ * el stock ya completado y, en modo libro mayor, la versión efectiva (ver LibroStockDAO).
+ */
+final class StockReal {
+
+    // Suma de los fragmentos de cada producto fragmentado
+    private static final String SQL_SUMA_FRAGMENTOS =
+            "SELECT id_producto, SUM(stock) AS stock FROM stock_fragmentos GROUP BY id_producto";
+
+    private StockReal() {}
+
+    /**
+     * Origen de productos para el FROM de una consulta, con el alias indicado (vacío si la consulta
+     * usa el nombre de la tabla). Sin productos fragmentados ni libro mayor es la propia tabla con
+     * la sugerencia de índice; si no, una tabla derivada en la que stock suma los fragmentos o sale
+     * del libro (la sugerencia no aplica: el plan lo deciden los JOIN)
+     */
+    static String origenProductos(StockFragmentadoDAO stockFragmentado, String alias, String indice)
+            throws SQLException {
+        String libro = LibroStockDAOImpl.estaHabilitado() ? LibroStockDAOImpl.consultaStockDerivado() : null;
+        boolean fragmentos = !stockFragmentado.obtenerProductosFragmentados().isEmpty();
+        if (libro == null && !fragmentos) {
+            return "productos" + (alias.isEmpty() ? "" : " " + alias) + indice;
+        }
+
+        // Los productos fragmentados no tienen snapshots: como mucho se aplica uno de los dos JOIN
+        StringBuilder sql = new StringBuilder("(SELECT p.id_producto, p.nombre, p.categoria, p.precio, ");
+        sql.append(libro != null ? "COALESCE(l.stock, p.stock)" : "p.stock");
+        sql.append(fragmentos ? " + COALESCE(f.stock, 0)" : "").append(" AS stock, ");
+        sql.append("p.fecha_creacion, p.fecha_modificacion, ");
+        sql.append(libro != null ? "p.version + COALESCE(l.pendientes, 0)" : "p.version").append(" AS version ");
+        sql.append("FROM productos p");
+        if (fragmentos) {
+            sql.append(" LEFT JOIN (").append(SQL_SUMA_FRAGMENTOS).append(") f ON f.id_producto = p.id_producto");
+        }
+        if (libro != null) {
+            sql.append(" LEFT JOIN (").append(libro).append(") l ON l.id_producto = p.id_producto");
+        }
+        return sql.append(") ").append(alias.isEmpty() ? "productos" : alias).toString();
+    }
+}
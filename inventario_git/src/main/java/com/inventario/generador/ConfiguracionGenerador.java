@@ -0,0 +1,173 @@
+package com.inventario.generador;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Parámetros del generador de datos sintéticos, leídos de la línea de comandos
+ * con la forma --opcion valor (ver {@link #USO})
+ */
+public class ConfiguracionGenerador {
+
+    /** Formatos de salida del generador */
+    public enum Formato { CSV, JSON, XML, BD }
+
+    public static final String USO = String.join("\n",
+        "Uso: GeneradorDatosSinteticos [opciones]",
+        "  --productos N       número de productos (por defecto 100000)",
+        "  --movimientos N     número aproximado de movimientos (por defecto 1000000, máx. " + Integer.MAX_VALUE + ")",
+        "  --categorias N      número de categorías (por defecto 10)",
+        "  --zipf S            exponente de popularidad de Zipf; 0 = uniforme (por defecto 1.0)",
+        "  --salidas P         proporción de movimientos de SALIDA entre 0 y 1 (por defecto 0.8)",
+        "  --temporal T        UNIFORME, CRECIENTE o RECIENTE (por defecto UNIFORME)",
+        "  --desde AAAA-MM-DD  inicio del periodo de los movimientos (por defecto hace un año)",
+        "  --hasta AAAA-MM-DD  fin del periodo, excluido (por defecto hoy)",
+        "  --semilla N         semilla: los mismos parámetros generan los mismos datos (por defecto 42)",
+        "  --hilos N           hilos de generación (por defecto, los procesadores disponibles)",
+        "  --formatos LISTA    csv, json, xml y/o bd separados por comas (por defecto csv)",
+        "  --salida DIR        directorio de los archivos generados (por defecto data/sintetico)",
+        "  --limpiar           con bd: vacía antes las tablas de productos y movimientos");
+
+    private int numProductos = 100_000;
+    private long numMovimientos = 1_000_000;
+    private int numCategorias = 10;
+    private double exponenteZipf = 1.0;
+    private double proporcionSalidas = 0.8;
+    private DistribucionTemporal distribucionTemporal = DistribucionTemporal.UNIFORME;
+    private LocalDate desde;
+    private LocalDate hasta;
+    private long semilla = 42;
+    private int hilos = Runtime.getRuntime().availableProcessors();
+    private Set<Formato> formatos = EnumSet.of(Formato.CSV);
+    private Path directorioSalida = Paths.get("data", "sintetico");
+    private boolean limpiarTablas;
+
+    /**
+     * Lee la configuración de los argumentos del programa.
+     * Lanza IllegalArgumentException si alguna opción no es válida
+     */
+    public static ConfiguracionGenerador desdeArgumentos(String[] args) {
+        ConfiguracionGenerador config = new ConfiguracionGenerador();
+        for (int i = 0; i < args.length; i++) {
+            String opcion = args[i];
+            if ("--limpiar".equals(opcion)) {
+                config.limpiarTablas = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Falta el valor de la opción " + opcion);
+            }
+            String valor = args[++i].trim();
+            try {
+                switch (opcion) {
+                    case "--productos" -> config.numProductos = Integer.parseInt(valor);
+                    case "--movimientos" -> config.numMovimientos = Long.parseLong(valor);
+                    case "--categorias" -> config.numCategorias = Integer.parseInt(valor);
+                    case "--zipf" -> config.exponenteZipf = Double.parseDouble(valor);
+                    case "--salidas" -> config.proporcionSalidas = Double.parseDouble(valor);
+                    case "--temporal" -> config.distribucionTemporal =
+                        DistribucionTemporal.valueOf(valor.toUpperCase(Locale.ROOT));
+                    case "--desde" -> config.desde = LocalDate.parse(valor);
+                    case "--hasta" -> config.hasta = LocalDate.parse(valor);
+                    case "--semilla" -> config.semilla = Long.parseLong(valor);
+                    case "--hilos" -> config.hilos = Integer.parseInt(valor);
+                    case "--formatos" -> config.formatos = parsearFormatos(valor);
+                    case "--salida" -> config.directorioSalida = Paths.get(valor);
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + opcion);
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Valor inválido para " + opcion + ": '" + valor + "'", e);
+            }
+        }
+        config.validar();
+        return config;
+    }
+
+    private static Set<Formato> parsearFormatos(String valor) {
+        Set<Formato> formatos = EnumSet.noneOf(Formato.class);
+        for (String formato : valor.split(",")) {
+            formatos.add(Formato.valueOf(formato.trim().toUpperCase(Locale.ROOT)));
+        }
+        return formatos;
+    }
+
+    private void validar() {
+        if (hasta == null) {
+            hasta = LocalDate.now();
+        }
+        if (desde == null) {
+            desde = hasta.minusYears(1);
+        }
+        if (numProductos <= 0 || numCategorias <= 0 || numMovimientos < 0 || numMovimientos > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Volumen inválido: productos=" + numProductos +
+                ", categorías=" + numCategorias + ", movimientos=" + numMovimientos);
+        }
+        if (exponenteZipf < 0 || proporcionSalidas < 0 || proporcionSalidas > 1) {
+            throw new IllegalArgumentException("Distribución inválida: zipf=" + exponenteZipf +
+                ", salidas=" + proporcionSalidas);
+        }
+        if (!desde.isBefore(hasta)) {
+            throw new IllegalArgumentException("El periodo debe tener al menos un día: " + desde + " - " + hasta);
+        }
+        if (hilos <= 0 || formatos.isEmpty()) {
+            throw new IllegalArgumentException("Se necesita al menos un hilo y un formato de salida");
+        }
+    }
+
+    public int getNumProductos() {
+        return numProductos;
+    }
+
+    public long getNumMovimientos() {
+        return numMovimientos;
+    }
+
+    public int getNumCategorias() {
+        return numCategorias;
+    }
+
+    public double getExponenteZipf() {
+        return exponenteZipf;
+    }
+
+    public double getProporcionSalidas() {
+        return proporcionSalidas;
+    }
+
+    public DistribucionTemporal getDistribucionTemporal() {
+        return distribucionTemporal;
+    }
+
+    public LocalDate getDesde() {
+        return desde;
+    }
+
+    public LocalDate getHasta() {
+        return hasta;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public int getHilos() {
+        return hilos;
+    }
+
+    public Set<Formato> getFormatos() {
+        return formatos;
+    }
+
+    public Path getDirectorioSalida() {
+        return directorioSalida;
+    }
+
+    public boolean isLimpiarTablas() {
+        return limpiarTablas;
+    }
+}
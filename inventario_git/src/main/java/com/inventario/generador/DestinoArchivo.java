@@ -0,0 +1,130 @@
+package com.inventario.generador;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Base de los destinos de archivo.
+ *
+ * Cada bloque escribe sus propias partes en un directorio temporal junto a los archivos finales,
+ * sin compartir nada con los demás hilos. Al finalizar se concatenan las partes en el orden
+ * de los bloques (FileChannel.transferTo, sin pasar por el heap) entre la cabecera y el pie del formato.
+ */
+abstract class DestinoArchivo implements DestinoDatos {
+    private static final int TAMANO_BUFFER = 1 << 16;
+
+    protected final Path directorio;
+    private final Path directorioPartes;
+    private int numBloques;
+
+    protected DestinoArchivo(Path directorio, String formato) {
+        this.directorio = directorio;
+        this.directorioPartes = directorio.resolve(".partes-" + formato);
+    }
+
+    /**
+     * Crea los directorios de salida y de partes. Las subclases lo llaman desde iniciar
+     */
+    protected void prepararPartes(int numBloques) throws IOException {
+        this.numBloques = numBloques;
+        Files.createDirectories(directorioPartes);
+    }
+
+    protected Writer abrirParte(String nombre, int bloque) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+            Files.newOutputStream(parte(nombre, bloque)), StandardCharsets.UTF_8), TAMANO_BUFFER);
+    }
+
+    /**
+     * Cierra una parte de un bloque abortado: el error original es el que importa
+     */
+    protected static void cerrarSinErrores(Writer parte) {
+        try {
+            parte.close();
+        } catch (IOException e) {
+            // Se ignora: la generación ya ha fallado
+        }
+    }
+
+    /**
+     * Escribe un segmento fijo del archivo final (cabecera, separadores, pie)
+     */
+    protected static void anexarTexto(FileChannel salida, String texto) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(texto.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            salida.write(buffer);
+        }
+    }
+
+    /**
+     * Añade al archivo final las partes con ese nombre en el orden de los bloques y las borra
+     */
+    protected void anexarPartes(FileChannel salida, String nombre) throws IOException {
+        for (int bloque = 0; bloque < numBloques; bloque++) {
+            Path parte = parte(nombre, bloque);
+            try (FileChannel entrada = FileChannel.open(parte, StandardOpenOption.READ)) {
+                long posicion = 0;
+                long tamano = entrada.size();
+                while (posicion < tamano) {
+                    posicion += entrada.transferTo(posicion, tamano - posicion, salida);
+                }
+            }
+            Files.delete(parte);
+        }
+    }
+
+    protected FileChannel abrirArchivoFinal(Path archivo) throws IOException {
+        return FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Elimina el directorio de partes (ya vacío tras ensamblar)
+     */
+    protected void borrarPartes() throws IOException {
+        try (Stream<Path> restantes = Files.list(directorioPartes)) {
+            for (Path parte : (Iterable<Path>) restantes::iterator) {
+                Files.delete(parte);
+            }
+        }
+        Files.delete(directorioPartes);
+    }
+
+    private Path parte(String nombre, int bloque) {
+        return directorioPartes.resolve(String.format("%s-%06d", nombre, bloque));
+    }
+
+    /**
+     * Fecha en formato ISO (yyyy-MM-ddTHH:mm:ss) sin pasar por DateTimeFormatter,
+     * que sería el coste dominante con cientos de millones de movimientos
+     */
+    protected static void anexarFecha(StringBuilder destino, LocalDateTime fecha) {
+        destino.append(fecha.getYear()).append('-');
+        anexarDosDigitos(destino, fecha.getMonthValue());
+        destino.append('-');
+        anexarDosDigitos(destino, fecha.getDayOfMonth());
+        destino.append('T');
+        anexarDosDigitos(destino, fecha.getHour());
+        destino.append(':');
+        anexarDosDigitos(destino, fecha.getMinute());
+        destino.append(':');
+        anexarDosDigitos(destino, fecha.getSecond());
+    }
+
+    private static void anexarDosDigitos(StringBuilder destino, int valor) {
+        if (valor < 10) {
+            destino.append('0');
+        }
+        destino.append(valor);
+    }
+}
@@ -0,0 +1,226 @@
+package com.inventario.generador;
+
+import com.inventario.model.Categoria;
+import com.inventario.model.MovimientoStock;
+import com.inventario.model.Producto;
+import com.inventario.util.DatabaseConfig;
+import com.inventario.util.LogUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Carga masiva directa en el esquema, con los mismos IDs que los archivos generados.
+ *
+ * Cada bloque usa su propia conexión y transacción e inserta con sentencias de varias filas
+ * (INSERT ... VALUES (...), (...)), que evitan un viaje de red por fila sin depender de
+ * rewriteBatchedStatements. Las comprobaciones de claves foráneas y de unicidad se desactivan
+ * en esas sesiones: los datos generados ya son coherentes.
+ *
+ * productos.stock queda con el stock final y no se crean snapshots, así que el resultado
+ * es válido tanto en el modo normal como en el modo libro mayor.
+ */
+class DestinoBaseDatos implements DestinoDatos {
+    private static final int FILAS_POR_SENTENCIA = 1000;
+    private static final int FILAS_POR_COMMIT = 50_000;
+
+    private static final String INSERT_PRODUCTOS =
+        "INSERT INTO productos (id_producto, nombre, categoria, precio, stock, fecha_creacion, fecha_modificacion) VALUES ";
+    private static final int COLUMNAS_PRODUCTOS = 7;
+    private static final String INSERT_MOVIMIENTOS =
+        "INSERT INTO movimientos_stock (id_movimiento, id_producto, tipo_movimiento, cantidad, stock_anterior, " +
+        "stock_nuevo, motivo, fecha_movimiento, usuario) VALUES ";
+    private static final int COLUMNAS_MOVIMIENTOS = 9;
+
+    private final DatabaseConfig dbConfig;
+    private final boolean limpiar;
+
+    DestinoBaseDatos(boolean limpiar) {
+        this.dbConfig = DatabaseConfig.getInstance();
+        this.limpiar = limpiar;
+    }
+
+    @Override
+    public String descripcion() {
+        return "base de datos " + dbConfig.getConnectionUrl();
+    }
+
+    @Override
+    public void iniciar(List<Categoria> categorias, int numBloques) throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            if (limpiar) {
+                stmt.execute("SET SESSION foreign_key_checks = 0");
+                for (String tabla : new String[] {"snapshots_stock", "reservas_stock", "stock_fragmentos",
+                                                  "movimientos_stock", "productos"}) {
+                    stmt.execute("TRUNCATE TABLE " + tabla);
+                }
+                stmt.execute("SET SESSION foreign_key_checks = 1");
+                LogUtil.registrarAdvertencia("GENERADOR_BD", "Tablas de productos y movimientos vaciadas antes de la carga");
+            } else {
+                try (ResultSet rs = stmt.executeQuery("SELECT EXISTS (SELECT 1 FROM productos)")) {
+                    rs.next();
+                    if (rs.getBoolean(1)) {
+                        throw new IllegalStateException(
+                            "La tabla productos no está vacía: usa --limpiar para sustituir su contenido");
+                    }
+                }
+            }
+
+            // Las categorías por defecto de 01-init.sql ya existen: se conservan
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT IGNORE INTO categorias (nombre, descripcion) VALUES (?, ?)")) {
+                for (Categoria categoria : categorias) {
+                    insert.setString(1, categoria.getNombre());
+                    insert.setString(2, categoria.getDescripcion());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    @Override
+    public Bloque abrirBloque(int indice) throws SQLException {
+        Connection conn = dbConfig.getConnectionForTransaction();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET SESSION foreign_key_checks = 0, unique_checks = 0");
+        } catch (SQLException e) {
+            dbConfig.closeConnection(conn);
+            throw e;
+        }
+
+        InsercionMultiple productos = new InsercionMultiple(conn, INSERT_PRODUCTOS, COLUMNAS_PRODUCTOS);
+        InsercionMultiple movimientos = new InsercionMultiple(conn, INSERT_MOVIMIENTOS, COLUMNAS_MOVIMIENTOS);
+
+        return new Bloque() {
+            private int filasSinConfirmar;
+
+            @Override
+            public void escribirMovimiento(MovimientoStock movimiento) throws SQLException {
+                movimientos.agregar(movimiento.getIdMovimiento(), movimiento.getIdProducto(),
+                    movimiento.getTipoMovimiento(), movimiento.getCantidad(), movimiento.getStockAnterior(),
+                    movimiento.getStockNuevo(), movimiento.getMotivo(),
+                    Timestamp.valueOf(movimiento.getFechaMovimiento()), movimiento.getUsuario());
+                filaEscrita();
+            }
+
+            @Override
+            public void escribirProducto(Producto producto, int stockInicial) throws SQLException {
+                productos.agregar(producto.getIdProducto(), producto.getNombre(), producto.getCategoria(),
+                    producto.getPrecio(), producto.getStock(), Timestamp.valueOf(producto.getFechaCreacion()),
+                    Timestamp.valueOf(producto.getFechaModificacion()));
+                filaEscrita();
+            }
+
+            private void filaEscrita() throws SQLException {
+                if (++filasSinConfirmar >= FILAS_POR_COMMIT) {
+                    productos.volcar();
+                    movimientos.volcar();
+                    conn.commit();
+                    filasSinConfirmar = 0;
+                }
+            }
+
+            @Override
+            public void cerrar() throws SQLException {
+                try {
+                    productos.volcar();
+                    movimientos.volcar();
+                    conn.commit();
+                } finally {
+                    productos.cerrar();
+                    movimientos.cerrar();
+                    dbConfig.closeConnection(conn);
+                }
+            }
+
+            @Override
+            public void abortar() {
+                dbConfig.rollback(conn);
+                productos.cerrar();
+                movimientos.cerrar();
+                dbConfig.closeConnection(conn);
+            }
+        };
+    }
+
+    @Override
+    public void finalizar(long totalProductos, long totalMovimientos) throws SQLException {
+        try (Connection conn = dbConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            // Estadísticas al día para que el optimizador elija bien los índices con el nuevo volumen
+            stmt.execute("ANALYZE TABLE productos, movimientos_stock");
+        }
+        LogUtil.registrarOperacionExitosa("GENERADOR_BD",
+            "Carga masiva completada: " + totalProductos + " productos y " + totalMovimientos + " movimientos");
+    }
+
+    /**
+     * Acumula filas y las inserta de FILAS_POR_SENTENCIA en FILAS_POR_SENTENCIA con una sentencia
+     * preparada de varias filas (la del resto final se prepara aparte)
+     */
+    private static class InsercionMultiple {
+        private final Connection conn;
+        private final String cabecera;
+        private final int columnas;
+        private final Object[] valores;
+        private int filas;
+        private PreparedStatement completa;
+
+        InsercionMultiple(Connection conn, String cabecera, int columnas) {
+            this.conn = conn;
+            this.cabecera = cabecera;
+            this.columnas = columnas;
+            this.valores = new Object[FILAS_POR_SENTENCIA * columnas];
+        }
+
+        void agregar(Object... fila) throws SQLException {
+            System.arraycopy(fila, 0, valores, filas * columnas, columnas);
+            if (++filas == FILAS_POR_SENTENCIA) {
+                if (completa == null) {
+                    completa = conn.prepareStatement(sql(FILAS_POR_SENTENCIA));
+                }
+                ejecutar(completa, FILAS_POR_SENTENCIA);
+            }
+        }
+
+        void volcar() throws SQLException {
+            if (filas > 0) {
+                try (PreparedStatement resto = conn.prepareStatement(sql(filas))) {
+                    ejecutar(resto, filas);
+                }
+            }
+        }
+
+        void cerrar() {
+            if (completa != null) {
+                try {
+                    completa.close();
+                } catch (SQLException e) {
+                    // La conexión se cierra a continuación
+                }
+            }
+        }
+
+        private void ejecutar(PreparedStatement stmt, int numFilas) throws SQLException {
+            for (int i = 0; i < numFilas * columnas; i++) {
+                stmt.setObject(i + 1, valores[i]);
+                valores[i] = null;
+            }
+            stmt.executeUpdate();
+            filas = 0;
+        }
+
+        private String sql(int numFilas) {
+            String fila = "(" + String.join(", ", Collections.nCopies(columnas, "?")) + ")";
+            return cabecera + String.join(", ", Collections.nCopies(numFilas, fila));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.inventario.generador;
+
+import com.inventario.model.Categoria;
+import com.inventario.model.MovimientoStock;
+import com.inventario.model.Producto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Archivos CSV con los formatos de data/: categorias.csv y productos.csv con punto y coma
+ * (CsvUtil) y movimientos.csv con comas (ImportadorMovimientosCSV).
+ *
+ * productos.csv lleva el stock inicial de cada producto: importar los productos en una base
+ * vacía y después movimientos.csv reproduce el stock final de los demás formatos.
+ */
+class DestinoCSV extends DestinoArchivo {
+    private static final String CABECERA_PRODUCTOS = "id_producto;nombre;categoria;precio;stock\n";
+    private static final String CABECERA_MOVIMIENTOS = "id_producto,tipo_movimiento,cantidad,motivo,usuario\n";
+
+    DestinoCSV(Path directorio) {
+        super(directorio, "csv");
+    }
+
+    @Override
+    public String descripcion() {
+        return directorio.resolve("{categorias,productos,movimientos}.csv").toString();
+    }
+
+    @Override
+    public void iniciar(List<Categoria> categorias, int numBloques) throws IOException {
+        prepararPartes(numBloques);
+        try (Writer escritor = Files.newBufferedWriter(directorio.resolve("categorias.csv"), StandardCharsets.UTF_8)) {
+            escritor.write("id_categoria;nombre;descripcion\n");
+            for (Categoria categoria : categorias) {
+                escritor.write(categoria.getIdCategoria() + ";" + categoria.getNombre() + ";" +
+                    categoria.getDescripcion() + "\n");
+            }
+        }
+    }
+
+    @Override
+    public Bloque abrirBloque(int indice) throws IOException {
+        Writer productos = abrirParte("productos", indice);
+        Writer movimientos = abrirParte("movimientos", indice);
+        StringBuilder linea = new StringBuilder(128);
+
+        return new Bloque() {
+            @Override
+            public void escribirMovimiento(MovimientoStock movimiento) throws IOException {
+                linea.setLength(0);
+                linea.append(movimiento.getIdProducto()).append(',')
+                     .append(movimiento.getTipoMovimiento()).append(',')
+                     .append(movimiento.getCantidad()).append(',')
+                     .append(movimiento.getMotivo()).append(',')
+                     .append(movimiento.getUsuario()).append('\n');
+                movimientos.append(linea);
+            }
+
+            @Override
+            public void escribirProducto(Producto producto, int stockInicial) throws IOException {
+                linea.setLength(0);
+                linea.append(producto.getIdProducto()).append(';')
+                     .append(producto.getNombre()).append(';')
+                     .append(producto.getCategoria()).append(';')
+                     .append(producto.getPrecio().toPlainString()).append(';')
+                     .append(stockInicial).append('\n');
+                productos.append(linea);
+            }
+
+            @Override
+            public void cerrar() throws IOException {
+                try (productos; movimientos) {
+                    // Solo cierra ambos escritores aunque falle uno
+                }
+            }
+
+            @Override
+            public void abortar() {
+                cerrarSinErrores(productos);
+                cerrarSinErrores(movimientos);
+            }
+        };
+    }
+
+    @Override
+    public void finalizar(long totalProductos, long totalMovimientos) throws IOException {
+        try (FileChannel salida = abrirArchivoFinal(directorio.resolve("productos.csv"))) {
+            anexarTexto(salida, CABECERA_PRODUCTOS);
+            anexarPartes(salida, "productos");
+        }
+        try (FileChannel salida = abrirArchivoFinal(directorio.resolve("movimientos.csv"))) {
+            anexarTexto(salida, CABECERA_MOVIMIENTOS);
+            anexarPartes(salida, "movimientos");
+        }
+        borrarPartes();
+    }
+}
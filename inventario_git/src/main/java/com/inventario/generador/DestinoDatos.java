@@ -0,0 +1,61 @@
+package com.inventario.generador;
+
+import com.inventario.model.Categoria;
+import com.inventario.model.MovimientoStock;
+import com.inventario.model.Producto;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Destino de los datos generados (un formato de archivo o la base de datos).
+ *
+ * Los productos se generan en bloques independientes que se escriben en paralelo,
+ * cada uno desde un solo hilo. El destino recibe primero las categorías, después los
+ * bloques en cualquier orden y por último la llamada a finalizar, que debe dejar la salida
+ * como si los bloques se hubieran escrito en orden.
+ */
+interface DestinoDatos {
+
+    /**
+     * Prepara el destino y escribe las categorías
+     */
+    void iniciar(List<Categoria> categorias, int numBloques) throws IOException, SQLException;
+
+    /**
+     * Abre el bloque indicado. Sus métodos solo se llaman desde un hilo
+     */
+    Bloque abrirBloque(int indice) throws IOException, SQLException;
+
+    /**
+     * Completa la salida una vez cerrados todos los bloques
+     */
+    void finalizar(long totalProductos, long totalMovimientos) throws IOException, SQLException;
+
+    /**
+     * Nombre del destino para los mensajes de progreso (archivo o base de datos)
+     */
+    String descripcion();
+
+    /**
+     * Escritura de un bloque de productos y de sus movimientos.
+     * Cada producto se recibe después de sus movimientos: su stock final depende de ellos.
+     * El stock del producto es el final; stockInicial es el que tenía antes del primer movimiento
+     */
+    interface Bloque {
+        void escribirMovimiento(MovimientoStock movimiento) throws IOException, SQLException;
+
+        void escribirProducto(Producto producto, int stockInicial) throws IOException, SQLException;
+
+        /**
+         * Completa el bloque: vuelca lo pendiente y confirma lo escrito
+         */
+        void cerrar() throws IOException, SQLException;
+
+        /**
+         * Libera el bloque tras un error descartando lo pendiente. No lanza excepciones
+         */
+        void abortar();
+    }
+}
@@ -0,0 +1,112 @@
+package com.inventario.generador;
+
+import com.inventario.model.Categoria;
+import com.inventario.model.MovimientoStock;
+import com.inventario.model.Producto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * productos.json con la estructura de JsonUtil.exportarProductos (fecha_exportacion,
+ * productos y total_productos), legible con JsonUtil.importarProductos.
+ *
+ * Cada producto ocupa una línea precedida del separador, salvo el primero del bloque 0
+ * (los bloques nunca están vacíos), así que las partes se concatenan tal cual.
+ */
+class DestinoJSON extends DestinoArchivo {
+
+    DestinoJSON(Path directorio) {
+        super(directorio, "json");
+    }
+
+    @Override
+    public String descripcion() {
+        return directorio.resolve("productos.json").toString();
+    }
+
+    @Override
+    public void iniciar(List<Categoria> categorias, int numBloques) throws IOException {
+        prepararPartes(numBloques);
+    }
+
+    @Override
+    public Bloque abrirBloque(int indice) throws IOException {
+        Writer productos = abrirParte("productos", indice);
+        StringBuilder linea = new StringBuilder(256);
+
+        return new Bloque() {
+            private boolean primero = indice == 0;
+
+            @Override
+            public void escribirMovimiento(MovimientoStock movimiento) {
+                // El formato JSON del proyecto solo contiene productos
+            }
+
+            @Override
+            public void escribirProducto(Producto producto, int stockInicial) throws IOException {
+                linea.setLength(0);
+                linea.append(primero ? "\n  " : ",\n  ").append("{\"id_producto\":").append(producto.getIdProducto())
+                     .append(",\"nombre\":");
+                anexarCadena(linea, producto.getNombre());
+                linea.append(",\"categoria\":");
+                anexarCadena(linea, producto.getCategoria());
+                linea.append(",\"precio\":").append(producto.getPrecio().toPlainString())
+                     .append(",\"stock\":").append(producto.getStock())
+                     .append(",\"fecha_creacion\":\"");
+                anexarFecha(linea, producto.getFechaCreacion());
+                linea.append("\",\"fecha_modificacion\":\"");
+                anexarFecha(linea, producto.getFechaModificacion());
+                linea.append("\",\"version\":").append(producto.getVersion()).append('}');
+                productos.append(linea);
+                primero = false;
+            }
+
+            @Override
+            public void cerrar() throws IOException {
+                productos.close();
+            }
+
+            @Override
+            public void abortar() {
+                cerrarSinErrores(productos);
+            }
+        };
+    }
+
+    @Override
+    public void finalizar(long totalProductos, long totalMovimientos) throws IOException {
+        try (FileChannel salida = abrirArchivoFinal(directorio.resolve("productos.json"))) {
+            anexarTexto(salida, "{\n\"fecha_exportacion\":\"" +
+                LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "\",\n\"productos\":[");
+            anexarPartes(salida, "productos");
+            anexarTexto(salida, "\n],\n\"total_productos\":" + totalProductos + "\n}\n");
+        }
+        borrarPartes();
+    }
+
+    private static void anexarCadena(StringBuilder destino, String valor) {
+        destino.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> destino.append("\\\"");
+                case '\\' -> destino.append("\\\\");
+                case '\n' -> destino.append("\\n");
+                default -> {
+                    if (c < 0x20) {
+                        destino.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        destino.append(c);
+                    }
+                }
+            }
+        }
+        destino.append('"');
+    }
+}
@@ -0,0 +1,145 @@
+package com.inventario.generador;
+
+import com.inventario.model.Categoria;
+import com.inventario.model.MovimientoStock;
+import com.inventario.model.Producto;
+import com.inventario.xml.XMLManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * inventario.xml con la estructura de XMLManager.exportarInventarioXML, válido contra
+ * inventario.xsd: categorías, productos (con su stock final) y movimientos.
+ * Cada producto y cada movimiento ocupa una línea para que el archivo no crezca con la indentación.
+ */
+class DestinoXML extends DestinoArchivo {
+    private final StringBuilder categoriasXML = new StringBuilder();
+
+    DestinoXML(Path directorio) {
+        super(directorio, "xml");
+    }
+
+    @Override
+    public String descripcion() {
+        return directorio.resolve("inventario.xml").toString();
+    }
+
+    @Override
+    public void iniciar(List<Categoria> categorias, int numBloques) throws IOException {
+        prepararPartes(numBloques);
+        categoriasXML.append("    <categorias>\n");
+        for (Categoria categoria : categorias) {
+            categoriasXML.append("        <categoria><idCategoria>").append(categoria.getIdCategoria())
+                         .append("</idCategoria><nombre>");
+            anexarEscapado(categoriasXML, categoria.getNombre());
+            categoriasXML.append("</nombre><descripcion>");
+            anexarEscapado(categoriasXML, categoria.getDescripcion());
+            categoriasXML.append("</descripcion><fechaCreacion>");
+            anexarFecha(categoriasXML, categoria.getFechaCreacion());
+            categoriasXML.append("</fechaCreacion><fechaModificacion>");
+            anexarFecha(categoriasXML, categoria.getFechaModificacion());
+            categoriasXML.append("</fechaModificacion></categoria>\n");
+        }
+        categoriasXML.append("    </categorias>\n");
+    }
+
+    @Override
+    public Bloque abrirBloque(int indice) throws IOException {
+        Writer productos = abrirParte("productos", indice);
+        Writer movimientos = abrirParte("movimientos", indice);
+        StringBuilder linea = new StringBuilder(512);
+
+        return new Bloque() {
+            @Override
+            public void escribirMovimiento(MovimientoStock movimiento) throws IOException {
+                linea.setLength(0);
+                linea.append("        <movimiento><idMovimiento>").append(movimiento.getIdMovimiento())
+                     .append("</idMovimiento><idProducto>").append(movimiento.getIdProducto())
+                     .append("</idProducto><tipoMovimiento>").append(movimiento.getTipoMovimiento())
+                     .append("</tipoMovimiento><cantidad>").append(movimiento.getCantidad())
+                     .append("</cantidad><stockAnterior>").append(movimiento.getStockAnterior())
+                     .append("</stockAnterior><stockNuevo>").append(movimiento.getStockNuevo())
+                     .append("</stockNuevo><motivo>");
+                anexarEscapado(linea, movimiento.getMotivo());
+                linea.append("</motivo><fechaMovimiento>");
+                anexarFecha(linea, movimiento.getFechaMovimiento());
+                linea.append("</fechaMovimiento><usuario>");
+                anexarEscapado(linea, movimiento.getUsuario());
+                linea.append("</usuario></movimiento>\n");
+                movimientos.append(linea);
+            }
+
+            @Override
+            public void escribirProducto(Producto producto, int stockInicial) throws IOException {
+                linea.setLength(0);
+                linea.append("        <producto><idProducto>").append(producto.getIdProducto())
+                     .append("</idProducto><nombre>");
+                anexarEscapado(linea, producto.getNombre());
+                linea.append("</nombre><categoria>");
+                anexarEscapado(linea, producto.getCategoria());
+                linea.append("</categoria><precio>").append(producto.getPrecio().toPlainString())
+                     .append("</precio><stock>").append(producto.getStock())
+                     .append("</stock><fechaCreacion>");
+                anexarFecha(linea, producto.getFechaCreacion());
+                linea.append("</fechaCreacion><fechaModificacion>");
+                anexarFecha(linea, producto.getFechaModificacion());
+                linea.append("</fechaModificacion></producto>\n");
+                productos.append(linea);
+            }
+
+            @Override
+            public void cerrar() throws IOException {
+                try (productos; movimientos) {
+                    // Solo cierra ambos escritores aunque falle uno
+                }
+            }
+
+            @Override
+            public void abortar() {
+                cerrarSinErrores(productos);
+                cerrarSinErrores(movimientos);
+            }
+        };
+    }
+
+    @Override
+    public void finalizar(long totalProductos, long totalMovimientos) throws IOException {
+        StringBuilder cabecera = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n")
+            .append("<inventario xmlns=\"").append(XMLManager.NAMESPACE_URI).append("\" fechaExportacion=\"");
+        anexarFecha(cabecera, LocalDateTime.now());
+        cabecera.append("\" version=\"").append(XMLManager.VERSION).append("\">\n")
+                .append(categoriasXML)
+                .append("    <productos>\n");
+
+        try (FileChannel salida = abrirArchivoFinal(directorio.resolve("inventario.xml"))) {
+            anexarTexto(salida, cabecera.toString());
+            anexarPartes(salida, "productos");
+            // El XSD exige al menos un movimiento si aparece el elemento <movimientos>
+            if (totalMovimientos > 0) {
+                anexarTexto(salida, "    </productos>\n    <movimientos>\n");
+                anexarPartes(salida, "movimientos");
+                anexarTexto(salida, "    </movimientos>\n</inventario>\n");
+            } else {
+                anexarTexto(salida, "    </productos>\n</inventario>\n");
+            }
+        }
+        borrarPartes();
+    }
+
+    private static void anexarEscapado(StringBuilder destino, String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '&' -> destino.append("&amp;");
+                case '<' -> destino.append("&lt;");
+                case '>' -> destino.append("&gt;");
+                default -> destino.append(c);
+            }
+        }
+    }
+}
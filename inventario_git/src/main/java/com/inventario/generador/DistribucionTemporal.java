@@ -0,0 +1,39 @@
+package com.inventario.generador;
+
+/**
+ * Reparto de los movimientos generados dentro del periodo [desde, hasta).
+ *
+ * Cada distribución transforma una posición uniforme en [0, 1) en una posición del periodo
+ * mediante su función de distribución inversa, que es creciente: posiciones ordenadas
+ * dan fechas ordenadas.
+ */
+public enum DistribucionTemporal {
+    /** Actividad constante durante todo el periodo */
+    UNIFORME {
+        @Override
+        public double inversa(double u) {
+            return u;
+        }
+    },
+    /** La actividad crece de forma lineal: el final del periodo tiene el doble que la media */
+    CRECIENTE {
+        @Override
+        public double inversa(double u) {
+            return Math.sqrt(u);
+        }
+    },
+    /** La actividad se concentra en las últimas semanas (crecimiento exponencial) */
+    RECIENTE {
+        private static final double TASA = 5.0;
+
+        @Override
+        public double inversa(double u) {
+            return Math.log1p(u * Math.expm1(TASA)) / TASA;
+        }
+    };
+
+    /**
+     * Posición en [0, 1) del periodo para una posición uniforme u en [0, 1)
+     */
+    public abstract double inversa(double u);
+}
@@ -0,0 +1,139 @@
+package com.inventario.generador;
+
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+
+/**
+ * Popularidad de productos según una ley de Zipf: el producto de rango r recibe una fracción
+ * de la actividad proporcional a 1 / r^exponente (exponente 0 = todos igual de populares).
+ *
+ * Los rangos se reparten entre los IDs con una permutación fija (multiplicación modular),
+ * de modo que los productos más populares no son simplemente los primeros IDs de la tabla.
+ * El muestreo usa el método de rechazo-inversión de Hörmann y Derflinger: coste constante
+ * por muestra sin tablas, apto para millones de productos.
+ */
+public class DistribucionZipf {
+    private static final double PROPORCION_AUREA = 0.6180339887498949;
+
+    private final int numElementos;
+    private final double exponente;
+    private final double normalizacion;
+
+    // Permutación rango -> ID: id - 1 = ((rango - 1) * multiplicador + desplazamiento) mod n
+    private final long multiplicador;
+    private final long multiplicadorInverso;
+    private final long desplazamiento;
+
+    // Constantes del muestreo por rechazo-inversión
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double umbral;
+
+    public DistribucionZipf(int numElementos, double exponente) {
+        if (numElementos <= 0) {
+            throw new IllegalArgumentException("El número de elementos debe ser positivo: " + numElementos);
+        }
+        if (exponente < 0 || Double.isNaN(exponente)) {
+            throw new IllegalArgumentException("El exponente de Zipf no puede ser negativo: " + exponente);
+        }
+        this.numElementos = numElementos;
+        this.exponente = exponente;
+
+        // Suma secuencial: el mismo resultado en cada ejecución para los mismos parámetros
+        double suma = 0;
+        for (int rango = numElementos; rango >= 1; rango--) {
+            suma += h(rango);
+        }
+        this.normalizacion = suma;
+
+        long candidato = Math.max(1, (long) (numElementos * PROPORCION_AUREA));
+        while (BigInteger.valueOf(candidato).gcd(BigInteger.valueOf(numElementos)).intValue() != 1) {
+            candidato++;
+        }
+        this.multiplicador = candidato % numElementos;
+        this.multiplicadorInverso = numElementos == 1 ? 0 :
+            BigInteger.valueOf(multiplicador).modInverse(BigInteger.valueOf(numElementos)).longValue();
+        this.desplazamiento = numElementos / 3;
+
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralN = hIntegral(numElementos + 0.5);
+        this.umbral = 2.0 - hIntegralInversa(hIntegral(2.5) - h(2.0));
+    }
+
+    public int getNumElementos() {
+        return numElementos;
+    }
+
+    public double getExponente() {
+        return exponente;
+    }
+
+    /**
+     * Fracción de la actividad total que corresponde al rango indicado (1 = el más popular)
+     */
+    public double probabilidad(int rango) {
+        return h(rango) / normalizacion;
+    }
+
+    /**
+     * Devuelve un rango entre 1 y n con la distribución de Zipf
+     */
+    public int muestrearRango(SplittableRandom aleatorio) {
+        while (true) {
+            double u = hIntegralN + aleatorio.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInversa(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > numElementos) {
+                k = numElementos;
+            }
+            if (k - x <= umbral || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    /**
+     * Devuelve un ID de producto (1..n) con la popularidad de Zipf
+     */
+    public int muestrearProducto(SplittableRandom aleatorio) {
+        return productoDeRango(muestrearRango(aleatorio));
+    }
+
+    public int productoDeRango(int rango) {
+        return (int) (((rango - 1L) * multiplicador + desplazamiento) % numElementos) + 1;
+    }
+
+    public int rangoDeProducto(int idProducto) {
+        long posicion = Math.floorMod(idProducto - 1L - desplazamiento, (long) numElementos);
+        return (int) (posicion * multiplicadorInverso % numElementos) + 1;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponente * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1Dividido((1.0 - exponente) * logX) * logX;
+    }
+
+    private double hIntegralInversa(double x) {
+        double t = x * (1.0 - exponente);
+        if (t < -1.0) {
+            t = -1.0;
+        }
+        return Math.exp(log1pDividido(t) * x);
+    }
+
+    /** log(1 + x) / x, estable cerca de 0 */
+    private static double log1pDividido(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    /** (e^x - 1) / x, estable cerca de 0 */
+    private static double expm1Dividido(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x / 3.0 * (1.0 + 0.25 * x));
+    }
+}
@@ -0,0 +1,359 @@
+package com.inventario.generador;
+
+import com.inventario.model.Categoria;
+import com.inventario.model.MovimientoStock;
+import com.inventario.model.Producto;
+import com.inventario.util.LogUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generador de inventarios sintéticos para pruebas de volumen (millones de productos,
+ * cientos de millones de movimientos), en CSV, JSON, XML y/o carga directa en la base de datos.
+ *
+ * Cada producto se genera de forma independiente a partir de la semilla y de su ID:
+ * el número de movimientos sigue su popularidad de Zipf y las fechas se generan ya ordenadas
+ * (estadísticos de orden), así que el stock anterior y nuevo de cada movimiento es coherente y
+ * nunca negativo sin guardar nada en memoria. Los productos se reparten en bloques que se
+ * generan en paralelo; una primera pasada solo cuenta los movimientos de cada bloque para
+ * asignar a todos los movimientos IDs consecutivos, iguales en todos los formatos.
+ *
+ * Uso: mvn exec:java@generador -Dexec.args="--productos 10000000 --movimientos 500000000 --formatos csv,bd"
+ */
+public class GeneradorDatosSinteticos {
+    private static final Logger logger = LoggerFactory.getLogger(GeneradorDatosSinteticos.class);
+
+    private static final int PRODUCTOS_POR_BLOQUE = 50_000;
+
+    private static final int STOCK_INICIAL_MAXIMO = 500;
+    private static final int CANTIDAD_MAXIMA_SALIDA = 20;
+    private static final int CANTIDAD_MINIMA_ENTRADA = 10;
+    private static final int CANTIDAD_MAXIMA_ENTRADA = 100;
+    // Por encima de este stock solo se generan salidas: el stock cabe siempre en un INT
+    private static final int STOCK_LIMITE = 1_000_000_000;
+
+    // Las cinco primeras son las categorías por defecto de 01-init.sql
+    private static final String[][] CATEGORIAS_BASE = {
+        {"Electronica", "Dispositivos electrónicos y accesorios"},
+        {"Ropa", "Prendas de vestir y complementos"},
+        {"Informatica", "Equipos y accesorios informáticos"},
+        {"Hogar", "Artículos para el hogar"},
+        {"Alimentacion", "Productos alimenticios"},
+        {"Deportes", "Material y ropa deportiva"},
+        {"Juguetes", "Juegos y juguetes"},
+        {"Libros", "Libros y publicaciones"},
+        {"Jardin", "Plantas y herramientas de jardín"},
+        {"Salud", "Salud y cuidado personal"}
+    };
+    private static final String[] NOMBRES = {"Auriculares", "Gorra", "Portatil", "Zapatos", "Lampara", "Balon",
+                                             "Teclado", "Camiseta", "Monitor", "Sarten", "Puzzle", "Novela"};
+    private static final String[] MOTIVOS_ENTRADA = {"Reposicion almacen central", "Compra a proveedor",
+                                                     "Devolucion de cliente"};
+    private static final String[] MOTIVOS_SALIDA = {"Venta mostrador", "Venta online", "Traspaso a tienda",
+                                                    "Merma"};
+    private static final String[] VENDEDORES = {"vendedor1", "vendedor2", "vendedor3", "vendedor4", "vendedor5"};
+
+    private final ConfiguracionGenerador config;
+    private final DistribucionZipf popularidad;
+    private final List<Categoria> categorias;
+    private final LocalDateTime inicio;
+    private final long duracionSegundos;
+    private final int numBloques;
+
+    public GeneradorDatosSinteticos(ConfiguracionGenerador config) {
+        this.config = config;
+        this.popularidad = new DistribucionZipf(config.getNumProductos(), config.getExponenteZipf());
+        this.inicio = config.getDesde().atStartOfDay();
+        this.duracionSegundos = Duration.between(inicio, config.getHasta().atStartOfDay()).getSeconds();
+        this.numBloques = (config.getNumProductos() + PRODUCTOS_POR_BLOQUE - 1) / PRODUCTOS_POR_BLOQUE;
+        this.categorias = crearCategorias();
+    }
+
+    public static void main(String[] args) {
+        ConfiguracionGenerador config;
+        try {
+            config = ConfiguracionGenerador.desdeArgumentos(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ " + e.getMessage());
+            System.err.println(ConfiguracionGenerador.USO);
+            System.exit(1);
+            return;
+        }
+
+        try {
+            new GeneradorDatosSinteticos(config).generar();
+        } catch (Exception e) {
+            LogUtil.registrarError("GENERADOR", "Error al generar datos sintéticos", e);
+            System.err.println("✗ Error al generar datos sintéticos: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Genera los datos en todos los formatos configurados
+     */
+    public void generar() throws IOException, SQLException, InterruptedException {
+        List<DestinoDatos> destinos = crearDestinos();
+        long comienzo = System.nanoTime();
+
+        System.out.println("\n=== GENERADOR DE DATOS SINTÉTICOS ===");
+        System.out.printf("Productos: %,d | Movimientos (aprox.): %,d | Categorías: %d%n",
+            config.getNumProductos(), config.getNumMovimientos(), categorias.size());
+        System.out.printf("Zipf: %.2f | Salidas: %.0f%% | Periodo: %s - %s (%s) | Hilos: %d%n",
+            config.getExponenteZipf(), config.getProporcionSalidas() * 100, config.getDesde(),
+            config.getHasta(), config.getDistribucionTemporal(), config.getHilos());
+        destinos.forEach(destino -> System.out.println("Destino: " + destino.descripcion()));
+        System.out.println();
+
+        AtomicInteger contadorHilos = new AtomicInteger();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(config.getHilos(), tarea -> {
+            Thread hilo = new Thread(tarea, "generador-" + contadorHilos.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try {
+            // Primera pasada: movimientos de cada bloque, para asignar IDs consecutivos
+            long[] movimientosPorBloque = new long[numBloques];
+            ejecutarBloques(ejecutor, bloque -> () -> {
+                movimientosPorBloque[bloque] = contarMovimientosBloque(bloque);
+                return movimientosPorBloque[bloque];
+            }, null);
+
+            long[] primerIdMovimiento = new long[numBloques];
+            long totalMovimientos = 0;
+            for (int bloque = 0; bloque < numBloques; bloque++) {
+                primerIdMovimiento[bloque] = totalMovimientos + 1;
+                totalMovimientos += movimientosPorBloque[bloque];
+            }
+            if (totalMovimientos > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Demasiados movimientos para id_movimiento INT: " + totalMovimientos);
+            }
+
+            for (DestinoDatos destino : destinos) {
+                destino.iniciar(categorias, numBloques);
+            }
+
+            // Segunda pasada: generación y escritura de cada bloque en todos los destinos
+            ejecutarBloques(ejecutor, bloque -> () -> {
+                generarBloque(bloque, primerIdMovimiento[bloque], destinos);
+                return movimientosPorBloque[bloque];
+            }, comienzo);
+
+            for (DestinoDatos destino : destinos) {
+                System.out.println("→ Completando " + destino.descripcion() + "...");
+                destino.finalizar(config.getNumProductos(), totalMovimientos);
+            }
+
+            double segundos = (System.nanoTime() - comienzo) / 1e9;
+            System.out.println("\n=== RESUMEN ===");
+            System.out.printf("✓ %,d productos y %,d movimientos generados en %.1f s (%,.0f filas/s)%n",
+                config.getNumProductos(), totalMovimientos, segundos,
+                (config.getNumProductos() + totalMovimientos) / segundos);
+            LogUtil.registrarOperacionExitosa("GENERADOR", String.format(
+                "%d productos, %d movimientos, formatos %s, semilla %d, %.1f s", config.getNumProductos(),
+                totalMovimientos, config.getFormatos(), config.getSemilla(), segundos));
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Ejecuta una tarea por bloque en el ejecutor y espera a todas. Si alguna falla se cancelan
+     * las demás y se relanza su excepción. Con comienzo no nulo muestra el progreso
+     */
+    private void ejecutarBloques(ExecutorService ejecutor, TareaBloque tarea, Long comienzo)
+            throws IOException, SQLException, InterruptedException {
+        ExecutorCompletionService<Long> completadas = new ExecutorCompletionService<>(ejecutor);
+        List<Future<Long>> futuros = new ArrayList<>(numBloques);
+        for (int bloque = 0; bloque < numBloques; bloque++) {
+            futuros.add(completadas.submit(tarea.crear(bloque)));
+        }
+
+        long movimientos = 0;
+        int avisoCada = Math.max(1, numBloques / 20);
+        try {
+            for (int terminados = 1; terminados <= numBloques; terminados++) {
+                movimientos += completadas.take().get();
+                if (comienzo != null && (terminados % avisoCada == 0 || terminados == numBloques)) {
+                    double segundos = (System.nanoTime() - comienzo) / 1e9;
+                    System.out.printf("→ Bloques %d/%d | %,d movimientos | %,.0f movimientos/s%n",
+                        terminados, numBloques, movimientos, movimientos / segundos);
+                }
+            }
+        } catch (ExecutionException e) {
+            futuros.forEach(futuro -> futuro.cancel(true));
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException io) {
+                throw io;
+            }
+            if (causa instanceof SQLException sql) {
+                throw sql;
+            }
+            if (causa instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Error inesperado en un bloque del generador", causa);
+        }
+    }
+
+    @FunctionalInterface
+    private interface TareaBloque {
+        Callable<Long> crear(int bloque);
+    }
+
+    private long contarMovimientosBloque(int bloque) {
+        long total = 0;
+        for (int id = primerProducto(bloque); id <= ultimoProducto(bloque); id++) {
+            total += contarMovimientos(id, aleatorioProducto(id));
+        }
+        return total;
+    }
+
+    /**
+     * Genera los productos del bloque y sus movimientos y los escribe en todos los destinos
+     */
+    private void generarBloque(int bloque, long primerIdMovimiento, List<DestinoDatos> destinos)
+            throws IOException, SQLException {
+        List<DestinoDatos.Bloque> abiertos = new ArrayList<>(destinos.size());
+        try {
+            for (DestinoDatos destino : destinos) {
+                abiertos.add(destino.abrirBloque(bloque));
+            }
+
+            // Se reutilizan para no crear un objeto por movimiento: los destinos no los conservan
+            Producto producto = new Producto();
+            MovimientoStock movimiento = new MovimientoStock();
+            int idMovimiento = (int) primerIdMovimiento;
+
+            for (int id = primerProducto(bloque); id <= ultimoProducto(bloque); id++) {
+                SplittableRandom aleatorio = aleatorioProducto(id);
+                int numMovimientos = contarMovimientos(id, aleatorio);
+                int stockInicial = aleatorio.nextInt(STOCK_INICIAL_MAXIMO + 1);
+                int stock = stockInicial;
+                LocalDateTime ultimaFecha = inicio;
+
+                // Máximo de los movimientos restantes: con 1 - máximo las posiciones salen en orden creciente
+                double maximo = 1.0;
+                for (int restantes = numMovimientos; restantes >= 1; restantes--) {
+                    maximo *= Math.pow(aleatorio.nextDouble(), 1.0 / restantes);
+                    double posicion = config.getDistribucionTemporal().inversa(1.0 - maximo);
+                    ultimaFecha = inicio.plusSeconds(Math.min((long) (posicion * duracionSegundos), duracionSegundos - 1));
+
+                    boolean salida = stock > STOCK_LIMITE || aleatorio.nextDouble() < config.getProporcionSalidas();
+                    int cantidad;
+                    if (salida && stock > 0) {
+                        // Nunca se vende más de lo que hay
+                        cantidad = Math.min(stock, 1 + aleatorio.nextInt(CANTIDAD_MAXIMA_SALIDA));
+                    } else {
+                        // Sin stock, la salida se convierte en una reposición
+                        salida = false;
+                        cantidad = CANTIDAD_MINIMA_ENTRADA +
+                            aleatorio.nextInt(CANTIDAD_MAXIMA_ENTRADA - CANTIDAD_MINIMA_ENTRADA + 1);
+                    }
+
+                    movimiento.setIdMovimiento(idMovimiento++);
+                    movimiento.setIdProducto(id);
+                    movimiento.setTipoMovimiento(salida ? "SALIDA" : "ENTRADA");
+                    movimiento.setCantidad(cantidad);
+                    movimiento.setStockAnterior(stock);
+                    stock += salida ? -cantidad : cantidad;
+                    movimiento.setStockNuevo(stock);
+                    movimiento.setMotivo(salida ? MOTIVOS_SALIDA[aleatorio.nextInt(MOTIVOS_SALIDA.length)]
+                                                : MOTIVOS_ENTRADA[aleatorio.nextInt(MOTIVOS_ENTRADA.length)]);
+                    movimiento.setFechaMovimiento(ultimaFecha);
+                    movimiento.setUsuario(salida ? VENDEDORES[aleatorio.nextInt(VENDEDORES.length)] : "admin");
+                    for (DestinoDatos.Bloque destino : abiertos) {
+                        destino.escribirMovimiento(movimiento);
+                    }
+                }
+
+                producto.setIdProducto(id);
+                producto.setNombre(NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " " + id);
+                producto.setCategoria(categorias.get(aleatorio.nextInt(categorias.size())).getNombre());
+                producto.setPrecio(BigDecimal.valueOf(100 + aleatorio.nextInt(199_900), 2));
+                producto.setStock(stock);
+                producto.setFechaCreacion(inicio);
+                producto.setFechaModificacion(ultimaFecha);
+                for (DestinoDatos.Bloque destino : abiertos) {
+                    destino.escribirProducto(producto, stockInicial);
+                }
+            }
+
+            for (DestinoDatos.Bloque destino : abiertos) {
+                destino.cerrar();
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            abiertos.forEach(DestinoDatos.Bloque::abortar);
+            throw e;
+        }
+    }
+
+    /**
+     * Movimientos del producto: la parte que le toca según su popularidad, redondeada al azar
+     * para que el total se acerque al pedido. Es siempre la primera extracción de su generador
+     */
+    private int contarMovimientos(int idProducto, SplittableRandom aleatorio) {
+        double esperados = config.getNumMovimientos() * popularidad.probabilidad(popularidad.rangoDeProducto(idProducto));
+        long enteros = (long) esperados;
+        return (int) (enteros + (aleatorio.nextDouble() < esperados - enteros ? 1 : 0));
+    }
+
+    /**
+     * Generador propio de cada producto: el resultado no depende del número de hilos ni del orden
+     */
+    private SplittableRandom aleatorioProducto(int idProducto) {
+        return new SplittableRandom(config.getSemilla() ^ (idProducto * 0x9E3779B97F4A7C15L));
+    }
+
+    private int primerProducto(int bloque) {
+        return bloque * PRODUCTOS_POR_BLOQUE + 1;
+    }
+
+    private int ultimoProducto(int bloque) {
+        return Math.min(config.getNumProductos(), (bloque + 1) * PRODUCTOS_POR_BLOQUE);
+    }
+
+    private List<Categoria> crearCategorias() {
+        List<Categoria> lista = new ArrayList<>(config.getNumCategorias());
+        for (int i = 0; i < config.getNumCategorias(); i++) {
+            Categoria categoria = i < CATEGORIAS_BASE.length
+                ? new Categoria(i + 1, CATEGORIAS_BASE[i][0], CATEGORIAS_BASE[i][1])
+                : new Categoria(i + 1, "Categoria " + (i + 1), "Categoría generada " + (i + 1));
+            categoria.setFechaCreacion(inicio);
+            categoria.setFechaModificacion(inicio);
+            lista.add(categoria);
+        }
+        return lista;
+    }
+
+    private List<DestinoDatos> crearDestinos() {
+        List<DestinoDatos> destinos = new ArrayList<>();
+        for (ConfiguracionGenerador.Formato formato : config.getFormatos()) {
+            destinos.add(switch (formato) {
+                case CSV -> new DestinoCSV(config.getDirectorioSalida());
+                case JSON -> new DestinoJSON(config.getDirectorioSalida());
+                case XML -> new DestinoXML(config.getDirectorioSalida());
+                case BD -> new DestinoBaseDatos(config.isLimpiarTablas());
+            });
+        }
+        logger.info("Generador configurado: {} bloques de {} productos, formatos {}",
+            numBloques, PRODUCTOS_POR_BLOQUE, config.getFormatos());
+        return destinos;
+    }
+}
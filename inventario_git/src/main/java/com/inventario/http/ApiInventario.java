@@ -0,0 +1,272 @@
+package com.inventario.http;
+
+import com.inventario.dao.ConsultasAvanzadasDAO;
+import com.inventario.dao.ErrorReglaStock;
+import com.inventario.metricas.ExportadorMetricas;
+import com.inventario.metricas.RegistroMetricas;
+import com.inventario.model.CursorMovimiento;
+import com.inventario.model.CursorProducto;
+import com.inventario.model.MovimientoStock;
+import com.inventario.model.Producto;
+import com.inventario.service.InventarioService;
+import com.inventario.service.InventarioServiceAsync;
+import com.inventario.service.ReportesAvanzados;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Endpoints JSON sobre InventarioService y ConsultasAvanzadasDAO.
+ *
+ * Las consultas avanzadas devuelven Object[]; aquí cada fila se convierte en un objeto con los nombres
+ * de columna de su SQL. Los listados que pueden ser muy grandes (catálogo completo e histórico) se
+ * sirven por páginas con el mismo cursor por clave que usa el menú.
+ */
+public class ApiInventario {
+    private static final int TAMANO_PAGINA = 50;
+    private static final int MAX_TAMANO_PAGINA = 500;
+    private static final int MAX_IDS_STOCK_EN_FECHA = 1000;
+    private static final int MAX_IDS_PRODUCTOS = 500;
+
+    private static final String[] COLUMNAS_TOP_VENDIDOS = {"id_producto", "nombre", "categoria", "precio",
+        "stock_actual", "total_vendido", "num_transacciones", "ingresos_generados"};
+    private static final String[] COLUMNAS_VALOR_CATEGORIAS = {"categoria", "total_productos", "unidades_stock",
+        "precio_minimo", "precio_maximo", "precio_promedio", "valor_total_stock"};
+    private static final String[] COLUMNAS_HISTORICO = {"id_movimiento", "fecha_movimiento", "id_producto",
+        "producto", "categoria", "tipo_movimiento", "cantidad", "stock_anterior", "stock_nuevo", "motivo",
+        "usuario", "precio", "valor_movimiento"};
+    private static final String[] COLUMNAS_BAJO_STOCK = {"id_producto", "nombre", "categoria", "stock", "precio",
+        "movimientos_recientes", "entradas_recientes", "salidas_recientes", "ultimo_movimiento"};
+    private static final String[] COLUMNAS_SIN_MOVIMIENTOS = {"id_producto", "nombre", "categoria", "stock",
+        "precio", "valor_stock", "fecha_creacion", "ultimo_movimiento", "dias_sin_actividad"};
+    private static final String[] COLUMNAS_ROTACION = {"categoria", "total_productos", "stock_total",
+        "valor_inventario", "total_ventas", "unidades_vendidas", "unidades_compradas", "indice_rotacion"};
+    private static final String[] COLUMNAS_STOCK_EN_FECHA = {"id_producto", "nombre", "categoria", "precio",
+        "stock_en_fecha", "valor"};
+
+    private final InventarioService inventarioService;
+    private final InventarioServiceAsync inventarioAsync;
+    private final ConsultasAvanzadasDAO consultasDAO;
+
+    public ApiInventario(InventarioService inventarioService, InventarioServiceAsync inventarioAsync,
+                         ConsultasAvanzadasDAO consultasDAO) {
+        this.inventarioService = inventarioService;
+        this.inventarioAsync = inventarioAsync;
+        this.consultasDAO = consultasDAO;
+    }
+
+    public void registrarEn(ServidorHTTP servidor) {
+        servidor.registrar("GET", "/salud", peticion -> Map.of("estado", "ok"));
+        servidor.registrar("GET", "/metricas",
+            peticion -> ExportadorMetricas.aPrometheus(RegistroMetricas.getInstance().obtenerTodas()));
+
+        // Productos y stock
+        servidor.registrar("GET", "/api/productos", this::listarProductos);
+        servidor.registrar("GET", "/api/productos/{id}", this::obtenerProducto);
+        servidor.registrar("POST", "/api/productos/{id}/entradas", peticion -> registrarMovimiento(peticion, "ENTRADA"));
+        servidor.registrar("POST", "/api/productos/{id}/salidas", peticion -> registrarMovimiento(peticion, "SALIDA"));
+        servidor.registrar("GET", "/api/categorias", peticion -> inventarioService.obtenerTodasLasCategorias());
+
+        // Consultas avanzadas
+        servidor.registrar("GET", "/api/reportes/top-vendidos", peticion ->
+            filas(consultasDAO.obtenerTopProductosMasVendidos(peticion.consultaEntero("limite", 10)),
+                COLUMNAS_TOP_VENDIDOS));
+        servidor.registrar("GET", "/api/reportes/valor-categorias", peticion ->
+            filas(consultasDAO.obtenerValorStockPorCategoria(), COLUMNAS_VALOR_CATEGORIAS));
+        servidor.registrar("GET", "/api/reportes/historico", this::historicoMovimientos);
+        servidor.registrar("GET", "/api/reportes/bajo-stock", peticion ->
+            filas(consultasDAO.obtenerProductosBajoStockConHistorico(peticion.consultaEntero("limite", 200),
+                peticion.consultaEntero("dias", 30)), COLUMNAS_BAJO_STOCK));
+        servidor.registrar("GET", "/api/reportes/sin-movimientos", peticion ->
+            filas(consultasDAO.obtenerProductosSinMovimientos(peticion.consultaEntero("dias", 30)),
+                COLUMNAS_SIN_MOVIMIENTOS));
+        servidor.registrar("GET", "/api/reportes/rotacion", peticion ->
+            filas(consultasDAO.obtenerAnalisisRotacionPorCategoria(), COLUMNAS_ROTACION));
+        servidor.registrar("GET", "/api/reportes/stock-en-fecha", this::stockEnFecha);
+        servidor.registrar("GET", "/api/reportes/panel", this::panelReportes);
+    }
+
+    /**
+     * Búsqueda por IDs, nombre, categoría o stock bajo; sin filtros, el catálogo por páginas
+     */
+    private Object listarProductos(Peticion peticion) throws Exception {
+        if (peticion.consulta("ids") != null) {
+            List<Integer> ids = peticion.consultaListaEnteros("ids");
+            if (ids.size() > MAX_IDS_PRODUCTOS) {
+                throw new ServidorHTTP.ErrorPeticion(400, "Como mucho " + MAX_IDS_PRODUCTOS + " IDs por petición");
+            }
+            return InventarioServiceAsync.esperar(inventarioAsync.buscarProductosPorIds(ids)).values();
+        }
+        if (peticion.consulta("nombre") != null) {
+            return inventarioService.buscarProductosPorNombre(peticion.consulta("nombre"));
+        }
+        if (peticion.consulta("categoria") != null) {
+            return inventarioService.buscarProductosPorCategoria(peticion.consulta("categoria"));
+        }
+        if (peticion.consulta("stock_bajo") != null) {
+            return inventarioService.obtenerProductosConStockBajo(peticion.consultaEntero("stock_bajo", 0));
+        }
+
+        CursorProducto cursor = null;
+        if (peticion.consulta("despues_id") != null) {
+            String categoria = peticion.consulta("despues_categoria");
+            String nombre = peticion.consulta("despues_nombre");
+            if (categoria == null || nombre == null) {
+                throw new ServidorHTTP.ErrorPeticion(400,
+                    "El cursor necesita despues_categoria, despues_nombre y despues_id");
+            }
+            cursor = new CursorProducto(categoria, nombre, peticion.consultaEntero("despues_id", 0));
+        }
+        List<Producto> productos = inventarioService.obtenerPaginaProductos(cursor, tamanoPagina(peticion));
+
+        Map<String, Object> pagina = new LinkedHashMap<>();
+        pagina.put("productos", productos);
+        if (!productos.isEmpty()) {
+            Producto ultimo = productos.get(productos.size() - 1);
+            pagina.put("siguiente", Map.of("despues_categoria", ultimo.getCategoria(),
+                "despues_nombre", ultimo.getNombre(), "despues_id", ultimo.getIdProducto()));
+        }
+        return pagina;
+    }
+
+    private Object obtenerProducto(Peticion peticion) throws Exception {
+        int id = peticion.parametroRutaEntero("id");
+        Producto producto = inventarioService.buscarProductoPorId(id);
+        if (producto == null) {
+            throw new ServidorHTTP.ErrorPeticion(404, "Producto no encontrado: " + id);
+        }
+        return producto;
+    }
+
+    /**
+     * Entrada o salida de stock. Cuerpo: {"cantidad": 5, "motivo": "..."}. La cabecera Idempotency-Key,
+     * si viene, evita aplicar dos veces el mismo movimiento cuando el terminal reintenta.
+     * Responde con el movimiento confirmado (el original, si la clave ya estaba registrada): 409 si no
+     * hay stock disponible y 422 si la clave ya se usó para otro movimiento
+     */
+    private Object registrarMovimiento(Peticion peticion, String tipo) throws Exception {
+        int id = peticion.parametroRutaEntero("id");
+        Map<String, Object> cuerpo = peticion.cuerpoJson();
+        if (!(cuerpo.get("cantidad") instanceof Integer cantidad) || cantidad <= 0) {
+            throw new ServidorHTTP.ErrorPeticion(400, "'cantidad' debe ser un entero mayor que cero");
+        }
+        String motivo = cuerpo.get("motivo") instanceof String texto ? texto : "API " + tipo.toLowerCase();
+        String claveIdempotencia = peticion.cabecera("Idempotency-Key");
+
+        if (inventarioService.buscarProductoPorId(id) == null) {
+            throw new ServidorHTTP.ErrorPeticion(404, "Producto no encontrado: " + id);
+        }
+        MovimientoStock registrado;
+        try {
+            registrado = inventarioService.registrarMovimientoStock(id, tipo, cantidad, motivo, claveIdempotencia);
+        } catch (ErrorReglaStock e) {
+            int estado = e.getRegla() == ErrorReglaStock.Regla.STOCK_INSUFICIENTE ? 409 : 422;
+            throw new ServidorHTTP.ErrorPeticion(estado, e.getMessage());
+        }
+
+        Map<String, Object> movimiento = new LinkedHashMap<>();
+        movimiento.put("id_movimiento", registrado.getIdMovimiento());
+        movimiento.put("id_producto", registrado.getIdProducto());
+        movimiento.put("tipo_movimiento", registrado.getTipoMovimiento());
+        movimiento.put("cantidad", registrado.getCantidad());
+        movimiento.put("stock_anterior", registrado.getStockAnterior());
+        movimiento.put("stock_nuevo", registrado.getStockNuevo());
+        movimiento.put("motivo", registrado.getMotivo());
+        return new ServidorHTTP.Respuesta(201, movimiento);
+    }
+
+    private Object historicoMovimientos(Peticion peticion) throws Exception {
+        LocalDateTime desde = peticion.consultaFecha("desde");
+        LocalDateTime hasta = peticion.consultaFecha("hasta");
+        if (desde == null || hasta == null) {
+            throw new ServidorHTTP.ErrorPeticion(400, "Indique 'desde' y 'hasta' (ISO, p. ej. 2025-10-01)");
+        }
+        CursorMovimiento cursor = null;
+        if (peticion.consulta("despues_id") != null) {
+            LocalDateTime fecha = peticion.consultaFecha("despues_fecha");
+            if (fecha == null) {
+                throw new ServidorHTTP.ErrorPeticion(400, "El cursor necesita despues_fecha y despues_id");
+            }
+            cursor = new CursorMovimiento(fecha, peticion.consultaEntero("despues_id", 0));
+        }
+        List<Object[]> pagina = consultasDAO.obtenerHistoricoMovimientosPaginado(desde, hasta, cursor,
+            tamanoPagina(peticion));
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("movimientos", filas(pagina, COLUMNAS_HISTORICO));
+        if (!pagina.isEmpty()) {
+            Object[] ultima = pagina.get(pagina.size() - 1);
+            respuesta.put("siguiente", Map.of("despues_fecha", ultima[1], "despues_id", ultima[0]));
+        }
+        return respuesta;
+    }
+
+    /**
+     * Stock en una fecha de los productos indicados. La consulta se recorre en streaming, pero la
+     * respuesta se construye entera: por eso se exige una lista acotada de IDs
+     */
+    private Object stockEnFecha(Peticion peticion) throws Exception {
+        LocalDateTime fecha = peticion.consultaFecha("fecha");
+        List<Integer> ids = peticion.consultaListaEnteros("ids");
+        if (fecha == null || ids.isEmpty() || ids.size() > MAX_IDS_STOCK_EN_FECHA) {
+            throw new ServidorHTTP.ErrorPeticion(400,
+                "Indique 'fecha' e 'ids' (entre 1 y " + MAX_IDS_STOCK_EN_FECHA + " IDs separados por comas)");
+        }
+        try (Stream<Object[]> stock = consultasDAO.streamStockEnFecha(fecha, ids)) {
+            return filas(stock.toList(), COLUMNAS_STOCK_EN_FECHA);
+        }
+    }
+
+    /**
+     * Las seis consultas avanzadas en una respuesta, lanzadas en paralelo: el panel tarda lo que la más
+     * lenta y no la suma de todas. Acepta los mismos parámetros que cada consulta por separado
+     */
+    private Object panelReportes(Peticion peticion) throws Exception {
+        ReportesAvanzados.Parametros defecto = ReportesAvanzados.Parametros.porDefecto();
+        LocalDateTime desde = peticion.consultaFecha("desde");
+        LocalDateTime hasta = peticion.consultaFecha("hasta");
+        ReportesAvanzados.Parametros parametros = new ReportesAvanzados.Parametros(
+            peticion.consultaEntero("limite_top", defecto.limiteTop()),
+            desde != null ? desde : defecto.desde(),
+            hasta != null ? hasta : defecto.hasta(),
+            tamanoPagina(peticion),
+            peticion.consultaEntero("limite_stock", defecto.limiteStockBajo()),
+            peticion.consultaEntero("dias", defecto.diasHistorico()),
+            peticion.consultaEntero("dias_sin_movimiento", defecto.diasSinMovimiento()));
+
+        ReportesAvanzados reportes = InventarioServiceAsync.esperar(inventarioAsync.generarReportesAvanzados(parametros));
+
+        Map<String, Object> panel = new LinkedHashMap<>();
+        panel.put("top_vendidos", filas(reportes.topVendidos(), COLUMNAS_TOP_VENDIDOS));
+        panel.put("valor_categorias", filas(reportes.valorPorCategoria(), COLUMNAS_VALOR_CATEGORIAS));
+        panel.put("historico", filas(reportes.historico(), COLUMNAS_HISTORICO));
+        panel.put("bajo_stock", filas(reportes.bajoStock(), COLUMNAS_BAJO_STOCK));
+        panel.put("sin_movimientos", filas(reportes.sinMovimientos(), COLUMNAS_SIN_MOVIMIENTOS));
+        panel.put("rotacion", filas(reportes.rotacion(), COLUMNAS_ROTACION));
+        return panel;
+    }
+
+    private static int tamanoPagina(Peticion peticion) {
+        int tamano = peticion.consultaEntero("limite", TAMANO_PAGINA);
+        if (tamano <= 0 || tamano > MAX_TAMANO_PAGINA) {
+            throw new ServidorHTTP.ErrorPeticion(400, "'limite' debe estar entre 1 y " + MAX_TAMANO_PAGINA);
+        }
+        return tamano;
+    }
+
+    private static List<Map<String, Object>> filas(List<Object[]> filas, String[] columnas) {
+        List<Map<String, Object>> resultado = new ArrayList<>(filas.size());
+        for (Object[] fila : filas) {
+            Map<String, Object> objeto = new LinkedHashMap<>();
+            for (int i = 0; i < columnas.length && i < fila.length; i++) {
+                objeto.put(columnas[i], fila[i]);
+            }
+            resultado.add(objeto);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,134 @@
+package com.inventario.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Petición HTTP ya enrutada: parámetros de la ruta, de la consulta y cuerpo JSON.
+ * Los valores que no se pueden interpretar se rechazan con un 400
+ */
+public class Peticion {
+    private static final int MAX_CUERPO_BYTES = 64 * 1024;
+
+    private final HttpExchange intercambio;
+    private final Map<String, String> parametrosRuta;
+    private final Map<String, String> parametrosConsulta;
+    private final ObjectMapper objectMapper;
+
+    Peticion(HttpExchange intercambio, Map<String, String> parametrosRuta, ObjectMapper objectMapper) {
+        this.intercambio = intercambio;
+        this.parametrosRuta = parametrosRuta;
+        this.parametrosConsulta = analizarConsulta(intercambio.getRequestURI().getRawQuery());
+        this.objectMapper = objectMapper;
+    }
+
+    public int parametroRutaEntero(String nombre) {
+        return aEntero(nombre, parametrosRuta.get(nombre));
+    }
+
+    /**
+     * Parámetro de la consulta (?nombre=valor), o null si no viene
+     */
+    public String consulta(String nombre) {
+        String valor = parametrosConsulta.get(nombre);
+        return valor == null || valor.isBlank() ? null : valor.trim();
+    }
+
+    public int consultaEntero(String nombre, int porDefecto) {
+        String valor = consulta(nombre);
+        return valor == null ? porDefecto : aEntero(nombre, valor);
+    }
+
+    /**
+     * Fecha ISO (2025-10-26T14:30 o 2025-10-26, que se toma como el inicio del día)
+     */
+    public LocalDateTime consultaFecha(String nombre) {
+        String valor = consulta(nombre);
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return valor.length() == 10 ? LocalDateTime.parse(valor + "T00:00") : LocalDateTime.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new ServidorHTTP.ErrorPeticion(400, "Fecha no válida en '" + nombre + "': " + valor);
+        }
+    }
+
+    public List<Integer> consultaListaEnteros(String nombre) {
+        List<Integer> valores = new ArrayList<>();
+        String valor = consulta(nombre);
+        if (valor != null) {
+            for (String parte : valor.split(",")) {
+                if (!parte.isBlank()) {
+                    valores.add(aEntero(nombre, parte.trim()));
+                }
+            }
+        }
+        return valores;
+    }
+
+    public String cabecera(String nombre) {
+        return intercambio.getRequestHeaders().getFirst(nombre);
+    }
+
+    /**
+     * Cuerpo de la petición como objeto JSON
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> cuerpoJson() throws IOException {
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            byte[] bytes = entrada.readNBytes(MAX_CUERPO_BYTES + 1);
+            if (bytes.length > MAX_CUERPO_BYTES) {
+                throw new ServidorHTTP.ErrorPeticion(413, "El cuerpo supera " + MAX_CUERPO_BYTES + " bytes");
+            }
+            if (bytes.length == 0) {
+                throw new ServidorHTTP.ErrorPeticion(400, "Falta el cuerpo JSON");
+            }
+            Object cuerpo;
+            try {
+                cuerpo = objectMapper.readValue(bytes, Object.class);
+            } catch (JsonProcessingException e) {
+                throw new ServidorHTTP.ErrorPeticion(400, "JSON no válido: " + e.getOriginalMessage());
+            }
+            if (!(cuerpo instanceof Map)) {
+                throw new ServidorHTTP.ErrorPeticion(400, "Se esperaba un objeto JSON");
+            }
+            return (Map<String, Object>) cuerpo;
+        }
+    }
+
+    private static int aEntero(String nombre, String valor) {
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new ServidorHTTP.ErrorPeticion(400, "Número no válido en '" + nombre + "': " + valor);
+        }
+    }
+
+    private static Map<String, String> analizarConsulta(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.putIfAbsent(URLDecoder.decode(clave, StandardCharsets.UTF_8),
+                URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+}
@@ -0,0 +1,303 @@
+package com.inventario.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.inventario.metricas.MetricaMetodo;
+import com.inventario.metricas.RegistroMetricas;
+import com.inventario.util.EjecutorBD;
+import com.inventario.util.LogUtil;
+import com.inventario.util.VariablesEntorno;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Servidor HTTP embebido (com.sun.net.httpserver del JDK) que responde en JSON.
+ *
+ * Cada petición se atiende en su propio hilo virtual (EjecutorBD.crearEjecutor); con HILOS_VIRTUALES=false
+ * se usa un pool fijo de HTTP_MAX_PETICIONES hilos. Como cada operación abre su propia conexión JDBC, un
+ * semáforo limita las peticiones en curso a HTTP_MAX_PETICIONES (por defecto 64): la que no consigue
+ * turno en 2 segundos recibe un 503 en lugar de agotar las conexiones de MySQL.
+ *
+ * La latencia, las llamadas y los errores (5xx) de cada ruta se registran en RegistroMetricas con
+ * dao "HTTP" y la ruta como método. Al detenerse responde 503 a las peticiones nuevas, espera a que
+ * terminen las que están en curso (como mucho HTTP_ESPERA_CIERRE_SEGUNDOS, por defecto 10) y cierra.
+ */
+public class ServidorHTTP {
+    private static final Logger logger = LoggerFactory.getLogger(ServidorHTTP.class);
+
+    private static final long DEFAULT_PUERTO = 8080;
+    private static final long DEFAULT_MAX_PETICIONES = 64;
+    private static final long DEFAULT_ESPERA_CIERRE_SEGUNDOS = 10;
+    private static final long ESPERA_TURNO_MS = 2000;
+    private static final Pattern PARAMETRO_RUTA = Pattern.compile("\\{(\\w+)}");
+
+    private final HttpServer servidor;
+    private final ExecutorService ejecutor;
+    private final boolean hilosVirtuales;
+    private final Semaphore turnos;
+    private final int maxPeticiones;
+    private final int esperaCierreSegundos;
+    private final List<Ruta> rutas = new ArrayList<>();
+    private final ObjectMapper objectMapper;
+    private final AtomicBoolean detenido = new AtomicBoolean();
+    private final CountDownLatch fin = new CountDownLatch(1);
+
+    /**
+     * Atiende una petición y devuelve el objeto a serializar (200) o una Respuesta con otro estado
+     */
+    @FunctionalInterface
+    public interface Manejador {
+        Object manejar(Peticion peticion) throws Exception;
+    }
+
+    /**
+     * Respuesta con estado explícito. Un cuerpo String se envía como texto plano; el resto, como JSON
+     */
+    public record Respuesta(int estado, Object cuerpo) {
+    }
+
+    /**
+     * Error que se devuelve al cliente con el estado indicado y {"error": mensaje}
+     */
+    public static class ErrorPeticion extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int estado;
+
+        public ErrorPeticion(int estado, String mensaje) {
+            super(mensaje);
+            this.estado = estado;
+        }
+
+        public int getEstado() {
+            return estado;
+        }
+    }
+
+    private record Ruta(String metodo, String plantilla, Pattern patron, List<String> parametros,
+                        Manejador manejador, MetricaMetodo metrica) {
+    }
+
+    public ServidorHTTP(int puerto, int maxPeticiones, int esperaCierreSegundos) throws IOException {
+        if (maxPeticiones <= 0) {
+            throw new IllegalArgumentException("Máximo de peticiones HTTP inválido: " + maxPeticiones);
+        }
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), 0);
+        this.turnos = new Semaphore(maxPeticiones);
+        this.maxPeticiones = maxPeticiones;
+        this.esperaCierreSegundos = esperaCierreSegundos;
+
+        this.hilosVirtuales = EjecutorBD.hilosVirtualesHabilitados();
+        this.ejecutor = EjecutorBD.crearEjecutor("http-", maxPeticiones);
+
+        this.objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        servidor.setExecutor(ejecutor);
+        servidor.createContext("/", this::atender);
+    }
+
+    /**
+     * Servidor configurado con HTTP_PUERTO, HTTP_MAX_PETICIONES y HTTP_ESPERA_CIERRE_SEGUNDOS
+     */
+    public static ServidorHTTP desdeEntorno() throws IOException {
+        return new ServidorHTTP((int) VariablesEntorno.getLong("HTTP_PUERTO", DEFAULT_PUERTO),
+            (int) VariablesEntorno.getLong("HTTP_MAX_PETICIONES", DEFAULT_MAX_PETICIONES),
+            (int) VariablesEntorno.getLong("HTTP_ESPERA_CIERRE_SEGUNDOS", DEFAULT_ESPERA_CIERRE_SEGUNDOS));
+    }
+
+    /**
+     * Registra una ruta. La plantilla admite parámetros como /api/productos/{id}
+     */
+    public void registrar(String metodo, String plantilla, Manejador manejador) {
+        List<String> parametros = new ArrayList<>();
+        Matcher matcher = PARAMETRO_RUTA.matcher(plantilla);
+        StringBuilder regex = new StringBuilder();
+        int ultimo = 0;
+        while (matcher.find()) {
+            regex.append(Pattern.quote(plantilla.substring(ultimo, matcher.start())));
+            regex.append("(?<").append(matcher.group(1)).append(">[^/]+)");
+            parametros.add(matcher.group(1));
+            ultimo = matcher.end();
+        }
+        regex.append(Pattern.quote(plantilla.substring(ultimo)));
+
+        String nombre = metodo + " " + plantilla;
+        rutas.add(new Ruta(metodo, plantilla, Pattern.compile(regex.toString()), parametros, manejador,
+            RegistroMetricas.getInstance().metrica("HTTP", nombre)));
+    }
+
+    public void iniciar() {
+        servidor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::detener, "cierre-servidor-http"));
+        logger.info("Servidor HTTP escuchando en el puerto {} ({})", getPuerto(),
+            hilosVirtuales ? "hilos virtuales" : "pool de hilos");
+        LogUtil.registrarOperacionExitosa("HTTP_INICIO", "Servidor HTTP iniciado en el puerto " + getPuerto());
+    }
+
+    /**
+     * Espera a que terminen las peticiones en curso y cierra el servidor
+     */
+    public void detener() {
+        if (!detenido.compareAndSet(false, true)) {
+            return;
+        }
+        logger.info("Deteniendo servidor HTTP...");
+        // Con todos los turnos en la mano no queda ninguna petición a medias. HttpServer.stop(n) no sirve
+        // para esto: con conexiones keep-alive abiertas espera los n segundos aunque no haya peticiones
+        try {
+            if (!turnos.tryAcquire(maxPeticiones, esperaCierreSegundos, TimeUnit.SECONDS)) {
+                logger.warn("Se cierra el servidor HTTP con peticiones todavía en curso");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        servidor.stop(0);
+        ejecutor.shutdown();
+        try {
+            if (!ejecutor.awaitTermination(esperaCierreSegundos, TimeUnit.SECONDS)) {
+                ejecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ejecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        LogUtil.registrarOperacionExitosa("HTTP_FIN", "Servidor HTTP detenido");
+        fin.countDown();
+    }
+
+    /**
+     * Bloquea hasta que el servidor se detiene
+     */
+    public void esperar() throws InterruptedException {
+        fin.await();
+    }
+
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    public boolean usaHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    private void atender(HttpExchange intercambio) {
+        long inicio = System.nanoTime();
+        Ruta ruta = null;
+        int estado;
+        try {
+            String metodo = intercambio.getRequestMethod();
+            String camino = intercambio.getRequestURI().getPath();
+            Map<String, String> parametros = new HashMap<>();
+            boolean caminoConocido = false;
+
+            for (Ruta candidata : rutas) {
+                Matcher matcher = candidata.patron().matcher(camino);
+                if (matcher.matches()) {
+                    caminoConocido = true;
+                    if (candidata.metodo().equals(metodo)) {
+                        ruta = candidata;
+                        for (String nombre : candidata.parametros()) {
+                            parametros.put(nombre, matcher.group(nombre));
+                        }
+                        break;
+                    }
+                }
+            }
+
+            if (ruta == null) {
+                estado = caminoConocido
+                    ? enviarError(intercambio, 405, "Método no permitido: " + metodo)
+                    : enviarError(intercambio, 404, "Ruta no encontrada: " + camino);
+            } else if (detenido.get()) {
+                estado = enviarError(intercambio, 503, "Servidor deteniéndose");
+            } else if (!turnos.tryAcquire(ESPERA_TURNO_MS, TimeUnit.MILLISECONDS)) {
+                estado = enviarError(intercambio, 503, "Servidor ocupado, inténtelo de nuevo");
+            } else {
+                try {
+                    estado = ejecutar(ruta, intercambio, parametros);
+                } finally {
+                    turnos.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            estado = 503;
+        } catch (IOException e) {
+            // El cliente cerró la conexión antes de recibir la respuesta
+            logger.debug("No se pudo enviar la respuesta HTTP", e);
+            estado = 499;
+        } finally {
+            intercambio.close();
+        }
+
+        if (ruta != null) {
+            ruta.metrica().registrar(System.nanoTime() - inicio, estado >= 500);
+        }
+    }
+
+    private int ejecutar(Ruta ruta, HttpExchange intercambio, Map<String, String> parametros) throws IOException {
+        try {
+            Object resultado = ruta.manejador().manejar(new Peticion(intercambio, parametros, objectMapper));
+            Respuesta respuesta = resultado instanceof Respuesta r ? r : new Respuesta(200, resultado);
+            if (respuesta.cuerpo() instanceof Collection<?> filas) {
+                ruta.metrica().sumarFilas(filas.size());
+            }
+            return enviar(intercambio, respuesta);
+        } catch (ErrorPeticion e) {
+            return enviarError(intercambio, e.getEstado(), e.getMessage());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error en {} {}", ruta.metodo(), intercambio.getRequestURI(), e);
+            LogUtil.registrarError("HTTP", "Error en " + ruta.metodo() + " " + ruta.plantilla() + ": " + e.getMessage(), e);
+            // El detalle queda en el log: al cliente no se le devuelven mensajes internos
+            return enviarError(intercambio, 500, "Error interno");
+        }
+    }
+
+    private int enviarError(HttpExchange intercambio, int estado, String mensaje) throws IOException {
+        return enviar(intercambio, new Respuesta(estado, Map.of("error", mensaje != null ? mensaje : "")));
+    }
+
+    private int enviar(HttpExchange intercambio, Respuesta respuesta) throws IOException {
+        byte[] cuerpo;
+        String tipo;
+        if (respuesta.cuerpo() instanceof String texto) {
+            cuerpo = texto.getBytes(StandardCharsets.UTF_8);
+            tipo = "text/plain; charset=utf-8";
+        } else {
+            cuerpo = objectMapper.writeValueAsBytes(respuesta.cuerpo());
+            tipo = "application/json; charset=utf-8";
+        }
+        intercambio.getResponseHeaders().set("Content-Type", tipo);
+        intercambio.sendResponseHeaders(respuesta.estado(), cuerpo.length == 0 ? -1 : cuerpo.length);
+        if (cuerpo.length > 0) {
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(cuerpo);
+            }
+        }
+        return respuesta.estado();
+    }
+}
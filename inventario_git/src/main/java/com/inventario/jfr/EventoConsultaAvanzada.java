@@ -0,0 +1,66 @@
+package com.inventario.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Una consulta de ConsultasAvanzadasDAO, desde que se abre la conexión hasta que se leen todas las filas
+ */
+@Name("com.inventario.ConsultaAvanzada")
+@Label("Consulta avanzada")
+@Category({"Inventario", "Consultas"})
+@Description("Ejecución y lectura completa de una consulta de informes")
+@StackTrace(false)
+public class EventoConsultaAvanzada extends Event {
+
+    @Label("Consulta")
+    String consulta;
+
+    @Label("Parámetros")
+    String parametros;
+
+    @Label("Filas")
+    int filas;
+
+    @Label("Éxito")
+    boolean exito;
+
+    public static EventoConsultaAvanzada iniciar() {
+        EventoConsultaAvanzada evento = new EventoConsultaAvanzada();
+        evento.begin();
+        return evento;
+    }
+
+    /**
+     * Los parámetros solo se convierten a texto si el evento se va a grabar
+     */
+    public void terminar(String consulta, int filas, boolean exito, Object... parametros) {
+        if (shouldCommit()) {
+            this.consulta = consulta;
+            this.parametros = Arrays.deepToString(parametros);
+            this.filas = filas;
+            this.exito = exito;
+            commit();
+        }
+    }
+
+    /**
+     * Para consultas en streaming: el evento termina al cerrar el Stream y cuenta las filas
+     * recorridas. Sin grabación activa se devuelve el Stream tal cual
+     */
+    public <T> Stream<T> medir(Stream<T> filas, String consulta, Object... parametros) {
+        if (!isEnabled()) {
+            return filas;
+        }
+        int[] leidas = new int[1];
+        return filas.peek(fila -> leidas[0]++)
+            .onClose(() -> terminar(consulta, leidas[0], true, parametros));
+    }
+}
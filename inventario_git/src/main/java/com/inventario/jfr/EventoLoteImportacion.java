@@ -0,0 +1,62 @@
+package com.inventario.jfr;
+
+import com.inventario.model.MovimientoStock;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.List;
+
+/**
+ * Un lote de la importación de movimientos desde CSV, con su transacción completa
+ */
+@Name("com.inventario.LoteImportacion")
+@Label("Lote de importación CSV")
+@Category({"Inventario", "Importación"})
+@Description("Registro de un lote de movimientos importados en una sola transacción")
+@StackTrace(false)
+public class EventoLoteImportacion extends Event {
+
+    @Label("Número de lote")
+    int numeroLote;
+
+    @Label("Movimientos")
+    int movimientos;
+
+    @Label("Procesados")
+    int procesados;
+
+    @Label("Productos distintos")
+    int productosDistintos;
+
+    @Label("Primer ID de producto")
+    int primerIdProducto;
+
+    @Label("Éxito")
+    @Description("false si el lote se deshizo con ROLLBACK")
+    boolean exito;
+
+    public static EventoLoteImportacion iniciar() {
+        EventoLoteImportacion evento = new EventoLoteImportacion();
+        evento.begin();
+        return evento;
+    }
+
+    /**
+     * Los productos distintos se cuentan solo si el evento se va a grabar
+     */
+    public void terminar(int numeroLote, List<MovimientoStock> lote, int procesados, boolean exito) {
+        if (shouldCommit()) {
+            this.numeroLote = numeroLote;
+            this.movimientos = lote.size();
+            this.procesados = procesados;
+            this.productosDistintos = (int) lote.stream().mapToInt(MovimientoStock::getIdProducto).distinct().count();
+            this.primerIdProducto = lote.isEmpty() ? 0 : lote.get(0).getIdProducto();
+            this.exito = exito;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.inventario.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Registro de un movimiento de stock: bloqueo o cálculo del stock, inserción en movimientos_stock
+ * y actualización del producto, dentro de la transacción del llamante (sin el commit)
+ */
+@Name("com.inventario.MovimientoStock")
+@Label("Movimiento de stock")
+@Category({"Inventario", "Stock"})
+@Description("Aplicación de una entrada o salida de stock a un producto")
+@StackTrace(false)
+public class EventoMovimientoStock extends Event {
+
+    @Label("ID de producto")
+    int idProducto;
+
+    @Label("Tipo")
+    String tipoMovimiento;
+
+    @Label("Cantidad")
+    int cantidad;
+
+    @Label("Stock anterior")
+    int stockAnterior;
+
+    @Label("Stock nuevo")
+    int stockNuevo;
+
+    @Label("ID de movimiento")
+    int idMovimiento;
+
+    @Label("Éxito")
+    boolean exito;
+
+    /**
+     * Empieza a medir: crear el evento y llamar a begin no cuesta nada si no hay grabación activa
+     */
+    public static EventoMovimientoStock iniciar() {
+        EventoMovimientoStock evento = new EventoMovimientoStock();
+        evento.begin();
+        return evento;
+    }
+
+    public void terminar(int idProducto, String tipoMovimiento, int cantidad, int stockAnterior, int stockNuevo,
+                         int idMovimiento, boolean exito) {
+        if (shouldCommit()) {
+            this.idProducto = idProducto;
+            this.tipoMovimiento = tipoMovimiento;
+            this.cantidad = cantidad;
+            this.stockAnterior = stockAnterior;
+            this.stockNuevo = stockNuevo;
+            this.idMovimiento = idMovimiento;
+            this.exito = exito;
+            commit();
+        }
+    }
+}
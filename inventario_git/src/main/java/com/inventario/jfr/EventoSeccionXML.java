@@ -0,0 +1,48 @@
+package com.inventario.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Una sección (categorías, productos o movimientos) de una exportación o importación XML
+ */
+@Name("com.inventario.SeccionXML")
+@Label("Sección XML")
+@Category({"Inventario", "XML"})
+@Description("Lectura o escritura en base de datos de una sección del backup XML")
+@StackTrace(false)
+public class EventoSeccionXML extends Event {
+
+    @Label("Operación")
+    @Description("EXPORTAR o IMPORTAR")
+    String operacion;
+
+    @Label("Sección")
+    String seccion;
+
+    @Label("Filas")
+    int filas;
+
+    @Label("Éxito")
+    boolean exito;
+
+    public static EventoSeccionXML iniciar() {
+        EventoSeccionXML evento = new EventoSeccionXML();
+        evento.begin();
+        return evento;
+    }
+
+    public void terminar(String operacion, String seccion, int filas, boolean exito) {
+        if (shouldCommit()) {
+            this.operacion = operacion;
+            this.seccion = seccion;
+            this.filas = filas;
+            this.exito = exito;
+            commit();
+        }
+    }
+}
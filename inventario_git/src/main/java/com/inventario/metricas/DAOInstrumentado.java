@@ -0,0 +1,118 @@
+package com.inventario.metricas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Envuelve un DAO en un proxy que mide cada llamada de su interfaz en RegistroMetricas.
+ *
+ * Por cada método se anotan la latencia, si terminó con excepción y las filas devueltas. Los
+ * Stream se miden hasta que se entregan (la consulta ya se ha lanzado) y sus filas se cuentan a
+ * medida que se consumen. Los CompletableFuture se miden hasta que se completan.
+ *
+ * Con METRICAS_DAO=false se devuelve el DAO sin envolver.
+ */
+public final class DAOInstrumentado implements InvocationHandler {
+    private final Object delegado;
+    private final Map<Method, MetricaMetodo> metricas;
+
+    private DAOInstrumentado(Object delegado, Map<Method, MetricaMetodo> metricas) {
+        this.delegado = delegado;
+        this.metricas = metricas;
+    }
+
+    public static boolean estaHabilitado() {
+        return !"false".equalsIgnoreCase(System.getenv("METRICAS_DAO"));
+    }
+
+    /**
+     * Devuelve el DAO instrumentado con las métricas de la interfaz indicada
+     */
+    public static <T> T instrumentar(Class<T> interfaz, T delegado) {
+        if (!estaHabilitado()) {
+            return delegado;
+        }
+        // La métrica de cada método se resuelve una sola vez: registrar una llamada no busca por nombre
+        RegistroMetricas registro = RegistroMetricas.getInstance();
+        Map<String, Long> sobrecargas = Arrays.stream(interfaz.getMethods())
+            .collect(Collectors.groupingBy(Method::getName, Collectors.counting()));
+        Map<Method, MetricaMetodo> metricas = new HashMap<>();
+        for (Method metodo : interfaz.getMethods()) {
+            metricas.put(metodo, registro.metrica(interfaz.getSimpleName(),
+                sobrecargas.get(metodo.getName()) > 1 ? firma(metodo) : metodo.getName()));
+        }
+        Object proxy = Proxy.newProxyInstance(interfaz.getClassLoader(), new Class<?>[]{interfaz},
+            new DAOInstrumentado(delegado, metricas));
+        return interfaz.cast(proxy);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+        MetricaMetodo metrica = metricas.get(metodo);
+        if (metrica == null) {
+            // equals, hashCode y toString de Object
+            return invocar(metodo, args);
+        }
+
+        long inicio = System.nanoTime();
+        Object resultado;
+        try {
+            resultado = invocar(metodo, args);
+        } catch (Throwable e) {
+            metrica.registrar(System.nanoTime() - inicio, true);
+            throw e;
+        }
+
+        if (resultado instanceof CompletableFuture<?> futuro) {
+            futuro.whenComplete((valor, error) -> {
+                metrica.registrar(System.nanoTime() - inicio, error != null);
+                metrica.sumarFilas(contarFilas(valor));
+            });
+            return resultado;
+        }
+        metrica.registrar(System.nanoTime() - inicio, false);
+        if (resultado instanceof Stream<?> stream) {
+            return stream.peek(fila -> metrica.sumarFilas(1));
+        }
+        metrica.sumarFilas(contarFilas(resultado));
+        return resultado;
+    }
+
+    private Object invocar(Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(delegado, args);
+        } catch (InvocationTargetException e) {
+            // El llamante debe ver la SQLException original, no la envoltura de la reflexión
+            throw e.getCause();
+        }
+    }
+
+    private static long contarFilas(Object resultado) {
+        if (resultado instanceof Collection<?> coleccion) {
+            return coleccion.size();
+        }
+        if (resultado instanceof Map<?, ?> mapa) {
+            return mapa.size();
+        }
+        if (resultado instanceof Optional<?> opcional) {
+            return opcional.isPresent() ? 1 : 0;
+        }
+        return 0;
+    }
+
+    private static String firma(Method metodo) {
+        return Arrays.stream(metodo.getParameterTypes())
+            .map(Class::getSimpleName)
+            .collect(Collectors.joining(",", metodo.getName() + "(", ")"));
+    }
+}
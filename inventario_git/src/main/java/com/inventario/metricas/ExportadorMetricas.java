@@ -0,0 +1,211 @@
+package com.inventario.metricas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.inventario.util.LogUtil;
+import com.inventario.util.VariablesEntorno;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporta las métricas de los DAOs en JSON o en el formato de texto de Prometheus.
+ *
+ * Con METRICAS_ARCHIVO definido, una tarea en segundo plano reescribe ese archivo cada
+ * METRICAS_INTERVALO_SEGUNDOS (por defecto 15) y una última vez al cerrar la aplicación. Si el
+ * nombre termina en .json se escribe JSON; si no, texto de Prometheus (p. ej. metricas.prom para el
+ * textfile collector de node_exporter). El archivo se sustituye de forma atómica: quien lo lee
+ * nunca ve una exportación a medias.
+ */
+public class ExportadorMetricas {
+    private static final Logger logger = LoggerFactory.getLogger(ExportadorMetricas.class);
+
+    private static final long DEFAULT_INTERVALO_SEGUNDOS = 15;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final double NANOS_POR_MILISEGUNDO = 1_000_000.0;
+    private static final double NANOS_POR_SEGUNDO = 1_000_000_000.0;
+
+    private final Path archivo;
+    private final ScheduledExecutorService planificador;
+
+    ExportadorMetricas(Path archivo, long intervaloSegundos) {
+        if (intervaloSegundos <= 0) {
+            throw new IllegalArgumentException("Intervalo de exportación de métricas inválido: " + intervaloSegundos);
+        }
+        this.archivo = archivo;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "exportar-metricas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        planificador.scheduleWithFixedDelay(this::exportar, intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::cerrar, "cierre-exportar-metricas"));
+
+        logger.info("Exportación de métricas activa: {} cada {} s", archivo, intervaloSegundos);
+    }
+
+    public static boolean estaHabilitado() {
+        String archivo = System.getenv("METRICAS_ARCHIVO");
+        return archivo != null && !archivo.isBlank();
+    }
+
+    private static class Holder {
+        private static final ExportadorMetricas INSTANCE = new ExportadorMetricas(
+            Paths.get(System.getenv("METRICAS_ARCHIVO").trim()),
+            VariablesEntorno.getLong("METRICAS_INTERVALO_SEGUNDOS", DEFAULT_INTERVALO_SEGUNDOS));
+    }
+
+    // La comprobación va fuera de Holder: una excepción en su inicialización haría que las
+    // llamadas siguientes fallaran con NoClassDefFoundError en lugar de esta IllegalStateException
+    public static ExportadorMetricas getInstance() {
+        if (!estaHabilitado()) {
+            throw new IllegalStateException("Exportación de métricas no configurada (METRICAS_ARCHIVO)");
+        }
+        return Holder.INSTANCE;
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    /**
+     * Detiene la tarea periódica y deja escrita la última exportación
+     */
+    public void cerrar() {
+        planificador.shutdown();
+        try {
+            planificador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exportar();
+    }
+
+    private void exportar() {
+        try {
+            escribir(archivo);
+        } catch (IOException | RuntimeException e) {
+            // Nunca debe detenerse la tarea: se reintenta en la siguiente ejecución
+            LogUtil.registrarError("METRICAS", "Error al exportar métricas a " + archivo, e);
+        }
+    }
+
+    /**
+     * Escribe las métricas actuales en el archivo, en JSON si termina en .json o en texto de Prometheus
+     */
+    public static void escribir(Path destino) throws IOException {
+        List<MetricaMetodo> metricas = RegistroMetricas.getInstance().obtenerTodas();
+        String contenido = destino.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+            ? aJson(metricas)
+            : aPrometheus(metricas);
+
+        Path directorio = destino.toAbsolutePath().getParent();
+        Files.createDirectories(directorio);
+        Path temporal = Files.createTempFile(directorio, ".metricas", ".tmp");
+        try {
+            Files.writeString(temporal, contenido, StandardCharsets.UTF_8);
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    public static String aJson(List<MetricaMetodo> metricas) throws IOException {
+        List<Map<String, Object>> metodos = new ArrayList<>();
+        for (MetricaMetodo metrica : metricas) {
+            Histogram latencias = metrica.copiarLatencias();
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("dao", metrica.getDao());
+            datos.put("metodo", metrica.getMetodo());
+            datos.put("llamadas", metrica.getLlamadas());
+            datos.put("errores", metrica.getErrores());
+            datos.put("filas", metrica.getFilas());
+            datos.put("tiempo_total_ms", metrica.getTiempoTotalNanos() / NANOS_POR_MILISEGUNDO);
+            datos.put("media_ms", latencias.getMean() / NANOS_POR_MILISEGUNDO);
+            datos.put("p50_ms", latencias.getValueAtPercentile(50) / NANOS_POR_MILISEGUNDO);
+            datos.put("p90_ms", latencias.getValueAtPercentile(90) / NANOS_POR_MILISEGUNDO);
+            datos.put("p99_ms", latencias.getValueAtPercentile(99) / NANOS_POR_MILISEGUNDO);
+            datos.put("p999_ms", latencias.getValueAtPercentile(99.9) / NANOS_POR_MILISEGUNDO);
+            datos.put("max_ms", latencias.getMaxValue() / NANOS_POR_MILISEGUNDO);
+            metodos.add(datos);
+        }
+        Map<String, Object> documento = new LinkedHashMap<>();
+        documento.put("fecha", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        documento.put("metodos", metodos);
+        return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(documento);
+    }
+
+    /**
+     * Formato de exposición de texto de Prometheus: contadores de llamadas, errores y filas, y un
+     * summary de latencias en segundos con sus cuantiles
+     */
+    public static String aPrometheus(List<MetricaMetodo> metricas) {
+        List<Histogram> latencias = metricas.stream().map(MetricaMetodo::copiarLatencias).toList();
+        StringBuilder texto = new StringBuilder();
+
+        cabecera(texto, "inventario_dao_llamadas_total", "counter", "Llamadas a métodos de DAO");
+        for (MetricaMetodo metrica : metricas) {
+            linea(texto, "inventario_dao_llamadas_total", etiquetas(metrica, null), metrica.getLlamadas());
+        }
+        cabecera(texto, "inventario_dao_errores_total", "counter", "Llamadas a métodos de DAO que terminaron con excepción");
+        for (MetricaMetodo metrica : metricas) {
+            linea(texto, "inventario_dao_errores_total", etiquetas(metrica, null), metrica.getErrores());
+        }
+        cabecera(texto, "inventario_dao_filas_total", "counter", "Filas devueltas por métodos de DAO");
+        for (MetricaMetodo metrica : metricas) {
+            linea(texto, "inventario_dao_filas_total", etiquetas(metrica, null), metrica.getFilas());
+        }
+        cabecera(texto, "inventario_dao_latencia_segundos", "summary", "Latencia de los métodos de DAO");
+        for (int i = 0; i < metricas.size(); i++) {
+            MetricaMetodo metrica = metricas.get(i);
+            for (double percentil : PERCENTILES) {
+                linea(texto, "inventario_dao_latencia_segundos",
+                    etiquetas(metrica, Double.toString(percentil / 100)),
+                    latencias.get(i).getValueAtPercentile(percentil) / NANOS_POR_SEGUNDO);
+            }
+            linea(texto, "inventario_dao_latencia_segundos_sum", etiquetas(metrica, null),
+                metrica.getTiempoTotalNanos() / NANOS_POR_SEGUNDO);
+            linea(texto, "inventario_dao_latencia_segundos_count", etiquetas(metrica, null), metrica.getLlamadas());
+        }
+        return texto.toString();
+    }
+
+    private static void cabecera(StringBuilder texto, String nombre, String tipo, String ayuda) {
+        texto.append("# HELP ").append(nombre).append(' ').append(ayuda).append('\n');
+        texto.append("# TYPE ").append(nombre).append(' ').append(tipo).append('\n');
+    }
+
+    private static void linea(StringBuilder texto, String nombre, String etiquetas, Number valor) {
+        texto.append(nombre).append(etiquetas).append(' ').append(valor).append('\n');
+    }
+
+    private static String etiquetas(MetricaMetodo metrica, String cuantil) {
+        StringBuilder texto = new StringBuilder("{dao=\"").append(escapar(metrica.getDao()))
+            .append("\",metodo=\"").append(escapar(metrica.getMetodo())).append('"');
+        if (cuantil != null) {
+            texto.append(",quantile=\"").append(cuantil).append('"');
+        }
+        return texto.append('}').toString();
+    }
+
+    private static String escapar(String valor) {
+        return valor.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
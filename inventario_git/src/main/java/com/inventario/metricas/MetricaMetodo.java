@@ -0,0 +1,88 @@
+package com.inventario.metricas;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias, llamadas, errores y filas devueltas de un método de DAO.
+ *
+ * Se puede registrar desde cualquier hilo sin bloqueos: los contadores son LongAdder y el
+ * histograma de latencias (en nanosegundos, dos dígitos significativos) es un ConcurrentHistogram
+ * de HdrHistogram, que ajusta su rango solo y no necesita conocer de antemano la latencia máxima.
+ */
+public class MetricaMetodo {
+    private static final int DIGITOS_SIGNIFICATIVOS = 2;
+
+    private final String dao;
+    private final String metodo;
+    private final ConcurrentHistogram latencias = new ConcurrentHistogram(DIGITOS_SIGNIFICATIVOS);
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder filas = new LongAdder();
+    private final LongAdder tiempoTotalNanos = new LongAdder();
+
+    MetricaMetodo(String dao, String metodo) {
+        this.dao = dao;
+        this.metodo = metodo;
+    }
+
+    /**
+     * Anota una llamada terminada (con éxito o con error)
+     */
+    public void registrar(long latenciaNanos, boolean error) {
+        latencias.recordValue(Math.max(0, latenciaNanos));
+        tiempoTotalNanos.add(latenciaNanos);
+        llamadas.increment();
+        if (error) {
+            errores.increment();
+        }
+    }
+
+    public void sumarFilas(long cantidad) {
+        filas.add(cantidad);
+    }
+
+    /**
+     * Copia coherente de las latencias para calcular percentiles sin detener a quien registra
+     */
+    public Histogram copiarLatencias() {
+        return latencias.copy();
+    }
+
+    public void reiniciar() {
+        latencias.reset();
+        llamadas.reset();
+        errores.reset();
+        filas.reset();
+        tiempoTotalNanos.reset();
+    }
+
+    public String getDao() {
+        return dao;
+    }
+
+    public String getMetodo() {
+        return metodo;
+    }
+
+    public long getLlamadas() {
+        return llamadas.sum();
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    /**
+     * Elementos devueltos en listas, mapas, Optional y Stream (estos se cuentan al consumirlos)
+     */
+    public long getFilas() {
+        return filas.sum();
+    }
+
+    public long getTiempoTotalNanos() {
+        return tiempoTotalNanos.sum();
+    }
+}
@@ -0,0 +1,51 @@
+package com.inventario.metricas;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registro de las métricas por método de DAO, compartido por todo el proceso.
+ *
+ * Las métricas se crean una vez al instrumentar cada DAO (ver DAOInstrumentado); después, registrar
+ * una llamada no toca el registro. Dos DAOs instrumentados de la misma interfaz comparten métricas.
+ */
+public class RegistroMetricas {
+
+    private final ConcurrentMap<String, MetricaMetodo> metricas = new ConcurrentHashMap<>();
+
+    private RegistroMetricas() {}
+
+    private static class Holder {
+        private static final RegistroMetricas INSTANCE = new RegistroMetricas();
+    }
+
+    public static RegistroMetricas getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Métrica del método indicado, creándola si todavía no existe
+     */
+    public MetricaMetodo metrica(String dao, String metodo) {
+        return metricas.computeIfAbsent(dao + "." + metodo, clave -> new MetricaMetodo(dao, metodo));
+    }
+
+    /**
+     * Todas las métricas, ordenadas por DAO y método
+     */
+    public List<MetricaMetodo> obtenerTodas() {
+        List<MetricaMetodo> todas = new ArrayList<>(metricas.values());
+        todas.sort(Comparator.comparing(MetricaMetodo::getDao).thenComparing(MetricaMetodo::getMetodo));
+        return todas;
+    }
+
+    /**
+     * Pone a cero todas las métricas (las llamadas en curso pueden quedar contadas a medias)
+     */
+    public void reiniciar() {
+        metricas.values().forEach(MetricaMetodo::reiniciar);
+    }
+}
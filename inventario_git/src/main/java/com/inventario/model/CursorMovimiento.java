@@ -0,0 +1,55 @@
+package com.inventario.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Cursor para la paginación por clave (keyset) de movimientos de stock.
+ * Identifica el último movimiento de una página mediante (fecha_movimiento, id_movimiento),
+ * que es el mismo orden en el que se devuelven los históricos.
+ */
+public class CursorMovimiento {
+    private final LocalDateTime fechaMovimiento;
+    private final int idMovimiento;
+
+    public CursorMovimiento(LocalDateTime fechaMovimiento, int idMovimiento) {
+        this.fechaMovimiento = Objects.requireNonNull(fechaMovimiento, "fechaMovimiento");
+        this.idMovimiento = idMovimiento;
+    }
+
+    /**
+     * Crea el cursor que apunta a continuación del movimiento indicado
+     */
+    public static CursorMovimiento desde(MovimientoStock movimiento) {
+        return new CursorMovimiento(movimiento.getFechaMovimiento(), movimiento.getIdMovimiento());
+    }
+
+    public LocalDateTime getFechaMovimiento() {
+        return fechaMovimiento;
+    }
+
+    public int getIdMovimiento() {
+        return idMovimiento;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CursorMovimiento that = (CursorMovimiento) o;
+        return idMovimiento == that.idMovimiento && fechaMovimiento.equals(that.fechaMovimiento);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fechaMovimiento, idMovimiento);
+    }
+
+    @Override
+    public String toString() {
+        return "CursorMovimiento{" +
+                "fechaMovimiento=" + fechaMovimiento +
+                ", idMovimiento=" + idMovimiento +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.inventario.model;
+
+import java.util.Objects;
+
+/**
+ * Cursor para la paginación por clave (keyset) del catálogo de productos.
+ * Identifica el último producto de una página mediante (categoria, nombre, id_producto),
+ * el mismo orden que recorre el índice idx_productos_categoria_nombre.
+ */
+public class CursorProducto {
+    private final String categoria;
+    private final String nombre;
+    private final int idProducto;
+
+    public CursorProducto(String categoria, String nombre, int idProducto) {
+        this.categoria = Objects.requireNonNull(categoria, "categoria");
+        this.nombre = Objects.requireNonNull(nombre, "nombre");
+        this.idProducto = idProducto;
+    }
+
+    /**
+     * Crea el cursor que apunta a continuación del producto indicado
+     */
+    public static CursorProducto desde(Producto producto) {
+        return new CursorProducto(producto.getCategoria(), producto.getNombre(), producto.getIdProducto());
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getIdProducto() {
+        return idProducto;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CursorProducto that = (CursorProducto) o;
+        return idProducto == that.idProducto
+                && categoria.equals(that.categoria)
+                && nombre.equals(that.nombre);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(categoria, nombre, idProducto);
+    }
+
+    @Override
+    public String toString() {
+        return "CursorProducto{" +
+                "categoria='" + categoria + '\'' +
+                ", nombre='" + nombre + '\'' +
+                ", idProducto=" + idProducto +
+                '}';
+    }
+}
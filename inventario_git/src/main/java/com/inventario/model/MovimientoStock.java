@@ -8,6 +8,9 @@ import java.util.Objects;
  * Clase que representa un movimiento de stock en el inventario
  */
 public class MovimientoStock {
+    // Tamaño de la columna clave_idempotencia
+    public static final int LONGITUD_MAXIMA_CLAVE = 64;
+
     @JsonProperty("id_movimiento")
     private int idMovimiento;
 
@@ -32,6 +35,10 @@ public class MovimientoStock {
 
     private String usuario;
 
+    // Opcional: un reintento con la misma clave devuelve el movimiento original sin volver a aplicarlo
+    @JsonProperty("clave_idempotencia")
+    private String claveIdempotencia;
+
     // Constructor vacío
     public MovimientoStock() {}
 
@@ -129,11 +136,21 @@ public class MovimientoStock {
         this.usuario = usuario != null && !usuario.trim().isEmpty() ? usuario.trim() : "sistema";
     }
 
+    public String getClaveIdempotencia() {
+        return claveIdempotencia;
+    }
+
+    public void setClaveIdempotencia(String claveIdempotencia) {
+        this.claveIdempotencia = claveIdempotencia != null && !claveIdempotencia.trim().isEmpty()
+                ? claveIdempotencia.trim() : null;
+    }
+
     // Métodos de utilidad
     public boolean isValid() {
         return idProducto > 0 &&
                tipoMovimiento != null && (tipoMovimiento.equals("ENTRADA") || tipoMovimiento.equals("SALIDA")) &&
-               cantidad > 0;
+               cantidad > 0 &&
+               (claveIdempotencia == null || claveIdempotencia.length() <= LONGITUD_MAXIMA_CLAVE);
     }
 
     public boolean esEntrada() {
@@ -169,6 +186,7 @@ public class MovimientoStock {
                 ", motivo='" + motivo + '\'' +
                 ", fechaMovimiento=" + fechaMovimiento +
                 ", usuario='" + usuario + '\'' +
+                (claveIdempotencia != null ? ", claveIdempotencia='" + claveIdempotencia + '\'' : "") +
                 '}';
     }
 }
@@ -23,6 +23,9 @@ public class Producto {
     @JsonProperty("fecha_modificacion")
     private LocalDateTime fechaModificacion;
 
+    // Se incrementa en cada escritura de la fila: base de las actualizaciones optimistas
+    private int version;
+
     // Constructores
     public Producto() {}
 
@@ -98,6 +101,14 @@ public class Producto {
         this.fechaModificacion = fechaModificacion;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     // Métodos de utilidad
     public boolean isValid() {
         return nombre != null && !nombre.trim().isEmpty() &&
@@ -151,6 +162,7 @@ public class Producto {
                 ", stock=" + stock +
                 ", fechaCreacion=" + fechaCreacion +
                 ", fechaModificacion=" + fechaModificacion +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
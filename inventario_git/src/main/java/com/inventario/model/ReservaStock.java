@@ -0,0 +1,148 @@
+package com.inventario.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Clase que representa una reserva temporal de stock.
+ * Mientras está ACTIVA y no ha caducado, su cantidad no está disponible para otras salidas;
+ * al confirmarse se convierte en un movimiento de SALIDA
+ */
+public class ReservaStock {
+    @JsonProperty("id_reserva")
+    private int idReserva;
+
+    @JsonProperty("id_producto")
+    private int idProducto;
+
+    private int cantidad;
+
+    private String estado; // ACTIVA, CONFIRMADA, LIBERADA o CADUCADA
+
+    private String usuario;
+
+    @JsonProperty("fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @JsonProperty("fecha_expiracion")
+    private LocalDateTime fechaExpiracion;
+
+    @JsonProperty("id_movimiento")
+    private Integer idMovimiento;
+
+    // Constructor vacío
+    public ReservaStock() {}
+
+    // Constructor sin ID (para inserción)
+    public ReservaStock(int idProducto, int cantidad, LocalDateTime fechaExpiracion, String usuario) {
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+        this.fechaExpiracion = fechaExpiracion;
+        this.estado = "ACTIVA";
+        this.usuario = usuario != null && !usuario.trim().isEmpty() ? usuario : "sistema";
+    }
+
+    // Getters y Setters
+    public int getIdReserva() {
+        return idReserva;
+    }
+
+    public void setIdReserva(int idReserva) {
+        this.idReserva = idReserva;
+    }
+
+    public int getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(int idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(int cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado != null ? estado.trim().toUpperCase() : null;
+    }
+
+    public String getUsuario() {
+        return usuario;
+    }
+
+    public void setUsuario(String usuario) {
+        this.usuario = usuario != null && !usuario.trim().isEmpty() ? usuario.trim() : "sistema";
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public LocalDateTime getFechaExpiracion() {
+        return fechaExpiracion;
+    }
+
+    public void setFechaExpiracion(LocalDateTime fechaExpiracion) {
+        this.fechaExpiracion = fechaExpiracion;
+    }
+
+    public Integer getIdMovimiento() {
+        return idMovimiento;
+    }
+
+    public void setIdMovimiento(Integer idMovimiento) {
+        this.idMovimiento = idMovimiento;
+    }
+
+    // Métodos de utilidad
+    public boolean esActiva() {
+        return "ACTIVA".equals(estado);
+    }
+
+    /**
+     * Indica si la reserva sigue reteniendo stock en el instante indicado
+     */
+    public boolean estaVigente(LocalDateTime ahora) {
+        return esActiva() && fechaExpiracion != null && fechaExpiracion.isAfter(ahora);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReservaStock that = (ReservaStock) o;
+        return idReserva == that.idReserva;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idReserva);
+    }
+
+    @Override
+    public String toString() {
+        return "ReservaStock{" +
+                "idReserva=" + idReserva +
+                ", idProducto=" + idProducto +
+                ", cantidad=" + cantidad +
+                ", estado='" + estado + '\'' +
+                ", usuario='" + usuario + '\'' +
+                ", fechaExpiracion=" + fechaExpiracion +
+                ", idMovimiento=" + idMovimiento +
+                '}';
+    }
+}
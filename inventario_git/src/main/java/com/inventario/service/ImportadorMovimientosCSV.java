@@ -1,8 +1,9 @@
 package com.inventario.service;
 
 import com.inventario.dao.MovimientoStockDAO;
-import com.inventario.dao.impl.MovimientoStockDAOImpl;
+import com.inventario.jfr.EventoLoteImportacion;
 import com.inventario.model.MovimientoStock;
+import com.inventario.util.EjecutorBD;
 import com.inventario.util.LogUtil;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -13,7 +14,13 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clase para importar movimientos de stock desde archivos CSV
@@ -23,6 +30,7 @@ public class ImportadorMovimientosCSV {
 
     private static final int TAMANO_LOTE = 100; // Procesar en lotes de 100 movimientos
     private final MovimientoStockDAO movimientoDAO;
+    private final EjecutorBD ejecutor;
 
     // Estadísticas de la importación
     private int totalLineas = 0;
@@ -32,8 +40,9 @@ public class ImportadorMovimientosCSV {
     private int lotesConError = 0;
     private final List<String> errores = new ArrayList<>();
 
-    public ImportadorMovimientosCSV() {
-        this.movimientoDAO = new MovimientoStockDAOImpl();
+    public ImportadorMovimientosCSV(MovimientoStockDAO movimientoDAO) {
+        this.movimientoDAO = movimientoDAO;
+        this.ejecutor = EjecutorBD.getInstance();
     }
 
     /**
@@ -181,7 +190,10 @@ public class ImportadorMovimientosCSV {
         String motivo = obtenerCampoOpcional(record, "motivo");
         String usuario = obtenerCampoOpcional(record, "usuario");
 
-        return new MovimientoStock(idProducto, tipoMovimiento, cantidad, motivo, usuario);
+        MovimientoStock movimiento = new MovimientoStock(idProducto, tipoMovimiento, cantidad, motivo, usuario);
+        // Con clave, volver a importar el mismo fichero no duplica los movimientos ya aplicados
+        movimiento.setClaveIdempotencia(obtenerCampoOpcional(record, "clave_idempotencia"));
+        return movimiento;
     }
 
     /**
@@ -222,6 +234,11 @@ public class ImportadorMovimientosCSV {
             erroresValidacion.add("Cantidad debe ser mayor a 0: " + movimiento.getCantidad());
         }
 
+        if (movimiento.getClaveIdempotencia() != null &&
+            movimiento.getClaveIdempotencia().length() > MovimientoStock.LONGITUD_MAXIMA_CLAVE) {
+            erroresValidacion.add("Clave de idempotencia de más de " + MovimientoStock.LONGITUD_MAXIMA_CLAVE + " caracteres");
+        }
+
         // Si hay errores, registrarlos
         if (!erroresValidacion.isEmpty()) {
             String error = String.format("Línea %d: %s",
@@ -234,51 +251,115 @@ public class ImportadorMovimientosCSV {
     }
 
     /**
-     * Procesa los movimientos en lotes con transacciones atómicas
+     * Procesa los movimientos en lotes con transacciones atómicas.
+     *
+     * Los lotes se envían al EjecutorBD y varios pueden estar en la base de datos a la vez. Un lote
+     * espera a que terminen los anteriores que comparten con él algún producto o clave de idempotencia,
+     * así que cada producto recibe sus movimientos en el orden del archivo y el resultado de cada lote
+     * es el mismo que procesándolos de uno en uno. Las estadísticas y la salida se aplican en el orden
+     * de los lotes
      */
     private void procesarEnLotes(List<MovimientoStock> movimientos) {
         int totalMovimientos = movimientos.size();
-        int numeroLote = 0;
+        int totalLotes = (int) Math.ceil((double) totalMovimientos / TAMANO_LOTE);
 
         System.out.println("=== PROCESAMIENTO POR LOTES ===");
         System.out.println("Total de movimientos a procesar: " + totalMovimientos);
+        System.out.println("Lotes simultáneos (máximo): " + ejecutor.getMaxConcurrencia());
         System.out.println();
 
+        // Último lote enviado que toca cada producto o clave de idempotencia
+        Map<String, CompletableFuture<ResultadoLote>> ultimoLote = new HashMap<>();
+        List<CompletableFuture<ResultadoLote>> lotes = new ArrayList<>();
+        int numeroLote = 0;
+
         for (int i = 0; i < totalMovimientos; i += TAMANO_LOTE) {
-            numeroLote++;
+            int numero = ++numeroLote;
             int fin = Math.min(i + TAMANO_LOTE, totalMovimientos);
             List<MovimientoStock> lote = movimientos.subList(i, fin);
 
-            System.out.printf("Procesando lote %d/%d (%d movimientos)... ",
-                    numeroLote,
-                    (int) Math.ceil((double) totalMovimientos / TAMANO_LOTE),
-                    lote.size());
+            Set<String> claves = clavesDeOrden(lote);
+            CompletableFuture<?>[] anteriores = claves.stream()
+                    .map(ultimoLote::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toArray(CompletableFuture[]::new);
+
+            CompletableFuture<ResultadoLote> futuro = CompletableFuture.allOf(anteriores)
+                    .thenCompose(v -> ejecutor.enviar(() -> procesarLote(numero, lote)));
+            for (String clave : claves) {
+                ultimoLote.put(clave, futuro);
+            }
+            lotes.add(futuro);
+        }
+
+        // Se deja terminar a todos antes de aplicar resultados, aunque alguno falle de forma inesperada
+        CompletableFuture.allOf(lotes.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        for (CompletableFuture<ResultadoLote> lote : lotes) {
+            aplicarResultado(lote.join(), totalLotes);
+        }
+
+        System.out.println();
+    }
+
+    /**
+     * Procesa un lote completo en una transacción atómica (se ejecuta en un hilo del EjecutorBD)
+     */
+    private ResultadoLote procesarLote(int numeroLote, List<MovimientoStock> lote) {
+        EventoLoteImportacion evento = EventoLoteImportacion.iniciar();
+        try {
+            int procesados = movimientoDAO.registrarMovimientosLote(lote);
+            evento.terminar(numeroLote, lote, procesados, true);
+            return new ResultadoLote(numeroLote, lote.size(), procesados, null);
+
+        } catch (SQLException e) {
+            evento.terminar(numeroLote, lote, 0, false);
+            // Si falla, se hace ROLLBACK automático de todo el lote
+            LogUtil.registrarError("PROCESAR_LOTE",
+                "Error en lote " + numeroLote + " - Rollback aplicado", e);
+            return new ResultadoLote(numeroLote, lote.size(), 0, e);
+        }
+    }
 
-            try {
-                // Procesar lote completo en una transacción atómica
-                int procesados = movimientoDAO.registrarMovimientosLote(lote);
-                movimientosExitosos += procesados;
-                lotesExitosos++;
-                System.out.println("✓ EXITOSO (" + procesados + " movimientos)");
+    private void aplicarResultado(ResultadoLote resultado, int totalLotes) {
+        System.out.printf("Procesando lote %d/%d (%d movimientos)... ",
+                resultado.numero(), totalLotes, resultado.movimientos());
 
-            } catch (SQLException e) {
-                // Si falla, se hace ROLLBACK automático de todo el lote
-                lotesConError++;
-                movimientosConError += lote.size();
+        if (resultado.error() == null) {
+            movimientosExitosos += resultado.procesados();
+            lotesExitosos++;
+            System.out.println("✓ EXITOSO (" + resultado.procesados() + " movimientos)");
+        } else {
+            lotesConError++;
+            movimientosConError += resultado.movimientos();
 
-                String error = String.format("Lote %d FALLÓ (ROLLBACK aplicado): %s",
-                        numeroLote, e.getMessage());
-                errores.add(error);
+            String error = String.format("Lote %d FALLÓ (ROLLBACK aplicado): %s",
+                    resultado.numero(), resultado.error().getMessage());
+            errores.add(error);
 
-                System.out.println("✗ FALLÓ - ROLLBACK aplicado");
-                System.err.println("  Error: " + e.getMessage());
+            System.out.println("✗ FALLÓ - ROLLBACK aplicado");
+            System.err.println("  Error: " + resultado.error().getMessage());
+        }
+    }
 
-                LogUtil.registrarError("PROCESAR_LOTE",
-                    "Error en lote " + numeroLote + " - Rollback aplicado", e);
+    /**
+     * Productos y claves de idempotencia de un lote: dos lotes que comparten alguno se procesan en orden
+     */
+    private static Set<String> clavesDeOrden(List<MovimientoStock> lote) {
+        Set<String> claves = new HashSet<>();
+        for (MovimientoStock movimiento : lote) {
+            claves.add("producto:" + movimiento.getIdProducto());
+            if (movimiento.getClaveIdempotencia() != null) {
+                claves.add("clave:" + movimiento.getClaveIdempotencia());
             }
         }
+        return claves;
+    }
 
-        System.out.println();
+    /**
+     * Resultado de un lote; error es null si se confirmó
+     */
+    private record ResultadoLote(int numero, int movimientos, int procesados, SQLException error) {
     }
 
     /**
@@ -1,8 +1,17 @@
 package com.inventario.service;
 
 import com.inventario.model.Categoria;
+import com.inventario.model.CursorProducto;
+import com.inventario.model.MovimientoStock;
 import com.inventario.model.Producto;
+import com.inventario.model.ReservaStock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Interfaz del servicio principal de inventario
@@ -21,11 +30,31 @@ public interface InventarioService {
      */
     List<Producto> obtenerTodosLosProductos() throws Exception;
     
+    /**
+     * Obtiene una página de productos ordenada por categoría y nombre (null = primera página)
+     */
+    List<Producto> obtenerPaginaProductos(CursorProducto cursor, int tamanoPagina) throws Exception;
+    
+    /**
+     * Recorre todos los productos en streaming (cerrar el Stream con try-with-resources)
+     */
+    Stream<Producto> streamTodosLosProductos() throws Exception;
+    
     /**
      * Busca un producto por ID
      */
     Producto buscarProductoPorId(int id) throws Exception;
     
+    /**
+     * Busca varios productos por ID con una sola consulta (los que no existen se omiten)
+     */
+    List<Producto> buscarProductosPorIds(Collection<Integer> ids) throws Exception;
+    
+    /**
+     * Busca productos cuyo nombre contiene el texto, ordenados por relevancia
+     */
+    List<Producto> buscarProductosPorNombre(String nombre) throws Exception;
+    
     /**
      * Busca productos por categoría
      */
@@ -46,6 +75,19 @@ public interface InventarioService {
      */
     boolean actualizarProducto(Producto producto) throws Exception;
     
+    /**
+     * Actualiza el producto solo si nadie lo ha modificado desde que se leyó (misma versión).
+     * No bloquea la fila mientras el usuario edita: devuelve false si otra escritura se adelantó
+     */
+    boolean actualizarProductoSiVersion(Producto producto) throws Exception;
+    
+    /**
+     * Lee el producto, le aplica el cambio y lo guarda de forma optimista.
+     * Si otra escritura se adelanta, vuelve a leerlo y reintenta un número acotado de veces.
+     * Devuelve el producto guardado
+     */
+    Producto modificarProducto(int idProducto, Consumer<Producto> cambio) throws Exception;
+    
     /**
      * Elimina un producto
      */
@@ -105,8 +147,109 @@ public interface InventarioService {
      */
     boolean registrarSalidaStock(int idProducto, int cantidad, String motivo) throws Exception;
     
+    /**
+     * Registra una entrada de stock con clave de idempotencia:
+     * repetir la llamada con la misma clave no vuelve a sumar el stock
+     */
+    boolean registrarEntradaStock(int idProducto, int cantidad, String motivo, String claveIdempotencia) throws Exception;
+    
+    /**
+     * Registra una salida de stock con clave de idempotencia:
+     * repetir la llamada con la misma clave no vuelve a descontar el stock
+     */
+    boolean registrarSalidaStock(int idProducto, int cantidad, String motivo, String claveIdempotencia) throws Exception;
+    
+    /**
+     * Registra una ENTRADA o SALIDA con clave de idempotencia opcional y devuelve el movimiento confirmado
+     * (ID, stock anterior y nuevo). Si la clave ya estaba registrada, devuelve el movimiento original.
+     * Las reglas de stock rechazan el movimiento con ErrorReglaStock
+     */
+    MovimientoStock registrarMovimientoStock(int idProducto, String tipo, int cantidad, String motivo,
+                                             String claveIdempotencia) throws Exception;
+    
     /**
      * Actualiza el stock de un producto
      */
     boolean actualizarStock(int idProducto, int nuevoStock) throws Exception;
+    
+    /**
+     * Suma (o resta, si es negativa) la diferencia al stock registrando el movimiento de ajuste
+     * (ENTRADA o SALIDA con motivo "Ajuste de stock"). Un ajuste negativo respeta las reservas
+     * vigentes igual que una salida. Devuelve el stock resultante
+     */
+    int ajustarStock(int idProducto, int diferencia) throws Exception;
+    
+    // === STOCK FRAGMENTADO (productos muy vendidos) ===
+    
+    /**
+     * Reparte el stock del producto entre varios fragmentos para que las salidas concurrentes
+     * no se serialicen en una sola fila
+     */
+    void activarStockFragmentado(int idProducto, int numFragmentos) throws Exception;
+    
+    /**
+     * Vuelve a guardar el stock del producto en una sola fila
+     */
+    void desactivarStockFragmentado(int idProducto) throws Exception;
+    
+    /**
+     * Reparte de nuevo a partes iguales el stock de los fragmentos del producto.
+     * Devuelve el número de fragmentos modificados
+     */
+    int rebalancearStockFragmentado(int idProducto) throws Exception;
+    
+    /**
+     * Obtiene los productos con stock fragmentado y su número de fragmentos
+     */
+    Map<Integer, Integer> obtenerProductosConStockFragmentado() throws Exception;
+    
+    /**
+     * Obtiene el stock de cada fragmento del producto
+     */
+    List<Integer> obtenerFragmentosStock(int idProducto) throws Exception;
+    
+    // === LIBRO MAYOR DE STOCK ===
+    
+    /**
+     * Reconstruye el stock que tenía un producto en la fecha indicada
+     */
+    int obtenerStockEnFecha(int idProducto, LocalDateTime fecha) throws Exception;
+    
+    /**
+     * Toma ya un snapshot de cada producto con movimientos pendientes en el libro mayor.
+     * Devuelve el número de snapshots tomados
+     */
+    int tomarSnapshotsStock() throws Exception;
+    
+    /**
+     * Número de snapshots guardados en el libro mayor
+     */
+    int contarSnapshotsStock() throws Exception;
+    
+    // === RESERVAS DE STOCK ===
+    
+    /**
+     * Reserva unidades de un producto durante el tiempo indicado, sin bloquearlo mientras tanto
+     */
+    ReservaStock reservarStock(int idProducto, int cantidad, Duration duracion, String usuario) throws Exception;
+    
+    /**
+     * Confirma una reserva vigente registrando su SALIDA. Devuelve el ID del movimiento
+     */
+    int confirmarReserva(int idReserva, String motivo) throws Exception;
+    
+    /**
+     * Libera una reserva activa
+     */
+    boolean liberarReserva(int idReserva) throws Exception;
+    
+    /**
+     * Obtiene las reservas vigentes de un producto
+     */
+    List<ReservaStock> obtenerReservasActivas(int idProducto) throws Exception;
+    
+    /**
+     * Stock disponible para vender: stock del producto menos sus reservas vigentes
+     */
+    int obtenerStockDisponible(int idProducto) throws Exception;
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.inventario.service;
+
+import com.inventario.model.Categoria;
+import com.inventario.model.CursorProducto;
+import com.inventario.model.Producto;
+import com.inventario.model.ReservaStock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Variante asíncrona de InventarioService: cada operación devuelve un CompletableFuture que se completa
+ * con el resultado o, si falla, con la misma excepción que lanzaría la versión síncrona.
+ *
+ * Sirve para solapar consultas independientes (paneles, llamadas de la API) en lugar de hacerlas una
+ * tras otra. No incluye streamTodosLosProductos: el Stream mantiene abierta su conexión y debe cerrarlo
+ * quien lo recorre; para recorridos asíncronos se usa obtenerPaginaProductos
+ */
+public interface InventarioServiceAsync {
+
+    // === GESTIÓN DE PRODUCTOS ===
+
+    CompletableFuture<Integer> cargarProductosDesdeCSV(String rutaArchivo);
+
+    CompletableFuture<List<Producto>> obtenerTodosLosProductos();
+
+    CompletableFuture<List<Producto>> obtenerPaginaProductos(CursorProducto cursor, int tamanoPagina);
+
+    /**
+     * Producto por ID, o null si no existe
+     */
+    CompletableFuture<Producto> buscarProductoPorId(int id);
+
+    /**
+     * Busca muchos productos por ID a la vez: los IDs se reparten en grupos que se consultan en
+     * paralelo. El mapa conserva el orden de los IDs y omite los que no existen
+     */
+    CompletableFuture<Map<Integer, Producto>> buscarProductosPorIds(Collection<Integer> ids);
+
+    CompletableFuture<List<Producto>> buscarProductosPorNombre(String nombre);
+
+    CompletableFuture<List<Producto>> buscarProductosPorCategoria(String categoria);
+
+    CompletableFuture<List<Producto>> obtenerProductosConStockBajo(int limite);
+
+    CompletableFuture<Integer> crearProducto(String nombre, String categoria, double precio, int stock);
+
+    CompletableFuture<Boolean> actualizarProducto(Producto producto);
+
+    CompletableFuture<Boolean> actualizarProductoSiVersion(Producto producto);
+
+    /**
+     * Modificación optimista con reintentos (ver InventarioService.modificarProducto). El cambio se
+     * aplica en el hilo del ejecutor
+     */
+    CompletableFuture<Producto> modificarProducto(int idProducto, Consumer<Producto> cambio);
+
+    CompletableFuture<Boolean> eliminarProducto(int id);
+
+    CompletableFuture<Integer> contarTotalProductos();
+
+    // === GESTIÓN DE CATEGORÍAS ===
+
+    CompletableFuture<Integer> cargarCategoriasDesdeCSV(String rutaArchivo);
+
+    CompletableFuture<List<Categoria>> obtenerTodasLasCategorias();
+
+    CompletableFuture<Categoria> buscarCategoriaPorId(int id);
+
+    CompletableFuture<Integer> crearCategoria(String nombre, String descripcion);
+
+    CompletableFuture<Boolean> actualizarCategoria(Categoria categoria);
+
+    CompletableFuture<Boolean> eliminarCategoria(int id);
+
+    CompletableFuture<Integer> contarTotalCategorias();
+
+    // === GESTIÓN DE STOCK ===
+
+    CompletableFuture<Boolean> registrarEntradaStock(int idProducto, int cantidad, String motivo);
+
+    CompletableFuture<Boolean> registrarSalidaStock(int idProducto, int cantidad, String motivo);
+
+    CompletableFuture<Boolean> registrarEntradaStock(int idProducto, int cantidad, String motivo,
+                                                     String claveIdempotencia);
+
+    CompletableFuture<Boolean> registrarSalidaStock(int idProducto, int cantidad, String motivo,
+                                                    String claveIdempotencia);
+
+    CompletableFuture<Boolean> actualizarStock(int idProducto, int nuevoStock);
+
+    CompletableFuture<Integer> ajustarStock(int idProducto, int diferencia);
+
+    // === STOCK FRAGMENTADO ===
+
+    CompletableFuture<Void> activarStockFragmentado(int idProducto, int numFragmentos);
+
+    CompletableFuture<Void> desactivarStockFragmentado(int idProducto);
+
+    CompletableFuture<Integer> rebalancearStockFragmentado(int idProducto);
+
+    CompletableFuture<Map<Integer, Integer>> obtenerProductosConStockFragmentado();
+
+    CompletableFuture<List<Integer>> obtenerFragmentosStock(int idProducto);
+
+    // === LIBRO MAYOR DE STOCK ===
+
+    CompletableFuture<Integer> obtenerStockEnFecha(int idProducto, LocalDateTime fecha);
+
+    CompletableFuture<Integer> tomarSnapshotsStock();
+
+    CompletableFuture<Integer> contarSnapshotsStock();
+
+    // === RESERVAS DE STOCK ===
+
+    CompletableFuture<ReservaStock> reservarStock(int idProducto, int cantidad, Duration duracion, String usuario);
+
+    CompletableFuture<Integer> confirmarReserva(int idReserva, String motivo);
+
+    CompletableFuture<Boolean> liberarReserva(int idReserva);
+
+    CompletableFuture<List<ReservaStock>> obtenerReservasActivas(int idProducto);
+
+    CompletableFuture<Integer> obtenerStockDisponible(int idProducto);
+
+    // === CONSULTAS AVANZADAS ===
+
+    /**
+     * Lanza las seis consultas avanzadas a la vez y se completa cuando han terminado todas
+     * (si alguna falla, con su error)
+     */
+    CompletableFuture<ReportesAvanzados> generarReportesAvanzados(ReportesAvanzados.Parametros parametros);
+
+    /**
+     * Espera el resultado de un futuro de este servicio desde código síncrono, relanzando la
+     * excepción original en lugar de CompletionException o ExecutionException
+     */
+    static <T> T esperar(CompletableFuture<T> futuro) throws Exception {
+        try {
+            return futuro.get();
+        } catch (ExecutionException | CompletionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof Exception excepcion) {
+                throw excepcion;
+            }
+            if (causa instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.inventario.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resultado de las seis consultas avanzadas lanzadas a la vez (InventarioServiceAsync.generarReportesAvanzados).
+ * Cada lista tiene las filas tal y como las devuelve ConsultasAvanzadasDAO
+ *
+ * @param topVendidos productos más vendidos
+ * @param valorPorCategoria valor del stock por categoría
+ * @param historico primera página del histórico de movimientos del periodo
+ * @param bajoStock productos con bajo stock y su histórico reciente
+ * @param sinMovimientos productos sin movimientos en el periodo indicado
+ * @param rotacion análisis de rotación por categoría
+ */
+public record ReportesAvanzados(List<Object[]> topVendidos, List<Object[]> valorPorCategoria,
+                                List<Object[]> historico, List<Object[]> bajoStock,
+                                List<Object[]> sinMovimientos, List<Object[]> rotacion) {
+
+    /**
+     * Parámetros de las consultas. Los valores por defecto son los del menú de consultas avanzadas
+     *
+     * @param limiteTop número de productos del top de ventas
+     * @param desde inicio del histórico
+     * @param hasta fin del histórico
+     * @param tamanoHistorico filas del histórico (solo la primera página)
+     * @param limiteStockBajo stock por debajo del cual un producto se considera bajo
+     * @param diasHistorico días de histórico de los productos con bajo stock
+     * @param diasSinMovimiento días sin actividad para considerar un producto parado
+     */
+    public record Parametros(int limiteTop, LocalDateTime desde, LocalDateTime hasta, int tamanoHistorico,
+                             int limiteStockBajo, int diasHistorico, int diasSinMovimiento) {
+
+        /**
+         * Top 10, histórico de los últimos 30 días (50 filas), stock bajo por debajo de 200 con 30 días
+         * de histórico y productos sin movimientos en 30 días
+         */
+        public static Parametros porDefecto() {
+            LocalDateTime ahora = LocalDateTime.now();
+            return new Parametros(10, ahora.minusDays(30), ahora, 50, 200, 30, 30);
+        }
+    }
+}
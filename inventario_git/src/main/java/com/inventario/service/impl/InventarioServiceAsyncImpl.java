@@ -0,0 +1,322 @@
+package com.inventario.service.impl;
+
+import com.inventario.dao.ConsultasAvanzadasDAO;
+import com.inventario.model.Categoria;
+import com.inventario.model.CursorProducto;
+import com.inventario.model.Producto;
+import com.inventario.model.ReservaStock;
+import com.inventario.service.InventarioService;
+import com.inventario.service.InventarioServiceAsync;
+import com.inventario.service.ReportesAvanzados;
+import com.inventario.util.EjecutorBD;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Implementación asíncrona que delega en InventarioService y ConsultasAvanzadasDAO.
+ *
+ * Cada llamada es una tarea del EjecutorBD: corre en su propio hilo virtual y abre su conexión cuando el
+ * ejecutor le da turno, así que por muchas operaciones que se lancen a la vez nunca hay más de
+ * BD_MAX_CONCURRENCIA conexiones abiertas por ellas. Los errores se registran en la capa síncrona
+ */
+public class InventarioServiceAsyncImpl implements InventarioServiceAsync {
+
+    // IDs por consulta en buscarProductosPorIds: cada grupo es un SELECT ... WHERE id IN (...)
+    private static final int TAMANO_GRUPO_IDS = 100;
+
+    private final InventarioService servicio;
+    private final ConsultasAvanzadasDAO consultasDAO;
+    private final EjecutorBD ejecutor;
+
+    public InventarioServiceAsyncImpl(InventarioService servicio, ConsultasAvanzadasDAO consultasDAO,
+                                      EjecutorBD ejecutor) {
+        this.servicio = servicio;
+        this.consultasDAO = consultasDAO;
+        this.ejecutor = ejecutor;
+    }
+
+    /**
+     * Usa el EjecutorBD compartido
+     */
+    public InventarioServiceAsyncImpl(InventarioService servicio, ConsultasAvanzadasDAO consultasDAO) {
+        this(servicio, consultasDAO, EjecutorBD.getInstance());
+    }
+
+    // === GESTIÓN DE PRODUCTOS ===
+
+    @Override
+    public CompletableFuture<Integer> cargarProductosDesdeCSV(String rutaArchivo) {
+        return ejecutor.enviar(() -> servicio.cargarProductosDesdeCSV(rutaArchivo));
+    }
+
+    @Override
+    public CompletableFuture<List<Producto>> obtenerTodosLosProductos() {
+        return ejecutor.enviar(servicio::obtenerTodosLosProductos);
+    }
+
+    @Override
+    public CompletableFuture<List<Producto>> obtenerPaginaProductos(CursorProducto cursor, int tamanoPagina) {
+        return ejecutor.enviar(() -> servicio.obtenerPaginaProductos(cursor, tamanoPagina));
+    }
+
+    @Override
+    public CompletableFuture<Producto> buscarProductoPorId(int id) {
+        return ejecutor.enviar(() -> servicio.buscarProductoPorId(id));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Producto>> buscarProductosPorIds(Collection<Integer> ids) {
+        List<Integer> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        List<CompletableFuture<List<Producto>>> grupos = new ArrayList<>();
+        for (int i = 0; i < unicos.size(); i += TAMANO_GRUPO_IDS) {
+            List<Integer> grupo = unicos.subList(i, Math.min(i + TAMANO_GRUPO_IDS, unicos.size()));
+            grupos.add(ejecutor.enviar(() -> servicio.buscarProductosPorIds(grupo)));
+        }
+
+        return CompletableFuture.allOf(grupos.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            Map<Integer, Producto> encontrados = new HashMap<>();
+            for (CompletableFuture<List<Producto>> grupo : grupos) {
+                for (Producto producto : grupo.join()) {
+                    encontrados.put(producto.getIdProducto(), producto);
+                }
+            }
+            Map<Integer, Producto> resultado = new LinkedHashMap<>();
+            for (Integer id : unicos) {
+                Producto producto = encontrados.get(id);
+                if (producto != null) {
+                    resultado.put(id, producto);
+                }
+            }
+            return resultado;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Producto>> buscarProductosPorNombre(String nombre) {
+        return ejecutor.enviar(() -> servicio.buscarProductosPorNombre(nombre));
+    }
+
+    @Override
+    public CompletableFuture<List<Producto>> buscarProductosPorCategoria(String categoria) {
+        return ejecutor.enviar(() -> servicio.buscarProductosPorCategoria(categoria));
+    }
+
+    @Override
+    public CompletableFuture<List<Producto>> obtenerProductosConStockBajo(int limite) {
+        return ejecutor.enviar(() -> servicio.obtenerProductosConStockBajo(limite));
+    }
+
+    @Override
+    public CompletableFuture<Integer> crearProducto(String nombre, String categoria, double precio, int stock) {
+        return ejecutor.enviar(() -> servicio.crearProducto(nombre, categoria, precio, stock));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> actualizarProducto(Producto producto) {
+        return ejecutor.enviar(() -> servicio.actualizarProducto(producto));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> actualizarProductoSiVersion(Producto producto) {
+        return ejecutor.enviar(() -> servicio.actualizarProductoSiVersion(producto));
+    }
+
+    @Override
+    public CompletableFuture<Producto> modificarProducto(int idProducto, Consumer<Producto> cambio) {
+        return ejecutor.enviar(() -> servicio.modificarProducto(idProducto, cambio));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> eliminarProducto(int id) {
+        return ejecutor.enviar(() -> servicio.eliminarProducto(id));
+    }
+
+    @Override
+    public CompletableFuture<Integer> contarTotalProductos() {
+        return ejecutor.enviar(servicio::contarTotalProductos);
+    }
+
+    // === GESTIÓN DE CATEGORÍAS ===
+
+    @Override
+    public CompletableFuture<Integer> cargarCategoriasDesdeCSV(String rutaArchivo) {
+        return ejecutor.enviar(() -> servicio.cargarCategoriasDesdeCSV(rutaArchivo));
+    }
+
+    @Override
+    public CompletableFuture<List<Categoria>> obtenerTodasLasCategorias() {
+        return ejecutor.enviar(servicio::obtenerTodasLasCategorias);
+    }
+
+    @Override
+    public CompletableFuture<Categoria> buscarCategoriaPorId(int id) {
+        return ejecutor.enviar(() -> servicio.buscarCategoriaPorId(id));
+    }
+
+    @Override
+    public CompletableFuture<Integer> crearCategoria(String nombre, String descripcion) {
+        return ejecutor.enviar(() -> servicio.crearCategoria(nombre, descripcion));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> actualizarCategoria(Categoria categoria) {
+        return ejecutor.enviar(() -> servicio.actualizarCategoria(categoria));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> eliminarCategoria(int id) {
+        return ejecutor.enviar(() -> servicio.eliminarCategoria(id));
+    }
+
+    @Override
+    public CompletableFuture<Integer> contarTotalCategorias() {
+        return ejecutor.enviar(servicio::contarTotalCategorias);
+    }
+
+    // === GESTIÓN DE STOCK ===
+
+    @Override
+    public CompletableFuture<Boolean> registrarEntradaStock(int idProducto, int cantidad, String motivo) {
+        return ejecutor.enviar(() -> servicio.registrarEntradaStock(idProducto, cantidad, motivo));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> registrarSalidaStock(int idProducto, int cantidad, String motivo) {
+        return ejecutor.enviar(() -> servicio.registrarSalidaStock(idProducto, cantidad, motivo));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> registrarEntradaStock(int idProducto, int cantidad, String motivo,
+                                                            String claveIdempotencia) {
+        return ejecutor.enviar(() -> servicio.registrarEntradaStock(idProducto, cantidad, motivo, claveIdempotencia));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> registrarSalidaStock(int idProducto, int cantidad, String motivo,
+                                                           String claveIdempotencia) {
+        return ejecutor.enviar(() -> servicio.registrarSalidaStock(idProducto, cantidad, motivo, claveIdempotencia));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> actualizarStock(int idProducto, int nuevoStock) {
+        return ejecutor.enviar(() -> servicio.actualizarStock(idProducto, nuevoStock));
+    }
+
+    @Override
+    public CompletableFuture<Integer> ajustarStock(int idProducto, int diferencia) {
+        return ejecutor.enviar(() -> servicio.ajustarStock(idProducto, diferencia));
+    }
+
+    // === STOCK FRAGMENTADO ===
+
+    @Override
+    public CompletableFuture<Void> activarStockFragmentado(int idProducto, int numFragmentos) {
+        return ejecutor.enviar(() -> {
+            servicio.activarStockFragmentado(idProducto, numFragmentos);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> desactivarStockFragmentado(int idProducto) {
+        return ejecutor.enviar(() -> {
+            servicio.desactivarStockFragmentado(idProducto);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> rebalancearStockFragmentado(int idProducto) {
+        return ejecutor.enviar(() -> servicio.rebalancearStockFragmentado(idProducto));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Integer>> obtenerProductosConStockFragmentado() {
+        return ejecutor.enviar(servicio::obtenerProductosConStockFragmentado);
+    }
+
+    @Override
+    public CompletableFuture<List<Integer>> obtenerFragmentosStock(int idProducto) {
+        return ejecutor.enviar(() -> servicio.obtenerFragmentosStock(idProducto));
+    }
+
+    // === LIBRO MAYOR DE STOCK ===
+
+    @Override
+    public CompletableFuture<Integer> obtenerStockEnFecha(int idProducto, LocalDateTime fecha) {
+        return ejecutor.enviar(() -> servicio.obtenerStockEnFecha(idProducto, fecha));
+    }
+
+    @Override
+    public CompletableFuture<Integer> tomarSnapshotsStock() {
+        return ejecutor.enviar(servicio::tomarSnapshotsStock);
+    }
+
+    @Override
+    public CompletableFuture<Integer> contarSnapshotsStock() {
+        return ejecutor.enviar(servicio::contarSnapshotsStock);
+    }
+
+    // === RESERVAS DE STOCK ===
+
+    @Override
+    public CompletableFuture<ReservaStock> reservarStock(int idProducto, int cantidad, Duration duracion,
+                                                         String usuario) {
+        return ejecutor.enviar(() -> servicio.reservarStock(idProducto, cantidad, duracion, usuario));
+    }
+
+    @Override
+    public CompletableFuture<Integer> confirmarReserva(int idReserva, String motivo) {
+        return ejecutor.enviar(() -> servicio.confirmarReserva(idReserva, motivo));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> liberarReserva(int idReserva) {
+        return ejecutor.enviar(() -> servicio.liberarReserva(idReserva));
+    }
+
+    @Override
+    public CompletableFuture<List<ReservaStock>> obtenerReservasActivas(int idProducto) {
+        return ejecutor.enviar(() -> servicio.obtenerReservasActivas(idProducto));
+    }
+
+    @Override
+    public CompletableFuture<Integer> obtenerStockDisponible(int idProducto) {
+        return ejecutor.enviar(() -> servicio.obtenerStockDisponible(idProducto));
+    }
+
+    // === CONSULTAS AVANZADAS ===
+
+    @Override
+    public CompletableFuture<ReportesAvanzados> generarReportesAvanzados(ReportesAvanzados.Parametros parametros) {
+        CompletableFuture<List<Object[]>> topVendidos =
+            ejecutor.enviar(() -> consultasDAO.obtenerTopProductosMasVendidos(parametros.limiteTop()));
+        CompletableFuture<List<Object[]>> valorPorCategoria =
+            ejecutor.enviar(consultasDAO::obtenerValorStockPorCategoria);
+        CompletableFuture<List<Object[]>> historico =
+            ejecutor.enviar(() -> consultasDAO.obtenerHistoricoMovimientosPaginado(parametros.desde(),
+                parametros.hasta(), null, parametros.tamanoHistorico()));
+        CompletableFuture<List<Object[]>> bajoStock =
+            ejecutor.enviar(() -> consultasDAO.obtenerProductosBajoStockConHistorico(parametros.limiteStockBajo(),
+                parametros.diasHistorico()));
+        CompletableFuture<List<Object[]>> sinMovimientos =
+            ejecutor.enviar(() -> consultasDAO.obtenerProductosSinMovimientos(parametros.diasSinMovimiento()));
+        CompletableFuture<List<Object[]>> rotacion =
+            ejecutor.enviar(consultasDAO::obtenerAnalisisRotacionPorCategoria);
+
+        return CompletableFuture.allOf(topVendidos, valorPorCategoria, historico, bajoStock, sinMovimientos, rotacion)
+            .thenApply(v -> new ReportesAvanzados(topVendidos.join(), valorPorCategoria.join(), historico.join(),
+                bajoStock.join(), sinMovimientos.join(), rotacion.join()));
+    }
+}
@@ -1,23 +1,40 @@
 package com.inventario.service.impl;
 
 import com.inventario.dao.CategoriaDAO;
+import com.inventario.dao.LibroStockDAO;
 import com.inventario.dao.ProductoDAO;
 import com.inventario.dao.MovimientoStockDAO;
+import com.inventario.dao.ReservaStockDAO;
+import com.inventario.dao.StockFragmentadoDAO;
 import com.inventario.model.Categoria;
+import com.inventario.model.CursorProducto;
 import com.inventario.model.Producto;
 import com.inventario.model.MovimientoStock;
+import com.inventario.model.ReservaStock;
 import com.inventario.service.InventarioService;
+import com.inventario.service.InventarioServiceAsync;
+import com.inventario.util.BloqueoPorProducto;
 import com.inventario.util.CsvUtil;
 import com.inventario.util.LogUtil;
+import com.inventario.util.MetricasConcurrencia;
+import com.inventario.util.VariablesEntorno;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementación del servicio principal de inventario - Versión corregida
@@ -25,14 +42,29 @@ import java.util.stream.Collectors;
 public class InventarioServiceImpl implements InventarioService {
     private static final Logger logger = LoggerFactory.getLogger(InventarioServiceImpl.class);
 
+    // Intentos de una actualización optimista antes de rendirse (variable INTENTOS_OPTIMISTAS_MAX)
+    private static final int MAX_INTENTOS_OPTIMISTAS = (int) VariablesEntorno.getLong("INTENTOS_OPTIMISTAS_MAX", 5);
+
+    private static final String MOTIVO_AJUSTE = "Ajuste de stock";
+
     private final CategoriaDAO categoriaDAO;
     private final ProductoDAO productoDAO;
     private final MovimientoStockDAO movimientoStockDAO;
+    private final StockFragmentadoDAO stockFragmentadoDAO;
+    private final ReservaStockDAO reservaStockDAO;
+    private final LibroStockDAO libroStockDAO;
+    private final BloqueoPorProducto bloqueos;
 
-    public InventarioServiceImpl(CategoriaDAO categoriaDAO, ProductoDAO productoDAO, MovimientoStockDAO movimientoStockDAO) {
+    public InventarioServiceImpl(CategoriaDAO categoriaDAO, ProductoDAO productoDAO, MovimientoStockDAO movimientoStockDAO,
+                                 StockFragmentadoDAO stockFragmentadoDAO, ReservaStockDAO reservaStockDAO,
+                                 LibroStockDAO libroStockDAO) {
         this.categoriaDAO = categoriaDAO;
         this.productoDAO = productoDAO;
         this.movimientoStockDAO = movimientoStockDAO;
+        this.stockFragmentadoDAO = stockFragmentadoDAO;
+        this.reservaStockDAO = reservaStockDAO;
+        this.libroStockDAO = libroStockDAO;
+        this.bloqueos = BloqueoPorProducto.getInstance();
     }
     
     // === GESTIÓN DE PRODUCTOS ===
@@ -53,13 +85,6 @@ public int cargarProductosDesdeCSV(String rutaArchivo) throws Exception {
             return 0;
         }
         
-        // OPTIMIZACIÓN: Obtener todas las categorías existentes UNA SOLA VEZ
-        List<Categoria> categoriasExistentes = categoriaDAO.obtenerTodas();
-        java.util.Set<String> nombresCategoriasExistentes = new java.util.HashSet<>();
-        for (Categoria cat : categoriasExistentes) {
-            nombresCategoriasExistentes.add(cat.getNombre());
-        }
-        
         // Obtener categorías únicas de los productos
         java.util.Set<String> categoriasNecesarias = new java.util.HashSet<>();
         for (Producto p : productos) {
@@ -68,7 +93,8 @@ public int cargarProductosDesdeCSV(String rutaArchivo) throws Exception {
         
         // Crear solo las categorías que no existen
         for (String nombreCategoria : categoriasNecesarias) {
-            if (!nombresCategoriasExistentes.contains(nombreCategoria)) {
+            // Consulta en memoria con el registro de categorías
+            if (!categoriaDAO.existePorNombre(nombreCategoria)) {
                 try {
                     Categoria nuevaCategoria = new Categoria(nombreCategoria, "Categoría creada automáticamente");
                     categoriaDAO.crear(nuevaCategoria);
@@ -105,6 +131,26 @@ public int cargarProductosDesdeCSV(String rutaArchivo) throws Exception {
         }
     }
     
+    @Override
+    public List<Producto> obtenerPaginaProductos(CursorProducto cursor, int tamanoPagina) throws Exception {
+        try {
+            return productoDAO.obtenerPaginaPorCategoriaNombre(cursor, tamanoPagina);
+        } catch (Exception e) {
+            LogUtil.registrarError("OBTENER_PAGINA_PRODUCTOS", "Error al obtener página de productos", e);
+            throw e;
+        }
+    }
+    
+    @Override
+    public Stream<Producto> streamTodosLosProductos() throws Exception {
+        try {
+            return productoDAO.streamTodos();
+        } catch (Exception e) {
+            LogUtil.registrarError("STREAM_PRODUCTOS", "Error al abrir el recorrido de productos", e);
+            throw e;
+        }
+    }
+    
     @Override
     public Producto buscarProductoPorId(int id) throws Exception {
         try {
@@ -122,6 +168,32 @@ public int cargarProductosDesdeCSV(String rutaArchivo) throws Exception {
         }
     }
     
+    @Override
+    public List<Producto> buscarProductosPorIds(Collection<Integer> ids) throws Exception {
+        try {
+            List<Producto> productos = productoDAO.buscarPorIds(ids);
+            logger.debug("Encontrados {} de {} productos por ID", productos.size(), ids.size());
+            return productos;
+        } catch (Exception e) {
+            LogUtil.registrarError("BUSCAR_PRODUCTOS_IDS",
+                "Error al buscar " + ids.size() + " productos por ID", e);
+            throw e;
+        }
+    }
+    
+    @Override
+    public List<Producto> buscarProductosPorNombre(String nombre) throws Exception {
+        try {
+            List<Producto> productos = productoDAO.buscarPorNombre(nombre);
+            logger.debug("Encontrados {} productos para el nombre: {}", productos.size(), nombre);
+            return productos;
+        } catch (Exception e) {
+            LogUtil.registrarError("BUSCAR_PRODUCTOS_NOMBRE", 
+                "Error al buscar productos por nombre: " + nombre, e);
+            throw e;
+        }
+    }
+    
     @Override
     public List<Producto> buscarProductosPorCategoria(String categoria) throws Exception {
         try {
@@ -185,14 +257,10 @@ public int cargarProductosDesdeCSV(String rutaArchivo) throws Exception {
                 throw new Exception("Datos del producto inválidos");
             }
             
-            // Verificar/crear categoría si no existe
-            if (!categoriaDAO.existePorNombre(producto.getCategoria())) {
-                Categoria nuevaCategoria = new Categoria(producto.getCategoria(), "Categoría creada automáticamente");
-                categoriaDAO.crear(nuevaCategoria);
-                logger.info("Categoría creada automáticamente: {}", producto.getCategoria());
-            }
+            asegurarCategoria(producto.getCategoria());
             
-            boolean actualizado = productoDAO.actualizar(producto);
+            // También escribe el stock: se coordina con los movimientos del mismo producto
+            boolean actualizado = bloqueos.ejecutar(producto.getIdProducto(), () -> productoDAO.actualizar(producto));
             
             if (actualizado) {
                 LogUtil.registrarOperacionExitosa("ACTUALIZAR_PRODUCTO", 
@@ -209,6 +277,45 @@ public int cargarProductosDesdeCSV(String rutaArchivo) throws Exception {
         }
     }
     
+    @Override
+    public boolean actualizarProductoSiVersion(Producto producto) throws Exception {
+        try {
+            if (!producto.isValid()) {
+                throw new Exception("Datos del producto inválidos");
+            }
+            
+            asegurarCategoria(producto.getCategoria());
+            
+            // Sin bloqueos: si otra escritura se adelanta, la versión ya no coincide y no se aplica
+            boolean actualizado = productoDAO.actualizarSiVersion(producto);
+            
+            if (!actualizado) {
+                LogUtil.registrarAdvertencia("ACTUALIZAR_PRODUCTO",
+                    String.format("Producto ID %d modificado por otra operación (versión leída: %d)",
+                        producto.getIdProducto(), producto.getVersion()));
+            }
+            
+            return actualizado;
+            
+        } catch (Exception e) {
+            LogUtil.registrarError("ACTUALIZAR_PRODUCTO", 
+                "Error al actualizar producto ID: " + producto.getIdProducto(), e);
+            throw e;
+        }
+    }
+    
+    @Override
+    public Producto modificarProducto(int idProducto, Consumer<Producto> cambio) throws Exception {
+        return conReintentosOptimistas(idProducto, producto -> {
+            cambio.accept(producto);
+            if (!producto.isValid()) {
+                throw new Exception("Datos del producto inválidos");
+            }
+            asegurarCategoria(producto.getCategoria());
+            return productoDAO.actualizarSiVersion(producto);
+        });
+    }
+    
     @Override
     public boolean eliminarProducto(int id) throws Exception {
         try {
@@ -407,106 +514,88 @@ public int cargarProductosDesdeCSV(String rutaArchivo) throws Exception {
     
     @Override
     public boolean registrarEntradaStock(int idProducto, int cantidad, String motivo) throws Exception {
-        try {
-            if (cantidad <= 0) {
-                throw new Exception("La cantidad debe ser mayor a cero");
-            }
-
-            // Obtener producto actual
-            Optional<Producto> productoOpt = productoDAO.buscarPorId(idProducto);
-            if (productoOpt.isEmpty()) {
-                throw new Exception("Producto no encontrado ID: " + idProducto);
-            }
-
-            Producto producto = productoOpt.get();
-            int stockAnterior = producto.getStock();
-            int stockNuevo = stockAnterior + cantidad;
-
-            // Actualizar stock
-            boolean actualizado = productoDAO.actualizarStock(idProducto, stockNuevo);
-
-            if (actualizado) {
-                // Registrar el movimiento en la tabla movimientos_stock
-                MovimientoStock movimiento = new MovimientoStock(
-                    idProducto,
-                    "ENTRADA",
-                    cantidad,
-                    stockAnterior,
-                    stockNuevo,
-                    motivo,
-                    "usuario_manual"
-                );
-                movimientoStockDAO.registrarMovimiento(movimiento);
-
-                LogUtil.registrarOperacionExitosa("ENTRADA_STOCK",
-                    String.format("Entrada registrada - Producto: %s, Cantidad: %d, Stock: %d → %d, Motivo: %s",
-                        producto.getNombre(), cantidad, stockAnterior, stockNuevo, motivo));
-            }
-
-            return actualizado;
-
-        } catch (Exception e) {
-            LogUtil.registrarError("ENTRADA_STOCK",
-                String.format("Error al registrar entrada - Producto ID: %d, Cantidad: %d", idProducto, cantidad), e);
-            throw e;
-        }
+        return registrarEntradaStock(idProducto, cantidad, motivo, null);
+    }
+    
+    @Override
+    public boolean registrarEntradaStock(int idProducto, int cantidad, String motivo,
+                                        String claveIdempotencia) throws Exception {
+        registrarMovimientoStock(idProducto, "ENTRADA", cantidad, motivo, claveIdempotencia);
+        return true;
     }
     
     @Override
     public boolean registrarSalidaStock(int idProducto, int cantidad, String motivo) throws Exception {
+        return registrarSalidaStock(idProducto, cantidad, motivo, null);
+    }
+    
+    @Override
+    public boolean registrarSalidaStock(int idProducto, int cantidad, String motivo,
+                                        String claveIdempotencia) throws Exception {
+        registrarMovimientoStock(idProducto, "SALIDA", cantidad, motivo, claveIdempotencia);
+        return true;
+    }
+    
+    @Override
+    public MovimientoStock registrarMovimientoStock(int idProducto, String tipo, int cantidad, String motivo,
+                                                    String claveIdempotencia) throws Exception {
+        boolean entrada = "ENTRADA".equals(tipo);
+        if (!entrada && !"SALIDA".equals(tipo)) {
+            throw new Exception("Tipo de movimiento inválido: " + tipo);
+        }
+        String operacion = entrada ? "ENTRADA_STOCK" : "SALIDA_STOCK";
+        
         try {
             if (cantidad <= 0) {
                 throw new Exception("La cantidad debe ser mayor a cero");
             }
 
-            // Obtener producto actual
-            Optional<Producto> productoOpt = productoDAO.buscarPorId(idProducto);
-            if (productoOpt.isEmpty()) {
-                throw new Exception("Producto no encontrado ID: " + idProducto);
-            }
-
-            Producto producto = productoOpt.get();
-            int stockAnterior = producto.getStock();
-
-            if (stockAnterior < cantidad) {
-                throw new Exception(String.format("Stock insuficiente. Disponible: %d, Solicitado: %d",
-                    stockAnterior, cantidad));
-            }
-
-            int stockNuevo = stockAnterior - cantidad;
-
-            // Actualizar stock
-            boolean actualizado = productoDAO.actualizarStock(idProducto, stockNuevo);
-
-            if (actualizado) {
-                // Registrar el movimiento en la tabla movimientos_stock
-                MovimientoStock movimiento = new MovimientoStock(
-                    idProducto,
-                    "SALIDA",
-                    cantidad,
-                    stockAnterior,
-                    stockNuevo,
-                    motivo,
-                    "usuario_manual"
-                );
-                movimientoStockDAO.registrarMovimiento(movimiento);
+            // El DAO lee el stock con la fila bloqueada (y comprueba el disponible en las salidas),
+            // inserta el movimiento y actualiza el producto en una sola transacción
+            MovimientoStock movimiento = new MovimientoStock(idProducto, tipo, cantidad, motivo, "usuario_manual");
+            movimiento.setClaveIdempotencia(claveIdempotencia);
+            registrarMovimiento(movimiento);
 
-                LogUtil.registrarOperacionExitosa("SALIDA_STOCK",
-                    String.format("Salida registrada - Producto: %s, Cantidad: %d, Stock: %d → %d, Motivo: %s",
-                        producto.getNombre(), cantidad, stockAnterior, stockNuevo, motivo));
-            }
+            LogUtil.registrarOperacionExitosa(operacion,
+                String.format("%s registrada - Producto ID: %d, Cantidad: %d, Stock: %d → %d, Motivo: %s",
+                    entrada ? "Entrada" : "Salida", idProducto, cantidad,
+                    movimiento.getStockAnterior(), movimiento.getStockNuevo(), motivo));
 
-            return actualizado;
+            return movimiento;
 
         } catch (Exception e) {
-            LogUtil.registrarError("SALIDA_STOCK",
-                String.format("Error al registrar salida - Producto ID: %d, Cantidad: %d", idProducto, cantidad), e);
+            LogUtil.registrarError(operacion,
+                String.format("Error al registrar %s - Producto ID: %d, Cantidad: %d",
+                    entrada ? "entrada" : "salida", idProducto, cantidad), e);
             throw e;
         }
     }
     
+    /**
+     * Registra el movimiento y espera a que sea durable. Con MOVIMIENTOS_COMMIT_AGRUPADO=true entra en
+     * el siguiente grupo del commit agrupado junto con los de otros productos; si no, va en su propia
+     * transacción. Los errores de stock llegan igual en ambos casos.
+     *
+     * Los movimientos sobre un mismo producto se serializan dentro del proceso, salvo en los productos
+     * fragmentados (cada movimiento toca un solo fragmento). El bloqueo cubre solo el envío al DAO:
+     * en modo agrupado eso es encolar, y la espera del commit se hace ya liberado, para que los
+     * siguientes movimientos del producto puedan entrar en el mismo grupo
+     */
+    private void registrarMovimiento(MovimientoStock movimiento) throws Exception {
+        int idProducto = movimiento.getIdProducto();
+        CompletableFuture<MovimientoStock> futuro = stockFragmentadoDAO.estaFragmentado(idProducto)
+            ? movimientoStockDAO.registrarMovimientoAgrupado(movimiento)
+            : bloqueos.ejecutar(idProducto, () -> movimientoStockDAO.registrarMovimientoAgrupado(movimiento));
+        InventarioServiceAsync.esperar(futuro);
+    }
+    
     @Override
     public boolean actualizarStock(int idProducto, int nuevoStock) throws Exception {
+        // Los movimientos sobre un mismo producto se serializan dentro del proceso
+        return bloqueos.ejecutar(idProducto, () -> aplicarActualizacionStock(idProducto, nuevoStock));
+    }
+    
+    private boolean aplicarActualizacionStock(int idProducto, int nuevoStock) throws Exception {
         try {
             if (nuevoStock < 0) {
                 throw new Exception("El stock no puede ser negativo");
@@ -527,4 +616,168 @@ public int cargarProductosDesdeCSV(String rutaArchivo) throws Exception {
             throw e;
         }
     }
-}
\ No newline at end of file
+    
+    @Override
+    public int ajustarStock(int idProducto, int diferencia) throws Exception {
+        if (diferencia == 0) {
+            return productoDAO.buscarPorId(idProducto)
+                .orElseThrow(() -> new Exception("Producto no encontrado con ID: " + idProducto))
+                .getStock();
+        }
+        
+        // El ajuste queda en el histórico como cualquier otro movimiento: mismas reglas de stock,
+        // reservas y serialización por producto que una entrada o una salida
+        MovimientoStock movimiento = new MovimientoStock(idProducto, diferencia > 0 ? "ENTRADA" : "SALIDA",
+            Math.abs(diferencia), MOTIVO_AJUSTE, "usuario_manual");
+        try {
+            registrarMovimiento(movimiento);
+        } catch (Exception e) {
+            LogUtil.registrarError("AJUSTAR_STOCK",
+                String.format("Error al ajustar stock - Producto ID: %d, Diferencia: %d", idProducto, diferencia), e);
+            throw e;
+        }
+        
+        LogUtil.registrarOperacionExitosa("AJUSTAR_STOCK",
+            String.format("Stock ajustado - Producto ID: %d, Diferencia: %d, Stock: %d → %d",
+                idProducto, diferencia, movimiento.getStockAnterior(), movimiento.getStockNuevo()));
+        return movimiento.getStockNuevo();
+    }
+    
+    /**
+     * Escritura optimista sobre un producto recién leído:
+     * devuelve false si la versión ya había cambiado y no se aplicó
+     */
+    @FunctionalInterface
+    private interface IntentoOptimista {
+        boolean aplicar(Producto producto) throws Exception;
+    }
+    
+    /**
+     * Lee el producto y ejecuta el intento hasta que se aplica o se agotan los intentos.
+     * Entre intentos se espera un tiempo aleatorio creciente para que los escritores
+     * en conflicto no vuelvan a chocar a la vez
+     */
+    private Producto conReintentosOptimistas(int idProducto, IntentoOptimista intento) throws Exception {
+        MetricasConcurrencia metricas = MetricasConcurrencia.getInstance();
+        
+        for (int numIntento = 1; ; numIntento++) {
+            Producto producto = productoDAO.buscarPorId(idProducto)
+                .orElseThrow(() -> new Exception("Producto no encontrado con ID: " + idProducto));
+            
+            if (intento.aplicar(producto)) {
+                return producto;
+            }
+            
+            if (numIntento >= MAX_INTENTOS_OPTIMISTAS) {
+                metricas.registrarReintentosAgotados();
+                throw new Exception(String.format(
+                    "El producto %d se modificó concurrentemente en %d intentos seguidos; vuelva a intentarlo",
+                    idProducto, numIntento));
+            }
+            
+            metricas.registrarReintento();
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(1, 2L << Math.min(numIntento, 5)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new Exception("Reintento interrumpido en el producto " + idProducto, e);
+            }
+        }
+    }
+    
+    private void asegurarCategoria(String categoria) throws Exception {
+        // Verificar/crear categoría si no existe
+        if (!categoriaDAO.existePorNombre(categoria)) {
+            Categoria nuevaCategoria = new Categoria(categoria, "Categoría creada automáticamente");
+            categoriaDAO.crear(nuevaCategoria);
+            logger.info("Categoría creada automáticamente: {}", categoria);
+        }
+    }
+    
+    // === STOCK FRAGMENTADO ===
+    
+    @Override
+    public void activarStockFragmentado(int idProducto, int numFragmentos) throws Exception {
+        // Se espera a que terminen los movimientos en curso sobre la fila única del producto
+        bloqueos.ejecutar(idProducto, () -> {
+            stockFragmentadoDAO.activar(idProducto, numFragmentos);
+            return null;
+        });
+    }
+    
+    @Override
+    public void desactivarStockFragmentado(int idProducto) throws Exception {
+        bloqueos.ejecutar(idProducto, () -> {
+            stockFragmentadoDAO.desactivar(idProducto);
+            return null;
+        });
+    }
+    
+    @Override
+    public int rebalancearStockFragmentado(int idProducto) throws Exception {
+        if (!stockFragmentadoDAO.estaFragmentado(idProducto)) {
+            throw new Exception("El producto no tiene el stock fragmentado: " + idProducto);
+        }
+        return stockFragmentadoDAO.rebalancear(idProducto);
+    }
+    
+    @Override
+    public Map<Integer, Integer> obtenerProductosConStockFragmentado() throws Exception {
+        return stockFragmentadoDAO.obtenerProductosFragmentados();
+    }
+    
+    @Override
+    public List<Integer> obtenerFragmentosStock(int idProducto) throws Exception {
+        return stockFragmentadoDAO.obtenerFragmentos(idProducto);
+    }
+    
+    // === LIBRO MAYOR DE STOCK ===
+    
+    @Override
+    public int obtenerStockEnFecha(int idProducto, LocalDateTime fecha) throws Exception {
+        if (fecha == null) {
+            throw new Exception("La fecha es obligatoria");
+        }
+        return libroStockDAO.obtenerStockEnFecha(idProducto, fecha);
+    }
+    
+    @Override
+    public int tomarSnapshotsStock() throws Exception {
+        return libroStockDAO.tomarSnapshots(1);
+    }
+    
+    @Override
+    public int contarSnapshotsStock() throws Exception {
+        return libroStockDAO.contarSnapshots();
+    }
+    
+    // === RESERVAS DE STOCK ===
+    
+    @Override
+    public ReservaStock reservarStock(int idProducto, int cantidad, Duration duracion, String usuario) throws Exception {
+        if (cantidad <= 0) {
+            throw new Exception("La cantidad debe ser mayor a cero");
+        }
+        return reservaStockDAO.reservar(idProducto, cantidad, duracion, usuario);
+    }
+    
+    @Override
+    public int confirmarReserva(int idReserva, String motivo) throws Exception {
+        return reservaStockDAO.confirmar(idReserva, motivo);
+    }
+    
+    @Override
+    public boolean liberarReserva(int idReserva) throws Exception {
+        return reservaStockDAO.liberar(idReserva);
+    }
+    
+    @Override
+    public List<ReservaStock> obtenerReservasActivas(int idProducto) throws Exception {
+        return reservaStockDAO.obtenerActivasPorProducto(idProducto);
+    }
+    
+    @Override
+    public int obtenerStockDisponible(int idProducto) throws Exception {
+        return productoDAO.obtenerStockTotal(idProducto) - reservaStockDAO.obtenerCantidadReservada(idProducto);
+    }
+}
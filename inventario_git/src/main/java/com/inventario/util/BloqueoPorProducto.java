@@ -0,0 +1,77 @@
+package com.inventario.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloqueo por producto mediante lock striping, compartido por todo el proceso.
+ *
+ * Cada ID de producto se asigna a uno de un número fijo de ReentrantLock: los movimientos
+ * sobre un mismo producto se ejecutan de uno en uno dentro del proceso, y los de productos
+ * distintos avanzan en paralelo salvo que compartan franja. Así las transacciones sobre una
+ * misma fila no compiten entre sí en MySQL (esperas de bloqueo e interbloqueos).
+ *
+ * Los bloqueos son reentrantes: una operación bloqueada puede invocar otra sobre el mismo producto.
+ */
+public class BloqueoPorProducto {
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+
+    /**
+     * Operación que se ejecuta con el bloqueo del producto adquirido
+     */
+    @FunctionalInterface
+    public interface OperacionBloqueada<T> {
+        T ejecutar() throws Exception;
+    }
+
+    /**
+     * Crea un bloqueo con al menos el número de franjas indicado (se redondea a potencia de 2)
+     */
+    public BloqueoPorProducto(int franjasMinimas) {
+        if (franjasMinimas <= 0) {
+            throw new IllegalArgumentException("El número de franjas debe ser mayor a cero: " + franjasMinimas);
+        }
+        int total = Integer.highestOneBit(franjasMinimas);
+        if (total < franjasMinimas) {
+            total <<= 1;
+        }
+        this.franjas = new ReentrantLock[total];
+        for (int i = 0; i < total; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        this.mascara = total - 1;
+    }
+
+    private static class Holder {
+        // Suficientes franjas para que dos hilos rara vez coincidan en productos distintos
+        private static final BloqueoPorProducto INSTANCE = new BloqueoPorProducto(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+    }
+
+    public static BloqueoPorProducto getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Ejecuta la operación con el bloqueo del producto adquirido
+     */
+    public <T> T ejecutar(int idProducto, OperacionBloqueada<T> operacion) throws Exception {
+        ReentrantLock bloqueo = franjaDe(idProducto);
+        bloqueo.lock();
+        try {
+            return operacion.ejecutar();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    public int getNumeroFranjas() {
+        return franjas.length;
+    }
+
+    private ReentrantLock franjaDe(int idProducto) {
+        // Mezcla de bits para repartir IDs consecutivos entre franjas no contiguas
+        int h = idProducto * 0x9E3779B9;
+        return franjas[(h ^ (h >>> 16)) & mascara];
+    }
+}
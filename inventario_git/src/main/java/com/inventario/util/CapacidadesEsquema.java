@@ -0,0 +1,253 @@
+package com.inventario.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Detección de los índices opcionales del esquema (scripts/06-optimizaciones-compatible.sql).
+ *
+ * Consulta information_schema.STATISTICS una sola vez y guarda el resultado, de modo que
+ * los DAO eligen su estrategia de consulta sin probar sentencias que pueden fallar.
+ * Si la consulta falla no se guarda nada y se repite en el siguiente uso.
+ * La detección puede repetirse bajo demanda tras aplicar o retirar índices.
+ *
+ * También comprueba al arrancar las columnas que los DAO usan siempre y que las bases de
+ * datos antiguas solo tienen tras aplicar su script de migración.
+ */
+public class CapacidadesEsquema {
+    private static final Logger logger = LoggerFactory.getLogger(CapacidadesEsquema.class);
+
+    private static final String SQL_INDICES =
+            "SELECT DISTINCT TABLE_NAME, INDEX_NAME, INDEX_TYPE FROM information_schema.STATISTICS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN ('productos', 'categorias', 'movimientos_stock')";
+
+    /**
+     * Índices opcionales y la ruta de consulta que habilita cada uno
+     */
+    public enum IndiceOptimizado {
+        PRODUCTOS_NOMBRE("productos", "idx_productos_nombre", "Búsqueda por prefijo de nombre"),
+        PRODUCTOS_NOMBRE_FULLTEXT("productos", "idx_productos_nombre_fulltext", "Búsqueda por nombre con MATCH ... AGAINST"),
+        PRODUCTOS_PRECIO("productos", "idx_productos_precio", "Filtros por rango de precio"),
+        PRODUCTOS_CAT_PRECIO_STOCK("productos", "idx_productos_cat_precio_stock", "Estadísticas por categoría (índice cubriente)"),
+        PRODUCTOS_PRECIO_STOCK("productos", "idx_productos_precio_stock", "Valor total del inventario"),
+        PRODUCTOS_CATEGORIA_NOMBRE("productos", "idx_productos_categoria_nombre", "Listado paginado por categoría y nombre"),
+        PRODUCTOS_CATEGORIA_STOCK("productos", "idx_productos_categoria_stock", "Stock bajo por categoría"),
+        MOVIMIENTOS_TIPO_PRODUCTO("movimientos_stock", "idx_movimientos_tipo_producto", "Top de productos por tipo de movimiento"),
+        MOVIMIENTOS_FECHA_TIPO("movimientos_stock", "idx_movimientos_fecha_tipo", "Histórico por rango de fechas"),
+        MOVIMIENTOS_USUARIO("movimientos_stock", "idx_movimientos_usuario", "Filtros por usuario"),
+        MOVIMIENTOS_PRODUCTO_FECHA("movimientos_stock", "idx_movimientos_producto_fecha", "Historial paginado por producto y stock en una fecha"),
+        MOVIMIENTOS_TIPO_FECHA("movimientos_stock", "idx_movimientos_tipo_fecha", "Historial paginado por tipo"),
+        CATEGORIAS_NOMBRE("categorias", "idx_categorias_nombre", "Búsqueda y orden de categorías");
+
+        private final String tabla;
+        private final String nombreIndice;
+        private final String rutaOptimizada;
+
+        IndiceOptimizado(String tabla, String nombreIndice, String rutaOptimizada) {
+            this.tabla = tabla;
+            this.nombreIndice = nombreIndice;
+            this.rutaOptimizada = rutaOptimizada;
+        }
+
+        public String getTabla() {
+            return tabla;
+        }
+
+        public String getNombreIndice() {
+            return nombreIndice;
+        }
+
+        public String getRutaOptimizada() {
+            return rutaOptimizada;
+        }
+    }
+
+    /**
+     * Columnas obligatorias añadidas después de 01-init.sql y el script que las crea
+     */
+    public enum ColumnaRequerida {
+        MOVIMIENTOS_CLAVE_IDEMPOTENCIA("movimientos_stock", "clave_idempotencia", "scripts/07-claves-idempotencia.sql"),
+        PRODUCTOS_VERSION("productos", "version", "scripts/08-version-productos.sql");
+
+        private final String tabla;
+        private final String columna;
+        private final String scriptMigracion;
+
+        ColumnaRequerida(String tabla, String columna, String scriptMigracion) {
+            this.tabla = tabla;
+            this.columna = columna;
+            this.scriptMigracion = scriptMigracion;
+        }
+
+        public String getTabla() {
+            return tabla;
+        }
+
+        public String getColumna() {
+            return columna;
+        }
+
+        public String getScriptMigracion() {
+            return scriptMigracion;
+        }
+    }
+
+    /**
+     * Estrategia de ProductoDAO.buscarPorNombre según los índices disponibles
+     */
+    public enum EstrategiaBusquedaNombre {
+        FULLTEXT, LIKE
+    }
+
+    private static final String SQL_COLUMNAS =
+            "SELECT TABLE_NAME, COLUMN_NAME FROM information_schema.COLUMNS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN ('productos', 'movimientos_stock')";
+
+    private final DatabaseConfig dbConfig;
+
+    // null = todavía no se ha detectado
+    private volatile Set<IndiceOptimizado> disponibles;
+    // Una sola detección a la vez; es un lock y no synchronized porque consulta information_schema
+    private final ReentrantLock deteccion = new ReentrantLock();
+
+    private CapacidadesEsquema() {
+        this.dbConfig = DatabaseConfig.getInstance();
+    }
+
+    private static class Holder {
+        private static final CapacidadesEsquema INSTANCE = new CapacidadesEsquema();
+    }
+
+    public static CapacidadesEsquema getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Consulta el esquema y actualiza los índices disponibles.
+     * Si la consulta falla se mantiene la última detección correcta; sin ninguna, se usan
+     * las rutas genéricas hasta que una detección posterior funcione
+     */
+    public Set<IndiceOptimizado> detectar() {
+        deteccion.lock();
+        try {
+            return detectarIndices();
+        } finally {
+            deteccion.unlock();
+        }
+    }
+
+    private Set<IndiceOptimizado> detectarIndices() {
+        Set<IndiceOptimizado> encontrados = EnumSet.noneOf(IndiceOptimizado.class);
+        Set<IndiceOptimizado> anteriores = disponibles;
+
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INDICES);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                String tabla = rs.getString("TABLE_NAME");
+                String indice = rs.getString("INDEX_NAME");
+                String tipo = rs.getString("INDEX_TYPE");
+
+                for (IndiceOptimizado candidato : IndiceOptimizado.values()) {
+                    if (candidato.getTabla().equalsIgnoreCase(tabla)
+                            && candidato.getNombreIndice().equalsIgnoreCase(indice)
+                            && (candidato != IndiceOptimizado.PRODUCTOS_NOMBRE_FULLTEXT || "FULLTEXT".equalsIgnoreCase(tipo))) {
+                        encontrados.add(candidato);
+                    }
+                }
+            }
+
+            logger.info("Índices opcionales detectados: {} de {}", encontrados.size(), IndiceOptimizado.values().length);
+
+        } catch (SQLException e) {
+            // No se guarda: un fallo pasajero (base de datos aún arrancando) no debe fijar las rutas genéricas
+            LogUtil.registrarAdvertencia("DETECTAR_CAPACIDADES",
+                "No se pudieron consultar los índices del esquema, se reintentará en el siguiente uso: " + e.getMessage());
+            return anteriores != null ? anteriores : Collections.emptySet();
+        }
+
+        disponibles = Collections.unmodifiableSet(encontrados);
+        return disponibles;
+    }
+
+    /**
+     * Columnas obligatorias que faltan en el esquema (vacío si está al día). Sin ellas las consultas
+     * de productos y movimientos fallan, así que se comprueba antes de empezar a trabajar.
+     * Si no se puede consultar information_schema no se bloquea el arranque
+     */
+    public List<ColumnaRequerida> columnasPendientes() {
+        Set<String> existentes = new HashSet<>();
+        try (Connection conn = dbConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_COLUMNAS);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                existentes.add((rs.getString("TABLE_NAME") + "." + rs.getString("COLUMN_NAME")).toLowerCase());
+            }
+
+        } catch (SQLException e) {
+            LogUtil.registrarAdvertencia("DETECTAR_CAPACIDADES",
+                "No se pudieron consultar las columnas del esquema: " + e.getMessage());
+            return List.of();
+        }
+
+        List<ColumnaRequerida> pendientes = new ArrayList<>();
+        for (ColumnaRequerida columna : ColumnaRequerida.values()) {
+            if (!existentes.contains(columna.getTabla() + "." + columna.getColumna())) {
+                pendientes.add(columna);
+            }
+        }
+        return pendientes;
+    }
+
+    /**
+     * Indica si el índice está disponible (detecta el esquema la primera vez)
+     */
+    public boolean disponible(IndiceOptimizado indice) {
+        Set<IndiceOptimizado> actuales = disponibles;
+        if (actuales == null) {
+            actuales = detectar();
+        }
+        return actuales.contains(indice);
+    }
+
+    /**
+     * Pista FORCE INDEX para añadir tras el nombre de la tabla (con su alias, si lo hay),
+     * o cadena vacía si el índice no existe y se deja elegir al optimizador
+     */
+    public String forzarIndice(IndiceOptimizado indice) {
+        return disponible(indice) ? " FORCE INDEX (" + indice.getNombreIndice() + ")" : "";
+    }
+
+    public EstrategiaBusquedaNombre estrategiaBusquedaNombre() {
+        return disponible(IndiceOptimizado.PRODUCTOS_NOMBRE_FULLTEXT)
+                ? EstrategiaBusquedaNombre.FULLTEXT
+                : EstrategiaBusquedaNombre.LIKE;
+    }
+
+    /**
+     * Estado de cada ruta optimizada (true = índice presente)
+     */
+    public Map<IndiceOptimizado, Boolean> informe() {
+        Map<IndiceOptimizado, Boolean> informe = new EnumMap<>(IndiceOptimizado.class);
+        for (IndiceOptimizado indice : IndiceOptimizado.values()) {
+            informe.put(indice, disponible(indice));
+        }
+        return informe;
+    }
+}
@@ -0,0 +1,133 @@
+package com.inventario.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Envuelve las conexiones de DatabaseConfig para medir cada sentencia que ejecutan los DAOs.
+ *
+ * Las sentencias preparadas recuerdan los parámetros enlazados con setXxx; cuando una ejecución
+ * supera el umbral de ConsultasLentas, se le pasan el SQL, esos parámetros y la duración. Todo lo
+ * demás se delega sin cambios en la conexión y las sentencias reales.
+ */
+final class ConexionMonitorizada implements InvocationHandler {
+    private static final Set<String> EJECUCIONES = Set.of(
+        "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final Connection conexion;
+    private final ConsultasLentas consultasLentas;
+
+    private ConexionMonitorizada(Connection conexion, ConsultasLentas consultasLentas) {
+        this.conexion = conexion;
+        this.consultasLentas = consultasLentas;
+    }
+
+    static Connection envolver(Connection conexion, ConsultasLentas consultasLentas) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, new ConexionMonitorizada(conexion, consultasLentas));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+        Object resultado = invocar(conexion, metodo, args);
+        Class<?> tipo = metodo.getReturnType();
+        if (tipo == PreparedStatement.class || tipo == CallableStatement.class) {
+            return envolverSentencia(tipo, (Statement) resultado, (String) args[0]);
+        }
+        if (tipo == Statement.class) {
+            return envolverSentencia(tipo, (Statement) resultado, null);
+        }
+        return resultado;
+    }
+
+    private Object envolverSentencia(Class<?> tipo, Statement sentencia, String sql) {
+        return Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo},
+            new SentenciaMonitorizada(sentencia, sql));
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            // El DAO debe recibir la SQLException original
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Sentencia que lleva la cuenta de sus parámetros y mide sus ejecuciones.
+     * Una sentencia JDBC no se comparte entre hilos, así que no necesita sincronización
+     */
+    private final class SentenciaMonitorizada implements InvocationHandler {
+        private final Statement sentencia;
+        private final String sqlPreparado;
+        private final List<Object> parametros = new ArrayList<>();
+        private String sqlLote;
+        private int filasLote;
+
+        SentenciaMonitorizada(Statement sentencia, String sqlPreparado) {
+            this.sentencia = sentencia;
+            this.sqlPreparado = sqlPreparado;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (EJECUCIONES.contains(nombre)) {
+                return ejecutar(metodo, args);
+            }
+            if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+                guardarParametro(indice, nombre.equals("setNull") ? null : args[1]);
+            } else if (nombre.equals("clearParameters")) {
+                parametros.clear();
+            } else if (nombre.equals("addBatch")) {
+                filasLote++;
+                if (args != null) {
+                    sqlLote = (String) args[0];
+                }
+            } else if (nombre.equals("clearBatch")) {
+                filasLote = 0;
+            }
+            return invocar(sentencia, metodo, args);
+        }
+
+        private Object ejecutar(Method metodo, Object[] args) throws Throwable {
+            String sql = args != null && args.length > 0 && args[0] instanceof String texto ? texto : sqlPreparado;
+            boolean lote = metodo.getName().endsWith("Batch");
+            if (sql == null) {
+                sql = sqlLote;
+            }
+            int filas = filasLote;
+
+            long inicio = System.nanoTime();
+            try {
+                return invocar(sentencia, metodo, args);
+            } finally {
+                long duracion = System.nanoTime() - inicio;
+                if (lote) {
+                    filasLote = 0;
+                }
+                if (sql != null && consultasLentas.superaUmbral(duracion)) {
+                    // Se copian los parámetros: la sentencia puede reutilizarse mientras se analiza
+                    consultasLentas.registrar(sql, new ArrayList<>(parametros), lote ? filas : 0, duracion);
+                }
+            }
+        }
+
+        private void guardarParametro(int indice, Object valor) {
+            while (parametros.size() < indice) {
+                parametros.add(null);
+            }
+            parametros.set(indice - 1, valor);
+        }
+    }
+}
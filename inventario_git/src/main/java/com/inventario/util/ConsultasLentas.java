@@ -0,0 +1,249 @@
+package com.inventario.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de consultas lentas con captura automática del plan de ejecución.
+ *
+ * Toda sentencia ejecutada con una conexión de DatabaseConfig que tarde más que el umbral se anota
+ * con sus parámetros. Un hilo en segundo plano lanza EXPLAIN FORMAT=JSON con esos mismos parámetros
+ * en una conexión aparte y escribe la sentencia y el plan en logs/consultas_lentas.log (rotado por
+ * logback). El hilo que ejecutó la consulta nunca espera: si la cola está llena, la entrada se descarta
+ * y se cuenta. Para no repetir el mismo análisis en ráfagas, cada SQL se explica como mucho una vez
+ * por minuto; las demás apariciones se anotan sin plan.
+ *
+ * Se ajusta con CONSULTAS_LENTAS_UMBRAL_MS (por defecto 500) y se desactiva con CONSULTAS_LENTAS=false.
+ */
+public class ConsultasLentas {
+    private static final Logger logger = LoggerFactory.getLogger(ConsultasLentas.class);
+    // Logger propio con su archivo en logback.xml
+    private static final Logger registro = LoggerFactory.getLogger("com.inventario.consultas_lentas");
+
+    private static final long DEFAULT_UMBRAL_MS = 500;
+    private static final int CAPACIDAD_COLA = 256;
+    private static final long INTERVALO_EXPLAIN_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int MAX_SQL_RECORDADOS = 1000;
+    private static final int MAX_LONGITUD_PARAMETRO = 200;
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final long umbralNanos;
+    private final ThreadPoolExecutor analizador;
+    private final Map<String, Long> ultimoExplain = new ConcurrentHashMap<>();
+    private Connection conexionExplain;
+
+    private final AtomicLong registradas = new AtomicLong();
+    private final AtomicLong planesCapturados = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+
+    ConsultasLentas(long umbralMs) {
+        if (umbralMs < 0) {
+            throw new IllegalArgumentException("Umbral de consultas lentas inválido: " + umbralMs);
+        }
+        this.umbralNanos = TimeUnit.MILLISECONDS.toNanos(umbralMs);
+        this.analizador = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(CAPACIDAD_COLA),
+            tarea -> {
+                Thread hilo = new Thread(tarea, "explain-consultas-lentas");
+                hilo.setDaemon(true);
+                return hilo;
+            },
+            (tarea, ejecutor) -> descartadas.incrementAndGet());
+        Runtime.getRuntime().addShutdownHook(new Thread(this::cerrar, "cierre-consultas-lentas"));
+
+        logger.info("Registro de consultas lentas activo: umbral {} ms", umbralMs);
+    }
+
+    public static boolean estaHabilitado() {
+        return !"false".equalsIgnoreCase(System.getenv("CONSULTAS_LENTAS"));
+    }
+
+    // Se pide en cada getConnection(): sin synchronized, como DatabaseConfig
+    private static class Holder {
+        private static final ConsultasLentas INSTANCE =
+            new ConsultasLentas(VariablesEntorno.getLong("CONSULTAS_LENTAS_UMBRAL_MS", DEFAULT_UMBRAL_MS));
+    }
+
+    public static ConsultasLentas getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Conexión que anota sus sentencias lentas
+     */
+    Connection monitorizar(Connection conexion) {
+        return ConexionMonitorizada.envolver(conexion, this);
+    }
+
+    boolean superaUmbral(long duracionNanos) {
+        return duracionNanos >= umbralNanos;
+    }
+
+    /**
+     * Encola una sentencia lenta para analizarla y escribirla en el registro.
+     * filasLote es el número de filas de un executeBatch (0 si no es un lote)
+     */
+    void registrar(String sql, List<Object> parametros, int filasLote, long duracionNanos) {
+        registradas.incrementAndGet();
+        String hilo = Thread.currentThread().getName();
+        LocalDateTime fecha = LocalDateTime.now();
+        analizador.execute(() -> analizarYEscribir(sql, parametros, filasLote, duracionNanos, hilo, fecha));
+    }
+
+    /**
+     * Detiene el análisis en segundo plano tras escribir lo que quede en la cola
+     */
+    public void cerrar() {
+        analizador.shutdown();
+        try {
+            analizador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        cerrarConexionExplain();
+    }
+
+    public long getUmbralMs() {
+        return TimeUnit.NANOSECONDS.toMillis(umbralNanos);
+    }
+
+    /**
+     * Sentencias que superaron el umbral desde el arranque
+     */
+    public long getRegistradas() {
+        return registradas.get();
+    }
+
+    /**
+     * Planes EXPLAIN capturados y escritos en el registro
+     */
+    public long getPlanesCapturados() {
+        return planesCapturados.get();
+    }
+
+    /**
+     * Sentencias lentas que no se escribieron porque la cola de análisis estaba llena
+     */
+    public long getDescartadas() {
+        return descartadas.get();
+    }
+
+    private void analizarYEscribir(String sql, List<Object> parametros, int filasLote, long duracionNanos,
+                                   String hilo, LocalDateTime fecha) {
+        StringBuilder entrada = new StringBuilder();
+        entrada.append(String.format(Locale.ROOT, "Consulta lenta: %.1f ms | %s | hilo %s%n",
+            duracionNanos / 1_000_000.0, fecha.format(FORMATO_FECHA), hilo));
+        entrada.append("SQL: ").append(sql.strip()).append('\n');
+        if (filasLote > 0) {
+            entrada.append("Lote: ").append(filasLote).append(" filas (parámetros de la última)\n");
+        }
+        entrada.append("Parámetros: ").append(formatearParametros(parametros)).append('\n');
+        entrada.append("Plan: ").append(obtenerPlan(sql, parametros));
+        registro.info(entrada.toString());
+    }
+
+    private String obtenerPlan(String sql, List<Object> parametros) {
+        if (!esExplicable(sql)) {
+            return "no aplicable a esta sentencia";
+        }
+        String clave = sql.strip().replaceAll("\\s+", " ");
+        long ahora = System.nanoTime();
+        Long anterior = ultimoExplain.get(clave);
+        if (anterior != null && ahora - anterior < INTERVALO_EXPLAIN_NANOS) {
+            return "ya capturado hace " + TimeUnit.NANOSECONDS.toSeconds(ahora - anterior) + " s";
+        }
+        if (ultimoExplain.size() >= MAX_SQL_RECORDADOS) {
+            ultimoExplain.clear();
+        }
+        ultimoExplain.put(clave, ahora);
+
+        try {
+            String plan = explicar(sql, parametros);
+            planesCapturados.incrementAndGet();
+            return "\n" + plan;
+        } catch (SQLException e) {
+            // La conexión puede haber caducado: se abre otra en el siguiente análisis
+            cerrarConexionExplain();
+            return "no disponible (" + e.getMessage() + ")";
+        }
+    }
+
+    private String explicar(String sql, List<Object> parametros) throws SQLException {
+        if (conexionExplain == null || !conexionExplain.isValid(2)) {
+            cerrarConexionExplain();
+            conexionExplain = DatabaseConfig.getInstance().getConnectionSinMonitorizar();
+        }
+        try (PreparedStatement stmt = conexionExplain.prepareStatement("EXPLAIN FORMAT=JSON " + sql)) {
+            for (int i = 0; i < parametros.size(); i++) {
+                if (parametros.get(i) == null) {
+                    stmt.setNull(i + 1, Types.NULL);
+                } else {
+                    stmt.setObject(i + 1, parametros.get(i));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "(vacío)";
+            }
+        }
+    }
+
+    private void cerrarConexionExplain() {
+        if (conexionExplain != null) {
+            DatabaseConfig.getInstance().closeConnection(conexionExplain);
+            conexionExplain = null;
+        }
+    }
+
+    /**
+     * EXPLAIN solo admite SELECT, UPDATE, DELETE e INSERT/REPLACE; de estos, un INSERT ... VALUES no
+     * tiene plan que mirar
+     */
+    private static boolean esExplicable(String sql) {
+        String inicio = sql.stripLeading().toLowerCase(Locale.ROOT);
+        if (inicio.startsWith("select") || inicio.startsWith("with") ||
+            inicio.startsWith("update") || inicio.startsWith("delete")) {
+            return true;
+        }
+        return (inicio.startsWith("insert") || inicio.startsWith("replace")) && inicio.contains("select");
+    }
+
+    private static String formatearParametros(List<Object> parametros) {
+        if (parametros.isEmpty()) {
+            return "(ninguno)";
+        }
+        StringBuilder texto = new StringBuilder("[");
+        for (int i = 0; i < parametros.size(); i++) {
+            Object valor = parametros.get(i);
+            if (i > 0) {
+                texto.append(", ");
+            }
+            if (valor == null) {
+                texto.append("NULL");
+            } else if (valor instanceof CharSequence cadena) {
+                String recortado = cadena.length() > MAX_LONGITUD_PARAMETRO
+                    ? cadena.subSequence(0, MAX_LONGITUD_PARAMETRO) + "..."
+                    : cadena.toString();
+                texto.append('\'').append(recortado).append('\'');
+            } else {
+                texto.append(valor);
+            }
+        }
+        return texto.append(']').toString();
+    }
+}
@@ -1,19 +1,24 @@
 package com.inventario.util;
 
 import com.inventario.model.Categoria;
+import com.inventario.model.MovimientoStock;
 import com.inventario.model.Producto;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Utilidad para lectura y escritura de archivos CSV con separador punto y coma
@@ -237,4 +242,42 @@ public class CsvUtil {
             return false;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Exporta movimientos a CSV escribiéndolos uno a uno según llegan del Stream, sin materializar
+     * la lista. Usa comas y empieza por las columnas de ImportadorMovimientosCSV, así que el archivo
+     * se puede volver a importar. Devuelve el número de movimientos exportados
+     */
+    public static int exportarMovimientos(Stream<MovimientoStock> movimientos, String rutaArchivo) throws IOException {
+        logger.info("Exportando movimientos en streaming a CSV: {}", rutaArchivo);
+        
+        File directorio = new File(rutaArchivo).getParentFile();
+        if (directorio != null && !directorio.exists()) {
+            directorio.mkdirs();
+        }
+        
+        int total = 0;
+        try (FileWriter writer = new FileWriter(rutaArchivo, StandardCharsets.UTF_8);
+             CSVPrinter printer = new CSVPrinter(writer, CSVFormat.Builder.create()
+                     .setDelimiter(',')
+                     .setHeader("id_producto", "tipo_movimiento", "cantidad", "motivo", "usuario",
+                         "id_movimiento", "fecha_movimiento", "stock_anterior", "stock_nuevo")
+                     .build())) {
+            
+            for (MovimientoStock movimiento : (Iterable<MovimientoStock>) movimientos::iterator) {
+                printer.printRecord(movimiento.getIdProducto(), movimiento.getTipoMovimiento(),
+                    movimiento.getCantidad(), movimiento.getMotivo(), movimiento.getUsuario(),
+                    movimiento.getIdMovimiento(), movimiento.getFechaMovimiento(),
+                    movimiento.getStockAnterior(), movimiento.getStockNuevo());
+                total++;
+            }
+            
+            logger.info("Exportación en streaming completada: {} movimientos", total);
+            return total;
+            
+        } catch (IOException e) {
+            logger.error("Error al exportar movimientos a CSV: {}", rutaArchivo, e);
+            throw e;
+        }
+    }
+}
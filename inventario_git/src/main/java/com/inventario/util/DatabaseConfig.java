@@ -7,6 +7,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Configuración y gestión de conexiones a la base de datos
@@ -14,7 +15,8 @@ import java.util.Properties;
 public class DatabaseConfig {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConfig.class);
     
-    // Configuración por defecto (puede ser sobrescrita por variables de entorno)
+    // Configuración por defecto (puede ser sobrescrita por variables de entorno o, si no están
+    // definidas, por propiedades del sistema con el mismo nombre: -DDB_PORT=3307)
     private static final String DEFAULT_HOST = "localhost";
     private static final String DEFAULT_PORT = "33061";
     private static final String DEFAULT_DATABASE = "inventario_db";
@@ -23,10 +25,14 @@ public class DatabaseConfig {
     
     private static final String DRIVER_CLASS = "com.mysql.cj.jdbc.Driver";
     
-    private static DatabaseConfig instance;
     private final String connectionUrl;
     private final Properties connectionProps;
     
+    // Tiempo dedicado a abrir conexiones: sin pool, es la espera de conexión de cada operación
+    private final AtomicLong conexionesAbiertas = new AtomicLong();
+    private final AtomicLong tiempoTotalConexionNanos = new AtomicLong();
+    private final AtomicLong tiempoMaximoConexionNanos = new AtomicLong();
+    
     private DatabaseConfig() {
         // Cargar configuración desde variables de entorno o usar valores por defecto
         String host = getEnvOrDefault("DB_HOST", DEFAULT_HOST);
@@ -50,20 +56,38 @@ public class DatabaseConfig {
         logger.info("Configuración de base de datos inicializada: {}:{}/{}", host, port, database);
     }
     
-    public static synchronized DatabaseConfig getInstance() {
-        if (instance == null) {
-            instance = new DatabaseConfig();
-        }
-        return instance;
+    // Inicialización diferida por la carga de la clase: getInstance() se llama en cada operación y así
+    // no toma ningún monitor (un hilo virtual esperando en uno queda fijado a su hilo portador)
+    private static class Holder {
+        private static final DatabaseConfig INSTANCE = new DatabaseConfig();
+    }
+    
+    public static DatabaseConfig getInstance() {
+        return Holder.INSTANCE;
     }
     
     /**
-     * Obtiene una nueva conexión a la base de datos
+     * Obtiene una nueva conexión a la base de datos. Sus sentencias lentas se anotan en el
+     * registro de consultas lentas (salvo con CONSULTAS_LENTAS=false)
      */
     public Connection getConnection() throws SQLException {
+        Connection connection = getConnectionSinMonitorizar();
+        return ConsultasLentas.estaHabilitado() ? ConsultasLentas.getInstance().monitorizar(connection) : connection;
+    }
+    
+    /**
+     * Obtiene una conexión cuyas sentencias no pasan por el registro de consultas lentas
+     * (la usa el propio registro para lanzar EXPLAIN)
+     */
+    public Connection getConnectionSinMonitorizar() throws SQLException {
         try {
             Class.forName(DRIVER_CLASS);
+            long inicio = System.nanoTime();
             Connection connection = DriverManager.getConnection(connectionUrl, connectionProps);
+            long espera = System.nanoTime() - inicio;
+            conexionesAbiertas.incrementAndGet();
+            tiempoTotalConexionNanos.addAndGet(espera);
+            tiempoMaximoConexionNanos.accumulateAndGet(espera, Math::max);
             connection.setAutoCommit(true); // Por defecto autocommit activado
             logger.debug("Nueva conexión establecida a la base de datos");
             return connection;
@@ -142,10 +166,35 @@ public class DatabaseConfig {
     
     private String getEnvOrDefault(String envName, String defaultValue) {
         String value = System.getenv(envName);
+        if (value == null) {
+            // Los benchmarks arrancan su propia base de datos y la indican así antes de la primera conexión
+            value = System.getProperty(envName);
+        }
         return value != null ? value : defaultValue;
     }
     
     public String getConnectionUrl() {
         return connectionUrl;
     }
+    
+    /**
+     * Conexiones abiertas con éxito desde el arranque
+     */
+    public long getConexionesAbiertas() {
+        return conexionesAbiertas.get();
+    }
+    
+    /**
+     * Tiempo total empleado en abrir esas conexiones, en nanosegundos
+     */
+    public long getTiempoTotalConexionNanos() {
+        return tiempoTotalConexionNanos.get();
+    }
+    
+    /**
+     * Apertura de conexión más lenta, en nanosegundos
+     */
+    public long getTiempoMaximoConexionNanos() {
+        return tiempoMaximoConexionNanos.get();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.inventario.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecutor compartido para trabajo JDBC bloqueante (lotes de importación, InventarioServiceAsync y otras
+ * operaciones masivas).
+ *
+ * Cada tarea corre en su propio hilo virtual: mientras espera a MySQL, el hilo portador queda libre
+ * para otras tareas, así que el número de hilos deja de ser el límite. El límite pasa a ser el de
+ * conexiones: un semáforo deja como mucho BD_MAX_CONCURRENCIA tareas (por defecto 32) con su conexión
+ * abierta a la vez; el resto espera aparcado sin ocupar ningún hilo de plataforma.
+ *
+ * Con HILOS_VIRTUALES=false se usa en su lugar un pool fijo de BD_MAX_CONCURRENCIA hilos.
+ */
+public class EjecutorBD {
+    private static final Logger logger = LoggerFactory.getLogger(EjecutorBD.class);
+
+    private static final long DEFAULT_MAX_CONCURRENCIA = 32;
+
+    private final ExecutorService hilos;
+    private final Semaphore conexiones;
+    private final int maxConcurrencia;
+    private final boolean hilosVirtuales;
+
+    /**
+     * Ejecutor propio con su límite de conexiones, aparte del compartido (getInstance)
+     */
+    public EjecutorBD(int maxConcurrencia) {
+        if (maxConcurrencia <= 0) {
+            throw new IllegalArgumentException("Concurrencia máxima de base de datos inválida: " + maxConcurrencia);
+        }
+        this.maxConcurrencia = maxConcurrencia;
+        this.conexiones = new Semaphore(maxConcurrencia);
+        this.hilosVirtuales = hilosVirtualesHabilitados();
+        this.hilos = crearEjecutor("bd-", maxConcurrencia);
+
+        logger.info("Ejecutor de base de datos: {} tareas concurrentes como máximo ({})", maxConcurrencia,
+            hilosVirtuales ? "hilos virtuales" : "pool de hilos");
+    }
+
+    private static class Holder {
+        private static final EjecutorBD INSTANCE = new EjecutorBD((int) VariablesEntorno.getLong("BD_MAX_CONCURRENCIA", DEFAULT_MAX_CONCURRENCIA));
+    }
+
+    public static EjecutorBD getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public static boolean hilosVirtualesHabilitados() {
+        return !"false".equalsIgnoreCase(System.getenv("HILOS_VIRTUALES"));
+    }
+
+    /**
+     * Ejecutor de un hilo virtual por tarea, o con HILOS_VIRTUALES=false un pool fijo de hilos de
+     * plataforma (daemon). El prefijo da nombre a los hilos para distinguirlos en volcados y en JFR
+     */
+    public static ExecutorService crearEjecutor(String prefijo, int hilosPlataforma) {
+        if (hilosVirtualesHabilitados()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefijo, 1).factory());
+        }
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilosPlataforma, tarea -> {
+            Thread hilo = new Thread(tarea, prefijo + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Ejecuta la tarea en cuanto haya una conexión disponible. Si la tarea lanza una excepción, el
+     * futuro se completa con ella
+     */
+    public <T> CompletableFuture<T> enviar(Callable<T> tarea) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        try {
+            hilos.execute(() -> ejecutar(tarea, resultado));
+        } catch (RejectedExecutionException e) {
+            resultado.completeExceptionally(e);
+        }
+        return resultado;
+    }
+
+    public int getMaxConcurrencia() {
+        return maxConcurrencia;
+    }
+
+    public boolean usaHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    private <T> void ejecutar(Callable<T> tarea, CompletableFuture<T> resultado) {
+        T valor;
+        try {
+            conexiones.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultado.completeExceptionally(e);
+            return;
+        }
+        try {
+            valor = tarea.call();
+        } catch (Throwable e) {
+            conexiones.release();
+            resultado.completeExceptionally(e);
+            return;
+        }
+        // El turno se libera antes de completar: las tareas encadenadas al futuro pueden pedir el suyo
+        conexiones.release();
+        resultado.complete(valor);
+    }
+}
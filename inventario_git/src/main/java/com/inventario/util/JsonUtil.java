@@ -1,5 +1,7 @@
 package com.inventario.util;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -14,6 +16,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Utilidad para manejo de archivos JSON
@@ -57,6 +60,46 @@ public class JsonUtil {
         }
     }
     
+    /**
+     * Exporta productos a JSON escribiéndolos uno a uno según llegan del Stream,
+     * sin materializar la lista completa. Devuelve el número de productos exportados
+     */
+    public static int exportarProductos(Stream<Producto> productos, String rutaArchivo) throws IOException {
+        logger.info("Exportando productos en streaming a JSON: {}", rutaArchivo);
+        
+        File archivo = new File(rutaArchivo);
+        File directorio = archivo.getParentFile();
+        if (directorio != null && !directorio.exists()) {
+            directorio.mkdirs();
+        }
+        
+        int total = 0;
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(archivo, JsonEncoding.UTF8)) {
+            generador.useDefaultPrettyPrinter();
+            generador.writeStartObject();
+            generador.writeStringField("fecha_exportacion",
+                LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            generador.writeArrayFieldStart("productos");
+            
+            for (Producto producto : (Iterable<Producto>) productos::iterator) {
+                generador.writeObject(producto);
+                total++;
+            }
+            
+            generador.writeEndArray();
+            // El total se conoce al final del recorrido
+            generador.writeNumberField("total_productos", total);
+            generador.writeEndObject();
+            
+            logger.info("Exportación en streaming completada: {} productos", total);
+            return total;
+            
+        } catch (IOException e) {
+            logger.error("Error al exportar productos en streaming a JSON: {}", rutaArchivo, e);
+            throw e;
+        }
+    }
+    
     /**
      * Exporta productos con stock bajo a JSON
      */
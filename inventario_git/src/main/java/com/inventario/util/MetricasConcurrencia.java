@@ -0,0 +1,72 @@
+package com.inventario.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de las actualizaciones optimistas de productos, compartidos por todo el proceso.
+ *
+ * Un conflicto es una actualización condicionada a una versión que otra escritura ya había
+ * cambiado. Si los conflictos crecen mucho respecto a las actualizaciones, el producto está
+ * demasiado disputado para el modo optimista.
+ */
+public class MetricasConcurrencia {
+
+    private final AtomicLong actualizacionesOptimistas = new AtomicLong();
+    private final AtomicLong conflictosVersion = new AtomicLong();
+    private final AtomicLong reintentos = new AtomicLong();
+    private final AtomicLong reintentosAgotados = new AtomicLong();
+
+    private MetricasConcurrencia() {}
+
+    private static class Holder {
+        private static final MetricasConcurrencia INSTANCE = new MetricasConcurrencia();
+    }
+
+    public static MetricasConcurrencia getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    public void registrarActualizacionOptimista() {
+        actualizacionesOptimistas.incrementAndGet();
+    }
+
+    public void registrarConflictoVersion() {
+        conflictosVersion.incrementAndGet();
+    }
+
+    public void registrarReintento() {
+        reintentos.incrementAndGet();
+    }
+
+    public void registrarReintentosAgotados() {
+        reintentosAgotados.incrementAndGet();
+    }
+
+    /**
+     * Actualizaciones condicionadas a versión que se aplicaron
+     */
+    public long getActualizacionesOptimistas() {
+        return actualizacionesOptimistas.get();
+    }
+
+    /**
+     * Actualizaciones rechazadas porque la versión ya había cambiado
+     */
+    public long getConflictosVersion() {
+        return conflictosVersion.get();
+    }
+
+    /**
+     * Reintentos hechos por el servicio tras un conflicto
+     */
+    public long getReintentos() {
+        return reintentos.get();
+    }
+
+    /**
+     * Operaciones que agotaron los reintentos sin conseguir aplicarse
+     */
+    public long getReintentosAgotados() {
+        return reintentosAgotados.get();
+    }
+}
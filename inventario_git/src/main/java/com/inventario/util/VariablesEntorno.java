@@ -0,0 +1,31 @@
+package com.inventario.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lectura de los parámetros numéricos que la aplicación toma de variables de entorno
+ * (tamaños de caché, intervalos, límites de concurrencia...)
+ */
+public final class VariablesEntorno {
+    private static final Logger logger = LoggerFactory.getLogger(VariablesEntorno.class);
+
+    private VariablesEntorno() {}
+
+    /**
+     * Valor numérico de la variable, o defaultValue si no está definida o no es un número válido
+     * (en ese caso se registra una advertencia)
+     */
+    public static long getLong(String envName, long defaultValue) {
+        String value = System.getenv(envName);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Valor inválido para {}: '{}'. Se usa {}", envName, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -1,5 +1,15 @@
 package com.inventario.xml;
 
+import com.inventario.cache.CacheProductos;
+import com.inventario.cache.ClavesIdempotencia;
+import com.inventario.cache.IndiceNombresProductos;
+import com.inventario.cache.RegistroCategorias;
+import com.inventario.cache.ReservasStock;
+import com.inventario.dao.LibroStockDAO;
+import com.inventario.dao.StockFragmentadoDAO;
+import com.inventario.dao.impl.LibroStockDAOImpl;
+import com.inventario.dao.impl.StockFragmentadoDAOImpl;
+import com.inventario.jfr.EventoSeccionXML;
 import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 
@@ -17,6 +27,9 @@ import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Clase para gestionar la exportación e importación del inventario en formato XML
@@ -25,12 +38,16 @@ import java.time.format.DateTimeFormatter;
  */
 public class XMLManager {
     
-    private static final String NAMESPACE_URI = "http://inventario.dam.es";
-    private static final String VERSION = "2.0";
+    public static final String NAMESPACE_URI = "http://inventario.dam.es";
+    public static final String VERSION = "2.0";
     private Connection connection;
+    private final StockFragmentadoDAO stockFragmentado;
+    private final LibroStockDAO libroStock;
     
     public XMLManager(Connection connection) {
         this.connection = connection;
+        this.stockFragmentado = new StockFragmentadoDAOImpl();
+        this.libroStock = new LibroStockDAOImpl();
     }
     
     /**
@@ -55,17 +72,17 @@ public class XMLManager {
             // Exportar categorías
             Element categorias = doc.createElementNS(NAMESPACE_URI, "categorias");
             inventario.appendChild(categorias);
-            exportarCategorias(doc, categorias);
+            medirSeccion("EXPORTAR", "categorias", () -> exportarCategorias(doc, categorias));
             
             // Exportar productos
             Element productos = doc.createElementNS(NAMESPACE_URI, "productos");
             inventario.appendChild(productos);
-            exportarProductos(doc, productos);
+            medirSeccion("EXPORTAR", "productos", () -> exportarProductos(doc, productos));
             
             // Exportar movimientos
             // Exportar movimientos (solo si existen)
             Element movimientos = doc.createElementNS(NAMESPACE_URI, "movimientos");
-            int cantidadMovimientos = exportarMovimientos(doc, movimientos);
+            int cantidadMovimientos = medirSeccion("EXPORTAR", "movimientos", () -> exportarMovimientos(doc, movimientos));
             if (cantidadMovimientos > 0) {
                 inventario.appendChild(movimientos);
             }
@@ -93,8 +110,9 @@ public class XMLManager {
     
     /**
      * Exporta las categorías de la base de datos al documento XML
+     * @return cantidad de categorías exportadas
      */
-    private void exportarCategorias(Document doc, Element categoriasElement) throws SQLException {
+    private int exportarCategorias(Document doc, Element categoriasElement) throws SQLException {
         String sql = "SELECT id_categoria, nombre, descripcion, fecha_creacion, fecha_modificacion " +
                     "FROM categorias ORDER BY id_categoria";
         
@@ -125,14 +143,26 @@ public class XMLManager {
                 count++;
             }
             System.out.println("→ Exportadas " + count + " categorías");
+            return count;
         }
     }
     
     /**
      * Exporta los productos de la base de datos al documento XML
+     * @return cantidad de productos exportados
      */
-    private void exportarProductos(Document doc, Element productosElement) throws SQLException {
-        String sql = "SELECT id_producto, nombre, categoria, precio, stock, " +
+    private int exportarProductos(Document doc, Element productosElement) throws SQLException {
+        // En modo libro mayor productos.stock se refresca antes con un snapshot de cada producto pendiente
+        if (LibroStockDAOImpl.estaHabilitado()) {
+            libroStock.tomarSnapshots(1);
+        }
+        
+        // Los productos con stock fragmentado tienen su stock real repartido en stock_fragmentos
+        String columnaStock = stockFragmentado.obtenerProductosFragmentados().isEmpty()
+            ? "stock"
+            : "stock + COALESCE((SELECT SUM(f.stock) FROM stock_fragmentos f " +
+              "WHERE f.id_producto = productos.id_producto), 0) AS stock";
+        String sql = "SELECT id_producto, nombre, categoria, precio, " + columnaStock + ", " +
                     "fecha_creacion, fecha_modificacion FROM productos ORDER BY id_producto";
         
         try (Statement stmt = connection.createStatement();
@@ -160,6 +190,7 @@ public class XMLManager {
                 count++;
             }
             System.out.println("→ Exportados " + count + " productos");
+            return count;
         }
     }
     
@@ -169,7 +200,7 @@ public class XMLManager {
      */
     private int exportarMovimientos(Document doc, Element movimientosElement) throws SQLException {
         String sql = "SELECT id_movimiento, id_producto, tipo_movimiento, cantidad, " +
-                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario " +
+                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario, clave_idempotencia " +
                     "FROM movimientos_stock ORDER BY fecha_movimiento DESC";
         
         int count = 0;
@@ -197,6 +228,11 @@ public class XMLManager {
                 
                 crearElemento(doc, movimiento, "usuario", rs.getString("usuario"));
                 
+                String clave = rs.getString("clave_idempotencia");
+                if (clave != null) {
+                    crearElemento(doc, movimiento, "claveIdempotencia", clave);
+                }
+                
                 movimientosElement.appendChild(movimiento);
                 count++;
             }
@@ -205,6 +241,30 @@ public class XMLManager {
         return count;
     }
     
+    /**
+     * Cuerpo de una sección de exportación o importación; devuelve las filas tratadas
+     */
+    @FunctionalInterface
+    private interface Seccion {
+        int procesar() throws SQLException;
+    }
+    
+    /**
+     * Ejecuta una sección dentro de un evento JFR (sin coste si no hay grabación activa)
+     */
+    private int medirSeccion(String operacion, String nombre, Seccion seccion) throws SQLException {
+        EventoSeccionXML evento = EventoSeccionXML.iniciar();
+        int filas = 0;
+        boolean exito = false;
+        try {
+            filas = seccion.procesar();
+            exito = true;
+            return filas;
+        } finally {
+            evento.terminar(operacion, nombre, filas, exito);
+        }
+    }
+    
     /**
      * Método auxiliar para crear elementos XML con namespace
      */
@@ -268,15 +328,22 @@ public class XMLManager {
             doc.getDocumentElement().normalize();
             
             // Importar categorías primero (tienen que existir antes de los productos)
-            importarCategoriasDesdeXML(doc);
+            medirSeccion("IMPORTAR", "categorias", () -> importarCategoriasDesdeXML(doc));
             
             // Importar productos
-            importarProductosDesdeXML(doc);
+            medirSeccion("IMPORTAR", "productos", () -> importarProductosDesdeXML(doc));
             
             // Importar movimientos
-            importarMovimientosDesdeXML(doc);
+            medirSeccion("IMPORTAR", "movimientos", () -> importarMovimientosDesdeXML(doc));
             
             connection.commit();
+            // Los productos y categorías importados pueden sustituir a los que hubiera en memoria
+            CacheProductos.getInstance().invalidarTodo();
+            RegistroCategorias.getInstance().invalidar();
+            IndiceNombresProductos.getInstance().invalidar();
+            stockFragmentado.recargar();
+            ReservasStock.getInstance().invalidar();
+            ClavesIdempotencia.getInstance().invalidar();
             System.out.println("✓ Inventario importado exitosamente desde: " + rutaXML);
             return true;
             
@@ -314,13 +381,14 @@ public class XMLManager {
     /**
      * Importa las categorías desde el documento XML
      * Usa UPSERT (INSERT ... ON DUPLICATE KEY UPDATE) para manejar duplicados
+     * @return cantidad de categorías insertadas o actualizadas
      */
-    private void importarCategoriasDesdeXML(Document doc) throws SQLException {
+    private int importarCategoriasDesdeXML(Document doc) throws SQLException {
         NodeList categoriasLista = doc.getElementsByTagNameNS(NAMESPACE_URI, "categoria");
         
         if (categoriasLista.getLength() == 0) {
             System.out.println("→ No hay categorías para importar");
-            return;
+            return 0;
         }
         
         // UPSERT: Inserta si no existe, actualiza si existe
@@ -375,13 +443,15 @@ public class XMLManager {
         }
         
         System.out.println("→ Categorías: " + insertadas + " insertadas, " + actualizadas + " actualizadas");
+        return insertadas + actualizadas;
     }
     
     /**
      * Importa los productos desde el documento XML
      * Usa UPSERT (INSERT ... ON DUPLICATE KEY UPDATE) para manejar duplicados
+     * @return cantidad de productos insertados o actualizados
      */
-    private void importarProductosDesdeXML(Document doc) throws SQLException {
+    private int importarProductosDesdeXML(Document doc) throws SQLException {
         NodeList productosLista = doc.getElementsByTagNameNS(NAMESPACE_URI, "producto");
         
         // UPSERT: Inserta si no existe, actualiza si existe
@@ -392,16 +462,25 @@ public class XMLManager {
                     "categoria = VALUES(categoria), " +
                     "precio = VALUES(precio), " +
                     "stock = VALUES(stock), " +
-                    "fecha_modificacion = VALUES(fecha_modificacion)";
+                    "fecha_modificacion = VALUES(fecha_modificacion), " +
+                    "version = version + 1";
         
         int insertados = 0;
         int actualizados = 0;
+        Set<Integer> fragmentados = stockFragmentado.obtenerProductosFragmentados().keySet();
+        List<Integer> fragmentosObsoletos = new ArrayList<>();
+        List<Integer> importados = new ArrayList<>();
         
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             for (int i = 0; i < productosLista.getLength(); i++) {
                 Element producto = (Element) productosLista.item(i);
                 
-                pstmt.setInt(1, Integer.parseInt(getValorElemento(producto, "idProducto")));
+                int idProducto = Integer.parseInt(getValorElemento(producto, "idProducto"));
+                importados.add(idProducto);
+                if (fragmentados.contains(idProducto)) {
+                    fragmentosObsoletos.add(idProducto);
+                }
+                pstmt.setInt(1, idProducto);
                 pstmt.setString(2, getValorElemento(producto, "nombre"));
                 pstmt.setString(3, getValorElemento(producto, "categoria"));
                 pstmt.setDouble(4, Double.parseDouble(getValorElemento(producto, "precio")));
@@ -424,32 +503,49 @@ public class XMLManager {
                 }
             }
         }
+        
+        // El stock del XML ya es el total: los fragmentos previos de esos productos sobran
+        if (!fragmentosObsoletos.isEmpty()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "DELETE FROM stock_fragmentos WHERE id_producto = ?")) {
+                for (int idProducto : fragmentosObsoletos) {
+                    pstmt.setInt(1, idProducto);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+        }
+        // Igual con los snapshots del libro mayor: el stock de esos productos vuelve a ser productos.stock
+        libroStock.descartarSnapshots(connection, importados);
         System.out.println("→ Productos: " + insertados + " insertados, " + actualizados + " actualizados");
+        return insertados + actualizados;
     }
     
     /**
      * Importa los movimientos desde el documento XML
      * Usa UPSERT (INSERT ... ON DUPLICATE KEY UPDATE) para manejar duplicados
+     * @return cantidad de movimientos insertados o actualizados
      */
-    private void importarMovimientosDesdeXML(Document doc) throws SQLException {
+    private int importarMovimientosDesdeXML(Document doc) throws SQLException {
         NodeList movimientosLista = doc.getElementsByTagNameNS(NAMESPACE_URI, "movimiento");
         
         if (movimientosLista.getLength() == 0) {
             System.out.println("→ No hay movimientos para importar");
-            return;
+            return 0;
         }
         
         // UPSERT: Inserta si no existe, actualiza si existe
         String sql = "INSERT INTO movimientos_stock (id_movimiento, id_producto, tipo_movimiento, cantidad, " +
-                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "stock_anterior, stock_nuevo, motivo, fecha_movimiento, usuario, clave_idempotencia) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
                     "ON DUPLICATE KEY UPDATE " +
                     "tipo_movimiento = VALUES(tipo_movimiento), " +
                     "cantidad = VALUES(cantidad), " +
                     "stock_anterior = VALUES(stock_anterior), " +
                     "stock_nuevo = VALUES(stock_nuevo), " +
                     "motivo = VALUES(motivo), " +
-                    "usuario = VALUES(usuario)";
+                    "usuario = VALUES(usuario), " +
+                    "clave_idempotencia = VALUES(clave_idempotencia)";
         
         int insertados = 0;
         int actualizados = 0;
@@ -478,6 +574,7 @@ public class XMLManager {
                 pstmt.setTimestamp(8, Timestamp.valueOf(fecha));
                 
                 pstmt.setString(9, getValorElemento(movimiento, "usuario"));
+                pstmt.setString(10, getValorElemento(movimiento, "claveIdempotencia"));
                 
                 int affectedRows = pstmt.executeUpdate();
                 
@@ -489,6 +586,7 @@ public class XMLManager {
             }
         }
         System.out.println("→ Movimientos: " + insertados + " insertados, " + actualizados + " actualizados");
+        return insertados + actualizados;
     }
     
     /**
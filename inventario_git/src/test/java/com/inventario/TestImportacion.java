@@ -1,12 +1,13 @@
 package com.inventario;
 
+import com.inventario.dao.impl.MovimientoStockDAOImpl;
 import com.inventario.service.ImportadorMovimientosCSV;
 
 public class TestImportacion {
     public static void main(String[] args) {
         System.out.println("=== PRUEBA DE IMPORTACIÓN DE MOVIMIENTOS CSV ===\n");
 
-        ImportadorMovimientosCSV importador = new ImportadorMovimientosCSV();
+        ImportadorMovimientosCSV importador = new ImportadorMovimientosCSV(new MovimientoStockDAOImpl());
 
         // Probar con archivo de ejemplo
         String rutaArchivo = "data/movimientos_ejemplo.csv";